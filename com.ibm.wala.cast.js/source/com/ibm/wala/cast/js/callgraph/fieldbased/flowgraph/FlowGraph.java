@@ -62,6 +62,7 @@ import com.ibm.wala.util.collections.CompoundIterator;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.graph.CondensedGraphReachability;
 import com.ibm.wala.util.graph.Graph;
 import com.ibm.wala.util.graph.GraphReachability;
 import com.ibm.wala.util.graph.GraphSlicer;
@@ -125,7 +126,7 @@ public class FlowGraph implements Iterable<Vertex> {
 		
 		// compute transitive closure
 		GraphReachability<Vertex, T> optimistic_closure = 
-		    new GraphReachability<Vertex,T>(
+		    new CondensedGraphReachability<Vertex,T>(
 		      new InvertedGraph<Vertex>(pruned_flowgraph),
 		      new Predicate<Vertex>() {
 		        @Override public boolean test(Vertex o) {
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+
+/**
+ * Time to build call graphs of test programs with {@link com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXCFABuilder}s of
+ * different precision.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CallGraphBenchmark {
+
+  @Param({ TestConstants.SLICE1_MAIN, TestConstants.RECURSE_MAIN, TestConstants.ARRAY_ALIAS_MAIN })
+  public String mainClass;
+
+  @Param({ "0-CFA", "0-1-CFA", "0-1-container-CFA" })
+  public String builder;
+
+  private AnalysisScope scope;
+
+  private IClassHierarchy cha;
+
+  @Setup
+  public void setup() throws IOException, ClassHierarchyException {
+    scope = Inputs.makeScope();
+    cha = Inputs.makeClassHierarchy(scope);
+  }
+
+  @Benchmark
+  public CallGraph makeCallGraph() throws CancelException {
+    AnalysisOptions options = Inputs.makeOptions(scope, cha, mainClass);
+    AnalysisCache cache = new AnalysisCache();
+    CallGraphBuilder b;
+    if (builder.equals("0-CFA")) {
+      b = Util.makeZeroCFABuilder(options, cache, cha, scope);
+    } else if (builder.equals("0-1-CFA")) {
+      b = Util.makeZeroOneCFABuilder(options, cache, cha, scope);
+    } else if (builder.equals("0-1-container-CFA")) {
+      b = Util.makeZeroOneContainerCFABuilder(options, cache, cha, scope);
+    } else {
+      throw new IllegalArgumentException("unknown builder " + builder);
+    }
+    return b.makeCallGraph(options, null);
+  }
+}
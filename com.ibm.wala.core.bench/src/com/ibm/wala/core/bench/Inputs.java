@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+
+/**
+ * The fixed inputs of the benchmarks: the programs of com.ibm.wala.core.testdata, in the scope used by the regression tests.
+ */
+final class Inputs {
+
+  private Inputs() {
+  }
+
+  static AnalysisScope makeScope() throws IOException {
+    return CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+  }
+
+  static IClassHierarchy makeClassHierarchy(AnalysisScope scope) throws ClassHierarchyException {
+    return ClassHierarchy.make(scope);
+  }
+
+  /**
+   * @param mainClass name of a class in the test data, like "Lslice/Slice1"
+   * @return options for analyzing the main method of mainClass
+   */
+  static AnalysisOptions makeOptions(AnalysisScope scope, IClassHierarchy cha, String mainClass) {
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, mainClass);
+    return CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+  }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.wala.util.intset.BimodalMutableIntSetFactory;
+import com.ibm.wala.util.intset.BitVectorIntSetFactory;
+import com.ibm.wala.util.intset.IntSetAction;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
+import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
+import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
+
+/**
+ * The basic operations of the {@link MutableIntSet} implementations, on sets of pseudo-random elements from a fixed seed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IntSetBenchmark {
+
+  @Param({ "BitVector", "MutableSparse", "SemiSparse", "MutableSharedBitVector", "Bimodal" })
+  public String factory;
+
+  /**
+   * number of elements in each set
+   */
+  @Param({ "16", "1024" })
+  public int size;
+
+  /**
+   * elements are drawn from [0, size * density)
+   */
+  @Param({ "4", "64" })
+  public int density;
+
+  private MutableIntSetFactory<?> f;
+
+  private int[] elements;
+
+  private int[] probes;
+
+  private MutableIntSet a;
+
+  private MutableIntSet b;
+
+  @Setup
+  public void setup() {
+    f = makeFactory(factory);
+    Random r = new Random(42);
+    int range = size * density;
+    elements = new int[size];
+    for (int i = 0; i < size; i++) {
+      elements[i] = r.nextInt(range);
+    }
+    probes = new int[size];
+    for (int i = 0; i < size; i++) {
+      probes[i] = r.nextInt(range);
+    }
+    a = f.make();
+    for (int x : elements) {
+      a.add(x);
+    }
+    b = f.make();
+    for (int x : probes) {
+      b.add(x);
+    }
+  }
+
+  private static MutableIntSetFactory<?> makeFactory(String name) {
+    if (name.equals("BitVector")) {
+      return new BitVectorIntSetFactory();
+    } else if (name.equals("MutableSparse")) {
+      return new MutableSparseIntSetFactory();
+    } else if (name.equals("SemiSparse")) {
+      return new SemiSparseMutableIntSetFactory();
+    } else if (name.equals("MutableSharedBitVector")) {
+      return new MutableSharedBitVectorIntSetFactory();
+    } else if (name.equals("Bimodal")) {
+      return new BimodalMutableIntSetFactory();
+    } else {
+      throw new IllegalArgumentException("unknown factory " + name);
+    }
+  }
+
+  @Benchmark
+  public MutableIntSet add() {
+    MutableIntSet s = f.make();
+    for (int x : elements) {
+      s.add(x);
+    }
+    return s;
+  }
+
+  @Benchmark
+  public void contains(Blackhole bh) {
+    for (int x : probes) {
+      bh.consume(a.contains(x));
+    }
+  }
+
+  @Benchmark
+  public MutableIntSet addAll() {
+    MutableIntSet s = f.makeCopy(a);
+    s.addAll(b);
+    return s;
+  }
+
+  @Benchmark
+  public MutableIntSet intersectWith() {
+    MutableIntSet s = f.makeCopy(a);
+    s.intersectWith(b);
+    return s;
+  }
+
+  @Benchmark
+  public boolean containsAny() {
+    return a.containsAny(b);
+  }
+
+  @Benchmark
+  public void foreach(final Blackhole bh) {
+    a.foreach(new IntSetAction() {
+      @Override
+      public void act(int x) {
+        bh.consume(x);
+      }
+    });
+  }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * Throughput of the intern tables of {@link Atom}, {@link TypeReference} and {@link MethodReference} on one and on four threads.
+ * As when parsing class files, almost all lookups find an existing entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InterningBenchmark {
+
+  private static final int NAMES = 4096;
+
+  private final byte[][] atoms = new byte[NAMES][];
+
+  private final String[] types = new String[NAMES];
+
+  private final String[] methods = new String[NAMES];
+
+  private Descriptor descriptor;
+
+  @Setup
+  public void setup() {
+    for (int i = 0; i < NAMES; i++) {
+      atoms[i] = ("name" + i).getBytes();
+      types[i] = "Lbench/C" + i;
+      methods[i] = "m" + i;
+    }
+    descriptor = Descriptor.findOrCreateUTF8("(Ljava/lang/Object;)V");
+  }
+
+  private void intern(Blackhole bh) {
+    for (int i = 0; i < NAMES; i++) {
+      bh.consume(Atom.findOrCreate(atoms[i]));
+      TypeReference t = TypeReference.findOrCreate(ClassLoaderReference.Application, types[i]);
+      bh.consume(MethodReference.findOrCreate(t, Atom.findOrCreateUnicodeAtom(methods[i]), descriptor));
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void internOneThread(Blackhole bh) {
+    intern(bh);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void internFourThreads(Blackhole bh) {
+    intern(bh);
+  }
+}
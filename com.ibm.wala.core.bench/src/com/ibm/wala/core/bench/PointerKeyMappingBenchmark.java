@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OpenAddressingMapping;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+
+/**
+ * Numbering the pointer keys of a 0-1-CFA call graph with the {@link OpenAddressingMapping} used by
+ * {@link com.ibm.wala.ipa.callgraph.propagation.PointsToMap}, and with the {@link MutableMapping} it replaced.
+ *
+ * Run with "-prof gc": the gc.alloc.rate.norm of {@link #number()} is the number of bytes allocated to build one mapping, which
+ * bounds its footprint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PointerKeyMappingBenchmark {
+
+  @Param({ TestConstants.SLICE1_MAIN, TestConstants.ARRAY_ALIAS_MAIN })
+  public String mainClass;
+
+  @Param({ "MutableMapping", "OpenAddressingMapping" })
+  public String mapping;
+
+  private PointerKey[] keys;
+
+  private OrdinalSetMapping<PointerKey> full;
+
+  @Setup
+  public void setup() throws IOException, ClassHierarchyException, CancelException {
+    AnalysisScope scope = Inputs.makeScope();
+    IClassHierarchy cha = Inputs.makeClassHierarchy(scope);
+    AnalysisOptions options = Inputs.makeOptions(scope, cha, mainClass);
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    builder.makeCallGraph(options, null);
+    keys = Iterator2Collection.toList(builder.getPointerAnalysis().getPointerKeys().iterator()).toArray(new PointerKey[0]);
+    full = number();
+  }
+
+  private OrdinalSetMapping<PointerKey> makeMapping() {
+    if (mapping.equals("MutableMapping")) {
+      return MutableMapping.make();
+    } else if (mapping.equals("OpenAddressingMapping")) {
+      return OpenAddressingMapping.make();
+    } else {
+      throw new IllegalArgumentException("unknown mapping " + mapping);
+    }
+  }
+
+  @Benchmark
+  public OrdinalSetMapping<PointerKey> number() {
+    OrdinalSetMapping<PointerKey> m = makeMapping();
+    for (PointerKey k : keys) {
+      m.add(k);
+    }
+    return m;
+  }
+
+  @Benchmark
+  public void lookup(Blackhole bh) {
+    for (PointerKey k : keys) {
+      bh.consume(full.getMappedIndex(k));
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.core.tests.slicer.SlicerTest;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.slicer.Slicer;
+import com.ibm.wala.ipa.slicer.Slicer.ControlDependenceOptions;
+import com.ibm.wala.ipa.slicer.Slicer.DataDependenceOptions;
+import com.ibm.wala.ipa.slicer.Statement;
+import com.ibm.wala.util.CancelException;
+
+/**
+ * Time for {@link Slicer#computeBackwardSlice} from the call to println in the main method of a slicing test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SlicerBenchmark {
+
+  @Param({ "FULL", "NO_BASE_PTRS", "NO_HEAP" })
+  public String dataDependence;
+
+  @Param({ "NONE", "FULL" })
+  public String controlDependence;
+
+  private CallGraph cg;
+
+  private PointerAnalysis<InstanceKey> pa;
+
+  private Statement seed;
+
+  @Setup
+  public void setup() throws IOException, ClassHierarchyException, CancelException {
+    AnalysisScope scope = Inputs.makeScope();
+    IClassHierarchy cha = Inputs.makeClassHierarchy(scope);
+    AnalysisOptions options = Inputs.makeOptions(scope, cha, TestConstants.SLICE1_MAIN);
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    cg = builder.makeCallGraph(options, null);
+    pa = builder.getPointerAnalysis();
+    seed = SlicerTest.findCallTo(SlicerTest.findMainMethod(cg), "println");
+  }
+
+  @Benchmark
+  public Collection<Statement> computeBackwardSlice() throws CancelException {
+    return Slicer.computeBackwardSlice(seed, cg, pa, DataDependenceOptions.valueOf(dataDependence),
+        ControlDependenceOptions.valueOf(controlDependence));
+  }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.basic;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.util.collections.IteratorUtil;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.impl.FrozenNumberedGraph;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.SparseIntSet;
+
+public class FrozenGraphTest {
+
+  private static NumberedGraph<Integer> makeGraph(int nodes, int edges, long seed) {
+    NumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < nodes; i++) {
+      g.addNode(i);
+    }
+    Random r = new Random(seed);
+    for (int i = 0; i < edges; i++) {
+      g.addEdge(r.nextInt(nodes), r.nextInt(nodes));
+    }
+    // leave a hole in the numbering
+    g.removeNodeAndEdges(nodes / 2);
+    return g;
+  }
+
+  @Test
+  public void testSameEdges() {
+    NumberedGraph<Integer> g = makeGraph(500, 3000, 17);
+    FrozenNumberedGraph<Integer> f = FrozenNumberedGraph.make(g);
+
+    Assert.assertEquals(g.getNumberOfNodes(), f.getNumberOfNodes());
+    Assert.assertEquals(g.getMaxNumber(), f.getMaxNumber());
+    int edges = 0;
+    for (Integer n : g) {
+      Assert.assertEquals(g.getNumber(n), f.getNumber(n));
+      Assert.assertTrue(same(g.getSuccNodeNumbers(n), f.getSuccNodeNumbers(n)));
+      Assert.assertTrue(same(g.getPredNodeNumbers(n), f.getPredNodeNumbers(n)));
+      Assert.assertEquals(g.getSuccNodeCount(n), f.getSuccNodeCount(n));
+      Assert.assertEquals(g.getPredNodeCount(n), f.getPredNodeCount(n));
+      Assert.assertEquals(IteratorUtil.count(g.getSuccNodes(n)), IteratorUtil.count(f.getSuccNodes(n)));
+      for (Integer m : g) {
+        Assert.assertEquals(g.hasEdge(n, m), f.hasEdge(n, m));
+      }
+      edges += g.getSuccNodeCount(n);
+    }
+    Assert.assertFalse(f.containsNode(250));
+    Assert.assertEquals(edges, f.getNumberOfEdges());
+    Assert.assertEquals(IteratorUtil.count(new SCCIterator<Integer>(g)), IteratorUtil.count(new SCCIterator<Integer>(f)));
+  }
+
+  @Test
+  public void testSetOperations() {
+    NumberedGraph<Integer> g = makeGraph(100, 1000, 5);
+    FrozenNumberedGraph<Integer> f = FrozenNumberedGraph.make(g);
+    IntSet a = f.getSuccNodeNumbers(1);
+    IntSet b = f.getPredNodeNumbers(2);
+    IntSet a2 = new SparseIntSet(a);
+    IntSet b2 = new SparseIntSet(b);
+    Assert.assertTrue(a.intersection(b).sameValue(a2.intersection(b2)));
+    Assert.assertTrue(a.union(b).sameValue(a2.union(b2)));
+    Assert.assertEquals(a2.containsAny(b2), a.containsAny(b));
+    Assert.assertEquals(a2.max(), a.max());
+    Assert.assertTrue(a.isSubset(a.union(b)));
+  }
+
+  @Test
+  public void testReadOnly() {
+    FrozenNumberedGraph<Integer> f = FrozenNumberedGraph.make(makeGraph(10, 20, 1));
+    try {
+      f.addEdge(1, 2);
+      Assert.fail("added an edge to a frozen graph");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  private static boolean same(IntSet expected, IntSet actual) {
+    if (expected == null) {
+      return actual.isEmpty();
+    }
+    return expected.sameValue(actual) && actual.sameValue(expected);
+  }
+}
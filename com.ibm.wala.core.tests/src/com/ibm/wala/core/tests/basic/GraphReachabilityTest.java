@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.basic;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.Predicate;
+import com.ibm.wala.util.graph.CondensedGraphReachability;
+import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.GraphReachability;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.intset.OrdinalSet;
+
+public class GraphReachabilityTest {
+
+  private final static Predicate<Integer> EVEN = new Predicate<Integer>() {
+    @Override
+    public boolean test(Integer t) {
+      return t % 2 == 0;
+    }
+  };
+
+  private static Graph<Integer> makeGraph(int nodes, int edges, long seed) {
+    Graph<Integer> g = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < nodes; i++) {
+      g.addNode(i);
+    }
+    Random r = new Random(seed);
+    for (int i = 0; i < edges; i++) {
+      // mostly forward edges, so there are both chains and cycles
+      int from = r.nextInt(nodes);
+      int to = r.nextInt(10) == 0 ? r.nextInt(nodes) : Math.min(nodes - 1, from + 1 + r.nextInt(5));
+      g.addEdge(from, to);
+    }
+    return g;
+  }
+
+  @Test
+  public void testSameSets() throws CancelException {
+    Graph<Integer> g = makeGraph(1000, 1500, 3);
+    GraphReachability<Integer, Integer> expected = new GraphReachability<Integer, Integer>(g, EVEN);
+    expected.solve(null);
+    CondensedGraphReachability<Integer, Integer> actual = new CondensedGraphReachability<Integer, Integer>(g, EVEN);
+    actual.solve(null);
+
+    Assert.assertTrue(actual.getNumberOfComponents() < g.getNumberOfNodes());
+    for (Integer n : g) {
+      OrdinalSet<Integer> e = expected.getReachableSet(n);
+      OrdinalSet<Integer> a = actual.getReachableSet(n);
+      Assert.assertEquals(e.size(), a.size());
+      for (Integer x : e) {
+        Assert.assertTrue(a.contains(x));
+      }
+    }
+    Assert.assertTrue(actual.getNumberOfSets() < actual.getNumberOfComponents());
+    Assert.assertTrue(actual.getMemoryUsage() > 0);
+  }
+
+  @Test
+  public void testOnDemand() throws CancelException {
+    Graph<Integer> g = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < 6; i++) {
+      g.addNode(i);
+    }
+    // 0 -> 1 -> 2 <-> 3, and 4 -> 5 on the side
+    g.addEdge(0, 1);
+    g.addEdge(1, 2);
+    g.addEdge(2, 3);
+    g.addEdge(3, 2);
+    g.addEdge(4, 5);
+    CondensedGraphReachability<Integer, Integer> r = new CondensedGraphReachability<Integer, Integer>(g, EVEN);
+    try {
+      r.getReachableSet(0);
+      Assert.fail("queried before solving");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    r.solve(null);
+    Assert.assertEquals(5, r.getNumberOfComponents());
+
+    OrdinalSet<Integer> s = r.getReachableSet(1);
+    Assert.assertEquals(1, s.size());
+    Assert.assertTrue(s.contains(2));
+    // 1 adds nothing to the set of {2, 3}, and 4 was never queried
+    Assert.assertEquals(1, r.getNumberOfSets());
+
+    s = r.getReachableSet(0);
+    Assert.assertEquals(2, s.size());
+    Assert.assertTrue(s.contains(0));
+    Assert.assertEquals(2, r.getNumberOfSets());
+
+    Assert.assertTrue(r.getReachableSet(5).isEmpty());
+    Assert.assertTrue(r.getReachableSet(42).isEmpty());
+  }
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.basic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * Check that interning from several threads at once still yields one canonical instance per value.
+ */
+public class InterningTest {
+
+  private static final int THREADS = 8;
+
+  private static final int NAMES = 2000;
+
+  @Test
+  public void testConcurrentInterning() throws Exception {
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Callable<Object[]>> tasks = new ArrayList<Callable<Object[]>>();
+    for (int t = 0; t < THREADS; t++) {
+      tasks.add(new Callable<Object[]>() {
+        @Override
+        public Object[] call() throws InterruptedException {
+          start.await();
+          Object[] result = new Object[4 * NAMES];
+          for (int i = 0; i < NAMES; i++) {
+            TypeReference type = TypeReference.findOrCreate(ClassLoaderReference.Application, "LinterningTest/C" + i);
+            Atom name = Atom.findOrCreateUnicodeAtom("interningTest" + i);
+            result[4 * i] = name;
+            result[4 * i + 1] = type;
+            result[4 * i + 2] = MethodReference.findOrCreate(type, name, Descriptor.findOrCreateUTF8("(I)LinterningTest/C" + i + ";"));
+            result[4 * i + 3] = FieldReference.findOrCreate(type, name, type);
+          }
+          return result;
+        }
+      });
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Object[]>> futures = new ArrayList<Future<Object[]>>();
+      for (Callable<Object[]> task : tasks) {
+        futures.add(pool.submit(task));
+      }
+      start.countDown();
+      Object[] first = futures.get(0).get();
+      for (Future<Object[]> f : futures) {
+        Object[] other = f.get();
+        for (int i = 0; i < first.length; i++) {
+          Assert.assertSame(first[i], other[i]);
+        }
+      }
+      // and lookups from this thread see the same instances
+      Assert.assertSame(first[1], TypeReference.find(ClassLoaderReference.Application, "LinterningTest/C0"));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
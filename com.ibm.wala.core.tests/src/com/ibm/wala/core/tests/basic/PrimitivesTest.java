@@ -15,6 +15,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -34,15 +35,19 @@ import com.ibm.wala.util.intset.BasicNaturalRelation;
 import com.ibm.wala.util.intset.BimodalMutableIntSetFactory;
 import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.BitVectorBase;
+import com.ibm.wala.util.intset.BitVectorIntSet;
 import com.ibm.wala.util.intset.BitVectorIntSetFactory;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntPair;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.IntegerUnionFind;
 import com.ibm.wala.util.intset.LongSet;
 import com.ibm.wala.util.intset.LongSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableCompressedBitmapIntSet;
+import com.ibm.wala.util.intset.MutableCompressedBitmapIntSetFactory;
 import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableLongSet;
 import com.ibm.wala.util.intset.MutableLongSetFactory;
@@ -348,6 +353,81 @@ public class PrimitivesTest extends WalaTestCase {
     doMutableIntSet(new SemiSparseMutableIntSetFactory());
   }
 
+  /**
+   * Test the MutableCompressedBitmapIntSet implementation
+   */
+  @Test public void testMutableCompressedBitmapIntSet() {
+    doMutableIntSet(new MutableCompressedBitmapIntSetFactory());
+  }
+
+  /**
+   * Test the array, bitmap and run containers of MutableCompressedBitmapIntSet against BitVectorIntSet
+   */
+  @Test public void testCompressedBitmapContainers() {
+    Random r = new Random(42);
+    MutableCompressedBitmapIntSet a = new MutableCompressedBitmapIntSet();
+    MutableCompressedBitmapIntSet b = new MutableCompressedBitmapIntSet();
+    BitVectorIntSet a2 = new BitVectorIntSet();
+    BitVectorIntSet b2 = new BitVectorIntSet();
+    // a dense chunk, a run, and sparse elements spread over many chunks
+    for (int i = 0; i < 20000; i++) {
+      int x = r.nextInt(1 << 16);
+      a.add(x);
+      a2.add(x);
+    }
+    for (int i = 200000; i < 210000; i++) {
+      b.add(i);
+      b2.add(i);
+    }
+    for (int i = 0; i < 3000; i++) {
+      int x = r.nextInt(1 << 22);
+      a.add(x);
+      a2.add(x);
+      int y = r.nextInt(1 << 22);
+      b.add(y);
+      b2.add(y);
+    }
+    for (int round = 0; round < 2; round++) {
+      Assert.assertTrue(a.sameValue(a2));
+      Assert.assertTrue(a2.sameValue(a));
+      Assert.assertTrue(b.sameValue(b2));
+      Assert.assertEquals(a2.max(), a.max());
+      Assert.assertTrue(a.intersection(b).sameValue(a2.intersection(b2)));
+      Assert.assertTrue(a.union(b).sameValue(a2.union(b2)));
+      Assert.assertEquals(a2.containsAny(b2), a.containsAny(b));
+      Assert.assertTrue(a.intersection(b).isSubset(b));
+      Assert.assertFalse(a.isSubset(b));
+
+      final BitVectorIntSet d = new BitVectorIntSet();
+      a.foreachExcluding(b, new IntSetAction() {
+        @Override
+        public void act(int x) {
+          d.add(x);
+        }
+      });
+      BitVectorIntSet d2 = new BitVectorIntSet(a2);
+      d2.removeAll(b2);
+      Assert.assertTrue(d.sameValue(d2));
+
+      MutableCompressedBitmapIntSet c = new MutableCompressedBitmapIntSet(b);
+      BitVectorIntSet c2 = new BitVectorIntSet(b2);
+      c.addAllInIntersection(a, a.union(b));
+      c2.addAllInIntersection(a2, a2.union(b2));
+      Assert.assertTrue(c.sameValue(c2));
+      for (int i = 199000; i < 211000; i += 7) {
+        Assert.assertEquals(c2.remove(i), c.remove(i));
+      }
+      Assert.assertTrue(c.sameValue(c2));
+      c.intersectWith(a);
+      c2.intersectWith(a2);
+      Assert.assertTrue(c.sameValue(c2));
+
+      // the same again once the sets hold runs
+      a.compact();
+      b.compact();
+    }
+  }
+
   /**
    * Test the MutableSparseIntSet implementation
    */
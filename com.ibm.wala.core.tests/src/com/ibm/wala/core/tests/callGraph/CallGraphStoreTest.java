@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.CallGraphStore;
+import com.ibm.wala.ipa.callgraph.impl.StoredCallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+
+/**
+ * Check that a call graph and its pointer analysis read back from a {@link CallGraphStore} equal the originals.
+ */
+public class CallGraphStoreTest extends WalaTestCase {
+
+  @Test
+  public void testRecursion() throws Exception {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    AnalysisCache cache = new AnalysisCache();
+    CallGraphBuilder<InstanceKey> builder = Util.makeZeroOneCFABuilder(options, cache, cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    File f = File.createTempFile("callgraph", ".bin");
+    f.deleteOnExit();
+    OutputStream out = new FileOutputStream(f);
+    try {
+      CallGraphStore.write(cg, builder.getPointerAnalysis(), out);
+    } finally {
+      out.close();
+    }
+    StoredCallGraph stored = CallGraphStore.read(f, cha, cache);
+
+    Assert.assertEquals(cg.getNumberOfNodes(), stored.getNumberOfNodes());
+    Assert.assertEquals(cg.getFakeRootNode().toString(), stored.getFakeRootNode().toString());
+    Assert.assertEquals(cg.getEntrypointNodes().size(), stored.getEntrypointNodes().size());
+    Assert.assertEquals(CallGraphTestUtil.edges(cg), CallGraphTestUtil.edges(stored));
+    Assert.assertEquals(sites(cg), sites(stored));
+    Assert.assertEquals(CallGraphTestUtil.pointsTo(builder.getPointerAnalysis()),
+        CallGraphTestUtil.pointsTo(stored.getPointerAnalysis()));
+
+    // lookups by nodes and instance keys of the stored graph
+    for (CGNode n : stored) {
+      Assert.assertSame(n, stored.getNode(n.getMethod(), n.getContext()));
+      for (Iterator<NewSiteReference> it = n.iterateNewSites(); it.hasNext();) {
+        NewSiteReference site = it.next();
+        InstanceKey ik = stored.getPointerAnalysis().getHeapModel().getInstanceKeyForAllocation(n, site);
+        if (ik != null) {
+          Assert.assertTrue(ik.getCreationSites(stored).hasNext());
+        }
+      }
+    }
+    CGNode main = stored.getEntrypointNodes().iterator().next();
+    Assert.assertNotNull(main.getIR());
+    PointerKey args = stored.getPointerAnalysis().getHeapModel().getPointerKeyForLocal(main, 1);
+    Assert.assertFalse(stored.getPointerAnalysis().getPointsToSet(args).isEmpty());
+    Assert.assertTrue(stored.getPointerAnalysis().getHeapGraph().getNumberOfNodes() > 0);
+  }
+
+  /**
+   * @return the stored form of the call graph of the recursion test, with its pointer analysis if withPointerAnalysis
+   */
+  private static byte[] store(IClassHierarchy cha, boolean withPointerAnalysis) throws Exception {
+    AnalysisScope scope = cha.getScope();
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    PropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CallGraphStore.write(cg, withPointerAnalysis ? builder.getPointerAnalysis() : null, out);
+    return out.toByteArray();
+  }
+
+  /**
+   * a store written without a pointer analysis still holds the call graph
+   */
+  @Test
+  public void testNoPointerAnalysis() throws Exception {
+    IClassHierarchy cha = makeCHA();
+    StoredCallGraph stored = CallGraphStore.read(ByteBuffer.wrap(store(cha, false)), cha, null);
+    Assert.assertNull(stored.getPointerAnalysis());
+    Assert.assertTrue(stored.getNumberOfNodes() > 1);
+    Assert.assertFalse(stored.getEntrypointNodes().isEmpty());
+  }
+
+  /**
+   * another version of the format is not read; bytes of another format are rejected
+   */
+  @Test
+  public void testVersionAndMagic() throws Exception {
+    IClassHierarchy cha = makeCHA();
+    byte[] bytes = store(cha, true);
+
+    ByteBuffer otherVersion = ByteBuffer.wrap(bytes.clone());
+    otherVersion.putInt(4, otherVersion.getInt(4) + 1);
+    Assert.assertNull(CallGraphStore.read(otherVersion, cha, null));
+
+    ByteBuffer badMagic = ByteBuffer.wrap(bytes.clone());
+    badMagic.putInt(0, ~badMagic.getInt(0));
+    try {
+      CallGraphStore.read(badMagic, cha, null);
+      Assert.fail("read a store with a bad magic number");
+    } catch (IOException e) {
+      // expected
+    }
+
+    ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, bytes.length - 1).slice();
+    try {
+      CallGraphStore.read(truncated, cha, null);
+      Assert.fail("read a truncated store");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private static Set<String> sites(CallGraph cg) {
+    Set<String> result = HashSetFactory.make();
+    for (CGNode n : cg) {
+      for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext();) {
+        CallSiteReference site = it.next();
+        for (CGNode t : cg.getPossibleTargets(n, site)) {
+          result.add(n + " " + site + " -> " + t);
+          Assert.assertTrue(Iterator2Iterable.make(cg.getPossibleSites(n, t)).iterator().hasNext());
+        }
+      }
+      for (Iterator<NewSiteReference> it = n.iterateNewSites(); it.hasNext();) {
+        result.add(n + " " + it.next());
+      }
+    }
+    return result;
+  }
+}
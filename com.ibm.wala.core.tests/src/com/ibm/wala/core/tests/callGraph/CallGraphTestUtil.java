@@ -11,17 +11,33 @@
 package com.ibm.wala.core.tests.callGraph;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
 
+import org.junit.Assert;
+
+import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.AllApplicationEntrypoints;
 import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.Predicate;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.config.AnalysisScopeReader;
 import com.ibm.wala.util.io.FileProvider;
 import com.ibm.wala.util.perf.StopwatchGC;
@@ -164,4 +180,79 @@ public class CallGraphTestUtil {
     return cg;
   }
 
+  /**
+   * @return the nodes of cg and its edges, both from successors and predecessors, as strings
+   */
+  public static Set<String> edges(CallGraph cg) {
+    Set<String> result = HashSetFactory.make();
+    for (CGNode n : cg) {
+      result.add(n.toString());
+      for (CGNode s : Iterator2Iterable.make(cg.getSuccNodes(n))) {
+        result.add(n + " -> " + s);
+      }
+      for (CGNode p : Iterator2Iterable.make(cg.getPredNodes(n))) {
+        result.add(p + " -> " + n);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the points-to set of each pointer key of pa, as strings
+   */
+  public static Map<String, Set<String>> pointsTo(PointerAnalysis<InstanceKey> pa) {
+    return pointsTo(pa, Predicate.<PointerKey> truePred());
+  }
+
+  /**
+   * @return the points-to set of each pointer key of pa that satisfies keys, as strings
+   */
+  public static Map<String, Set<String>> pointsTo(PointerAnalysis<InstanceKey> pa, Predicate<PointerKey> keys) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (PointerKey k : pa.getPointerKeys()) {
+      if (!keys.test(k)) {
+        continue;
+      }
+      Set<String> s = HashSetFactory.make();
+      for (InstanceKey ik : pa.getPointsToSet(k)) {
+        s.add(ik.toString());
+      }
+      // distinct keys may print the same
+      if (result.containsKey(k.toString())) {
+        s.addAll(result.get(k.toString()));
+      }
+      result.put(k.toString(), s);
+    }
+    return result;
+  }
+
+  /**
+   * A change to the options of a call graph construction.
+   */
+  public interface OptionsVariant {
+    void adjust(AnalysisOptions options);
+  }
+
+  /**
+   * Build 0-1-CFA call graphs of the test data twice, the second time with options changed by variant, and check that both give
+   * the same call graph and points-to sets.
+   */
+  public static void assertSameZeroOneCFA(OptionsVariant variant) throws ClassHierarchyException, IllegalArgumentException,
+      CancelException, IOException {
+    AnalysisScope scope = makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    Iterable<Entrypoint> entrypoints = new AllApplicationEntrypoints(scope, cha);
+
+    AnalysisOptions options = makeAnalysisOptions(scope, entrypoints);
+    CallGraphBuilder<InstanceKey> plain = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg1 = plain.makeCallGraph(options, null);
+
+    options = makeAnalysisOptions(scope, entrypoints);
+    variant.adjust(options);
+    CallGraphBuilder<InstanceKey> changed = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg2 = changed.makeCallGraph(options, null);
+
+    Assert.assertEquals(edges(cg1), edges(cg2));
+    Assert.assertEquals(pointsTo(plain.getPointerAnalysis()), pointsTo(changed.getPointerAnalysis()));
+  }
 }
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.intset.MutableCompressedBitmapIntSetFactory;
+
+/**
+ * Check that holding points-to sets in compressed bitmaps does not change the result of pointer analysis.
+ */
+public class CompressedPointsToSetTest extends WalaTestCase {
+
+  @Test
+  public void testCompressedPointsToSets() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    check(false);
+  }
+
+  @Test
+  public void testWithDifferencePropagation() throws ClassHierarchyException, IllegalArgumentException, CancelException,
+      IOException {
+    check(true);
+  }
+
+  private static void check(final boolean useDifferencePropagation) throws ClassHierarchyException, IllegalArgumentException,
+      CancelException, IOException {
+    CallGraphTestUtil.assertSameZeroOneCFA(new CallGraphTestUtil.OptionsVariant() {
+      @Override
+      public void adjust(AnalysisOptions options) {
+        options.setPointsToSetFactory(new MutableCompressedBitmapIntSetFactory());
+        options.setUseDifferencePropagation(useDifferencePropagation);
+      }
+    });
+  }
+}
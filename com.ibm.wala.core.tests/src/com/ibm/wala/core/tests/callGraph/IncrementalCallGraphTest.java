@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.impl.AllApplicationEntrypoints;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrikeBT.Constants;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.shrikeBT.IPutInstruction;
+import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.MethodEditor;
+import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.Predicate;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.config.FileOfClasses;
+import com.ibm.wala.util.io.FileProvider;
+import com.ibm.wala.util.io.FileUtil;
+
+/**
+ * Check that updating a call graph after a change to some classes gives the same result as building it from scratch.
+ */
+public class IncrementalCallGraphTest extends WalaTestCase {
+
+  private static final TypeReference A = TypeReference.findOrCreate(ClassLoaderReference.Application, "Ldemandpa/A");
+
+  private static final TypeReference B = TypeReference.findOrCreate(ClassLoaderReference.Application, "Ldemandpa/B");
+
+  private static final TypeReference FIELDS = TypeReference.findOrCreate(ClassLoaderReference.Application,
+      "Ldemandpa/TestFieldsHarder");
+
+  @Test
+  public void testNothingChanged() throws Exception {
+    Assert.assertTrue(check(Collections.<TypeReference> emptySet(), null).getNumberOfReusedPointsToSets() > 0);
+  }
+
+  @Test
+  public void testSuperclassChanged() throws Exception {
+    check(Collections.singleton(A), null);
+  }
+
+  @Test
+  public void testClassRemoved() throws Exception {
+    check(Collections.singleton(B), "demandpa\\/B\n");
+  }
+
+  /**
+   * a method body changes: TestFieldsHarder.main stores null in a1.f instead of o1
+   */
+  @Test
+  public void testMethodBodyChanged() throws Exception {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    JarFile testdata = null;
+    for (Module m : scope.getModules(ClassLoaderReference.Application)) {
+      if (m instanceof JarFileModule) {
+        testdata = ((JarFileModule) m).getJarFile();
+      }
+    }
+    Assert.assertNotNull(testdata);
+    File edited = File.createTempFile("incremental", ".jar");
+    try {
+      writeEdited(testdata, edited);
+      File exclusions = (new FileProvider()).getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+      AnalysisScope after = AnalysisScopeReader.makePrimordialScope(exclusions);
+      after.addToScope(ClassLoaderReference.Application, new JarFileModule(new JarFile(edited)));
+
+      AnalysisScope before = AnalysisScopeReader.makePrimordialScope(exclusions);
+      before.addToScope(ClassLoaderReference.Application, new JarFileModule(testdata));
+
+      SSAPropagationCallGraphBuilder[] builders = check(before, after, Collections.singleton(FIELDS));
+      Assert.assertFalse(pointsTo(builders[0].getPointerAnalysis()).equals(pointsTo(builders[1].getPointerAnalysis())));
+      Assert.assertTrue(builders[1].getNumberOfReusedPointsToSets() > 0);
+    } finally {
+      edited.delete();
+    }
+  }
+
+  /**
+   * copy the jar file to the file edited, replacing the first object stored into a field by TestFieldsHarder.main with null
+   */
+  private static void writeEdited(JarFile jar, File edited) throws Exception {
+    JarOutputStream out = new JarOutputStream(new FileOutputStream(edited));
+    try {
+      for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements();) {
+        JarEntry entry = e.nextElement();
+        InputStream in = jar.getInputStream(entry);
+        byte[] bytes;
+        try {
+          bytes = FileUtil.readBytes(in);
+        } finally {
+          in.close();
+        }
+        if (entry.getName().equals("demandpa/TestFieldsHarder.class")) {
+          bytes = storeNull(bytes);
+        }
+        out.putNextEntry(new JarEntry(entry.getName()));
+        out.write(bytes);
+        out.closeEntry();
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  private static byte[] storeNull(byte[] klass) throws Exception {
+    ClassInstrumenter ci = new ClassInstrumenter("TestFieldsHarder", klass, null, false);
+    for (int m = 0; m < ci.getReader().getMethodCount(); m++) {
+      if (ci.getReader().getMethodName(m).equals("main")) {
+        MethodData d = ci.visitMethod(m);
+        IInstruction[] code = d.getInstructions();
+        int put = 0;
+        while (!(code[put] instanceof IPutInstruction)) {
+          put++;
+        }
+        MethodEditor editor = new MethodEditor(d);
+        editor.beginPass();
+        // the instruction before the putfield pushes the value stored
+        editor.replaceWith(put - 1, new MethodEditor.Patch() {
+          @Override
+          public void emitTo(MethodEditor.Output w) {
+            w.emit(ConstantInstruction.make(Constants.TYPE_null, null));
+          }
+        });
+        editor.applyPatches();
+        editor.endPass();
+      }
+    }
+    return ci.emitClass().makeBytes();
+  }
+
+  /**
+   * @param extraExclusions classes to remove from the new version of the program, or null
+   * @return the builder that updated the call graph
+   */
+  private static SSAPropagationCallGraphBuilder check(Set<TypeReference> changed, String extraExclusions) throws Exception {
+    AnalysisScope before = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    AnalysisScope after = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    if (extraExclusions != null) {
+      after.setExclusions(new FileOfClasses(exclusions(extraExclusions)));
+    }
+    return check(before, after, changed)[1];
+  }
+
+  /**
+   * @return the builders of the earlier call graph, of the updated one, and of the one built from scratch
+   */
+  private static SSAPropagationCallGraphBuilder[] check(AnalysisScope before, AnalysisScope after, Set<TypeReference> changed)
+      throws Exception {
+    AnalysisCache cache = new AnalysisCache();
+    ClassHierarchy cha = ClassHierarchy.make(before);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(before, new AllApplicationEntrypoints(before, cha));
+    SSAPropagationCallGraphBuilder previous = Util.makeZeroOneCFABuilder(options, cache, cha, before);
+    previous.makeCallGraph(options, null);
+
+    // the new version of the program lives in a new class hierarchy
+    cha = ClassHierarchy.make(after);
+    options = CallGraphTestUtil.makeAnalysisOptions(after, new AllApplicationEntrypoints(after, cha));
+    SSAPropagationCallGraphBuilder incremental = Util.makeZeroOneCFABuilder(options, cache, cha, after);
+    CallGraph cg1 = incremental.updateCallGraph(options, previous, changed, null);
+
+    options = CallGraphTestUtil.makeAnalysisOptions(after, new AllApplicationEntrypoints(after, cha));
+    SSAPropagationCallGraphBuilder clean = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, after);
+    CallGraph cg2 = clean.makeCallGraph(options, null);
+
+    Assert.assertEquals(CallGraphTestUtil.edges(cg2), CallGraphTestUtil.edges(cg1));
+    Assert.assertEquals(pointsTo(clean.getPointerAnalysis()), pointsTo(incremental.getPointerAnalysis()));
+    return new SSAPropagationCallGraphBuilder[] { previous, incremental, clean };
+  }
+
+  private static InputStream exclusions(String extra) throws IOException {
+    InputStream s = new FileProvider().getInputStreamFromClassLoader(CallGraphTestUtil.REGRESSION_EXCLUSIONS,
+        IncrementalCallGraphTest.class.getClassLoader());
+    try {
+      return new ByteArrayInputStream((new String(FileUtil.readBytes(s), "UTF-8") + "\n" + extra).getBytes("UTF-8"));
+    } finally {
+      s.close();
+    }
+  }
+
+  /**
+   * the value numbers of the fake world clinit depend on the order in which classes are initialized
+   */
+  private static final Predicate<PointerKey> NOT_IN_FAKE_WORLD_CLINIT = new Predicate<PointerKey>() {
+    @Override
+    public boolean test(PointerKey k) {
+      return !k.toString().contains("fakeWorldClinit");
+    }
+  };
+
+  private static Map<String, Set<String>> pointsTo(PointerAnalysis<InstanceKey> pa) {
+    return CallGraphTestUtil.pointsTo(pa, NOT_IN_FAKE_WORLD_CLINIT);
+  }
+}
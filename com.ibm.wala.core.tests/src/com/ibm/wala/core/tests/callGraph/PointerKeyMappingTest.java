@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.impl.AllApplicationEntrypoints;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.FilteredPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKeyWithFilter;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointsToMap;
+import com.ibm.wala.ipa.callgraph.propagation.PointsToSetVariable;
+import com.ibm.wala.ipa.callgraph.propagation.ReturnValueKey;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ExceptionReturnValueKey;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OpenAddressingMapping;
+
+/**
+ * Check that the {@link OpenAddressingMapping} in {@link PointsToMap} numbers the pointer keys of a call graph for the test data
+ * like the {@link MutableMapping} it replaced. Its footprint is measured by com.ibm.wala.core.bench.PointerKeyMappingBenchmark.
+ */
+public class PointerKeyMappingTest extends WalaTestCase {
+
+  private static ClassHierarchy cha;
+
+  private static CallGraph cg;
+
+  private static List<PointerKey> keys;
+
+  @BeforeClass
+  public static void beforeClass() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    cha = ClassHierarchy.make(scope);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, new AllApplicationEntrypoints(scope, cha));
+    CallGraphBuilder<InstanceKey> builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    cg = builder.makeCallGraph(options, null);
+    keys = new ArrayList<PointerKey>();
+    for (PointerKey k : builder.getPointerAnalysis().getPointerKeys()) {
+      keys.add(k);
+    }
+  }
+
+  @Test
+  public void testSameNumbering() {
+    Assert.assertTrue(keys.size() > 1000);
+    OpenAddressingMapping<PointerKey> open = OpenAddressingMapping.make();
+    MutableMapping<PointerKey> old = MutableMapping.make();
+    for (PointerKey k : keys) {
+      Assert.assertEquals(old.add(k), open.add(k));
+    }
+    Assert.assertEquals(old.getSize(), open.getSize());
+    for (PointerKey k : keys) {
+      int i = old.getMappedIndex(k);
+      Assert.assertEquals(i, open.getMappedIndex(k));
+      Assert.assertEquals(old.getMappedObject(i), open.getMappedObject(i));
+    }
+  }
+
+  /**
+   * a ReturnValueKey equals the ExceptionReturnValueKey of the same node, but not vice versa, so the two must never be merged,
+   * whether or not the probe for one passes the slot of the other
+   */
+  @Test
+  public void testReturnValueKeys() {
+    int nodes = 0;
+    for (CGNode n : cg) {
+      ReturnValueKey ret = new ReturnValueKey(n);
+      ExceptionReturnValueKey exc = new ExceptionReturnValueKey(n);
+      OpenAddressingMapping<PointerKey> open = OpenAddressingMapping.make();
+      Assert.assertEquals(0, open.add(ret));
+      Assert.assertEquals(n.toString(), -1, open.getMappedIndex(exc));
+      Assert.assertEquals(n.toString(), 1, open.add(exc));
+      Assert.assertEquals(0, open.getMappedIndex(ret));
+      nodes++;
+    }
+    Assert.assertTrue(nodes > 1000);
+  }
+
+  @Test
+  public void testPointsToMap() {
+    PointsToMap map = new PointsToMap();
+    List<PointsToSetVariable> vars = new ArrayList<PointsToSetVariable>();
+    LocalPointerKey local = null;
+    for (PointerKey k : keys) {
+      if (!(k instanceof FilteredPointerKey)) {
+        PointsToSetVariable v = new PointsToSetVariable(k);
+        map.put(k, v);
+        vars.add(v);
+        // not one of the two keys unified below
+        if (local == null && vars.size() > 2 && k instanceof LocalPointerKey) {
+          local = (LocalPointerKey) k;
+        }
+      }
+    }
+    Assert.assertNotNull(local);
+    Iterator<PointerKey> it = map.iterateKeys();
+    for (int i = 0; i < vars.size(); i++) {
+      PointerKey k = it.next();
+      Assert.assertEquals(i, map.getIndex(k));
+      Assert.assertSame(vars.get(i), map.getPointsToSet(k));
+    }
+    Assert.assertFalse(it.hasNext());
+
+    map.unify(0, 1);
+    Assert.assertSame(map.getPointsToSet(0), map.getPointsToSet(1));
+    Assert.assertEquals(map.getRepresentative(0), map.getRepresentative(1));
+
+    // asking with a filtered key replaces the key in place
+    int i = map.getIndex(local);
+    FilteredPointerKey.TypeFilter filter = new FilteredPointerKey.SingleClassFilter(cha.getRootClass());
+    PointsToSetVariable v = map.getPointsToSet(new LocalPointerKeyWithFilter(local.getNode(), local.getValueNumber(), filter));
+    Assert.assertTrue(v.getPointerKey() instanceof LocalPointerKeyWithFilter);
+    Assert.assertEquals(i, map.getIndex(local));
+    Assert.assertEquals(i, map.getIndex(v.getPointerKey()));
+  }
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchySnapshot;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+/**
+ * Check that a {@link ClassHierarchySnapshot} answers structural queries like the hierarchy it was taken from
+ */
+public class ClassHierarchySnapshotTest extends WalaTestCase {
+
+  private static AnalysisScope scope;
+
+  private static ClassHierarchy cha;
+
+  private static ClassHierarchySnapshot snapshot;
+
+  @BeforeClass
+  public static void beforeClass() throws ClassHierarchyException, IOException {
+    scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    cha = ClassHierarchy.make(scope);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ClassHierarchySnapshot.write(cha, out);
+    snapshot = ClassHierarchySnapshot.read(new ByteArrayInputStream(out.toByteArray()), scope);
+  }
+
+  @Test
+  public void testClasses() {
+    Assert.assertNotNull(snapshot);
+    Assert.assertEquals(cha.getNumberOfClasses(), snapshot.getNumberOfClasses());
+    for (IClass klass : cha) {
+      TypeReference t = klass.getReference();
+      Assert.assertTrue(snapshot.contains(t));
+      Assert.assertEquals(klass.isInterface(), snapshot.isInterface(t));
+      Assert.assertEquals(klass.getSuperclass() == null ? null : klass.getSuperclass().getReference(), snapshot.getSuperclass(t));
+      Assert.assertEquals(refs(cha.getImmediateSubclasses(klass)), HashSetFactory.make(snapshot.getImmediateSubclasses(t)));
+    }
+  }
+
+  @Test
+  public void testSubtypes() {
+    TypeReference list = TypeReference.findOrCreate(ClassLoaderReference.Primordial, "Ljava/util/List");
+    TypeReference arrayList = TypeReference.findOrCreate(ClassLoaderReference.Primordial, "Ljava/util/ArrayList");
+    TypeReference abstractList = TypeReference.findOrCreate(ClassLoaderReference.Primordial, "Ljava/util/AbstractList");
+    Assert.assertTrue(snapshot.isSubclassOf(arrayList, abstractList));
+    Assert.assertTrue(snapshot.isSubclassOf(arrayList, TypeReference.JavaLangObject));
+    Assert.assertFalse(snapshot.isSubclassOf(abstractList, arrayList));
+    Assert.assertTrue(snapshot.implementsInterface(arrayList, list));
+    Assert.assertEquals(classes(cha.getImplementors(list)), HashSetFactory.make(snapshot.getImplementors(list)));
+  }
+
+  @Test
+  public void testAllImplementors() {
+    for (IClass klass : cha) {
+      if (klass.isInterface()) {
+        TypeReference t = klass.getReference();
+        Assert.assertEquals(t.toString(), classes(cha.getImplementors(t)), HashSetFactory.make(snapshot.getImplementors(t)));
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentQueries() throws IOException, InterruptedException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ClassHierarchySnapshot.write(cha, out);
+    final ClassHierarchySnapshot fresh = ClassHierarchySnapshot.read(new ByteArrayInputStream(out.toByteArray()), scope);
+    final TypeReference collection = TypeReference.findOrCreate(ClassLoaderReference.Primordial, "Ljava/util/Collection");
+    final Set<TypeReference> expected = classes(cha.getImplementors(collection));
+    final boolean[] ok = new boolean[8];
+    Thread[] threads = new Thread[ok.length];
+    for (int i = 0; i < threads.length; i++) {
+      final int j = i;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          ok[j] = !fresh.getImmediateSubclasses(TypeReference.JavaLangObject).isEmpty()
+              && expected.equals(HashSetFactory.make(fresh.getImplementors(collection)));
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    for (boolean b : ok) {
+      Assert.assertTrue(b);
+    }
+  }
+
+  /**
+   * @return the types of the classes, leaving out interfaces, which {@link ClassHierarchy#getImplementors} includes
+   */
+  private static Set<TypeReference> classes(Iterable<IClass> classes) {
+    Set<TypeReference> result = HashSetFactory.make();
+    for (IClass c : classes) {
+      if (!c.isInterface()) {
+        result.add(c.getReference());
+      }
+    }
+    return result;
+  }
+
+  private static Set<TypeReference> refs(Iterable<IClass> classes) {
+    Set<TypeReference> result = HashSetFactory.make();
+    for (IClass c : classes) {
+      result.add(c.getReference());
+    }
+    return result;
+  }
+}
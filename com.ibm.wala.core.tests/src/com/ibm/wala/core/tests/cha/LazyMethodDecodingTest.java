@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyStats;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Check that method bodies are only decoded when they are used.
+ */
+public class LazyMethodDecodingTest extends WalaTestCase {
+
+  @Test
+  public void testDecodeOnDemand() throws Exception {
+    AnalysisScope scope = AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA,
+        (new FileProvider()).getFile("J2SEClassHierarchyExclusions.txt"), LazyMethodDecodingTest.class.getClassLoader());
+    int before = ClassHierarchyStats.getNumberOfDecodedMethods();
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    IClass cell = cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, "Lcell/Cell"));
+    Assert.assertNotNull(cell);
+    for (IMethod m : cell.getDeclaredMethods()) {
+      m.getDeclaredExceptions();
+      m.getSignature();
+    }
+    Assert.assertEquals("decoded methods while building the hierarchy", before, ClassHierarchyStats.getNumberOfDecodedMethods());
+
+    int decoded = 0;
+    for (IMethod m : cell.getDeclaredMethods()) {
+      if (!m.isAbstract() && !m.isNative()) {
+        ShrikeCTMethod method = (ShrikeCTMethod) m;
+        Assert.assertTrue(method.getInstructions().length > 0);
+        method.getLineNumber(0);
+        method.getInstructions();
+        decoded++;
+        Assert.assertEquals(before + decoded, ClassHierarchyStats.getNumberOfDecodedMethods());
+      }
+    }
+    Assert.assertTrue(decoded > 0);
+  }
+}
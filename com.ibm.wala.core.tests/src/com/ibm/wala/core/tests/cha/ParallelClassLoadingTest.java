@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * Check that parsing class files on several threads builds the same hierarchy as a single thread
+ */
+public class ParallelClassLoadingTest extends WalaTestCase {
+
+  @Test
+  public void testSameHierarchy() throws ClassHierarchyException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy sequential = ClassHierarchy.make(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
+
+    ClassLoaderFactoryImpl factory = new ClassLoaderFactoryImpl(scope.getExclusions());
+    factory.setNumberOfLoaderThreads(4);
+    ClassHierarchy parallel = ClassHierarchy.make(scope, factory);
+
+    Assert.assertEquals(shape(sequential), shape(parallel));
+  }
+
+  private static Map<String, String> shape(ClassHierarchy cha) {
+    Map<String, String> result = HashMapFactory.make();
+    for (IClass klass : cha) {
+      result.put(klass.getReference().toString(), klass.getSuperclass() + " " + klass.getModifiers() + " "
+          + klass.getDirectInterfaces() + " " + cha.getNumber(klass));
+    }
+    return result;
+  }
+}
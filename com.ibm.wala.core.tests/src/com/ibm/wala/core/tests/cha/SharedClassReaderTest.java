@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+
+/**
+ * Check that class hierarchies built over the same jar file modules share the class readers of their classes
+ */
+public class SharedClassReaderTest extends WalaTestCase {
+
+  @Test
+  public void testReadersShared() throws ClassHierarchyException, IOException, InvalidClassFileException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    Assert.assertTrue(scope.getModules(ClassLoaderReference.Application).get(0) instanceof JarFileModule);
+    ClassHierarchy first = ClassHierarchy.make(scope);
+    ClassHierarchy second = ClassHierarchy.make(scope);
+
+    int shared = 0;
+    for (Iterator<IClass> it = second.getLoader(ClassLoaderReference.Application).iterateAllClasses(); it.hasNext();) {
+      IClass klass = it.next();
+      IClass other = first.lookupClass(klass.getReference());
+      Assert.assertNotSame(klass, other);
+      if (klass instanceof ShrikeClass) {
+        Assert.assertSame(((ShrikeClass) other).getReader(), ((ShrikeClass) klass).getReader());
+        shared++;
+      }
+    }
+    Assert.assertTrue(shared > 0);
+  }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.collections;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.InternTable;
+
+public class InternTableTest {
+
+  @After
+  public void tearDown() {
+    InternTable.setReclaimable(false);
+  }
+
+  private static void collectGarbage(WeakReference<?> ref) throws InterruptedException {
+    for (int i = 0; i < 50 && ref.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testCanonical() {
+    InternTable<String, Object> table = new InternTable<String, Object>();
+    Object a = new Object();
+    Assert.assertSame(a, table.intern("a", a, false));
+    Assert.assertSame(a, table.intern("a", new Object(), false));
+    Assert.assertSame(a, table.get("a"));
+    Assert.assertNull(table.get("b"));
+  }
+
+  @Test
+  public void testStrongByDefault() throws InterruptedException {
+    InternTable<String, Object> table = new InternTable<String, Object>();
+    Object a = new Object();
+    table.intern("a", a, false);
+    WeakReference<Object> ref = new WeakReference<Object>(a);
+    a = null;
+    collectGarbage(ref);
+    Assert.assertNotNull(ref.get());
+    Assert.assertSame(ref.get(), table.get("a"));
+  }
+
+  @Test
+  public void testReclaimable() throws InterruptedException {
+    InternTable.setReclaimable(true);
+    InternTable<String, Object> table = new InternTable<String, Object>();
+    Object a = new Object();
+    Object p = new Object();
+    table.intern("a", a, false);
+    table.intern("p", p, true);
+    WeakReference<Object> aRef = new WeakReference<Object>(a);
+    WeakReference<Object> pRef = new WeakReference<Object>(p);
+    a = null;
+    p = null;
+    collectGarbage(aRef);
+    Assert.assertNull(aRef.get());
+    Assert.assertNull(table.get("a"));
+    Assert.assertEquals(1, table.size());
+    Assert.assertSame(pRef.get(), table.get("p"));
+
+    Object b = new Object();
+    Assert.assertSame(b, table.intern("a", b, false));
+  }
+
+  @Test
+  public void testApplicationTypesReclaimed() throws InterruptedException {
+    InternTable.setReclaimable(true);
+    TypeReference app = TypeReference.findOrCreate(ClassLoaderReference.Application, "LinternTableTest/App");
+    TypeReference prim = TypeReference.findOrCreate(ClassLoaderReference.Primordial, "LinternTableTest/Prim");
+    WeakReference<TypeReference> appRef = new WeakReference<TypeReference>(app);
+    WeakReference<TypeReference> primRef = new WeakReference<TypeReference>(prim);
+    app = null;
+    prim = null;
+    collectGarbage(appRef);
+    Assert.assertNull(appRef.get());
+    Assert.assertNull(TypeReference.find(ClassLoaderReference.Application, "LinternTableTest/App"));
+    Assert.assertSame(primRef.get(), TypeReference.find(ClassLoaderReference.Primordial, "LinternTableTest/Prim"));
+  }
+}
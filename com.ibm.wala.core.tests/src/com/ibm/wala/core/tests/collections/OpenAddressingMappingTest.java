@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.collections;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.OpenAddressingMapping;
+
+/**
+ * Tests {@link OpenAddressingMapping} against a {@link java.util.HashMap}.
+ */
+public final class OpenAddressingMappingTest extends WalaTestCase {
+
+  public static void main(final String[] args) {
+    justThisTest(OpenAddressingMappingTest.class);
+  }
+
+  @Test
+  public void testAddAndReplace() {
+    OpenAddressingMapping<String> mapping = OpenAddressingMapping.make();
+    Map<String, Integer> expected = HashMapFactory.make();
+    Random r = new Random(17);
+    for (int i = 0; i < 20000; i++) {
+      String s = "k" + r.nextInt(10000);
+      int n = mapping.add(s);
+      if (expected.containsKey(s)) {
+        Assert.assertEquals(expected.get(s).intValue(), n);
+      } else {
+        Assert.assertEquals(expected.size(), n);
+        expected.put(s, n);
+      }
+    }
+    // replacing shuffles entries within probe sequences
+    for (int i = 0; i < 10000; i += 3) {
+      String s = "k" + i;
+      if (expected.containsKey(s)) {
+        mapping.replace(s, "r" + i);
+        expected.put("r" + i, expected.remove(s));
+      }
+    }
+    Assert.assertEquals(expected.size(), mapping.getSize());
+    Assert.assertEquals(expected.size() - 1, mapping.getMaximumIndex());
+    for (Map.Entry<String, Integer> e : expected.entrySet()) {
+      Assert.assertEquals(e.getValue().intValue(), mapping.getMappedIndex(e.getKey()));
+      Assert.assertEquals(e.getKey(), mapping.getMappedObject(e.getValue()));
+    }
+    Assert.assertEquals(-1, mapping.getMappedIndex("k0"));
+    int i = 0;
+    for (String s : mapping) {
+      Assert.assertEquals(i++, mapping.getMappedIndex(s));
+    }
+  }
+
+  /**
+   * a key that, like a ReturnValueKey, equals keys of a subclass with the same id, which do not equal it in turn
+   */
+  private static class Key {
+    private final int id;
+
+    private final int hash;
+
+    Key(int id, int hash) {
+      this.id = id;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Key && ((Key) obj).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static class NarrowKey extends Key {
+    NarrowKey(int id, int hash) {
+      super(id, hash);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof NarrowKey && super.equals(obj) && obj.hashCode() == hashCode();
+    }
+  }
+
+  /**
+   * a lookup must not call equals on mapped keys, nor match keys with another hash, whichever slots the probe passes
+   */
+  @Test
+  public void testAsymmetricEquals() {
+    OpenAddressingMapping<Key> mapping = OpenAddressingMapping.make();
+    Key wide = new Key(0, 0);
+    Assert.assertEquals(0, mapping.add(wide));
+    // these hashes cover every slot of the table, so some probes start at, or pass, the slot of wide
+    for (int h = 1; h < 4096; h++) {
+      Assert.assertEquals(-1, mapping.getMappedIndex(new NarrowKey(0, h)));
+    }
+    for (int h = 1; h < 64; h++) {
+      Assert.assertEquals(h, mapping.add(new NarrowKey(0, h)));
+    }
+    Assert.assertEquals(0, mapping.getMappedIndex(wide));
+    Assert.assertEquals(64, mapping.getSize());
+  }
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.ir;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.BoundedAuxiliaryCache;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+
+/**
+ * Check eviction and statistics of {@link BoundedAuxiliaryCache}
+ */
+public class BoundedCacheTest extends WalaTestCase {
+
+  private final IClassHierarchy cha;
+
+  public BoundedCacheTest() throws ClassHierarchyException, IOException {
+    this.cha = WalaTestCase.makeCHA();
+  }
+
+  @Test
+  public void testLRUEviction() {
+    BoundedAuxiliaryCache irCache = new BoundedAuxiliaryCache(2, BoundedAuxiliaryCache.ENTRY_COUNT, 1);
+    AnalysisCache cache = new AnalysisCache(new DefaultIRFactory(), irCache, new BoundedAuxiliaryCache(2));
+    SSAOptions options = new AnalysisOptions().getSSAOptions();
+
+    IMethod[] methods = cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Primordial, "Ljava/lang/String"))
+        .getDeclaredMethods().toArray(new IMethod[0]);
+    IMethod a = null, b = null, c = null;
+    for (IMethod m : methods) {
+      if (!m.isAbstract() && !m.isNative()) {
+        if (a == null) {
+          a = m;
+        } else if (b == null) {
+          b = m;
+        } else if (c == null) {
+          c = m;
+        }
+      }
+    }
+    Assert.assertNotNull(c);
+
+    IR irA = cache.getSSACache().findOrCreateIR(a, Everywhere.EVERYWHERE, options);
+    cache.getSSACache().findOrCreateIR(b, Everywhere.EVERYWHERE, options);
+    // touch a, so that b is least recently used
+    Assert.assertSame(irA, cache.getSSACache().findOrCreateIR(a, Everywhere.EVERYWHERE, options));
+    cache.getSSACache().findOrCreateIR(c, Everywhere.EVERYWHERE, options);
+
+    Assert.assertEquals(1, irCache.getEvictionCount());
+    Assert.assertEquals(2, irCache.getWeight());
+    Assert.assertNotNull(irCache.find(a, Everywhere.EVERYWHERE, options));
+    Assert.assertNull(irCache.find(b, Everywhere.EVERYWHERE, options));
+    Assert.assertEquals(2, irCache.getHitCount());
+    // each build looks again once it holds the key's lock
+    Assert.assertEquals(7, irCache.getMissCount());
+
+    cache.invalidate(a, Everywhere.EVERYWHERE);
+    Assert.assertEquals(1, irCache.getWeight());
+  }
+
+  @Test
+  public void testBudgetAcrossSegments() {
+    BoundedAuxiliaryCache irCache = new BoundedAuxiliaryCache(10);
+    Assert.assertTrue(irCache.getNumberOfSegments() <= 10);
+    AnalysisCache cache = new AnalysisCache(new DefaultIRFactory(), irCache, new BoundedAuxiliaryCache(100));
+    SSAOptions options = new AnalysisOptions().getSSAOptions();
+    for (IMethod m : stringMethods()) {
+      cache.getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+      Assert.assertTrue(irCache.getWeight() <= 10);
+    }
+    Assert.assertTrue(irCache.getEvictionCount() > 0);
+  }
+
+  @Test
+  public void testDUEvictedWithIR() {
+    BoundedAuxiliaryCache irCache = new BoundedAuxiliaryCache(1, BoundedAuxiliaryCache.ENTRY_COUNT, 1);
+    BoundedAuxiliaryCache duCache = new BoundedAuxiliaryCache(100);
+    AnalysisCache cache = new AnalysisCache(new DefaultIRFactory(), irCache, duCache);
+    SSAOptions options = new AnalysisOptions().getSSAOptions();
+    IMethod[] methods = stringMethods();
+    DefUse du = cache.getSSACache().findOrCreateDU(methods[0], Everywhere.EVERYWHERE, options);
+    Assert.assertSame(du, cache.getSSACache().findOrCreateDU(methods[0], Everywhere.EVERYWHERE, options));
+    Assert.assertEquals(1, duCache.getWeight());
+    cache.getSSACache().findOrCreateIR(methods[1], Everywhere.EVERYWHERE, options);
+    Assert.assertEquals(0, duCache.getWeight());
+  }
+
+  @Test
+  public void testOneBuildPerKey() throws InterruptedException {
+    final int[] builds = new int[1];
+    DefaultIRFactory factory = new DefaultIRFactory() {
+      @Override
+      public IR makeIR(IMethod method, Context c, SSAOptions options) {
+        synchronized (builds) {
+          builds[0]++;
+        }
+        return super.makeIR(method, c, options);
+      }
+    };
+    final AnalysisCache cache = new AnalysisCache(factory, new BoundedAuxiliaryCache(100), new BoundedAuxiliaryCache(100));
+    final SSAOptions options = new AnalysisOptions().getSSAOptions();
+    final IMethod m = stringMethods()[0];
+    final IR[] irs = new IR[8];
+    final DefUse[] dus = new DefUse[irs.length];
+    Thread[] threads = new Thread[irs.length];
+    for (int i = 0; i < threads.length; i++) {
+      final int j = i;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          dus[j] = cache.getSSACache().findOrCreateDU(m, Everywhere.EVERYWHERE, options);
+          irs[j] = cache.getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    Assert.assertEquals(1, builds[0]);
+    for (int i = 1; i < irs.length; i++) {
+      Assert.assertSame(irs[0], irs[i]);
+      Assert.assertSame(dus[0], dus[i]);
+    }
+  }
+
+  private IMethod[] stringMethods() {
+    List<IMethod> result = new ArrayList<IMethod>();
+    for (IMethod m : cha.lookupClass(TypeReference.JavaLangString).getDeclaredMethods()) {
+      if (!m.isAbstract() && !m.isNative()) {
+        result.add(m);
+      }
+    }
+    return result.toArray(new IMethod[result.size()]);
+  }
+
+  @Test
+  public void testEstimatedBytes() {
+    BoundedAuxiliaryCache irCache = new BoundedAuxiliaryCache(Long.MAX_VALUE, BoundedAuxiliaryCache.ESTIMATED_BYTES, 4);
+    AnalysisCache cache = new AnalysisCache(new DefaultIRFactory(), irCache, new BoundedAuxiliaryCache(16));
+    IMethod m = cha.lookupClass(TypeReference.JavaLangObject).getMethod(Selector.make("toString()Ljava/lang/String;"));
+    IR ir = cache.getIR(m);
+    Assert.assertEquals(BoundedAuxiliaryCache.ESTIMATED_BYTES.weigh(ir), irCache.getWeight());
+    Assert.assertTrue(irCache.getWeight() > ir.getInstructions().length);
+  }
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.ir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.DirectoryIRStore;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.ssa.ShrikeIRCodec;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Check that {@link DirectoryIRStore} stores IRs by class file content, that the SSACache consults it, and that
+ * {@link ShrikeIRCodec} reads back the IR it wrote
+ */
+public class PersistentIRStoreTest extends WalaTestCase {
+
+  private final IClassHierarchy cha;
+
+  public PersistentIRStoreTest() throws ClassHierarchyException, IOException {
+    this.cha = WalaTestCase.makeCHA();
+  }
+
+  /**
+   * counts the IRs it builds
+   */
+  private static class CountingFactory extends DefaultIRFactory {
+    private int builds = 0;
+
+    @Override
+    public IR makeIR(IMethod method, Context c, SSAOptions options) {
+      builds++;
+      return super.makeIR(method, c, options);
+    }
+  }
+
+  @Test
+  public void testStoreAndLoad() throws IOException {
+    File dir = File.createTempFile("irstore", "");
+    dir.delete();
+    try {
+      IMethod m = cha.lookupClass(TypeReference.JavaLangObject).getMethod(Selector.make("toString()Ljava/lang/String;"));
+      SSAOptions options = new SSAOptions();
+
+      CountingFactory factory = new CountingFactory();
+      AnalysisCache first = new AnalysisCache(factory);
+      first.getSSACache().setPersistentStore(new DirectoryIRStore(dir, new ShrikeIRCodec()));
+      IR built = first.getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+      Assert.assertNotNull(built);
+      Assert.assertEquals(1, factory.builds);
+      Assert.assertEquals(1, dir.list().length);
+
+      factory = new CountingFactory();
+      AnalysisCache second = new AnalysisCache(factory);
+      second.getSSACache().setPersistentStore(new DirectoryIRStore(dir, new ShrikeIRCodec()));
+      IR loaded = second.getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+      Assert.assertEquals(0, factory.builds);
+      Assert.assertEquals(built.toString(), loaded.toString());
+    } finally {
+      delete(dir);
+    }
+  }
+
+  /**
+   * the IR of a class file loaded by one loader refers to types of that loader, so it is not reused for another loader
+   */
+  @Test
+  public void testOtherLoader() throws IOException, ClassHierarchyException {
+    File exclusions = (new FileProvider()).getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    AnalysisScope scope = AnalysisScopeReader.makePrimordialScope(exclusions);
+    for (Module m : cha.getScope().getModules(ClassLoaderReference.Application)) {
+      scope.addToScope(ClassLoaderReference.Extension, m);
+    }
+    IClassHierarchy extension = ClassHierarchy.make(scope);
+    TypeReference type = TypeReference.findOrCreate(ClassLoaderReference.Application, "LstaticInit/TestStaticInit");
+    IMethod m = cha.lookupClass(type).getMethod(Selector.make("main([Ljava/lang/String;)V"));
+    IMethod other = extension.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Extension, type.getName()))
+        .getMethod(m.getSelector());
+
+    File dir = File.createTempFile("irstore", "");
+    dir.delete();
+    try {
+      SSAOptions options = new SSAOptions();
+      DirectoryIRStore store = new DirectoryIRStore(dir, new ShrikeIRCodec());
+      store.store(new DefaultIRFactory().makeIR(m, Everywhere.EVERYWHERE, options));
+      Assert.assertNotNull(store.load(m, options));
+      Assert.assertNull(store.load(other, options));
+    } finally {
+      delete(dir);
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    ShrikeIRCodec codec = new ShrikeIRCodec();
+    DefaultIRFactory factory = new DefaultIRFactory();
+    SSAOptions options = new SSAOptions();
+    int methods = 0;
+    for (String name : new String[] { "Ljava/lang/String", "Ljava/util/HashMap", "Ljava/util/ArrayList", "Ljava/lang/Character" }) {
+      IClass klass = cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Primordial, name));
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (m.isAbstract() || m.isNative()) {
+          continue;
+        }
+        IR ir = factory.makeIR(m, Everywhere.EVERYWHERE, options);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+          codec.write(ir, out);
+        } catch (IOException e) {
+          // e.g. invokedynamic, which the codec does not store
+          continue;
+        }
+        out.close();
+        IR copy = codec.read(m, options, new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(ir.toString(), copy.toString());
+        SSAInstruction[] instructions = ir.getInstructions();
+        for (int i = 0; i < instructions.length; i++) {
+          if (instructions[i] != null) {
+            for (int d = 0; d < instructions[i].getNumberOfDefs(); d++) {
+              int vn = instructions[i].getDef(d);
+              Assert.assertTrue(Arrays.equals(ir.getLocalNames(i, vn), copy.getLocalNames(i, vn)));
+            }
+          }
+        }
+        methods++;
+      }
+    }
+    Assert.assertTrue(methods > 100);
+  }
+
+  private static void delete(File f) {
+    File[] children = f.listFiles();
+    if (children != null) {
+      for (File c : children) {
+        delete(c);
+      }
+    }
+    f.delete();
+  }
+}
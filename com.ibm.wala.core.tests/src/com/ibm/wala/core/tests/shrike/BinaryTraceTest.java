@@ -0,0 +1,75 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.core.tests.shrike;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.shrike.cg.BinaryTraceReader;
+import com.ibm.wala.shrike.cg.BinaryTraceWriter;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+public class BinaryTraceTest {
+
+  @Test
+  public void testRoundTrip() throws IOException, InterruptedException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final BinaryTraceWriter writer = new BinaryTraceWriter(bytes);
+    final Set<String> expected = HashSetFactory.make();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          // every thread records the same edges, several times
+          for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 2000; i++) {
+              writer.edge(i == 0 ? "clinit" : "p/C" + (i - 1) + "\tm()V", "p/C" + i + "\tm()V");
+            }
+          }
+        }
+      });
+    }
+    for (int i = 0; i < 2000; i++) {
+      expected.add((i == 0 ? "clinit" : "p/C" + (i - 1) + "\tm()V") + "\tp/C" + i + "\tm()V");
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    writer.close();
+
+    InputStream in = new BufferedInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    Assert.assertTrue(BinaryTraceReader.isBinaryTrace(in));
+    List<String> edges = BinaryTraceReader.readEdges(in);
+    Assert.assertEquals("duplicate edges written", expected.size(), edges.size());
+    Assert.assertEquals(expected, HashSetFactory.make(edges));
+  }
+
+  @Test
+  public void testNotBinary() throws IOException {
+    InputStream in = new BufferedInputStream(new ByteArrayInputStream(new byte[] { 0x1f, (byte) 0x8b, 8, 0 }));
+    Assert.assertFalse(BinaryTraceReader.isBinaryTrace(in));
+    Assert.assertEquals(0x1f, in.read());
+  }
+}
@@ -57,6 +57,15 @@ public class DynamicCallGraphTest extends DynamicCallGraphTestBase {
     checkEdges(staticCG);
   }
 
+  @Test
+  public void testBinaryTrace() throws IOException, ClassNotFoundException, InvalidClassFileException, FailureException, SecurityException, NoSuchMethodException, IllegalArgumentException, IllegalAccessException, InvocationTargetException, ClassHierarchyException, CancelException, InterruptedException  {
+    testBinaryTrace = true;
+    instrument(testJarLocation);
+    run("dynamicCG.MainClass", null);
+    CallGraph staticCG = staticCG("LdynamicCG/MainClass", null);
+    checkEdges(staticCG);
+  }
+
   @Test
   public void testCallbacks() throws IOException, ClassNotFoundException, InvalidClassFileException, FailureException, SecurityException, NoSuchMethodException, IllegalArgumentException, IllegalAccessException, InvocationTargetException, ClassHierarchyException, CancelException, InterruptedException  {
     instrument(testJarLocation);
@@ -11,10 +11,12 @@
 
 package com.ibm.wala.core.tests.shrike;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
@@ -33,6 +35,7 @@ import com.ibm.wala.core.tests.util.WalaTestCase;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.properties.WalaProperties;
+import com.ibm.wala.shrike.cg.BinaryTraceReader;
 import com.ibm.wala.shrike.cg.OfflineDynamicCallGraph;
 import com.ibm.wala.shrikeBT.analysis.Analyzer.FailureException;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
@@ -49,6 +52,8 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
   
   protected boolean testPatchCalls = false;
   
+  protected boolean testBinaryTrace = false;
+  
   protected static String getClasspathEntry(String elt) {
     for (String s : System.getProperty("java.class.path").split(File.pathSeparator)) {
       if (s.indexOf(elt) >= 0) {
@@ -70,6 +75,8 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
 
   private String cgLocation = System.getProperty("java.io.tmpdir") + File.separator + "cg.txt";
 
+  private String reportLocation = System.getProperty("java.io.tmpdir") + File.separator + "report";
+
   protected void instrument(String testJarLocation) throws IOException, ClassNotFoundException, InvalidClassFileException, FailureException {
     if (! instrumentedJarBuilt) {
       System.err.println("core data jar to instrument: " + testJarLocation);
@@ -86,7 +93,7 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
       }
       
       List<String> args = new ArrayList<String>();
-      args.addAll(Arrays.asList(testJarLocation, "-o", instrumentedJarLocation));
+      args.addAll(Arrays.asList(testJarLocation, "-o", instrumentedJarLocation, "--report", reportLocation));
       if (rtJar != null) {
         args.addAll(Arrays.asList("--rt-jar", rtJar));
       }
@@ -95,6 +102,7 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
       }
       OfflineDynamicCallGraph.main(args.toArray(new String[ args.size() ]));
       Assert.assertTrue("expected to create /tmp/test.jar", new File(instrumentedJarLocation).exists());   
+      new File(reportLocation).delete();
       instrumentedJarBuilt = true;
     }
   }
@@ -111,6 +119,9 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
     childJvm.setClassname(mainClass);
 
     String jvmArgs = "-noverify -Xmx500M -DdynamicCGFile=" + cgLocation + " -DdynamicCGHandleMissing=true";
+    if (testBinaryTrace) {
+      jvmArgs += " -DdynamicCGFormat=binary";
+    }
     if (exclusionsFile != null) {
       File tmpFile = TemporaryFile.urlToFile("exclusions.txt", getClass().getClassLoader().getResource(exclusionsFile));
       jvmArgs += " -DdynamicCGFilter=" + tmpFile.getCanonicalPath();
@@ -191,11 +202,27 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
     Assert.assertTrue("could not find " + notFound, notFound.isEmpty());
   }
  
+  private List<String> readTrace() throws IOException {
+    InputStream file = new BufferedInputStream(new FileInputStream(cgLocation));
+    try {
+      if (BinaryTraceReader.isBinaryTrace(file)) {
+        return BinaryTraceReader.readEdges(file);
+      }
+      List<String> result = new ArrayList<String>();
+      BufferedReader dynamicEdgesFile = new BufferedReader(new InputStreamReader(new GZIPInputStream(file)));
+      String line;
+      while ((line = dynamicEdgesFile.readLine()) != null) {
+        result.add(line);
+      }
+      return result;
+    } finally {
+      file.close();
+    }
+  }
+  
   protected void check(CallGraph staticCG, EdgesTest test, Predicate<MethodReference> filter) throws IOException {
-    BufferedReader dynamicEdgesFile = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(cgLocation))));
-    String line;
     int lines = 0;
-    loop: while ((line = dynamicEdgesFile.readLine()) != null) {
+    loop: for (String line : readTrace()) {
       lines++;
       StringTokenizer edge = new StringTokenizer(line, "\t");
       
@@ -227,8 +254,6 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
       test.edgesTest(staticCG, caller, callee);
     }
     
-    dynamicEdgesFile.close();
-    
     Assert.assertTrue("more than one edge", lines > 0);
   }
   
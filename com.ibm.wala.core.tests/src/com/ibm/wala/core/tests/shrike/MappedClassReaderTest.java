@@ -0,0 +1,140 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.core.tests.shrike;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.ConstantPoolParser;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.io.FileUtil;
+import com.ibm.wala.util.io.StoredZipEntries;
+
+/**
+ * Check that a {@link ClassReader} over a buffer that is not backed by an array reads the same as one over a byte[].
+ */
+public class MappedClassReaderTest {
+
+  private static final String testJarLocation = DynamicCallGraphTestBase.getClasspathEntry("com.ibm.wala.core.testdata");
+
+  private static List<byte[]> testClasses() throws IOException {
+    List<byte[]> result = new ArrayList<byte[]>();
+    JarFile f = new JarFile(testJarLocation, false);
+    try {
+      for (Enumeration<JarEntry> e = f.entries(); e.hasMoreElements();) {
+        JarEntry entry = e.nextElement();
+        if (entry.getName().endsWith(".class")) {
+          InputStream s = f.getInputStream(entry);
+          try {
+            result.add(FileUtil.readBytes(s));
+          } finally {
+            s.close();
+          }
+        }
+      }
+    } finally {
+      f.close();
+    }
+    Assert.assertTrue(result.size() > 0);
+    return result;
+  }
+
+  private static void assertSameClass(ClassReader expected, ClassReader actual) throws InvalidClassFileException {
+    Assert.assertEquals(expected.getName(), actual.getName());
+    Assert.assertEquals(expected.getSuperName(), actual.getSuperName());
+    Assert.assertEquals(expected.getMethodCount(), actual.getMethodCount());
+    for (int m = 0; m < expected.getMethodCount(); m++) {
+      Assert.assertEquals(expected.getMethodName(m), actual.getMethodName(m));
+      Assert.assertEquals(expected.getMethodType(m), actual.getMethodType(m));
+    }
+    ConstantPoolParser e = expected.getCP();
+    ConstantPoolParser a = actual.getCP();
+    Assert.assertEquals(e.getItemCount(), a.getItemCount());
+    for (int i = 1; i < e.getItemCount(); i++) {
+      Assert.assertEquals(e.getItemType(i), a.getItemType(i));
+      if (e.getItemType(i) == ClassReader.CONSTANT_Utf8) {
+        Assert.assertEquals(e.getCPUtf8(i), a.getCPUtf8(i));
+      }
+    }
+    Assert.assertTrue(Arrays.equals(expected.getBytes(), actual.getBytes()));
+  }
+
+  @Test
+  public void testDirectBuffer() throws IOException, InvalidClassFileException {
+    for (byte[] bytes : testClasses()) {
+      ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 8);
+      // the reader starts at the position of the buffer
+      direct.position(8);
+      direct.put(bytes);
+      direct.position(8);
+      assertSameClass(new ClassReader(bytes), new ClassReader(direct));
+    }
+  }
+
+  @Test
+  public void testStoredJarEntries() throws IOException, InvalidClassFileException {
+    List<byte[]> classes = testClasses();
+    File jar = File.createTempFile("stored", ".jar");
+    try {
+      JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+      try {
+        for (int i = 0; i < classes.size(); i++) {
+          byte[] bytes = classes.get(i);
+          ZipEntry entry = new ZipEntry("C" + i + ".class");
+          // alternate between stored and compressed entries
+          if (i % 2 == 0) {
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(bytes.length);
+            entry.setCrc(crc.getValue());
+          }
+          out.putNextEntry(entry);
+          out.write(bytes);
+          out.closeEntry();
+        }
+      } finally {
+        out.close();
+      }
+
+      StoredZipEntries stored = StoredZipEntries.make(jar);
+      Assert.assertEquals((classes.size() + 1) / 2, stored.size());
+      for (int i = 0; i < classes.size(); i++) {
+        ByteBuffer buffer = stored.get("C" + i + ".class");
+        if (i % 2 == 0) {
+          Assert.assertNotNull(buffer);
+          assertSameClass(new ClassReader(classes.get(i)), new ClassReader(buffer));
+        } else {
+          Assert.assertNull(buffer);
+        }
+      }
+    } finally {
+      jar.delete();
+    }
+  }
+}
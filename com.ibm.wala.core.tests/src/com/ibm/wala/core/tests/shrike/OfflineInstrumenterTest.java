@@ -0,0 +1,154 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.core.tests.shrike;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.MethodEditor;
+import com.ibm.wala.shrikeBT.Util;
+import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrikeBT.tools.OfflineInstrumenterBase;
+import com.ibm.wala.shrikeCT.ClassWriter;
+
+/**
+ * Check that {@link OfflineInstrumenter#instrumentAll(OfflineInstrumenter.ClassTransformer, int)} writes the same JAR as
+ * instrumenting one class at a time.
+ */
+public class OfflineInstrumenterTest {
+
+  private static final String testJarLocation = DynamicCallGraphTestBase.getClasspathEntry("com.ibm.wala.core.testdata");
+
+  /**
+   * prints the name of every method on entry
+   */
+  private static ClassWriter trace(ClassInstrumenter ci) throws Exception {
+    for (int m = 0; m < ci.getReader().getMethodCount(); m++) {
+      MethodData d = ci.visitMethod(m);
+      if (d != null) {
+        final String msg = ci.getReader().getName() + "." + ci.getReader().getMethodName(m);
+        MethodEditor me = new MethodEditor(d);
+        me.beginPass();
+        me.insertAtStart(new MethodEditor.Patch() {
+          @Override
+          public void emitTo(MethodEditor.Output w) {
+            w.emit(Util.makeGet(System.class, "err"));
+            w.emit(ConstantInstruction.makeString(msg));
+            w.emit(Util.makeInvoke(PrintStream.class, "println", new Class[] { String.class }));
+          }
+        });
+        me.applyPatches();
+      }
+    }
+    return ci.isChanged() ? ci.emitClass() : null;
+  }
+
+  private static OfflineInstrumenter makeInstrumenter(File output) throws IOException {
+    OfflineInstrumenter instrumenter = new OfflineInstrumenter(true);
+    Assert.assertTrue(instrumenter.addInputElement(new File(testJarLocation), testJarLocation));
+    instrumenter.setOutputJar(output);
+    instrumenter.setPassUnmodifiedClasses(true);
+    return instrumenter;
+  }
+
+  private static List<String> entries(File jar) throws IOException {
+    List<String> result = new ArrayList<String>();
+    JarFile f = new JarFile(jar, false);
+    try {
+      for (Enumeration<JarEntry> e = f.entries(); e.hasMoreElements();) {
+        JarEntry entry = e.nextElement();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InputStream s = f.getInputStream(entry);
+        try {
+          OfflineInstrumenterBase.copyStream(s, bytes);
+        } finally {
+          s.close();
+        }
+        result.add(entry.getName() + " " + Arrays.hashCode(bytes.toByteArray()) + " " + bytes.size());
+      }
+    } finally {
+      f.close();
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameOutput() throws Exception {
+    File sequential = File.createTempFile("sequential", ".jar");
+    File pipelined = File.createTempFile("pipelined", ".jar");
+    try {
+      OfflineInstrumenter instrumenter = makeInstrumenter(sequential);
+      instrumenter.beginTraversal();
+      ClassInstrumenter ci;
+      while ((ci = instrumenter.nextClass()) != null) {
+        ClassWriter cw = trace(ci);
+        if (cw != null) {
+          instrumenter.outputModifiedClass(ci, cw);
+        }
+      }
+      instrumenter.close();
+
+      instrumenter = makeInstrumenter(pipelined);
+      instrumenter.instrumentAll(new OfflineInstrumenter.ClassTransformer() {
+        @Override
+        public ClassWriter transform(ClassInstrumenter ci) throws Exception {
+          return trace(ci);
+        }
+      }, 4);
+      instrumenter.close();
+
+      List<String> expected = entries(sequential);
+      Assert.assertTrue(expected.size() > 0);
+      Assert.assertEquals(expected, entries(pipelined));
+    } finally {
+      sequential.delete();
+      pipelined.delete();
+    }
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    File output = File.createTempFile("failed", ".jar");
+    try {
+      OfflineInstrumenter instrumenter = makeInstrumenter(output);
+      try {
+        instrumenter.instrumentAll(new OfflineInstrumenter.ClassTransformer() {
+          @Override
+          public ClassWriter transform(ClassInstrumenter ci) throws Exception {
+            throw new IllegalStateException(ci.getInputName());
+          }
+        }, 4);
+        Assert.fail("expected the exception of the transformer");
+      } catch (IllegalStateException e) {
+        // expected
+      }
+      instrumenter.close();
+    } finally {
+      output.delete();
+    }
+  }
+}
@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.examples.analysis.dataflow;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.dataflow.IFDS.ICFGSupergraph;
+import com.ibm.wala.dataflow.IFDS.IFlowFunction;
+import com.ibm.wala.dataflow.IFDS.IFlowFunctionMap;
+import com.ibm.wala.dataflow.IFDS.IMergeFunction;
+import com.ibm.wala.dataflow.IFDS.ISupergraph;
+import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
+import com.ibm.wala.dataflow.IFDS.IdentityFlowFunction;
+import com.ibm.wala.dataflow.IFDS.ParallelTabulationSolver;
+import com.ibm.wala.dataflow.IFDS.PathEdge;
+import com.ibm.wala.dataflow.IFDS.TabulationCancelException;
+import com.ibm.wala.dataflow.IFDS.TabulationDomain;
+import com.ibm.wala.dataflow.IFDS.TabulationProblem;
+import com.ibm.wala.dataflow.IFDS.TabulationResult;
+import com.ibm.wala.dataflow.IFDS.TabulationSolver;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.cfg.BasicBlockInContext;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ssa.SSAPutInstruction;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.config.FileOfClasses;
+import com.ibm.wala.util.intset.SparseIntSet;
+
+/**
+ * Check that {@link ParallelTabulationSolver} computes the same result as {@link TabulationSolver}.
+ */
+public class ParallelTabulationSolverTest extends WalaTestCase {
+
+  // same exclusions as DataflowTest, to keep the supergraph small
+  private static final String EXCLUSIONS = "java\\/awt\\/.*\n" + "javax\\/swing\\/.*\n" + "sun\\/awt\\/.*\n" + "sun\\/swing\\/.*\n"
+      + "com\\/sun\\/.*\n" + "sun\\/.*\n" + "org\\/netbeans\\/.*\n" + "org\\/openide\\/.*\n" + "com\\/ibm\\/crypto\\/.*\n"
+      + "com\\/ibm\\/security\\/.*\n" + "org\\/apache\\/xerces\\/.*\n" + "java\\/security\\/.*\n";
+
+  private static CallGraph cg;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    AnalysisScope scope = AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA, null,
+        ParallelTabulationSolverTest.class.getClassLoader());
+    scope.setExclusions(new FileOfClasses(new ByteArrayInputStream(EXCLUSIONS.getBytes("UTF-8"))));
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraphBuilder<InstanceKey> builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    cg = builder.makeCallGraph(options, null);
+  }
+
+  @AfterClass
+  public static void afterClass() throws Exception {
+    cg = null;
+  }
+
+  @Test
+  public void testSameResult() throws CancelException {
+    ICFGSupergraph supergraph = ICFGSupergraph.make(cg, new AnalysisCache());
+    CallSitesProblem problem = new CallSitesProblem(supergraph);
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Integer> expected = TabulationSolver.make(problem).solve();
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Integer> actual = ParallelTabulationSolver.make(problem, 4,
+        null).solve();
+
+    int nonEmpty = 0;
+    for (BasicBlockInContext<IExplodedBasicBlock> bb : supergraph) {
+      IntSet e = expected.getResult(bb);
+      IntSet a = actual.getResult(bb);
+      Assert.assertTrue(bb.toString(), e.sameValue(a));
+      if (e.size() > 1) {
+        nonEmpty++;
+      }
+    }
+    Assert.assertTrue(nonEmpty > 0);
+  }
+
+  @Test
+  public void testCancel() {
+    ICFGSupergraph supergraph = ICFGSupergraph.make(cg, new AnalysisCache());
+    CallSitesProblem problem = new CallSitesProblem(supergraph);
+    try {
+      ParallelTabulationSolver.make(problem, 4, new CancelAfter(10)).solve();
+      Assert.fail("expected cancellation");
+    } catch (TabulationCancelException e) {
+      Assert.assertNotNull(e.getResult());
+    } catch (CancelException e) {
+      Assert.fail("expected partial result");
+    }
+  }
+
+  /**
+   * An IFDS problem whose facts are the call sites that may have executed before reaching a node, numbered by the supergraph node
+   * of the call, plus 1. Putstatic instructions forget all call sites seen so far.
+   */
+  private static class CallSitesProblem implements TabulationProblem<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Integer> {
+
+    private final ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> supergraph;
+
+    private final IUnaryFlowFunction killAll = new IUnaryFlowFunction() {
+      @Override
+      public IntSet getTargets(int d1) {
+        return d1 == 0 ? SparseIntSet.singleton(0) : null;
+      }
+    };
+
+    private final IFlowFunctionMap<BasicBlockInContext<IExplodedBasicBlock>> functions = new IFlowFunctionMap<BasicBlockInContext<IExplodedBasicBlock>>() {
+
+      @Override
+      public IUnaryFlowFunction getNormalFlowFunction(BasicBlockInContext<IExplodedBasicBlock> src,
+          BasicBlockInContext<IExplodedBasicBlock> dest) {
+        if (src.getDelegate().getInstruction() instanceof SSAPutInstruction
+            && ((SSAPutInstruction) src.getDelegate().getInstruction()).isStatic()) {
+          return killAll;
+        }
+        return IdentityFlowFunction.identity();
+      }
+
+      @Override
+      public IFlowFunction getReturnFlowFunction(BasicBlockInContext<IExplodedBasicBlock> call,
+          BasicBlockInContext<IExplodedBasicBlock> src, BasicBlockInContext<IExplodedBasicBlock> dest) {
+        return IdentityFlowFunction.identity();
+      }
+
+      @Override
+      public IUnaryFlowFunction getCallFlowFunction(BasicBlockInContext<IExplodedBasicBlock> src,
+          BasicBlockInContext<IExplodedBasicBlock> dest, BasicBlockInContext<IExplodedBasicBlock> ret) {
+        return IdentityFlowFunction.identity();
+      }
+
+      @Override
+      public IUnaryFlowFunction getCallToReturnFlowFunction(BasicBlockInContext<IExplodedBasicBlock> src,
+          BasicBlockInContext<IExplodedBasicBlock> dest) {
+        final int fact = supergraph.getNumber(src) + 1;
+        return new IUnaryFlowFunction() {
+          @Override
+          public IntSet getTargets(int d1) {
+            return d1 == 0 ? SparseIntSet.pair(0, fact) : SparseIntSet.singleton(d1);
+          }
+        };
+      }
+
+      @Override
+      public IUnaryFlowFunction getCallNoneToReturnFlowFunction(BasicBlockInContext<IExplodedBasicBlock> src,
+          BasicBlockInContext<IExplodedBasicBlock> dest) {
+        return IdentityFlowFunction.identity();
+      }
+    };
+
+    private final TabulationDomain<Integer, BasicBlockInContext<IExplodedBasicBlock>> domain = new TabulationDomain<Integer, BasicBlockInContext<IExplodedBasicBlock>>() {
+
+      @Override
+      public boolean hasPriorityOver(PathEdge<BasicBlockInContext<IExplodedBasicBlock>> p1,
+          PathEdge<BasicBlockInContext<IExplodedBasicBlock>> p2) {
+        return false;
+      }
+
+      @Override
+      public int add(Integer o) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Integer getMappedObject(int n) {
+        return n;
+      }
+
+      @Override
+      public int getMappedIndex(Object o) {
+        return (Integer) o;
+      }
+
+      @Override
+      public boolean hasMappedIndex(Integer o) {
+        return true;
+      }
+
+      @Override
+      public int getMaximumIndex() {
+        return supergraph.getMaxNumber() + 1;
+      }
+
+      @Override
+      public int getSize() {
+        return getMaximumIndex() + 1;
+      }
+
+      @Override
+      public java.util.Iterator<Integer> iterator() {
+        throw new UnsupportedOperationException();
+      }
+    };
+
+    CallSitesProblem(ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> supergraph) {
+      this.supergraph = supergraph;
+    }
+
+    @Override
+    public ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> getSupergraph() {
+      return supergraph;
+    }
+
+    @Override
+    public TabulationDomain<Integer, BasicBlockInContext<IExplodedBasicBlock>> getDomain() {
+      return domain;
+    }
+
+    @Override
+    public IFlowFunctionMap<BasicBlockInContext<IExplodedBasicBlock>> getFunctionMap() {
+      return functions;
+    }
+
+    @Override
+    public Collection<PathEdge<BasicBlockInContext<IExplodedBasicBlock>>> initialSeeds() {
+      BasicBlockInContext<IExplodedBasicBlock> entry = supergraph.getEntriesForProcedure(cg.getFakeRootNode())[0];
+      return Collections.singleton(PathEdge.createPathEdge(entry, 0, entry, 0));
+    }
+
+    @Override
+    public IMergeFunction getMergeFunction() {
+      return null;
+    }
+  }
+
+  /**
+   * a monitor that reports cancellation after it has been polled a number of times
+   */
+  private static class CancelAfter implements IProgressMonitor {
+
+    private int polls;
+
+    CancelAfter(int polls) {
+      this.polls = polls;
+    }
+
+    @Override
+    public void beginTask(String task, int totalWork) {
+    }
+
+    @Override
+    public void subTask(String subTask) {
+    }
+
+    @Override
+    public void cancel() {
+      polls = 0;
+    }
+
+    @Override
+    public synchronized boolean isCanceled() {
+      return --polls < 0;
+    }
+
+    @Override
+    public void done() {
+    }
+
+    @Override
+    public void worked(int units) {
+    }
+
+    @Override
+    public String getCancelMessage() {
+      return "canceled";
+    }
+  }
+}
@@ -38,6 +38,11 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
    */
   final private HashMap<ClassLoaderReference, IClassLoader> map = HashMapFactory.make(3);
 
+  /**
+   * number of threads each {@link ClassLoaderImpl} uses to parse class files
+   */
+  private int numberOfLoaderThreads = 1;
+
   /**
    * @param exclusions
    *          A set of classes that class loaders should pretend don't exist.
@@ -112,10 +117,33 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
           cl = new ClassLoaderImpl(classLoaderReference, scope.getArrayClassLoader(), parent, exclusions, cha);
         }
       }
+    if (cl instanceof ClassLoaderImpl) {
+      ((ClassLoaderImpl) cl).setNumberOfLoaderThreads(numberOfLoaderThreads);
+    }
     cl.init(scope.getModules(classLoaderReference));
     return cl;
   }
 
+  /**
+   * @return the number of threads each new {@link ClassLoaderImpl} uses to parse class files
+   */
+  public int getNumberOfLoaderThreads() {
+    return numberOfLoaderThreads;
+  }
+
+  /**
+   * Parse the class files of each new {@link ClassLoaderImpl} on n threads.
+   * 
+   * @throws IllegalArgumentException if n &lt; 1
+   * @see ClassLoaderImpl#setNumberOfLoaderThreads(int)
+   */
+  public void setNumberOfLoaderThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of threads " + n);
+    }
+    this.numberOfLoaderThreads = n;
+  }
+
   /**
    * A waring when we fail to load an appropriate class loader implementation
    */
@@ -18,7 +18,9 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -26,6 +28,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 
@@ -91,6 +99,16 @@ public class ClassLoaderImpl implements IClassLoader {
    */
   private final ArrayClassLoader arrayClassLoader;
 
+  /**
+   * below this many class files per thread, parsing them in parallel does not pay off
+   */
+  private final static int MIN_CLASSES_PER_TASK = 64;
+
+  /**
+   * number of threads used to parse class files in {@link #init(List)}
+   */
+  private int numberOfLoaderThreads = 1;
+
   /**
    * @param loader class loader reference identifying this loader
    * @param parent parent loader for delegation
@@ -114,6 +132,27 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * @return the number of threads used to parse class files when this loader is initialized
+   */
+  public int getNumberOfLoaderThreads() {
+    return numberOfLoaderThreads;
+  }
+
+  /**
+   * Set the number of threads used to parse class files when this loader is initialized. With more than one thread, class files
+   * are parsed concurrently, but classes are still registered in a fixed order, so the set of loaded classes and the warnings
+   * reported are the same as for a single thread.
+   * 
+   * @throws IllegalArgumentException if n &lt; 1
+   */
+  public void setNumberOfLoaderThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of threads " + n);
+    }
+    this.numberOfLoaderThreads = n;
+  }
+
   /**
    * Return the Set of (ModuleEntry) source files found in a module.
    * 
@@ -245,8 +284,13 @@ public class ClassLoaderImpl implements IClassLoader {
 
   /**
    * Set up the set of classes loaded by this object.
+   * 
+   * Class files are parsed on {@link #getNumberOfLoaderThreads()} threads; the parsed classes are then registered in the order of
+   * moduleEntries, so the result does not depend on the number of threads.
    */
-  private void loadAllClasses(Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents) {
+  private void loadAllClasses(Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents) throws IOException {
+    List<ModuleEntry> entries = new ArrayList<ModuleEntry>(moduleEntries.size());
+    List<TypeName> names = new ArrayList<TypeName>(moduleEntries.size());
     for (Iterator<ModuleEntry> it = moduleEntries.iterator(); it.hasNext();) {
       ModuleEntry entry = it.next();
       if (!entry.isClassFile()) {
@@ -266,45 +310,123 @@ public class ClassLoaderImpl implements IClassLoader {
         continue;
       }
 
-      ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
-
       className = "L" + className;
+      TypeName T = TypeName.string2TypeName(className);
+      if (loadedClasses.get(T) != null) {
+        Warnings.add(MultipleImplementationsWarning.create(className));
+      } else if (parent != null && parent.lookupClass(T) != null) {
+        Warnings.add(MultipleImplementationsWarning.create(className));
+      } else {
+        entries.add(entry);
+        names.add(T);
+      }
+    }
+
+    Object[] parsed = parseClasses(entries, fileContents);
+
+    for (int i = 0; i < parsed.length; i++) {
+      TypeName T = names.get(i);
+      String className = T.toString();
       if (DEBUG_LEVEL > 0) {
         System.err.println("Load class " + className);
       }
-      try {
-        TypeName T = TypeName.string2TypeName(className);
-        if (loadedClasses.get(T) != null) {
-          Warnings.add(MultipleImplementationsWarning.create(className));
-        } else if (parent != null && parent.lookupClass(T) != null) {
-          Warnings.add(MultipleImplementationsWarning.create(className));
-        } else {
-          // try to read from memory
-          ShrikeClassReaderHandle reader = entryReader;
-          if (fileContents != null) {
-            final Object contents = fileContents.get(entry.getName());
-            if (contents != null) {
-              // reader that uses the in-memory bytes
-              reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
-            }
+      if (parsed[i] instanceof InvalidClassFileException) {
+        if (DEBUG_LEVEL > 0) {
+          System.err.println("Ignoring class " + className + " due to InvalidClassFileException");
+        }
+        Warnings.add(InvalidClassFile.create(className));
+      } else if (loadedClasses.get(T) != null) {
+        // another entry of this module already defined T
+        Warnings.add(MultipleImplementationsWarning.create(className));
+      } else if (((ShrikeClass) parsed[i]).getReference().getName().equals(T)) {
+        loadedClasses.put(T, (ShrikeClass) parsed[i]);
+        if (DEBUG_LEVEL > 1) {
+          System.err.println("put " + T + " ");
+        }
+      } else {
+        Warnings.add(InvalidClassFile.create(className));
+      }
+    }
+  }
+
+  /**
+   * @return for each entry, either the {@link ShrikeClass} it defines or the {@link InvalidClassFileException} raised parsing it
+   */
+  private Object[] parseClasses(final List<ModuleEntry> entries, final Map<String, Object> fileContents) throws IOException {
+    final Object[] result = new Object[entries.size()];
+    int nTasks = Math.min(numberOfLoaderThreads * 4, entries.size() / MIN_CLASSES_PER_TASK);
+    if (numberOfLoaderThreads <= 1 || nTasks <= 1) {
+      parseClasses(entries, fileContents, result, 0, entries.size());
+      return result;
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(numberOfLoaderThreads, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "WALA class loader " + loader.getName());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    try {
+      List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(nTasks);
+      for (int i = 0; i < nTasks; i++) {
+        final int from = (int) ((long) entries.size() * i / nTasks);
+        final int to = (int) ((long) entries.size() * (i + 1) / nTasks);
+        tasks.add(new Callable<Object>() {
+          @Override
+          public Object call() {
+            parseClasses(entries, fileContents, result, from, to);
+            return null;
           }
-          ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
-          if (tmpKlass.getReference().getName().equals(T)) {
-            // always used the reader based on the entry after this point,
-            // so we can null out and re-read class file contents
-            loadedClasses.put(T, new ShrikeClass(entryReader, this, cha));
-            if (DEBUG_LEVEL > 1) {
-              System.err.println("put " + T + " ");
-            }
+        });
+      }
+      for (Future<Object> f : pool.invokeAll(tasks)) {
+        try {
+          f.get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
           } else {
-            Warnings.add(InvalidClassFile.create(className));
+            throw new IllegalStateException(cause);
           }
         }
-      } catch (InvalidClassFileException e) {
-        if (DEBUG_LEVEL > 0) {
-          System.err.println("Ignoring class " + className + " due to InvalidClassFileException");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted loading classes for " + loader);
+    } finally {
+      pool.shutdownNow();
+    }
+    return result;
+  }
+
+  private void parseClasses(List<ModuleEntry> entries, Map<String, Object> fileContents, Object[] result, int from, int to) {
+    for (int i = from; i < to; i++) {
+      ModuleEntry entry = entries.get(i);
+      try {
+        ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+        // try to read from memory
+        ShrikeClassReaderHandle reader = entryReader;
+        if (fileContents != null) {
+          final Object contents = fileContents.get(entry.getName());
+          if (contents != null) {
+            // reader that uses the in-memory bytes
+            reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
+          }
         }
-        Warnings.add(InvalidClassFile.create(className));
+        ShrikeClass klass = new ShrikeClass(reader, this, cha);
+        if (reader != entryReader) {
+          // always used the reader based on the entry after this point,
+          // so we can null out and re-read class file contents
+          klass = new ShrikeClass(entryReader, this, cha);
+        }
+        result[i] = klass;
+      } catch (InvalidClassFileException e) {
+        result[i] = e;
       }
     }
   }
@@ -10,8 +10,10 @@
  *******************************************************************************/
 package com.ibm.wala.classLoader;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -19,10 +21,12 @@ import java.util.Iterator;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
+import com.ibm.wala.shrikeCT.ClassReader;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.io.FileUtil;
+import com.ibm.wala.util.io.StoredZipEntries;
 import com.ibm.wala.util.ref.CacheReference;
 
 /**
@@ -37,6 +41,16 @@ public class JarFileModule implements Module {
    */
   private final HashMap<ZipEntry, Object> cache = HashMapFactory.make();
 
+  /**
+   * the stored entries of the file, mapped into memory on demand
+   */
+  private StoredZipEntries storedEntries;
+
+  /**
+   * entry name -> soft reference to the class reader of the entry, shared by all class loaders that read this module
+   */
+  private final HashMap<String, Object> readers = HashMapFactory.make();
+
   public JarFileModule(JarFile f) {
     if (f == null) {
       throw new IllegalArgumentException("null f");
@@ -92,7 +106,7 @@ public class JarFileModule implements Module {
     return true;
   }
 
-  public byte[] getContents(ZipEntry entry) {
+  public synchronized byte[] getContents(ZipEntry entry) {
     byte[] b = (byte[]) CacheReference.get(cache.get(entry));
 
     if (b != null) {
@@ -112,6 +126,44 @@ public class JarFileModule implements Module {
     }
   }
 
+  /**
+   * @return the contents of the named entry as a buffer into the jar file mapped into memory, or null if the entry is compressed
+   */
+  public synchronized ByteBuffer getStoredContents(String entryName) {
+    if (storedEntries == null) {
+      try {
+        storedEntries = StoredZipEntries.make(new File(file.getName()));
+      } catch (IOException e) {
+        e.printStackTrace();
+        Assertions.UNREACHABLE();
+        return null;
+      }
+    }
+    return storedEntries.get(entryName);
+  }
+
+  /**
+   * @return the class reader of the named entry that some class loader already made, or null if there is none
+   */
+  public synchronized ClassReader getClassReader(String entryName) {
+    return (ClassReader) CacheReference.get(readers.get(entryName));
+  }
+
+  /**
+   * Offer reader, just made for the named entry, to other class loaders that read this module. Class readers do not change once
+   * made, so one reader serves all class hierarchies built over this module.
+   * 
+   * @return the reader to use for the entry: one that was offered before, if it is still around, or else reader
+   */
+  public synchronized ClassReader shareClassReader(String entryName, ClassReader reader) {
+    ClassReader result = (ClassReader) CacheReference.get(readers.get(entryName));
+    if (result == null) {
+      result = reader;
+      readers.put(entryName, CacheReference.make(reader));
+    }
+    return result;
+  }
+
   public JarFile getJarFile() {
     return file;
   }
@@ -18,6 +18,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.ibm.wala.shrikeBT.BytecodeConstants;
 import com.ibm.wala.shrikeBT.Constants;
@@ -58,7 +59,12 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
    */
   private final static boolean verbose = false;
 
-  private static int methodsParsed = 0;
+  /**
+   * The number of method bodies decoded so far
+   */
+  private static final AtomicInteger methodsParsed = new AtomicInteger();
+
+  private static final TypeReference[] NO_EXCEPTIONS = new TypeReference[0];
 
   /**
    * A wrapper around the declaring class.
@@ -124,9 +130,9 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
     protected int[][] localVariableMap;
 
     /**
-     * Exception types this method might throw. Computed on demand.
+     * have the line number, local variable and position maps been computed?
      */
-    private TypeReference[] exceptionTypes;
+    private boolean debugInfoProcessed;
   }
 
   /**
@@ -134,6 +140,11 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
    */
   private SoftReference<BytecodeInfo> bcInfo;
 
+  /**
+   * Exception types this method declares. Computed on demand.
+   */
+  private volatile TypeReference[] declaredExceptions;
+
   public ShrikeBTMethod(IClass klass) {
     this.declaringClass = klass;
   }
@@ -150,6 +161,29 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
     return result;
   }
 
+  /**
+   * Like {@link #getBCInfo()}, but the line number, local variable and source position maps are filled in as well. They are only
+   * decoded for methods whose debug information is asked for.
+   */
+  protected synchronized BytecodeInfo getBCInfoWithDebugInfo() throws InvalidClassFileException {
+    BytecodeInfo result = getBCInfo();
+    if (!result.debugInfoProcessed) {
+      if (result.decoder != null) {
+        processDebugInfo(result);
+      }
+      result.debugInfoProcessed = true;
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of method bodies decoded so far, by all methods in all class hierarchies. A body decoded again after its
+   *         cached form was collected counts again.
+   */
+  public static int getNumberOfDecodedMethods() {
+    return methodsParsed.get();
+  }
+
   /**
    * Return the program counter (bytecode index) for a particular Shrike instruction index.
    * 
@@ -211,17 +245,10 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
    */
   private BytecodeInfo computeBCInfo() throws InvalidClassFileException {
     BytecodeInfo result = new BytecodeInfo();
-    result.exceptionTypes = computeDeclaredExceptions();
 
     if (isNative()) {
       return result;
     }
-    if (verbose) {
-      methodsParsed += 1;
-      if (methodsParsed % 100 == 0) {
-        System.out.println(methodsParsed + " methods processed...");
-      }
-    }
 
     processBytecodesWithShrikeBT(result);
     return result;
@@ -423,7 +450,8 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
   protected abstract Decoder makeDecoder();
 
   /**
-   * Walk through the bytecodes and collect trivial information.
+   * Read the line number, local variable and source position maps. This is only called for methods with code, once their bytecodes
+   * have been decoded.
    * 
    * @throws InvalidClassFileException
    */
@@ -437,10 +465,12 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
     if (info.decoder == null) {
       return;
     }
+    int parsed = methodsParsed.incrementAndGet();
+    if (verbose && parsed % 100 == 0) {
+      System.out.println(parsed + " methods processed...");
+    }
     info.pcMap = info.decoder.getInstructionsToBytecodes();
 
-    processDebugInfo(info);
-
     SimpleVisitor simpleVisitor = new SimpleVisitor(info);
 
     BytecodeLanguage lang = (BytecodeLanguage) getDeclaringClass().getClassLoader().getLanguage();
@@ -747,7 +777,15 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
    */
   @Override
   public TypeReference[] getDeclaredExceptions() throws InvalidClassFileException {
-    return (getBCInfo().exceptionTypes == null) ? new TypeReference[0] : getBCInfo().exceptionTypes;
+    TypeReference[] result = declaredExceptions;
+    if (result == null) {
+      result = computeDeclaredExceptions();
+      if (result == null) {
+        result = NO_EXCEPTIONS;
+      }
+      declaredExceptions = result;
+    }
+    return result;
   }
 
   protected abstract String[] getDeclaredExceptionTypeNames() throws InvalidClassFileException;
@@ -780,14 +818,16 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
    * @see com.ibm.wala.classLoader.IMethod#getSourcePosition(int)
    */
   public SourcePosition getSourcePosition(int bcIndex) throws InvalidClassFileException {
-    return (getBCInfo().positionMap == null) ? null : getBCInfo().positionMap[bcIndex];
+    BytecodeInfo info = getBCInfoWithDebugInfo();
+    return (info.positionMap == null) ? null : info.positionMap[bcIndex];
   }
 
   /*
    * @see com.ibm.wala.classLoader.IMethod#getParameterSourcePosition(int)
    */
   public SourcePosition getParameterSourcePosition(int paramNum) throws InvalidClassFileException {
-    return (getBCInfo().paramPositionMap == null) ? null : getBCInfo().paramPositionMap[paramNum];
+    BytecodeInfo info = getBCInfoWithDebugInfo();
+    return (info.paramPositionMap == null) ? null : info.paramPositionMap[paramNum];
   }
 /** END Custom change: precise bytecode positions */
 
@@ -797,7 +837,8 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
   @Override
   public int getLineNumber(int bcIndex) {
     try {
-      return (getBCInfo().lineNumberMap == null) ? -1 : getBCInfo().lineNumberMap[bcIndex];
+      BytecodeInfo info = getBCInfoWithDebugInfo();
+      return (info.lineNumberMap == null) ? -1 : info.lineNumberMap[bcIndex];
     } catch (InvalidClassFileException e) {
       return -1;
     }
@@ -0,0 +1,366 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dataflow.IFDS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * A {@link TabulationSolver} that processes path edges on several threads.
+ * <p>
+ * The worker threads share one worklist. The tables of path edges, summary edges and call flow edges are synchronized, and the
+ * sets they return are copies, so that a thread never iterates over a set that another thread is extending. For an IFDS problem
+ * the result does not depend on the order in which path edges are processed, so it is the same as that of the sequential solver.
+ * <p>
+ * The order does matter for problems with a {@link IMergeFunction}; these are solved on the calling thread only.
+ * <p>
+ * The supergraph, flow functions and domain of the problem must support concurrent reads. Lazily built supergraphs such as
+ * {@link ICFGSupergraph} are built completely before tabulation starts. Overrides of the hooks {@link #newNormalExplodedEdge},
+ * {@link #newCallExplodedEdge}, {@link #newSummaryEdge} and {@link #recordCall} are called concurrently.
+ *
+ * @param <T> type of node in the supergraph
+ * @param <P> type of a procedure (like a box in an RSM)
+ * @param <F> type of factoids propagated when solving this problem
+ */
+public class ParallelTabulationSolver<T, P, F> extends TabulationSolver<T, P, F> {
+
+  /**
+   * @param p a description of the dataflow problem to solve
+   * @param numberOfThreads how many threads may process path edges concurrently
+   * @throws IllegalArgumentException if p is null or numberOfThreads &lt; 1
+   */
+  public static <T, P, F> ParallelTabulationSolver<T, P, F> make(TabulationProblem<T, P, F> p, int numberOfThreads,
+      IProgressMonitor monitor) {
+    return new ParallelTabulationSolver<T, P, F>(p, numberOfThreads, monitor);
+  }
+
+  private final int numberOfThreads;
+
+  /**
+   * guards the worklist, {@link #busy} and {@link #stopped}
+   */
+  private final Object workLock = new Object();
+
+  /**
+   * guards the maps from entries and procedures to their local tables
+   */
+  private final Object tableLock = new Object();
+
+  /**
+   * number of path edges currently being processed
+   */
+  private int busy = 0;
+
+  /**
+   * set when a worker fails or notices cancellation, to stop the others
+   */
+  private boolean stopped = false;
+
+  private final ThreadLocal<PathEdge<T>> curPathEdge = new ThreadLocal<PathEdge<T>>();
+
+  private final ThreadLocal<PathEdge<T>> curSummaryEdge = new ThreadLocal<PathEdge<T>>();
+
+  protected ParallelTabulationSolver(TabulationProblem<T, P, F> p, int numberOfThreads, IProgressMonitor monitor) {
+    super(p, monitor);
+    if (numberOfThreads < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + numberOfThreads);
+    }
+    this.numberOfThreads = numberOfThreads;
+  }
+
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  @Override
+  protected void forwardTabulateSLRPs() throws CancelException {
+    if (numberOfThreads == 1 || getProblem().getMergeFunction() != null) {
+      super.forwardTabulateSLRPs();
+      return;
+    }
+    // a lazily built supergraph builds itself completely when asked for its size; do that now so the workers only read it
+    supergraph.getNumberOfNodes();
+
+    ExecutorService pool = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "WALA tabulation solver");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    try {
+      List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(numberOfThreads);
+      for (int i = 0; i < numberOfThreads; i++) {
+        tasks.add(new Callable<Object>() {
+          @Override
+          public Object call() throws CancelException {
+            work();
+            return null;
+          }
+        });
+      }
+      for (Future<Object> f : pool.invokeAll(tasks)) {
+        f.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw CancelException.make("interrupted during parallel tabulation");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof CancelException) {
+        throw (CancelException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new RuntimeException(cause);
+      }
+    } finally {
+      pool.shutdownNow();
+      synchronized (workLock) {
+        stopped = false;
+      }
+    }
+  }
+
+  /**
+   * Process path edges until the worklist is empty and no other worker can add to it.
+   */
+  private void work() throws CancelException {
+    while (true) {
+      PathEdge<T> edge;
+      synchronized (workLock) {
+        while (!stopped && getWorklistSize() == 0 && busy > 0) {
+          try {
+            workLock.wait();
+          } catch (InterruptedException e) {
+            stopped = true;
+            workLock.notifyAll();
+            throw CancelException.make("interrupted during parallel tabulation");
+          }
+        }
+        if (stopped || getWorklistSize() == 0) {
+          workLock.notifyAll();
+          return;
+        }
+        edge = super.popFromWorkList();
+        busy++;
+      }
+      boolean done = false;
+      try {
+        MonitorUtil.throwExceptionIfCanceled(progressMonitor);
+        processPathEdge(edge);
+        setCurPathEdge(null);
+        done = true;
+      } finally {
+        synchronized (workLock) {
+          busy--;
+          if (!done) {
+            stopped = true;
+          }
+          if (!done || (busy == 0 && getWorklistSize() == 0)) {
+            workLock.notifyAll();
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  protected PathEdge<T> popFromWorkList() {
+    synchronized (workLock) {
+      return super.popFromWorkList();
+    }
+  }
+
+  @Override
+  protected void addToWorkList(T s_p, int i, T n, int j) {
+    synchronized (workLock) {
+      super.addToWorkList(s_p, i, n, j);
+      workLock.notify();
+    }
+  }
+
+  @Override
+  protected boolean propagate(T s_p, int i, T n, int j) {
+    // check and record the path edge atomically, so that exactly one thread queues it
+    LocalPathEdges pLocal = findOrCreateLocalPathEdges(s_p);
+    synchronized (pLocal) {
+      return super.propagate(s_p, i, n, j);
+    }
+  }
+
+  @Override
+  public LocalPathEdges getLocalPathEdges(T s_p) {
+    synchronized (tableLock) {
+      return super.getLocalPathEdges(s_p);
+    }
+  }
+
+  @Override
+  protected LocalPathEdges findOrCreateLocalPathEdges(T s_p) {
+    synchronized (tableLock) {
+      return super.findOrCreateLocalPathEdges(s_p);
+    }
+  }
+
+  @Override
+  protected LocalPathEdges makeLocalPathEdges() {
+    return new SynchronizedLocalPathEdges(getProblem().getMergeFunction() != null);
+  }
+
+  @Override
+  protected LocalSummaryEdges getLocalSummaryEdges(P proc) {
+    synchronized (tableLock) {
+      return super.getLocalSummaryEdges(proc);
+    }
+  }
+
+  @Override
+  protected LocalSummaryEdges findOrCreateLocalSummaryEdges(P proc) {
+    synchronized (tableLock) {
+      return super.findOrCreateLocalSummaryEdges(proc);
+    }
+  }
+
+  @Override
+  protected LocalSummaryEdges makeLocalSummaryEdges() {
+    return new SynchronizedLocalSummaryEdges();
+  }
+
+  @Override
+  protected CallFlowEdges findOrCreateCallFlowEdges(T s_p) {
+    synchronized (tableLock) {
+      return super.findOrCreateCallFlowEdges(s_p);
+    }
+  }
+
+  @Override
+  protected CallFlowEdges makeCallFlowEdges() {
+    return new SynchronizedCallFlowEdges();
+  }
+
+  @Override
+  protected PathEdge<T> getCurPathEdge() {
+    return curPathEdge.get();
+  }
+
+  @Override
+  protected void setCurPathEdge(PathEdge<T> edge) {
+    curPathEdge.set(edge);
+  }
+
+  @Override
+  protected PathEdge<T> getCurSummaryEdge() {
+    return curSummaryEdge.get();
+  }
+
+  @Override
+  protected void setCurSummaryEdge(PathEdge<T> edge) {
+    curSummaryEdge.set(edge);
+  }
+
+  private static IntSet copy(IntSet s) {
+    return s == null ? null : MutableSparseIntSet.make(s);
+  }
+
+  private static class SynchronizedLocalPathEdges extends LocalPathEdges {
+
+    SynchronizedLocalPathEdges(boolean fastMerge) {
+      super(fastMerge);
+    }
+
+    @Override
+    public synchronized void addPathEdge(int i, int n, int j) {
+      super.addPathEdge(i, n, j);
+    }
+
+    @Override
+    public synchronized IntSet getInverse(int n, int d2) {
+      return copy(super.getInverse(n, d2));
+    }
+
+    @Override
+    public synchronized boolean contains(int i, int n, int j) {
+      return super.contains(i, n, j);
+    }
+
+    @Override
+    public synchronized IntSet getReachable(int n, int d1) {
+      return copy(super.getReachable(n, d1));
+    }
+
+    @Override
+    public synchronized IntSet getReachable(int n) {
+      return super.getReachable(n);
+    }
+
+    @Override
+    public synchronized IntSet getReachedNodeNumbers() {
+      return super.getReachedNodeNumbers();
+    }
+  }
+
+  private static class SynchronizedLocalSummaryEdges extends LocalSummaryEdges {
+
+    @Override
+    public synchronized void insertSummaryEdge(int s_p, int x, int d1, int d2) {
+      super.insertSummaryEdge(s_p, x, d1, d2);
+    }
+
+    @Override
+    public synchronized boolean contains(int s_p, int x, int d1, int d2) {
+      return super.contains(s_p, x, d1, d2);
+    }
+
+    @Override
+    public synchronized IntSet getSummaryEdges(int s_p, int x, int d1) {
+      return copy(super.getSummaryEdges(s_p, x, d1));
+    }
+
+    @Override
+    public synchronized IntSet getInvertedSummaryEdgesForTarget(int s_p, int x, int d2) {
+      return super.getInvertedSummaryEdgesForTarget(s_p, x, d2);
+    }
+  }
+
+  private static class SynchronizedCallFlowEdges extends CallFlowEdges {
+
+    @Override
+    public synchronized void addCallEdge(int c, int d1, int d2) {
+      super.addCallEdge(c, d1, d2);
+    }
+
+    @Override
+    public synchronized IntSet getCallFlowSources(int c, int d2) {
+      return copy(super.getCallFlowSources(c, d2));
+    }
+
+    @Override
+    public synchronized IntSet getCallFlowSourceNodes(int d2) {
+      return copy(super.getCallFlowSourceNodes(d2));
+    }
+  }
+}
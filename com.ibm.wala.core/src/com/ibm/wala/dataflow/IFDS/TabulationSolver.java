@@ -241,8 +241,8 @@ public class TabulationSolver<T, P, F> {
    *
    * @throws CancelException
    */
-  private void forwardTabulateSLRPs() throws CancelException {
-    assert curPathEdge == null : "curPathEdge should not be non-null here";
+  protected void forwardTabulateSLRPs() throws CancelException {
+    assert getCurPathEdge() == null : "curPathEdge should not be non-null here";
     if (worklist == null) {
       worklist = makeWorklist();
     }
@@ -256,38 +256,45 @@ public class TabulationSolver<T, P, F> {
       }
 
       final PathEdge<T> edge = popFromWorkList();
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("TABULATE " + edge);
-      }
-      curPathEdge = edge;
-      int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
-      if (j == -1 && DEBUG_LEVEL > 0) {
-        System.err.println("merge -1: DROPPING");
-      }
-      if (j != -1) {
-        if (j != edge.d2) {
-          // this means that we don't want to push the edge. instead,
-          // we'll push the merged fact. a little tricky, but i think should
-          // work.
-          if (DEBUG_LEVEL > 0) {
-            System.err.println("propagating merged fact " + j);
-          }
-          propagate(edge.entry, edge.d1, edge.target, j);
+      processPathEdge(edge);
+    }
+    setCurPathEdge(null);
+  }
+
+  /**
+   * Process a path edge taken from the worklist: the body of the main loop of {@link #forwardTabulateSLRPs()}.
+   */
+  protected void processPathEdge(final PathEdge<T> edge) {
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("TABULATE " + edge);
+    }
+    setCurPathEdge(edge);
+    int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
+    if (j == -1 && DEBUG_LEVEL > 0) {
+      System.err.println("merge -1: DROPPING");
+    }
+    if (j != -1) {
+      if (j != edge.d2) {
+        // this means that we don't want to push the edge. instead,
+        // we'll push the merged fact. a little tricky, but i think should
+        // work.
+        if (DEBUG_LEVEL > 0) {
+          System.err.println("propagating merged fact " + j);
+        }
+        propagate(edge.entry, edge.d1, edge.target, j);
+      } else {
+        if (supergraph.isCall(edge.target)) {
+          // [13]
+          processCall(edge);
+        } else if (supergraph.isExit(edge.target)) {
+          // [21]
+          processExit(edge);
         } else {
-          if (supergraph.isCall(edge.target)) {
-            // [13]
-            processCall(edge);
-          } else if (supergraph.isExit(edge.target)) {
-            // [21]
-            processExit(edge);
-          } else {
-            // [33]
-            processNormal(edge);
-          }
+          // [33]
+          processNormal(edge);
         }
       }
     }
-    curPathEdge = null;
   }
 
   /**
@@ -369,8 +376,8 @@ public class TabulationSolver<T, P, F> {
     if (!summaries.contains(s_p_n, x, edge.d1, edge.d2)) {
       summaries.insertSummaryEdge(s_p_n, x, edge.d1, edge.d2);
     }
-    assert curSummaryEdge == null : "curSummaryEdge should be null here";
-    curSummaryEdge = edge;
+    assert getCurSummaryEdge() == null : "curSummaryEdge should be null here";
+    setCurSummaryEdge(edge);
 
     final CallFlowEdges callFlow = findOrCreateCallFlowEdges(edge.entry);
 
@@ -386,7 +393,7 @@ public class TabulationSolver<T, P, F> {
         propagateToReturnSites(edge, supergraph.getNode(globalC), D4);
       }
     }
-    curSummaryEdge = null;
+    setCurSummaryEdge(null);
   }
 
   /**
@@ -506,8 +513,9 @@ public class TabulationSolver<T, P, F> {
                 @Override
                 public void act(int d3) {
                   // set curPathEdge to be consistent with its setting in processCall() when applying a summary edge
-                  curPathEdge = PathEdge.createPathEdge(s_p, d3, c, d4);
-                  newSummaryEdge(curPathEdge, edge, retSite, d5);
+                  PathEdge<T> edgeToCallSite = PathEdge.createPathEdge(s_p, d3, c, d4);
+                  setCurPathEdge(edgeToCallSite);
+                  newSummaryEdge(edgeToCallSite, edge, retSite, d5);
                   propagate(s_p, d3, retSite, d5);
                 }
               });
@@ -526,7 +534,7 @@ public class TabulationSolver<T, P, F> {
    */
   protected IntSet getInversePathEdges(T s_p, T n, int d2) {
     int number = supergraph.getLocalBlockNumber(n);
-    LocalPathEdges lp = pathEdges.get(s_p);
+    LocalPathEdges lp = getLocalPathEdges(s_p);
     if (lp == null) {
       return null;
     }
@@ -646,7 +654,6 @@ public class TabulationSolver<T, P, F> {
       System.err.println(" reached: " + reached);
     }
     if (reached != null) {
-      final LocalSummaryEdges summaries = summaryEdges.get(supergraph.getProcOf(calleeEntry));
       final CallFlowEdges callFlow = findOrCreateCallFlowEdges(calleeEntry);
       final int s_p_num = supergraph.getLocalBlockNumber(calleeEntry);
 
@@ -661,7 +668,9 @@ public class TabulationSolver<T, P, F> {
           // call flow
           callFlow.addCallEdge(callNodeNum, edge.d2, d1);
           // handle summary edges now as well. this is different from the PoPL
-          // 95 paper.
+          // 95 paper. look up the summaries only after recording the call flow,
+          // so that a concurrent processExit() sees one or the other.
+          LocalSummaryEdges summaries = getLocalSummaryEdges(supergraph.getProcOf(calleeEntry));
           if (summaries != null) {
             // for each exit from the callee
             P p = supergraph.getProcOf(calleeEntry);
@@ -684,15 +693,16 @@ public class TabulationSolver<T, P, F> {
                     reachedBySummary.foreach(new IntSetAction() {
                       @Override
                       public void act(final int d2) {
-                        assert curSummaryEdge == null : "curSummaryEdge should be null here";
-                        curSummaryEdge = PathEdge.createPathEdge(calleeEntry, d1, exit, d2);
+                        assert getCurSummaryEdge() == null : "curSummaryEdge should be null here";
+                        final PathEdge<T> summaryEdge = PathEdge.createPathEdge(calleeEntry, d1, exit, d2);
+                        setCurSummaryEdge(summaryEdge);
                         if (retf instanceof IBinaryReturnFlowFunction) {
                           final IntSet D5 = computeBinaryFlow(edge.d2, d2, (IBinaryReturnFlowFunction) retf);
                           if (D5 != null) {
                             D5.foreach(new IntSetAction() {
                               @Override
                               public void act(int d5) {
-                                newSummaryEdge(edge, curSummaryEdge, returnSite, d5);
+                                newSummaryEdge(edge, summaryEdge, returnSite, d5);
                                 propagate(edge.entry, edge.d1, returnSite, d5);
                               }
                             });
@@ -703,13 +713,13 @@ public class TabulationSolver<T, P, F> {
                             D5.foreach(new IntSetAction() {
                               @Override
                               public void act(int d5) {
-                                newSummaryEdge(edge, curSummaryEdge, returnSite, d5);
+                                newSummaryEdge(edge, summaryEdge, returnSite, d5);
                                 propagate(edge.entry, edge.d1, returnSite, d5);
                               }
                             });
                           }
                         }
-                        curSummaryEdge = null;
+                        setCurSummaryEdge(null);
                       }
                     });
                   }
@@ -848,6 +858,13 @@ public class TabulationSolver<T, P, F> {
     }
   }
 
+  /**
+   * @return the number of path edges waiting in the worklist
+   */
+  protected int getWorklistSize() {
+    return worklist == null ? 0 : worklist.size();
+  }
+
   protected void addToWorkList(T s_p, int i, T n, int j) {
     if (worklist == null) {
       worklist = makeWorklist();
@@ -867,28 +884,43 @@ public class TabulationSolver<T, P, F> {
     return result;
   }
 
-  private LocalPathEdges makeLocalPathEdges() {
+  protected LocalPathEdges makeLocalPathEdges() {
     return problem.getMergeFunction() == null ? new LocalPathEdges(false) : new LocalPathEdges(true);
   }
 
+  /**
+   * @return the summary edges recorded for proc, or null if none
+   */
+  protected LocalSummaryEdges getLocalSummaryEdges(P proc) {
+    return summaryEdges.get(proc);
+  }
+
   protected LocalSummaryEdges findOrCreateLocalSummaryEdges(P proc) {
     LocalSummaryEdges result = summaryEdges.get(proc);
     if (result == null) {
-      result = new LocalSummaryEdges();
+      result = makeLocalSummaryEdges();
       summaryEdges.put(proc, result);
     }
     return result;
   }
 
+  protected LocalSummaryEdges makeLocalSummaryEdges() {
+    return new LocalSummaryEdges();
+  }
+
   protected CallFlowEdges findOrCreateCallFlowEdges(T s_p) {
     CallFlowEdges result = callFlowEdges.get(s_p);
     if (result == null) {
-      result = new CallFlowEdges();
+      result = makeCallFlowEdges();
       callFlowEdges.put(s_p, result);
     }
     return result;
   }
 
+  protected CallFlowEdges makeCallFlowEdges() {
+    return new CallFlowEdges();
+  }
+
   /**
    * get the bitvector of facts that hold at the entry to a given node
    *
@@ -1070,10 +1102,18 @@ public class TabulationSolver<T, P, F> {
     return curPathEdge;
   }
 
+  protected void setCurPathEdge(PathEdge<T> edge) {
+    curPathEdge = edge;
+  }
+
   protected PathEdge<T> getCurSummaryEdge() {
     return curSummaryEdge;
   }
 
+  protected void setCurSummaryEdge(PathEdge<T> edge) {
+    curSummaryEdge = edge;
+  }
+
   /**
    * Indicates that due to a path edge <s_p, d1> -> <n, d2> (the 'edge'
    * parameter) and a normal flow function application, a new path edge <s_p,
@@ -12,8 +12,10 @@ package com.ibm.wala.ipa.callgraph;
 
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ssa.BoundedAuxiliaryCache;
 import com.ibm.wala.ssa.DefUse;
 import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IAuxiliaryCache;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.IRFactory;
 import com.ibm.wala.ssa.SSACache;
@@ -37,6 +39,17 @@ public class AnalysisCache {
     ReferenceCleanser.registerCache(this);
   }
 
+  /**
+   * @param irCache policy for caching IRs, e.g. a {@link BoundedAuxiliaryCache}
+   * @param duCache policy for caching {@link DefUse}s
+   */
+  public AnalysisCache(IRFactory<IMethod> irFactory, IAuxiliaryCache irCache, IAuxiliaryCache duCache) {
+    super();
+    this.irFactory = irFactory;
+    this.ssaCache = new SSACache(irFactory, irCache, duCache);
+    ReferenceCleanser.registerCache(this);
+  }
+
   public AnalysisCache() {
     this(new DefaultIRFactory());
   }
@@ -15,6 +15,9 @@ import com.ibm.wala.analysis.reflection.ReflectionContextSelector;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.ReflectionHandler;
 import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableCompressedBitmapIntSetFactory;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 
 /**
  * Basic interface for options that control call graph generation.
@@ -60,6 +63,30 @@ public class AnalysisOptions {
    */
   private int maxEvalBetweenTopo = 1000000000;
 
+  /**
+   * A tuning parameter: how many threads may the pointer analysis solver use to evaluate independent assignment constraints
+   * concurrently? A value of 1 selects the purely sequential solver.
+   */
+  private int numberOfSolverThreads = 1;
+
+  /**
+   * Should the pointer analysis solver detect cycles of assignment constraints while solving, and collapse each into a single
+   * points-to set?
+   */
+  private boolean useCycleElimination = false;
+
+  /**
+   * Should the pointer analysis solver propagate only the instance keys newly added to a points-to set along assignment
+   * constraints, rather than the whole set?
+   */
+  private boolean useDifferencePropagation = false;
+
+  /**
+   * Which kind of int set should hold the points-to sets of the pointer analysis? null means the default kind, from
+   * {@link IntSetUtil#getDefaultIntSetFactory()}.
+   */
+  private MutableIntSetFactory<?> pointsToSetFactory = null;
+
   /**
    * options for handling reflection during call graph construction
    */
@@ -308,6 +335,71 @@ public class AnalysisOptions {
     topologicalGrowthFactor = d;
   }
 
+  /**
+   * @return the number of threads the pointer analysis solver may use; 1 means sequential solving
+   */
+  public int getNumberOfSolverThreads() {
+    return numberOfSolverThreads;
+  }
+
+  /**
+   * @param n the number of threads the pointer analysis solver may use; 1 means sequential solving
+   * @throws IllegalArgumentException if n &lt; 1
+   */
+  public void setNumberOfSolverThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of solver threads: " + n);
+    }
+    numberOfSolverThreads = n;
+  }
+
+  /**
+   * Should the pointer analysis solver collapse cycles of assignment constraints?
+   */
+  public boolean getUseCycleElimination() {
+    return useCycleElimination;
+  }
+
+  /**
+   * Should the pointer analysis solver collapse cycles of assignment constraints? This does not change the computed points-to
+   * sets, but avoids propagating the same set around a cycle.
+   */
+  public void setUseCycleElimination(boolean useCycleElimination) {
+    this.useCycleElimination = useCycleElimination;
+  }
+
+  /**
+   * Should the pointer analysis solver propagate differences along assignment constraints?
+   */
+  public boolean getUseDifferencePropagation() {
+    return useDifferencePropagation;
+  }
+
+  /**
+   * Should the pointer analysis solver propagate differences along assignment constraints? This does not change the computed
+   * points-to sets. It currently only affects the sequential solver.
+   */
+  public void setUseDifferencePropagation(boolean useDifferencePropagation) {
+    this.useDifferencePropagation = useDifferencePropagation;
+  }
+
+  /**
+   * @return the factory for the sets that hold points-to sets, or null for the default
+   */
+  public MutableIntSetFactory<?> getPointsToSetFactory() {
+    return pointsToSetFactory;
+  }
+
+  /**
+   * Choose the representation of points-to sets, e.g. a {@link MutableCompressedBitmapIntSetFactory} for analyses with many
+   * instance keys. This does not change the computed points-to sets.
+   * 
+   * @param pointsToSetFactory the factory for the sets that hold points-to sets, or null for the default
+   */
+  public void setPointsToSetFactory(MutableIntSetFactory<?> pointsToSetFactory) {
+    this.pointsToSetFactory = pointsToSetFactory;
+  }
+
 
   /**
    * @return options governing SSA construction
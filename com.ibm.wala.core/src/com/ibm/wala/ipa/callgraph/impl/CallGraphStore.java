@@ -0,0 +1,556 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.SyntheticMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.AbstractFieldPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.AllocationSiteInNode;
+import com.ibm.wala.ipa.callgraph.propagation.ArrayContentsKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.ReturnValueKey;
+import com.ibm.wala.ipa.callgraph.propagation.StaticFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ExceptionReturnValueKey;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+/**
+ * A compact binary format for call graphs and the pointer analysis results that go with them, so that clients can compute a
+ * call graph once and load it in later runs without rebuilding it.
+ *
+ * The file starts with a magic number and a version. Then, written as a stream:
+ * <ul>
+ * <li>for each node, its allocation sites and call sites, each call site with the numbers of its targets, and
+ * then any targets reached from none of its call sites
+ * <li>the node table, one fixed size record per node: method, context, flags and the offset of its sites
+ * <li>optionally, the points-to sets, each encoded either as a list of gaps or as a bitmap, whichever is smaller
+ * <li>optionally, the instance key table, one fixed size record per key
+ * <li>optionally, the pointer key table, one fixed size record per key, sorted so it can be searched in place
+ * <li>the tables of types, methods, fields and strings the other sections refer to
+ * </ul>
+ * and finally a trailer with the offsets of the sections. All numbers are big-endian ints unless noted.
+ *
+ * {@link #read(File, IClassHierarchy, AnalysisCache)} maps the file into memory and decodes sites and points-to sets only when
+ * they are asked for. Contexts are stored by their string representation only.
+ */
+public final class CallGraphStore {
+
+  final static int MAGIC = 0x57434753;
+
+  final static int VERSION = 1;
+
+  /**
+   * size in bytes of the trailer
+   */
+  final static int TRAILER = 32;
+
+  /**
+   * ints per record in the node table
+   */
+  final static int NODE_RECORD = 4;
+
+  /**
+   * ints per record in the instance key table
+   */
+  final static int INSTANCE_KEY_RECORD = 5;
+
+  /**
+   * ints per record in the pointer key table
+   */
+  final static int POINTER_KEY_RECORD = 5;
+
+  /**
+   * flags of a node
+   */
+  final static int SYNTHETIC = 1, STATIC = 2, FACTORY = 4;
+
+  /**
+   * kinds of pointer keys
+   */
+  final static int LOCAL = 0, RETURN_VALUE = 1, EXCEPTIONAL_RETURN_VALUE = 2, STATIC_FIELD = 3, INSTANCE_FIELD = 4,
+      ARRAY_CONTENTS = 5, OTHER = 6;
+
+  /**
+   * encodings of a points-to set
+   */
+  final static int GAPS = 0, BITMAP = 1;
+
+  private CallGraphStore() {
+  }
+
+  /**
+   * Numbers the parts of a pointer key refers to, or -1 if they have no number
+   */
+  interface Numbering {
+    int getNumber(CGNode node);
+
+    int getNumber(InstanceKey ik);
+
+    int getNumber(FieldReference f);
+  }
+
+  /**
+   * @return the kind and the two operands of the record for key, or null if key is of a kind that is stored by description only
+   */
+  static int[] encode(PointerKey key, Numbering numbering) {
+    if (key instanceof LocalPointerKey) {
+      LocalPointerKey k = (LocalPointerKey) key;
+      return new int[] { LOCAL, numbering.getNumber(k.getNode()), k.getValueNumber() };
+    } else if (key instanceof ExceptionReturnValueKey) {
+      return new int[] { EXCEPTIONAL_RETURN_VALUE, numbering.getNumber(((ExceptionReturnValueKey) key).getNode()), 0 };
+    } else if (key instanceof ReturnValueKey) {
+      return new int[] { RETURN_VALUE, numbering.getNumber(((ReturnValueKey) key).getNode()), 0 };
+    } else if (key instanceof StaticFieldKey) {
+      return new int[] { STATIC_FIELD, numbering.getNumber(((StaticFieldKey) key).getField().getReference()), 0 };
+    } else if (key.getClass().equals(InstanceFieldKey.class)) {
+      InstanceFieldKey k = (InstanceFieldKey) key;
+      return new int[] { INSTANCE_FIELD, numbering.getNumber(k.getInstanceKey()), numbering.getNumber(k.getField().getReference()) };
+    } else if (key instanceof ArrayContentsKey) {
+      return new int[] { ARRAY_CONTENTS, numbering.getNumber(((AbstractFieldPointerKey) key).getInstanceKey()), 0 };
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Write cg, and optionally the pointer analysis that built it, to out.
+   *
+   * @param pa the pointer analysis for cg, or null
+   * @throws IllegalArgumentException if cg has call sites of languages other than Java
+   */
+  public static void write(CallGraph cg, PointerAnalysis<InstanceKey> pa, OutputStream out) throws IOException {
+    if (cg == null) {
+      throw new IllegalArgumentException("null cg");
+    }
+    if (out == null) {
+      throw new IllegalArgumentException("null out");
+    }
+    new Writer(cg, pa, out).write();
+  }
+
+  /**
+   * Map a file written by {@link #write(CallGraph, PointerAnalysis, OutputStream)} into memory.
+   *
+   * @param cha the class hierarchy in which to resolve the methods of the nodes
+   * @param cache the cache from which nodes get their IR, or null if the nodes should have none
+   * @return the call graph, or null if the file was written by a different version of this format
+   */
+  public static StoredCallGraph read(File file, IClassHierarchy cha, AnalysisCache cache) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    RandomAccessFile f = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = f.getChannel();
+      // the mapping stays valid once the file is closed
+      return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), cha, cache);
+    } finally {
+      f.close();
+    }
+  }
+
+  /**
+   * @see #read(File, IClassHierarchy, AnalysisCache)
+   */
+  public static StoredCallGraph read(ByteBuffer buffer, IClassHierarchy cha, AnalysisCache cache) throws IOException {
+    if (buffer == null) {
+      throw new IllegalArgumentException("null buffer");
+    }
+    if (cha == null) {
+      throw new IllegalArgumentException("null cha");
+    }
+    if (buffer.limit() < 8 + TRAILER || buffer.getInt(0) != MAGIC || buffer.getInt(buffer.limit() - 4) != MAGIC) {
+      throw new IOException("not a stored call graph");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      return null;
+    }
+    return new StoredCallGraph(buffer, cha, cache);
+  }
+
+  private static class Writer implements Numbering {
+
+    private final CallGraph cg;
+
+    private final PointerAnalysis<InstanceKey> pa;
+
+    private final DataOutputStream data;
+
+    private final Map<CGNode, Integer> nodes = HashMapFactory.make();
+
+    private final Map<InstanceKey, Integer> instanceKeys = HashMapFactory.make();
+
+    private final Map<String, Integer> strings = HashMapFactory.make();
+
+    private final List<String> stringTable = new ArrayList<String>();
+
+    private final Map<TypeReference, Integer> types = HashMapFactory.make();
+
+    private final List<TypeReference> typeTable = new ArrayList<TypeReference>();
+
+    private final Map<MethodReference, Integer> methods = HashMapFactory.make();
+
+    private final List<MethodReference> methodTable = new ArrayList<MethodReference>();
+
+    private final Map<FieldReference, Integer> fields = HashMapFactory.make();
+
+    private final List<FieldReference> fieldTable = new ArrayList<FieldReference>();
+
+    Writer(CallGraph cg, PointerAnalysis<InstanceKey> pa, OutputStream out) {
+      this.cg = cg;
+      this.pa = pa;
+      this.data = new DataOutputStream(out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out));
+    }
+
+    void write() throws IOException {
+      data.writeInt(MAGIC);
+      data.writeInt(VERSION);
+
+      List<CGNode> order = new ArrayList<CGNode>(cg.getNumberOfNodes());
+      for (CGNode n : cg) {
+        nodes.put(n, order.size());
+        order.add(n);
+      }
+
+      int[] siteOffsets = new int[order.size()];
+      for (int i = 0; i < order.size(); i++) {
+        siteOffsets[i] = data.size();
+        writeSites(order.get(i));
+      }
+
+      int nodesOffset = data.size();
+      data.writeInt(order.size());
+      data.writeInt(getNumber(cg.getFakeRootNode()));
+      data.writeInt(cg.getFakeWorldClinitNode() == null ? -1 : getNumber(cg.getFakeWorldClinitNode()));
+      for (int i = 0; i < order.size(); i++) {
+        IMethod m = order.get(i).getMethod();
+        data.writeInt(method(m.getReference()));
+        data.writeInt(order.get(i).getContext() instanceof Everywhere ? -1 : string(order.get(i).getContext().toString()));
+        int flags = m.isSynthetic() ? SYNTHETIC : 0;
+        flags |= m.isStatic() ? STATIC : 0;
+        flags |= m instanceof SyntheticMethod && ((SyntheticMethod) m).isFactoryMethod() ? FACTORY : 0;
+        data.writeInt(flags);
+        data.writeInt(siteOffsets[i]);
+      }
+      data.writeInt(cg.getEntrypointNodes().size());
+      for (CGNode n : cg.getEntrypointNodes()) {
+        data.writeInt(getNumber(n));
+      }
+
+      int instanceKeysOffset = -1;
+      int pointerKeysOffset = -1;
+      if (pa != null) {
+        List<InstanceKey> keys = new ArrayList<InstanceKey>(pa.getInstanceKeys());
+        for (InstanceKey ik : keys) {
+          instanceKeys.put(ik, instanceKeys.size());
+        }
+        List<int[]> records = writeSets();
+
+        instanceKeysOffset = data.size();
+        data.writeInt(keys.size());
+        for (InstanceKey ik : keys) {
+          data.writeInt(ik.getConcreteType() == null ? -1 : type(ik.getConcreteType().getReference()));
+          data.writeInt(string(ik.toString()));
+          if (ik instanceof AllocationSiteInNode && nodes.containsKey(((AllocationSiteInNode) ik).getNode())) {
+            NewSiteReference site = ((AllocationSiteInNode) ik).getSite();
+            data.writeInt(getNumber(((AllocationSiteInNode) ik).getNode()));
+            data.writeInt(site.getProgramCounter());
+            data.writeInt(type(site.getDeclaredType()));
+          } else {
+            data.writeInt(-1);
+            data.writeInt(-1);
+            data.writeInt(-1);
+          }
+        }
+
+        pointerKeysOffset = data.size();
+        data.writeInt(records.size());
+        for (int[] r : records) {
+          for (int x : r) {
+            data.writeInt(x);
+          }
+        }
+      }
+
+      int typesOffset = data.size();
+      data.writeInt(typeTable.size());
+      for (TypeReference t : typeTable) {
+        data.writeInt(string(t.getClassLoader().getName().toString()));
+        data.writeInt(string(t.getName().toString()));
+      }
+      int methodsOffset = data.size();
+      data.writeInt(methodTable.size());
+      for (MethodReference m : methodTable) {
+        data.writeInt(type(m.getDeclaringClass()));
+        data.writeInt(string(m.getSelector().toString()));
+      }
+      int fieldsOffset = data.size();
+      data.writeInt(fieldTable.size());
+      for (FieldReference f : fieldTable) {
+        data.writeInt(type(f.getDeclaringClass()));
+        data.writeInt(string(f.getName().toString()));
+        data.writeInt(type(f.getFieldType()));
+      }
+      // no more strings are added from here on
+      int stringsOffset = data.size();
+      List<byte[]> bytes = new ArrayList<byte[]>(stringTable.size());
+      data.writeInt(stringTable.size());
+      int offset = stringsOffset + 4 + 4 * stringTable.size();
+      for (String s : stringTable) {
+        byte[] b = s.getBytes("UTF-8");
+        bytes.add(b);
+        data.writeInt(offset);
+        offset += 4 + b.length;
+      }
+      for (byte[] b : bytes) {
+        data.writeInt(b.length);
+        data.write(b);
+      }
+      if (data.size() < 0 || data.size() == Integer.MAX_VALUE) {
+        throw new IOException("call graph too large to store");
+      }
+
+      data.writeInt(nodesOffset);
+      data.writeInt(instanceKeysOffset);
+      data.writeInt(pointerKeysOffset);
+      data.writeInt(typesOffset);
+      data.writeInt(methodsOffset);
+      data.writeInt(fieldsOffset);
+      data.writeInt(stringsOffset);
+      data.writeInt(MAGIC);
+      data.flush();
+    }
+
+    private void writeSites(CGNode n) throws IOException {
+      List<NewSiteReference> allocations = new ArrayList<NewSiteReference>();
+      for (Iterator<NewSiteReference> it = n.iterateNewSites(); it.hasNext();) {
+        allocations.add(it.next());
+      }
+      data.writeInt(allocations.size());
+      for (NewSiteReference site : allocations) {
+        data.writeInt(site.getProgramCounter());
+        data.writeInt(type(site.getDeclaredType()));
+      }
+      List<CallSiteReference> calls = new ArrayList<CallSiteReference>();
+      for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext();) {
+        calls.add(it.next());
+      }
+      data.writeInt(calls.size());
+      Set<CGNode> covered = HashSetFactory.make();
+      for (CallSiteReference site : calls) {
+        if (!(site.getInvocationCode() instanceof IInvokeInstruction.Dispatch)) {
+          throw new IllegalArgumentException("cannot store call site " + site);
+        }
+        data.writeInt(site.getProgramCounter());
+        data.writeInt(((IInvokeInstruction.Dispatch) site.getInvocationCode()).ordinal());
+        data.writeInt(method(site.getDeclaredTarget()));
+        Set<CGNode> targets = cg.getPossibleTargets(n, site);
+        data.writeInt(targets.size());
+        for (CGNode t : targets) {
+          data.writeInt(getNumber(t));
+          covered.add(t);
+        }
+      }
+      // edges the graph knows no call site for, e.g. from some synthetic factory methods
+      List<CGNode> others = new ArrayList<CGNode>();
+      for (Iterator<CGNode> it = cg.getSuccNodes(n); it.hasNext();) {
+        CGNode s = it.next();
+        if (!covered.contains(s)) {
+          others.add(s);
+        }
+      }
+      data.writeInt(others.size());
+      for (CGNode s : others) {
+        data.writeInt(getNumber(s));
+      }
+    }
+
+    /**
+     * write the points-to set of each pointer key
+     *
+     * @return the records of the pointer key table, sorted
+     */
+    private List<int[]> writeSets() throws IOException {
+      Map<List<Integer>, int[]> records = HashMapFactory.make();
+      List<int[]> result = new ArrayList<int[]>();
+      for (PointerKey k : pa.getPointerKeys()) {
+        int[] r = encode(k, this);
+        int[] record;
+        if (r == null || r[1] == -1 || r[2] == -1) {
+          record = new int[] { OTHER, string(k.toString()), 0, 0, 0 };
+        } else {
+          record = new int[] { r[0], r[1], r[2], 0, 0 };
+        }
+        List<Integer> id = Arrays.asList(record[0], record[1], record[2]);
+        if (records.containsKey(id)) {
+          // an equal key, say with a type filter; its set was written already
+          continue;
+        }
+        records.put(id, record);
+        record[3] = data.size();
+        record[4] = pa.isFiltered(k) ? 1 : 0;
+        writeSet(k);
+        result.add(record);
+      }
+      Collections.sort(result, new Comparator<int[]>() {
+        @Override
+        public int compare(int[] o1, int[] o2) {
+          for (int i = 0; i < 3; i++) {
+            if (o1[i] != o2[i]) {
+              return o1[i] < o2[i] ? -1 : 1;
+            }
+          }
+          return 0;
+        }
+      });
+      return result;
+    }
+
+    private void writeSet(PointerKey k) throws IOException {
+      int[] s = new int[pa.getPointsToSet(k).size()];
+      int i = 0;
+      for (InstanceKey ik : pa.getPointsToSet(k)) {
+        s[i++] = getNumber(ik);
+      }
+      Arrays.sort(s);
+      int gaps = 0;
+      for (i = 0; i < s.length; i++) {
+        gaps += varIntSize(i == 0 ? s[i] : s[i] - s[i - 1]);
+      }
+      int words = s.length == 0 ? 0 : (s[s.length - 1] - s[0]) / 32 + 1;
+      if (s.length == 0 || varIntSize(s.length) + gaps <= 8 + 4 * words) {
+        data.writeByte(GAPS);
+        writeVarInt(s.length);
+        for (i = 0; i < s.length; i++) {
+          writeVarInt(i == 0 ? s[i] : s[i] - s[i - 1]);
+        }
+      } else {
+        data.writeByte(BITMAP);
+        data.writeInt(s[0]);
+        data.writeInt(words);
+        int[] bits = new int[words];
+        for (int x : s) {
+          bits[(x - s[0]) / 32] |= 1 << ((x - s[0]) % 32);
+        }
+        for (int w : bits) {
+          data.writeInt(w);
+        }
+      }
+    }
+
+    private static int varIntSize(int x) {
+      int size = 1;
+      while ((x >>>= 7) != 0) {
+        size++;
+      }
+      return size;
+    }
+
+    private void writeVarInt(int x) throws IOException {
+      while ((x & ~0x7f) != 0) {
+        data.writeByte((x & 0x7f) | 0x80);
+        x >>>= 7;
+      }
+      data.writeByte(x);
+    }
+
+    @Override
+    public int getNumber(CGNode node) {
+      Integer n = nodes.get(node);
+      return n == null ? -1 : n;
+    }
+
+    @Override
+    public int getNumber(InstanceKey ik) {
+      Integer n = instanceKeys.get(ik);
+      return n == null ? -1 : n;
+    }
+
+    @Override
+    public int getNumber(FieldReference f) {
+      Integer n = fields.get(f);
+      if (n == null) {
+        type(f.getDeclaringClass());
+        type(f.getFieldType());
+        string(f.getName().toString());
+        n = fieldTable.size();
+        fields.put(f, n);
+        fieldTable.add(f);
+      }
+      return n;
+    }
+
+    private int string(String s) {
+      Integer n = strings.get(s);
+      if (n == null) {
+        n = stringTable.size();
+        strings.put(s, n);
+        stringTable.add(s);
+      }
+      return n;
+    }
+
+    private int type(TypeReference t) {
+      Integer n = types.get(t);
+      if (n == null) {
+        string(t.getClassLoader().getName().toString());
+        string(t.getName().toString());
+        n = typeTable.size();
+        types.put(t, n);
+        typeTable.add(t);
+      }
+      return n;
+    }
+
+    private int method(MethodReference m) {
+      Integer n = methods.get(m);
+      if (n == null) {
+        type(m.getDeclaringClass());
+        string(m.getSelector().toString());
+        n = methodTable.size();
+        methods.put(m, n);
+        methodTable.add(m);
+      }
+      return n;
+    }
+  }
+}
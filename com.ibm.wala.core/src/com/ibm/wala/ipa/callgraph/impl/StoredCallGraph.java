@@ -0,0 +1,662 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.SyntheticMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextItem;
+import com.ibm.wala.ipa.callgraph.ContextKey;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.graph.impl.NodeWithNumber;
+import com.ibm.wala.util.graph.impl.NumberedNodeIterator;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * A read-only call graph backed by a buffer in the format of {@link CallGraphStore}.
+ *
+ * Nodes resolve their methods in the given class hierarchy when first asked; methods that were synthetic, or that the hierarchy
+ * does not have, are represented by {@link SyntheticMethod}s, and classes the hierarchy does not have by stand-ins that are not
+ * part of it. Contexts other than {@link Everywhere} are only known by their string representation. Nodes get their IR, if
+ * at all, from an {@link AnalysisCache} for {@link Everywhere}, so IR that the original call graph specialized for a context is
+ * not reproduced.
+ */
+public class StoredCallGraph extends AbstractNumberedGraph<CGNode> implements CallGraph {
+
+  private final ByteBuffer buffer;
+
+  private final IClassHierarchy cha;
+
+  private final AnalysisCache cache;
+
+  private final StoredNode[] nodes;
+
+  private final CGNode fakeRoot;
+
+  private final CGNode fakeWorldClinit;
+
+  private final List<CGNode> entrypoints;
+
+  private final int typesOffset;
+
+  private final int methodsOffset;
+
+  private final int fieldsOffset;
+
+  private final int stringsOffset;
+
+  private final String[] strings;
+
+  private final TypeReference[] types;
+
+  private final MethodReference[] methods;
+
+  private final FieldReference[] fields;
+
+  /**
+   * stand-ins for classes the hierarchy does not have
+   */
+  private final Map<TypeReference, IClass> missing = HashMapFactory.make();
+
+  /**
+   * method reference -> nodes, computed on demand
+   */
+  private Map<MethodReference, Set<CGNode>> byMethod;
+
+  /**
+   * node number -> numbers of its predecessors, computed on demand
+   */
+  private IntSet[] predecessors;
+
+  private final StoredPointerAnalysis pointerAnalysis;
+
+  StoredCallGraph(ByteBuffer buffer, IClassHierarchy cha, AnalysisCache cache) {
+    this.buffer = buffer;
+    this.cha = cha;
+    this.cache = cache;
+    int trailer = buffer.limit() - CallGraphStore.TRAILER;
+    int nodesOffset = buffer.getInt(trailer);
+    int instanceKeysOffset = buffer.getInt(trailer + 4);
+    int pointerKeysOffset = buffer.getInt(trailer + 8);
+    this.typesOffset = buffer.getInt(trailer + 12);
+    this.methodsOffset = buffer.getInt(trailer + 16);
+    this.fieldsOffset = buffer.getInt(trailer + 20);
+    this.stringsOffset = buffer.getInt(trailer + 24);
+    this.strings = new String[buffer.getInt(stringsOffset)];
+    this.types = new TypeReference[buffer.getInt(typesOffset)];
+    this.methods = new MethodReference[buffer.getInt(methodsOffset)];
+    this.fields = new FieldReference[buffer.getInt(fieldsOffset)];
+
+    this.nodes = new StoredNode[buffer.getInt(nodesOffset)];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = new StoredNode(nodesOffset + 12 + 4 * CallGraphStore.NODE_RECORD * i);
+      nodes[i].setGraphNodeId(i);
+    }
+    int e = nodesOffset + 12 + 4 * CallGraphStore.NODE_RECORD * nodes.length;
+    CGNode[] entries = new CGNode[buffer.getInt(e)];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = nodes[buffer.getInt(e + 4 + 4 * i)];
+    }
+    this.entrypoints = Collections.unmodifiableList(Arrays.asList(entries));
+    fakeRoot = nodes[buffer.getInt(nodesOffset + 4)];
+    int clinit = buffer.getInt(nodesOffset + 8);
+    fakeWorldClinit = clinit == -1 ? null : nodes[clinit];
+    this.pointerAnalysis = instanceKeysOffset == -1 ? null : new StoredPointerAnalysis(this, instanceKeysOffset, pointerKeysOffset);
+  }
+
+  /**
+   * @return the pointer analysis stored with this call graph, or null if there is none
+   */
+  public StoredPointerAnalysis getPointerAnalysis() {
+    return pointerAnalysis;
+  }
+
+  ByteBuffer getBuffer() {
+    return buffer;
+  }
+
+  synchronized String getString(int i) {
+    if (strings[i] == null) {
+      int offset = buffer.getInt(stringsOffset + 4 + 4 * i);
+      byte[] b = new byte[buffer.getInt(offset)];
+      ByteBuffer d = buffer.duplicate();
+      d.position(offset + 4);
+      d.get(b);
+      try {
+        strings[i] = new String(b, "UTF-8");
+      } catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return strings[i];
+  }
+
+  synchronized TypeReference getType(int i) {
+    if (types[i] == null) {
+      String loader = getString(buffer.getInt(typesOffset + 4 + 8 * i));
+      String name = getString(buffer.getInt(typesOffset + 8 + 8 * i));
+      types[i] = TypeReference.findOrCreate(cha.getScope().getLoader(Atom.findOrCreateUnicodeAtom(loader)),
+          TypeName.string2TypeName(name));
+    }
+    return types[i];
+  }
+
+  synchronized MethodReference getMethodReference(int i) {
+    if (methods[i] == null) {
+      methods[i] = MethodReference.findOrCreate(getType(buffer.getInt(methodsOffset + 4 + 8 * i)),
+          Selector.make(getString(buffer.getInt(methodsOffset + 8 + 8 * i))));
+    }
+    return methods[i];
+  }
+
+  synchronized FieldReference getField(int i) {
+    if (fields[i] == null) {
+      int offset = fieldsOffset + 4 + 12 * i;
+      fields[i] = FieldReference.findOrCreate(getType(buffer.getInt(offset)),
+          Atom.findOrCreateUnicodeAtom(getString(buffer.getInt(offset + 4))), getType(buffer.getInt(offset + 8)));
+    }
+    return fields[i];
+  }
+
+  int getNumberOfFields() {
+    return fields.length;
+  }
+
+  /**
+   * @return the class for t in the hierarchy, or a stand-in if it has none
+   */
+  synchronized IClass lookupClass(TypeReference t) {
+    IClass result = cha.lookupClass(t);
+    if (result == null) {
+      result = missing.get(t);
+      if (result == null) {
+        result = new FakeRootClass(t, cha);
+        missing.put(t, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the node with number n
+   */
+  CGNode getStoredNode(int n) {
+    return nodes[n];
+  }
+
+  @Override
+  public CGNode getFakeRootNode() {
+    return fakeRoot;
+  }
+
+  @Override
+  public CGNode getFakeWorldClinitNode() {
+    return fakeWorldClinit;
+  }
+
+  @Override
+  public Collection<CGNode> getEntrypointNodes() {
+    return entrypoints;
+  }
+
+  @Override
+  public CGNode getNode(IMethod method, Context C) {
+    if (method == null) {
+      throw new IllegalArgumentException("null method");
+    }
+    for (CGNode n : getNodes(method.getReference())) {
+      if (n.getContext().equals(C)) {
+        return n;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public synchronized Set<CGNode> getNodes(MethodReference m) {
+    if (byMethod == null) {
+      byMethod = HashMapFactory.make();
+      for (StoredNode n : nodes) {
+        MethodReference ref = getMethodReference(n.getInt(0));
+        Set<CGNode> s = byMethod.get(ref);
+        if (s == null) {
+          s = HashSetFactory.make(2);
+          byMethod.put(ref, s);
+        }
+        s.add(n);
+      }
+    }
+    Set<CGNode> result = byMethod.get(m);
+    if (result == null) {
+      IMethod im = cha.resolveMethod(m);
+      result = im == null ? null : byMethod.get(im.getReference());
+    }
+    return result == null ? Collections.<CGNode> emptySet() : Collections.unmodifiableSet(result);
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  @Override
+  public Set<CGNode> getPossibleTargets(CGNode node, CallSiteReference site) {
+    Set<CGNode> result = HashSetFactory.make();
+    int offset = findSite(node, site);
+    if (offset != -1) {
+      for (int i = 0; i < buffer.getInt(offset + 12); i++) {
+        result.add(nodes[buffer.getInt(offset + 16 + 4 * i)]);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public int getNumberOfTargets(CGNode node, CallSiteReference site) {
+    int offset = findSite(node, site);
+    return offset == -1 ? 0 : buffer.getInt(offset + 12);
+  }
+
+  @Override
+  public Iterator<CallSiteReference> getPossibleSites(CGNode src, CGNode target) {
+    List<CallSiteReference> result = new ArrayList<CallSiteReference>();
+    int t = nodeManager.getNumber(target);
+    if (t != -1 && nodeManager.containsNode(src)) {
+      StoredNode n = (StoredNode) src;
+      for (int i = 0, offset = n.firstSite(); i < n.getNumberOfSites(); i++, offset = nextSite(offset)) {
+        for (int j = 0; j < buffer.getInt(offset + 12); j++) {
+          if (buffer.getInt(offset + 16 + 4 * j) == t) {
+            result.add(makeSite(offset));
+            break;
+          }
+        }
+      }
+    }
+    return result.iterator();
+  }
+
+  /**
+   * @return the offset of the record for site in node, or -1 if there is none
+   */
+  private int findSite(CGNode node, CallSiteReference site) {
+    if (site == null) {
+      throw new IllegalArgumentException("null site");
+    }
+    if (!nodeManager.containsNode(node)) {
+      return -1;
+    }
+    StoredNode n = (StoredNode) node;
+    for (int i = 0, offset = n.firstSite(); i < n.getNumberOfSites(); i++, offset = nextSite(offset)) {
+      if (buffer.getInt(offset) == site.getProgramCounter() && makeSite(offset).equals(site)) {
+        return offset;
+      }
+    }
+    return -1;
+  }
+
+  private int nextSite(int offset) {
+    return offset + 16 + 4 * buffer.getInt(offset + 12);
+  }
+
+  private CallSiteReference makeSite(int offset) {
+    return CallSiteReference.make(buffer.getInt(offset), getMethodReference(buffer.getInt(offset + 8)),
+        IInvokeInstruction.Dispatch.values()[buffer.getInt(offset + 4)]);
+  }
+
+  private synchronized IntSet getPredecessors(int n) {
+    if (predecessors == null) {
+      MutableSparseIntSet[] p = new MutableSparseIntSet[nodes.length];
+      for (int i = 0; i < nodes.length; i++) {
+        p[i] = MutableSparseIntSet.makeEmpty();
+      }
+      for (StoredNode src : nodes) {
+        for (IntIterator it = src.getSuccessors().intIterator(); it.hasNext();) {
+          p[it.next()].add(src.getGraphNodeId());
+        }
+      }
+      predecessors = p;
+    }
+    return predecessors[n];
+  }
+
+  @Override
+  public String toString() {
+    return "stored call graph with " + nodes.length + " nodes";
+  }
+
+  private final NumberedNodeManager<CGNode> nodeManager = new NumberedNodeManager<CGNode>() {
+
+    @Override
+    public int getNumber(CGNode N) {
+      return containsNode(N) ? N.getGraphNodeId() : -1;
+    }
+
+    @Override
+    public CGNode getNode(int number) {
+      return number >= 0 && number < nodes.length ? nodes[number] : null;
+    }
+
+    @Override
+    public int getMaxNumber() {
+      return nodes.length - 1;
+    }
+
+    @Override
+    public Iterator<CGNode> iterateNodes(IntSet s) {
+      return new NumberedNodeIterator<CGNode>(s, this);
+    }
+
+    @Override
+    public Iterator<CGNode> iterator() {
+      return Collections.<CGNode> unmodifiableList(Arrays.<CGNode> asList(nodes)).iterator();
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+      return nodes.length;
+    }
+
+    @Override
+    public void addNode(CGNode n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeNode(CGNode n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsNode(CGNode n) {
+      return n instanceof StoredNode && ((StoredNode) n).getGraph() == StoredCallGraph.this;
+    }
+  };
+
+  private final NumberedEdgeManager<CGNode> edgeManager = new NumberedEdgeManager<CGNode>() {
+
+    @Override
+    public Iterator<CGNode> getPredNodes(CGNode n) {
+      return nodeManager.iterateNodes(getPredNodeNumbers(n));
+    }
+
+    @Override
+    public int getPredNodeCount(CGNode n) {
+      return getPredNodeNumbers(n).size();
+    }
+
+    @Override
+    public IntSet getPredNodeNumbers(CGNode node) {
+      return getPredecessors(check(node).getGraphNodeId());
+    }
+
+    @Override
+    public Iterator<CGNode> getSuccNodes(CGNode n) {
+      return nodeManager.iterateNodes(getSuccNodeNumbers(n));
+    }
+
+    @Override
+    public int getSuccNodeCount(CGNode n) {
+      return getSuccNodeNumbers(n).size();
+    }
+
+    @Override
+    public IntSet getSuccNodeNumbers(CGNode node) {
+      return check(node).getSuccessors();
+    }
+
+    @Override
+    public boolean hasEdge(CGNode src, CGNode dst) {
+      return nodeManager.containsNode(dst) && getSuccNodeNumbers(src).contains(dst.getGraphNodeId());
+    }
+
+    @Override
+    public void addEdge(CGNode src, CGNode dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeEdge(CGNode src, CGNode dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAllIncidentEdges(CGNode node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeIncomingEdges(CGNode node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeOutgoingEdges(CGNode node) {
+      throw new UnsupportedOperationException();
+    }
+
+    private StoredNode check(CGNode n) {
+      if (!nodeManager.containsNode(n)) {
+        throw new IllegalArgumentException("not a node of this graph: " + n);
+      }
+      return (StoredNode) n;
+    }
+  };
+
+  @Override
+  protected NumberedNodeManager<CGNode> getNodeManager() {
+    return nodeManager;
+  }
+
+  @Override
+  protected NumberedEdgeManager<CGNode> getEdgeManager() {
+    return edgeManager;
+  }
+
+  /**
+   * A context known only by its string representation
+   */
+  private static final class StoredContext implements Context {
+    private final String description;
+
+    StoredContext(String description) {
+      this.description = description;
+    }
+
+    @Override
+    public ContextItem get(ContextKey name) {
+      return null;
+    }
+
+    @Override
+    public int hashCode() {
+      return description.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof StoredContext && description.equals(((StoredContext) obj).description);
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+
+  private final class StoredNode extends NodeWithNumber implements CGNode {
+
+    /**
+     * offset of the record of this node in the node table
+     */
+    private final int record;
+
+    private IMethod method;
+
+    private Context context;
+
+    private IntSet successors;
+
+    StoredNode(int record) {
+      this.record = record;
+    }
+
+    StoredCallGraph getGraph() {
+      return StoredCallGraph.this;
+    }
+
+    int getInt(int field) {
+      return buffer.getInt(record + 4 * field);
+    }
+
+    @Override
+    public synchronized IMethod getMethod() {
+      if (method == null) {
+        MethodReference ref = getMethodReference(getInt(0));
+        int flags = getInt(2);
+        IMethod m = cha.resolveMethod(ref);
+        if (m != null && (m.isSynthetic() || (flags & CallGraphStore.SYNTHETIC) == 0)) {
+          method = m;
+        } else {
+          boolean isStatic = (flags & CallGraphStore.STATIC) != 0;
+          boolean isFactory = (flags & CallGraphStore.FACTORY) != 0;
+          method = m == null ? new SyntheticMethod(ref, lookupClass(ref.getDeclaringClass()), isStatic, isFactory)
+              : new SyntheticMethod(m, m.getDeclaringClass(), isStatic, isFactory);
+        }
+      }
+      return method;
+    }
+
+    @Override
+    public synchronized Context getContext() {
+      if (context == null) {
+        int c = getInt(1);
+        context = c == -1 ? Everywhere.EVERYWHERE : new StoredContext(getString(c));
+      }
+      return context;
+    }
+
+    @Override
+    public IClassHierarchy getClassHierarchy() {
+      return cha;
+    }
+
+    /**
+     * Stored nodes are read-only.
+     */
+    @Override
+    @Deprecated
+    public boolean addTarget(CallSiteReference site, CGNode target) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IR getIR() {
+      return cache == null || getMethod().isSynthetic() ? null : cache.getIR(getMethod());
+    }
+
+    @Override
+    public DefUse getDU() {
+      IR ir = getIR();
+      return ir == null ? null : cache.getDefUse(ir);
+    }
+
+    @Override
+    public Iterator<NewSiteReference> iterateNewSites() {
+      int offset = getInt(3);
+      NewSiteReference[] result = new NewSiteReference[buffer.getInt(offset)];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = NewSiteReference.make(buffer.getInt(offset + 4 + 8 * i), getType(buffer.getInt(offset + 8 + 8 * i)));
+      }
+      return Arrays.asList(result).iterator();
+    }
+
+    @Override
+    public Iterator<CallSiteReference> iterateCallSites() {
+      CallSiteReference[] result = new CallSiteReference[getNumberOfSites()];
+      for (int i = 0, offset = firstSite(); i < result.length; i++, offset = nextSite(offset)) {
+        result[i] = makeSite(offset);
+      }
+      return Arrays.asList(result).iterator();
+    }
+
+    /**
+     * @return offset of the number of call sites
+     */
+    private int callSites() {
+      int offset = getInt(3);
+      return offset + 4 + 8 * buffer.getInt(offset);
+    }
+
+    int getNumberOfSites() {
+      return buffer.getInt(callSites());
+    }
+
+    int firstSite() {
+      return callSites() + 4;
+    }
+
+    synchronized IntSet getSuccessors() {
+      if (successors == null) {
+        MutableSparseIntSet s = MutableSparseIntSet.makeEmpty();
+        int offset = firstSite();
+        for (int i = 0; i < getNumberOfSites(); i++, offset = nextSite(offset)) {
+          for (int j = 0; j < buffer.getInt(offset + 12); j++) {
+            s.add(buffer.getInt(offset + 16 + 4 * j));
+          }
+        }
+        // followed by the targets reached from no call site
+        for (int j = 0; j < buffer.getInt(offset); j++) {
+          s.add(buffer.getInt(offset + 4 + 4 * j));
+        }
+        successors = s;
+      }
+      return successors;
+    }
+
+    @Override
+    public String toString() {
+      return "Node: " + getMethod() + " Context: " + getContext();
+    }
+  }
+}
@@ -0,0 +1,482 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.ibm.wala.analysis.pointers.BasicHeapGraph;
+import com.ibm.wala.analysis.pointers.HeapGraph;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ProgramCounter;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.AbstractPointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.AbstractPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.ArrayContentsKey;
+import com.ibm.wala.ipa.callgraph.propagation.FilteredPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKeyWithFilter;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.ReturnValueKey;
+import com.ibm.wala.ipa.callgraph.propagation.StaticFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ExceptionReturnValueKey;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.NonNullSingletonIterator;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+
+/**
+ * The pointer analysis stored with a {@link StoredCallGraph}.
+ *
+ * Instance keys are {@link StoredInstanceKey}s. Points-to sets are decoded from the buffer each time they are asked for, for
+ * pointer keys of the usual kinds built over the nodes and instance keys of this analysis, and for the keys from
+ * {@link #getPointerKeys()}. The heap model only answers queries for allocation sites.
+ */
+public class StoredPointerAnalysis extends AbstractPointerAnalysis {
+
+  private final StoredCallGraph cg;
+
+  private final ByteBuffer buffer;
+
+  /**
+   * offset of the first record of the pointer key table
+   */
+  private final int pointerKeys;
+
+  private final int numberOfPointerKeys;
+
+  /**
+   * field reference -> number, computed on demand
+   */
+  private Map<FieldReference, Integer> fieldNumbers;
+
+  /**
+   * (node, program counter) -> instance key allocated there, computed on demand
+   */
+  private Map<Pair<CGNode, Integer>, InstanceKey> allocations;
+
+  private final HeapModel heapModel = new StoredHeapModel();
+
+  /**
+   * computed on demand
+   */
+  private HeapGraph<InstanceKey> heapGraph;
+
+  StoredPointerAnalysis(StoredCallGraph cg, int instanceKeysOffset, int pointerKeysOffset) {
+    super(cg, makeInstanceKeys(cg, instanceKeysOffset));
+    this.cg = cg;
+    this.buffer = cg.getBuffer();
+    this.numberOfPointerKeys = buffer.getInt(pointerKeysOffset);
+    this.pointerKeys = pointerKeysOffset + 4;
+  }
+
+  private static MutableMapping<InstanceKey> makeInstanceKeys(StoredCallGraph cg, int offset) {
+    InstanceKey[] keys = new InstanceKey[cg.getBuffer().getInt(offset)];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new StoredInstanceKey(cg, offset + 4 + 4 * CallGraphStore.INSTANCE_KEY_RECORD * i);
+    }
+    return new MutableMapping<InstanceKey>(keys);
+  }
+
+  @Override
+  public OrdinalSet<InstanceKey> getPointsToSet(PointerKey key) {
+    int record = find(key);
+    if (record == -1) {
+      return OrdinalSet.empty();
+    }
+    return new OrdinalSet<InstanceKey>(decode(buffer.getInt(record + 12)), instanceKeys);
+  }
+
+  @Override
+  public boolean isFiltered(PointerKey key) {
+    int record = find(key);
+    return record != -1 && buffer.getInt(record + 16) != 0;
+  }
+
+  @Override
+  public HeapModel getHeapModel() {
+    return heapModel;
+  }
+
+  @Override
+  public HeapGraph<InstanceKey> getHeapGraph() {
+    if (heapGraph == null) {
+      heapGraph = new BasicHeapGraph<InstanceKey>(this, cg);
+    }
+    return heapGraph;
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cg.getClassHierarchy();
+  }
+
+  @Override
+  public Iterable<PointerKey> getPointerKeys() {
+    return new Iterable<PointerKey>() {
+      @Override
+      public Iterator<PointerKey> iterator() {
+        return new Iterator<PointerKey>() {
+          private int next = 0;
+
+          @Override
+          public boolean hasNext() {
+            return next < numberOfPointerKeys;
+          }
+
+          @Override
+          public PointerKey next() {
+            return makePointerKey(next++);
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
+  private int getRecord(int i) {
+    return pointerKeys + 4 * CallGraphStore.POINTER_KEY_RECORD * i;
+  }
+
+  private PointerKey makePointerKey(int i) {
+    int record = getRecord(i);
+    int a = buffer.getInt(record + 4);
+    int b = buffer.getInt(record + 8);
+    switch (buffer.getInt(record)) {
+    case CallGraphStore.LOCAL:
+      return new LocalPointerKey(cg.getStoredNode(a), b);
+    case CallGraphStore.RETURN_VALUE:
+      return new ReturnValueKey(cg.getStoredNode(a));
+    case CallGraphStore.EXCEPTIONAL_RETURN_VALUE:
+      return new ExceptionReturnValueKey(cg.getStoredNode(a));
+    case CallGraphStore.STATIC_FIELD: {
+      IField f = getClassHierarchy().resolveField(cg.getField(a));
+      return f == null ? new StoredPointerKey(i, "[" + cg.getField(a) + "]") : new StaticFieldKey(f);
+    }
+    case CallGraphStore.INSTANCE_FIELD: {
+      IField f = getClassHierarchy().resolveField(cg.getField(b));
+      InstanceKey ik = instanceKeys.getMappedObject(a);
+      return f == null ? new StoredPointerKey(i, "[" + ik + "," + cg.getField(b) + "]") : new InstanceFieldKey(ik, f);
+    }
+    case CallGraphStore.ARRAY_CONTENTS:
+      return new ArrayContentsKey(instanceKeys.getMappedObject(a));
+    default:
+      return new StoredPointerKey(i, cg.getString(a));
+    }
+  }
+
+  /**
+   * @return the offset of the record for key, or -1 if there is none
+   */
+  private int find(PointerKey key) {
+    if (key == null) {
+      throw new IllegalArgumentException("null key");
+    }
+    if (key instanceof StoredPointerKey) {
+      StoredPointerKey k = (StoredPointerKey) key;
+      return k.getOwner() == this ? getRecord(k.index) : -1;
+    }
+    int[] r = CallGraphStore.encode(key, numbering);
+    if (r == null || r[1] == -1 || r[2] == -1) {
+      return -1;
+    }
+    int low = 0;
+    int high = numberOfPointerKeys - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int record = getRecord(mid);
+      int c = compare(record, r);
+      if (c < 0) {
+        low = mid + 1;
+      } else if (c > 0) {
+        high = mid - 1;
+      } else {
+        return record;
+      }
+    }
+    return -1;
+  }
+
+  private int compare(int record, int[] r) {
+    for (int i = 0; i < 3; i++) {
+      int x = buffer.getInt(record + 4 * i);
+      if (x != r[i]) {
+        return x < r[i] ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  private IntSet decode(int offset) {
+    ByteBuffer b = buffer.duplicate();
+    b.position(offset);
+    if (b.get() == CallGraphStore.GAPS) {
+      int size = readVarInt(b);
+      MutableSparseIntSet result = MutableSparseIntSet.createMutableSparseIntSet(Math.max(size, 1));
+      int x = 0;
+      for (int i = 0; i < size; i++) {
+        x += readVarInt(b);
+        result.add(x);
+      }
+      return result;
+    } else {
+      int base = b.getInt();
+      int words = b.getInt();
+      MutableIntSet result = new BitVectorIntSet();
+      for (int w = 0; w < words; w++) {
+        int bits = b.getInt();
+        for (int i = 0; i < 32; i++) {
+          if ((bits & (1 << i)) != 0) {
+            result.add(base + 32 * w + i);
+          }
+        }
+      }
+      return result;
+    }
+  }
+
+  private static int readVarInt(ByteBuffer b) {
+    int result = 0;
+    for (int shift = 0;; shift += 7) {
+      byte x = b.get();
+      result |= (x & 0x7f) << shift;
+      if ((x & 0x80) == 0) {
+        return result;
+      }
+    }
+  }
+
+  private final CallGraphStore.Numbering numbering = new CallGraphStore.Numbering() {
+    @Override
+    public int getNumber(CGNode node) {
+      return cg.getNumber(node);
+    }
+
+    @Override
+    public int getNumber(InstanceKey ik) {
+      return ik instanceof StoredInstanceKey && ((StoredInstanceKey) ik).cg == cg ? instanceKeys.getMappedIndex(ik) : -1;
+    }
+
+    @Override
+    public int getNumber(FieldReference f) {
+      synchronized (StoredPointerAnalysis.this) {
+        if (fieldNumbers == null) {
+          fieldNumbers = HashMapFactory.make(cg.getNumberOfFields());
+          for (int i = 0; i < cg.getNumberOfFields(); i++) {
+            fieldNumbers.put(cg.getField(i), i);
+          }
+        }
+      }
+      Integer n = fieldNumbers.get(f);
+      return n == null ? -1 : n;
+    }
+  };
+
+  private synchronized InstanceKey getInstanceKeyForAllocation(CGNode node, int pc) {
+    if (allocations == null) {
+      allocations = HashMapFactory.make();
+      for (InstanceKey ik : instanceKeys) {
+        StoredInstanceKey k = (StoredInstanceKey) ik;
+        if (k.getInt(2) != -1) {
+          allocations.put(Pair.make(cg.getStoredNode(k.getInt(2)), k.getInt(3)), ik);
+        }
+      }
+    }
+    return allocations.get(Pair.make(node, pc));
+  }
+
+  /**
+   * An instance key of a stored pointer analysis. It knows its concrete type, its creation site if it stood for the objects
+   * allocated at a site, and the string representation of the original key.
+   */
+  public static final class StoredInstanceKey implements InstanceKey {
+
+    private final StoredCallGraph cg;
+
+    /**
+     * offset of the record of this key in the instance key table
+     */
+    private final int record;
+
+    StoredInstanceKey(StoredCallGraph cg, int record) {
+      this.cg = cg;
+      this.record = record;
+    }
+
+    int getInt(int field) {
+      return cg.getBuffer().getInt(record + 4 * field);
+    }
+
+    @Override
+    public IClass getConcreteType() {
+      int t = getInt(0);
+      return t == -1 ? null : cg.lookupClass(cg.getType(t));
+    }
+
+    /**
+     * @return the node that allocated the objects this key stands for, or null if this key did not stand for an allocation site
+     */
+    public CGNode getNode() {
+      return getInt(2) == -1 ? null : cg.getStoredNode(getInt(2));
+    }
+
+    /**
+     * @return the site that allocated the objects this key stands for, or null if this key did not stand for an allocation site
+     */
+    public NewSiteReference getSite() {
+      return getInt(2) == -1 ? null : NewSiteReference.make(getInt(3), cg.getType(getInt(4)));
+    }
+
+    @Override
+    public Iterator<Pair<CGNode, NewSiteReference>> getCreationSites(CallGraph CG) {
+      if (getInt(2) == -1 || CG != cg) {
+        return EmptyIterator.instance();
+      }
+      return new NonNullSingletonIterator<Pair<CGNode, NewSiteReference>>(Pair.make(getNode(), getSite()));
+    }
+
+    @Override
+    public String toString() {
+      return cg.getString(getInt(1));
+    }
+  }
+
+  /**
+   * A pointer key of a kind that is stored by its string representation only
+   */
+  private final class StoredPointerKey extends AbstractPointerKey {
+
+    private final int index;
+
+    private final String description;
+
+    StoredPointerKey(int index, String description) {
+      this.index = index;
+      this.description = description;
+    }
+
+    StoredPointerAnalysis getOwner() {
+      return StoredPointerAnalysis.this;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof StoredPointerKey && ((StoredPointerKey) obj).getOwner() == getOwner()
+          && ((StoredPointerKey) obj).index == index;
+    }
+
+    @Override
+    public int hashCode() {
+      return 1931 * index;
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+
+  private final class StoredHeapModel implements HeapModel {
+
+    @Override
+    public Iterator<PointerKey> iteratePointerKeys() {
+      return getPointerKeys().iterator();
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForAllocation(CGNode node, NewSiteReference allocation) {
+      if (allocation == null) {
+        throw new IllegalArgumentException("null allocation");
+      }
+      return StoredPointerAnalysis.this.getInstanceKeyForAllocation(node, allocation.getProgramCounter());
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForMultiNewArray(CGNode node, NewSiteReference allocation, int dim) {
+      return null;
+    }
+
+    @Override
+    public <T> InstanceKey getInstanceKeyForConstant(TypeReference type, T S) {
+      return null;
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForPEI(CGNode node, ProgramCounter instr, TypeReference type) {
+      return null;
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForMetadataObject(Object obj, TypeReference objType) {
+      return null;
+    }
+
+    @Override
+    public PointerKey getPointerKeyForLocal(CGNode node, int valueNumber) {
+      return new LocalPointerKey(node, valueNumber);
+    }
+
+    @Override
+    public FilteredPointerKey getFilteredPointerKeyForLocal(CGNode node, int valueNumber, FilteredPointerKey.TypeFilter filter) {
+      return new LocalPointerKeyWithFilter(node, valueNumber, filter);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForReturnValue(CGNode node) {
+      return new ReturnValueKey(node);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForExceptionalReturnValue(CGNode node) {
+      return new ExceptionReturnValueKey(node);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForStaticField(IField f) {
+      return new StaticFieldKey(f);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForInstanceField(InstanceKey I, IField field) {
+      return new InstanceFieldKey(I, field);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForArrayContents(InstanceKey I) {
+      return new ArrayContentsKey(I);
+    }
+
+    @Override
+    public IClassHierarchy getClassHierarchy() {
+      return cg.getClassHierarchy();
+    }
+  }
+}
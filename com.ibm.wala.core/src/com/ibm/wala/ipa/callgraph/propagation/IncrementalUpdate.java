@@ -0,0 +1,716 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.ibm.wala.analysis.reflection.GetMethodContext;
+import com.ibm.wala.analysis.reflection.JavaTypeContext;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.SyntheticClass;
+import com.ibm.wala.fixpoint.AbstractOperator;
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.FilteredPointerKey.SingleClassFilter;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.TypedPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder.DispatchOperator;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallString;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContextSelector;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContextSelector.CallStringContextPair;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAArrayReferenceInstruction;
+import com.ibm.wala.ssa.SSACheckCastInstruction;
+import com.ibm.wala.ssa.SSAFieldAccessInstruction;
+import com.ibm.wala.ssa.SSAInstanceofInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSALoadMetadataInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
+import com.ibm.wala.ssa.SSAPutInstruction;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetAction;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+
+/**
+ * Works out which part of the solution of an earlier call graph construction is still valid after a set of classes has
+ * changed, been added or been removed.
+ *
+ * A call graph node is dirty if its method belongs to an affected class (a changed class or any of its subtypes), if its
+ * signature or its IR mentions an affected class, if its context refers to an affected class or a stale instance key (contexts
+ * of kinds this class does not know, such as caller or delegating contexts, are always stale), or if it is no longer surely
+ * reachable from the fake root through clean nodes. The points-to sets of dirty nodes, and everything that flowed out of them in
+ * the earlier system, are tainted; all other points-to sets are still part of the new solution, and are used as
+ * {@link PointsToSeeds}. The estimate is conservative: whatever flows out of the statements the earlier fake root has beyond
+ * the ones it shares with the new one, or out of the fake world clinit, is tainted as well.
+ *
+ * Only points-to sets are reused. The new builder still visits every reachable node and generates its constraints afresh; the
+ * seeds only save the solver the iterations that would recompute the clean part of the solution.
+ */
+class IncrementalUpdate {
+
+  /**
+   * the builder that computed the earlier solution
+   */
+  private final SSAPropagationCallGraphBuilder previous;
+
+  /**
+   * the builder that computes the new solution
+   */
+  private final SSAPropagationCallGraphBuilder builder;
+
+  private final Set<TypeReference> changed;
+
+  /**
+   * the changed classes and their subtypes, in both the earlier and the new class hierarchy
+   */
+  private final Set<TypeReference> affected = HashSetFactory.make();
+
+  /**
+   * does the change affect exception types? then the exceptional control flow of any method may differ.
+   */
+  private boolean exceptionsAffected = false;
+
+  private final Set<CGNode> dirty = HashSetFactory.make();
+
+  /**
+   * The fake root gains statements while the solver runs, for instance calls to finalizers, in an order that is not stable,
+   * and its statements for the entrypoints change with the program. Only the statements it starts with in both versions,
+   * and the values they define, are reused. These are the number of such statements and the largest value number they
+   * mention.
+   */
+  private int rootStatements;
+
+  private int rootValues;
+
+  /**
+   * the types the earlier fake root allocates after the statements it shares with the new one
+   */
+  private final Set<TypeReference> laterInRoot = HashSetFactory.make();
+
+  /**
+   * dirty nodes whose IR mentions an affected class; the IR itself is unchanged but may be cached with stale control flow
+   */
+  private final Set<CGNode> mentioning = HashSetFactory.make();
+
+  private final Set<PointsToSetVariable> tainted = HashSetFactory.make();
+
+  private final List<PointsToSetVariable> worklist = new ArrayList<PointsToSetVariable>();
+
+  /**
+   * call sites whose dispatch may resolve differently
+   */
+  private final Set<Pair<CGNode, CallSiteReference>> broken = HashSetFactory.make();
+
+  /**
+   * call sites that were resolved by a {@link DispatchOperator}
+   */
+  private final Set<Pair<CGNode, CallSiteReference>> dispatched = HashSetFactory.make();
+
+  IncrementalUpdate(SSAPropagationCallGraphBuilder previous, SSAPropagationCallGraphBuilder builder, Set<TypeReference> changed) {
+    this.previous = previous;
+    this.builder = builder;
+    this.changed = changed;
+    affected.addAll(changed);
+    collectAffected(previous.getClassHierarchy());
+    collectAffected(builder.getClassHierarchy());
+  }
+
+  private void collectAffected(IClassHierarchy cha) {
+    IClass throwable = cha.lookupClass(TypeReference.JavaLangThrowable);
+    for (IClass klass : cha) {
+      if (isSubtypeOfChanged(klass)) {
+        affected.add(klass.getReference());
+        if (throwable != null && cha.isSubclassOf(klass, throwable)) {
+          exceptionsAffected = true;
+        }
+      }
+    }
+  }
+
+  private boolean isSubtypeOfChanged(IClass klass) {
+    for (IClass c = klass; c != null; c = c.getSuperclass()) {
+      if (changed.contains(c.getReference())) {
+        return true;
+      }
+    }
+    for (IClass i : klass.getAllImplementedInterfaces()) {
+      if (changed.contains(i.getReference())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return false if nothing of the earlier solution can be reused
+   */
+  boolean canReuse() {
+    return !exceptionsAffected && previous.system != null;
+  }
+
+  /**
+   * Drop the IRs of the changed classes from a cache. Cached IRs are keyed by methods that compare equal across class
+   * hierarchies, so the cache would otherwise hand out IRs of the old code.
+   */
+  void invalidate(AnalysisCache cache) {
+    if (exceptionsAffected) {
+      cache.getSSACache().wipe();
+      return;
+    }
+    for (TypeReference t : changed) {
+      invalidate(cache, previous.getClassHierarchy().lookupClass(t));
+      invalidate(cache, builder.getClassHierarchy().lookupClass(t));
+    }
+    ExplicitCallGraph cg = previous.getCallGraph();
+    for (CGNode n : cg) {
+      if (changed.contains(n.getMethod().getDeclaringClass().getReference())) {
+        cache.invalidate(n.getMethod(), n.getContext());
+      }
+    }
+    // the fake root methods of both builders compare equal as well
+    cache.invalidate(cg.getFakeRootNode().getMethod(), Everywhere.EVERYWHERE);
+    if (cg.getFakeWorldClinitNode() != null) {
+      cache.invalidate(cg.getFakeWorldClinitNode().getMethod(), Everywhere.EVERYWHERE);
+    }
+  }
+
+  private static void invalidate(AnalysisCache cache, IClass klass) {
+    if (klass != null) {
+      for (IMethod m : klass.getDeclaredMethods()) {
+        cache.invalidate(m, Everywhere.EVERYWHERE);
+      }
+    }
+  }
+
+  /**
+   * Must be called once the entrypoints of the new builder have been added to its fake root, and before it generates any
+   * constraints.
+   *
+   * @return the seeds for the new system, or null if nothing can be reused
+   */
+  PointsToSeeds computeSeeds() {
+    if (!canReuse()) {
+      return null;
+    }
+    ExplicitCallGraph cg = previous.getCallGraph();
+    CGNode root = cg.getFakeRootNode();
+    if (cg.getFakeWorldClinitNode() != null) {
+      // the order of class initializers, and so the value numbers of the fake world clinit, is not stable; the initializers
+      // themselves are reached through the classes that clean nodes initialize
+      dirty.add(cg.getFakeWorldClinitNode());
+    }
+    if (!matchRoot(builder.getCallGraph().getFakeRootNode().getMethod(), root.getMethod())) {
+      dirty.add(root);
+    }
+    for (CGNode n : cg) {
+      // the types the fake root mentions only matter through its instance keys and call sites, handled below
+      if (!dirty.contains(n) && !n.equals(root) && isDirty(n)) {
+        dirty.add(n);
+      }
+    }
+    if (!dirty.contains(root)) {
+      for (Iterator<CallSiteReference> sites = root.iterateCallSites(); sites.hasNext();) {
+        CallSiteReference site = sites.next();
+        if (site.getProgramCounter() >= rootStatements) {
+          broken.add(Pair.make(root, site));
+          taintFormalsOfTargets(root, site);
+        }
+      }
+    }
+
+    for (Iterator<?> it = previous.system.getFixedPointSystem().getStatements(); it.hasNext();) {
+      AbstractOperator<?> op = ((AbstractStatement<?, ?>) it.next()).getOperator();
+      if (op instanceof DispatchOperator) {
+        dispatched.add(Pair.make(((DispatchOperator) op).getNode(), ((DispatchOperator) op).getCall().getCallSite()));
+      }
+    }
+
+    Set<CGNode> done = HashSetFactory.make();
+    while (true) {
+      Set<Pair<String, TypeReference>> staticWrites = HashSetFactory.make();
+      for (CGNode n : dirty) {
+        if (done.add(n)) {
+          collectStaticWrites(n, staticWrites);
+          for (Iterator<CallSiteReference> sites = n.iterateCallSites(); sites.hasNext();) {
+            taintFormalsOfTargets(n, sites.next());
+          }
+        }
+      }
+      taintKeys(staticWrites);
+      if (!propagate()) {
+        return null;
+      }
+      Set<CGNode> reachable = surelyReachable(cg);
+      boolean grew = false;
+      for (CGNode n : cg) {
+        // a receiver instance context goes stale with the node that allocated the receiver
+        if ((!reachable.contains(n) || isStale(n.getContext())) && dirty.add(n)) {
+          grew = true;
+        }
+      }
+      if (!grew) {
+        break;
+      }
+    }
+
+    for (CGNode n : mentioning) {
+      builder.getAnalysisCache().invalidate(n.getMethod(), n.getContext());
+      builder.getAnalysisCache().invalidate(n.getMethod(), Everywhere.EVERYWHERE);
+    }
+    return new PointsToSeeds(previous.system, tainted);
+  }
+
+  /**
+   * Compute the statements the fake root a of the new builder shares with the earlier fake root b.
+   *
+   * @return false iff the two roots cannot be compared
+   */
+  private boolean matchRoot(IMethod a, IMethod b) {
+    if (!(a instanceof AbstractRootMethod) || !(b instanceof AbstractRootMethod)) {
+      return false;
+    }
+    SSAInstruction[] x = ((AbstractRootMethod) a).getStatements(null);
+    SSAInstruction[] y = ((AbstractRootMethod) b).getStatements(null);
+    rootStatements = 0;
+    rootValues = 0;
+    for (; rootStatements < Math.min(x.length, y.length); rootStatements++) {
+      SSAInstruction s = y[rootStatements];
+      if (!String.valueOf(x[rootStatements]).equals(String.valueOf(s))) {
+        break;
+      }
+      for (int j = 0; j < s.getNumberOfDefs(); j++) {
+        rootValues = Math.max(rootValues, s.getDef(j));
+      }
+      for (int j = 0; j < s.getNumberOfUses(); j++) {
+        rootValues = Math.max(rootValues, s.getUse(j));
+      }
+    }
+    for (int i = rootStatements; i < y.length; i++) {
+      if (y[i] instanceof SSANewInstruction) {
+        laterInRoot.add(((SSANewInstruction) y[i]).getConcreteType());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true iff p is defined by the fake root after the statements it shares with the new fake root
+   */
+  private boolean isLaterInRoot(AbstractLocalPointerKey p) {
+    if (!p.getNode().equals(previous.getCallGraph().getFakeRootNode())) {
+      return false;
+    }
+    return !(p instanceof LocalPointerKey) || ((LocalPointerKey) p).getValueNumber() > rootValues;
+  }
+
+  private boolean isAffected(TypeReference t) {
+    return t != null && affected.contains(t.isArrayType() ? t.getInnermostElementType() : t);
+  }
+
+  private boolean isAffected(MethodReference m) {
+    if (isAffected(m.getDeclaringClass()) || isAffected(m.getReturnType())) {
+      return true;
+    }
+    for (int i = 0; i < m.getNumberOfParameters(); i++) {
+      if (isAffected(m.getParameterType(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isAffected(FieldReference f) {
+    return isAffected(f.getDeclaringClass()) || isAffected(f.getFieldType());
+  }
+
+  private boolean isDirty(CGNode n) {
+    if (isStale(n.getContext())) {
+      return true;
+    }
+    IMethod m = n.getMethod();
+    if (isAffected(m.getDeclaringClass().getReference()) || isAffected(m.getReference())) {
+      return true;
+    }
+    for (SSAInstruction s : instructions(n)) {
+      if (mentionsAffected(s)) {
+        mentioning.add(n);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the instructions n had in the earlier call graph
+   */
+  private List<SSAInstruction> instructions(CGNode n) {
+    List<SSAInstruction> result = new ArrayList<SSAInstruction>();
+    IMethod m = n.getMethod();
+    IR ir;
+    if (m instanceof AbstractRootMethod) {
+      // the fake root methods compare equal across builders, so do not let the cache see the earlier IR
+      for (SSAInstruction s : ((AbstractRootMethod) m).getStatements(null)) {
+        result.add(s);
+      }
+      return result;
+    } else if (changed.contains(m.getDeclaringClass().getReference())) {
+      // build the old IR without going through the cache, which must only hold IRs of the new code
+      ir = m.isAbstract() || m.isNative() ? null : previous.getAnalysisCache().getIRFactory()
+          .makeIR(m, n.getContext(), previous.getOptions().getSSAOptions());
+    } else {
+      ir = previous.getCFAContextInterpreter().getIR(n);
+    }
+    if (ir != null) {
+      for (Iterator<SSAInstruction> it = ir.iterateAllInstructions(); it.hasNext();) {
+        SSAInstruction s = it.next();
+        if (s != null) {
+          result.add(s);
+        }
+      }
+    }
+    return result;
+  }
+
+  private boolean mentionsAffected(SSAInstruction s) {
+    if (s instanceof SSANewInstruction) {
+      return isAffected(((SSANewInstruction) s).getConcreteType());
+    } else if (s instanceof SSACheckCastInstruction) {
+      for (TypeReference t : ((SSACheckCastInstruction) s).getDeclaredResultTypes()) {
+        if (isAffected(t)) {
+          return true;
+        }
+      }
+      return false;
+    } else if (s instanceof SSAInstanceofInstruction) {
+      return isAffected(((SSAInstanceofInstruction) s).getCheckedType());
+    } else if (s instanceof SSAFieldAccessInstruction) {
+      return isAffected(((SSAFieldAccessInstruction) s).getDeclaredField());
+    } else if (s instanceof SSAAbstractInvokeInstruction) {
+      return isAffected(((SSAAbstractInvokeInstruction) s).getDeclaredTarget());
+    } else if (s instanceof SSALoadMetadataInstruction) {
+      SSALoadMetadataInstruction l = (SSALoadMetadataInstruction) s;
+      return isAffected(l.getType()) || (l.getToken() instanceof TypeReference && isAffected((TypeReference) l.getToken()));
+    } else if (s instanceof SSAArrayReferenceInstruction) {
+      return isAffected(((SSAArrayReferenceInstruction) s).getElementType());
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * record the static fields n may write, by name and type
+   */
+  private void collectStaticWrites(CGNode n, Set<Pair<String, TypeReference>> result) {
+    for (SSAInstruction s : instructions(n)) {
+      if (s instanceof SSAPutInstruction && ((SSAPutInstruction) s).isStatic()) {
+        FieldReference f = ((SSAPutInstruction) s).getDeclaredField();
+        result.add(Pair.make(f.getName().toString(), f.getFieldType()));
+      }
+    }
+  }
+
+  /**
+   * @return true unless c is known to denote the same context in the new class hierarchy
+   */
+  private boolean isStale(Context c) {
+    if (c instanceof Everywhere) {
+      return false;
+    } else if (c instanceof JavaTypeContext) {
+      return isAffected(((JavaTypeContext) c).getType().getTypeReference());
+    } else if (c instanceof ReceiverInstanceContext) {
+      return isStale(((ReceiverInstanceContext) c).getReceiver());
+    } else if (c instanceof GetMethodContext) {
+      return isAffected(((GetMethodContext) c).getType().getTypeReference());
+    } else if (c instanceof CallStringContext) {
+      return isStale((CallString) c.get(CallStringContextSelector.CALL_STRING));
+    } else if (c instanceof CallStringContextPair) {
+      CallStringContextPair p = (CallStringContextPair) c;
+      return isStale(p.getCallString()) || isStale(p.getBaseContext());
+    } else {
+      return true;
+    }
+  }
+
+  private boolean isStale(CallString cs) {
+    for (IMethod m : cs.getMethods()) {
+      if (isAffected(m.getDeclaringClass().getReference())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isStale(InstanceKey ik) {
+    if (ik instanceof AbstractTypeInNode) {
+      CGNode n = ((AbstractTypeInNode) ik).getNode();
+      if (n.equals(previous.getCallGraph().getFakeRootNode())) {
+        if (ik instanceof AllocationSiteInNode) {
+          if (((AllocationSiteInNode) ik).getSite().getProgramCounter() >= rootStatements) {
+            return true;
+          }
+        } else if (ik instanceof SmushedAllocationSiteInNode) {
+          // e.g. the arguments of the entrypoints, unless later statements of the root allocate the same type
+          if (laterInRoot.contains(ik.getConcreteType().getReference())) {
+            return true;
+          }
+        } else {
+          return true;
+        }
+      }
+      return dirty.contains(n) || isAffected(ik.getConcreteType().getReference());
+    } else if (ik instanceof ConstantKey || ik instanceof ConcreteTypeKey) {
+      return isAffected(ik.getConcreteType().getReference());
+    } else {
+      return true;
+    }
+  }
+
+  /**
+   * taint the variables that may hold values of dirty nodes or stale instance keys
+   */
+  private void taintKeys(Set<Pair<String, TypeReference>> staticWrites) {
+    PropagationSystem system = previous.system;
+    MutableIntSet stale = IntSetUtil.make();
+    for (int i = 0; i <= system.instanceKeys.getMaximumIndex(); i++) {
+      InstanceKey ik = system.getInstanceKey(i);
+      if (ik != null && isStale(ik)) {
+        stale.add(i);
+      }
+    }
+    for (Iterator<PointerKey> it = system.iteratePointerKeys(); it.hasNext();) {
+      PointerKey p = it.next();
+      PointsToSetVariable v = lookup(p);
+      if (v == null || tainted.contains(v)) {
+        continue;
+      }
+      boolean taint = isTainted(p, staticWrites);
+      if (taint || (v.getValue() != null && v.getValue().containsAny(stale))) {
+        taint(v);
+      }
+    }
+  }
+
+  /**
+   * @return true iff p may hold values that did not come from its statements in the earlier system
+   */
+  private boolean isTainted(PointerKey p, Set<Pair<String, TypeReference>> staticWrites) {
+    if (p instanceof AbstractLocalPointerKey) {
+      return dirty.contains(((AbstractLocalPointerKey) p).getNode()) || isLaterInRoot((AbstractLocalPointerKey) p);
+    } else if (p instanceof AbstractFieldPointerKey) {
+      return isStale(((AbstractFieldPointerKey) p).getInstanceKey());
+    } else if (p instanceof StaticFieldKey) {
+      IField f = ((StaticFieldKey) p).getField();
+      return isAffected(f.getDeclaringClass().getReference())
+          || staticWrites.contains(Pair.make(f.getName().toString(), f.getFieldTypeReference()));
+    } else if (p instanceof TypedPointerKey) {
+      // a caught exception of one type, filtered from the thrown exceptions
+      TypedPointerKey t = (TypedPointerKey) p;
+      return isTainted(t.getBase(), staticWrites) || isAffected(((SingleClassFilter) t.getTypeFilter()).getConcreteType().getReference());
+    } else {
+      return true;
+    }
+  }
+
+  private PointsToSetVariable lookup(PointerKey p) {
+    PointsToMap map = previous.system.pointsToMap;
+    if (p == null || map.isImplicit(p)) {
+      return null;
+    }
+    int index = map.getIndex(p);
+    return index == -1 ? null : map.getPointsToSet(index);
+  }
+
+  private void taint(PointsToSetVariable v) {
+    if (v != null && tainted.add(v)) {
+      worklist.add(v);
+    }
+  }
+
+  private void taint(PointerKey p) {
+    taint(lookup(p));
+  }
+
+  /**
+   * the actual parameters passed at a call site may change, so the formals of its earlier targets are tainted
+   */
+  private void taintFormalsOfTargets(CGNode caller, CallSiteReference site) {
+    for (CGNode target : previous.getCallGraph().getPossibleTargets(caller, site)) {
+      // value numbers 1..n are the parameters
+      for (int i = 0; i < target.getMethod().getNumberOfParameters(); i++) {
+        taint(previous.getPointerKeyForLocal(target, i + 1));
+      }
+    }
+  }
+
+  /**
+   * taint everything that was computed from a tainted variable
+   *
+   * @return false if we found a statement we do not understand
+   */
+  private boolean propagate() {
+    while (!worklist.isEmpty()) {
+      final PointsToSetVariable v = worklist.remove(worklist.size() - 1);
+      for (Iterator<?> it = previous.system.getStatementsThatUse(v); it.hasNext();) {
+        AbstractStatement<?, ?> s = (AbstractStatement<?, ?>) it.next();
+        AbstractOperator<?> op = s.getOperator();
+        if (op instanceof AssignOperator || op instanceof PropagationCallGraphBuilder.FilterOperator) {
+          taint((PointsToSetVariable) s.getLHS());
+        } else if (op instanceof UnarySideEffect && ((UnarySideEffect) op).isLoadOperator()) {
+          taint(((UnarySideEffect) op).getFixedSet());
+        } else if (op instanceof PropagationCallGraphBuilder.PutFieldOperator) {
+          taintContents(v, ((PropagationCallGraphBuilder.PutFieldOperator) op).getField());
+        } else if (op instanceof PropagationCallGraphBuilder.InstancePutFieldOperator) {
+          taintContents(v, ((PropagationCallGraphBuilder.InstancePutFieldOperator) op).getField());
+        } else if (op instanceof PropagationCallGraphBuilder.ArrayStoreOperator
+            || op instanceof PropagationCallGraphBuilder.InstanceArrayStoreOperator) {
+          taintContents(v, null);
+        } else if (op instanceof DispatchOperator) {
+          DispatchOperator d = (DispatchOperator) op;
+          SSAAbstractInvokeInstruction call = d.getCall();
+          if (broken.add(Pair.make(d.getNode(), call.getCallSite()))) {
+            taintFormalsOfTargets(d.getNode(), call.getCallSite());
+            if (call.hasDef()) {
+              taint(previous.getPointerKeyForLocal(d.getNode(), call.getDef()));
+            }
+            taint(previous.getPointerKeyForLocal(d.getNode(), call.getException()));
+            if (d.getUniqueCatch() != null) {
+              taint(d.getUniqueCatch());
+            }
+          }
+        } else {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * taint the field, or the array contents if field is null, of each instance key base held in the earlier solution
+   */
+  private void taintContents(PointsToSetVariable base, final IField field) {
+    IntSet value = base.getValue();
+    if (value == null) {
+      return;
+    }
+    value.foreach(new IntSetAction() {
+      @Override
+      public void act(int x) {
+        InstanceKey ik = previous.system.getInstanceKey(x);
+        if (field != null) {
+          taint(previous.getPointerKeyForInstanceField(ik, field));
+        } else if (ik.getConcreteType().isArrayClass()) {
+          taint(previous.getPointerKeyForArrayContents(ik));
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the nodes reachable from the fake root through clean nodes, along call sites whose dispatch is unchanged, and the
+   *         class initializers such nodes trigger
+   */
+  private Set<CGNode> surelyReachable(ExplicitCallGraph cg) {
+    Set<CGNode> result = HashSetFactory.make();
+    CGNode root = cg.getFakeRootNode();
+    if (dirty.contains(root)) {
+      return result;
+    }
+    List<CGNode> todo = new ArrayList<CGNode>();
+    result.add(root);
+    todo.add(root);
+    while (!todo.isEmpty()) {
+      CGNode n = todo.remove(todo.size() - 1);
+      if (dirty.contains(n)) {
+        continue;
+      }
+      for (Iterator<CallSiteReference> sites = n.iterateCallSites(); sites.hasNext();) {
+        CallSiteReference site = sites.next();
+        if (!broken.contains(Pair.make(n, site))) {
+          for (CGNode target : cg.getPossibleTargets(n, site)) {
+            if (result.add(target)) {
+              todo.add(target);
+            }
+          }
+        }
+      }
+      for (IClass klass : initializedClasses(n)) {
+        for (IClass c = klass; c != null; c = c.getSuperclass()) {
+          CGNode clinit = c.getClassInitializer() == null ? null : cg.getNode(c.getClassInitializer(), Everywhere.EVERYWHERE);
+          if (clinit != null && result.add(clinit)) {
+            todo.add(clinit);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the classes whose initializers the builder certainly adds to the fake world clinit when it generates constraints
+   *         for the clean node n
+   */
+  private Set<IClass> initializedClasses(CGNode n) {
+    Set<IClass> result = HashSetFactory.make();
+    IClassHierarchy cha = previous.getClassHierarchy();
+    List<SSAInstruction> instructions = instructions(n);
+    if (n.equals(previous.getCallGraph().getFakeRootNode())) {
+      instructions = instructions.subList(0, rootStatements);
+    }
+    for (SSAInstruction s : instructions) {
+      TypeReference t = null;
+      if (s instanceof SSAFieldAccessInstruction && ((SSAFieldAccessInstruction) s).isStatic()) {
+        t = ((SSAFieldAccessInstruction) s).getDeclaredField().getDeclaringClass();
+      } else if (s instanceof SSANewInstruction) {
+        t = ((SSANewInstruction) s).getConcreteType();
+      } else if (s instanceof SSALoadMetadataInstruction && ((SSALoadMetadataInstruction) s).getToken() instanceof TypeReference) {
+        t = (TypeReference) ((SSALoadMetadataInstruction) s).getToken();
+      } else if (s instanceof SSAAbstractInvokeInstruction) {
+        CallSiteReference site = ((SSAAbstractInvokeInstruction) s).getCallSite();
+        // calls resolved while generating constraints initialize the declaring classes of their targets; calls resolved by a
+        // dispatch operator do not
+        if (!dispatched.contains(Pair.make(n, site))) {
+          for (CGNode target : previous.getCallGraph().getPossibleTargets(n, site)) {
+            if (!(target.getMethod().getDeclaringClass() instanceof SyntheticClass)) {
+              result.add(target.getMethod().getDeclaringClass());
+            }
+          }
+        }
+      }
+      if (t != null) {
+        IClass klass = cha.lookupClass(t);
+        if (klass != null) {
+          result.add(klass);
+        }
+      }
+    }
+    return result;
+  }
+}
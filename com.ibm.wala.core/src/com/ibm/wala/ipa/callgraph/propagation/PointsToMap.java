@@ -21,7 +21,7 @@ import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntegerUnionFind;
-import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OpenAddressingMapping;
 
 /**
  * An object that tracks the mapping between pointer keys and points-to set variables
@@ -31,7 +31,7 @@ public class PointsToMap {
   /**
    * An object that manages the numbering of pointer keys
    */
-  private final MutableMapping<PointerKey> pointerKeys = MutableMapping.make();
+  private final OpenAddressingMapping<PointerKey> pointerKeys = OpenAddressingMapping.make();
 
   /**
    * pointsToSets[i] says something about the representation of the points-to set for the ith {@link PointerKey}, as determined by
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.analysis.reflection.GetMethodContext;
+import com.ibm.wala.analysis.reflection.JavaTypeContext;
+import com.ibm.wala.analysis.typeInference.ConeType;
+import com.ibm.wala.analysis.typeInference.PointType;
+import com.ibm.wala.analysis.typeInference.TypeAbstraction;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.TypedPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContextSelector.CallStringContextPair;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ExceptionReturnValueKey;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetAction;
+
+/**
+ * Initial values for the variables of a {@link PropagationSystem}, taken from the solution of an earlier system.
+ *
+ * When the new system creates a variable for a pointer key, the variable starts out with the earlier points-to set of the
+ * matching key, unless that set is tainted. An instance key the new system has not seen yet is added once the system creates
+ * it. Call graph nodes are only equal to themselves, so keys are matched by {@link #match(Object)}, which compares nodes by
+ * method and context.
+ *
+ * The caller must guarantee that every untainted earlier set is contained in the solution of the new system; then the new
+ * system still computes its least solution, but with much less work.
+ */
+class PointsToSeeds {
+
+  /**
+   * the system that computed the earlier solution
+   */
+  private final PropagationSystem previous;
+
+  /**
+   * variables of the earlier system whose values must not be reused
+   */
+  private final Set<PointsToSetVariable> tainted;
+
+  /**
+   * the untainted variables of the earlier system, by the match of their keys
+   */
+  private final Map<Object, PointsToSetVariable> earlier = HashMapFactory.make();
+
+  /**
+   * the instance keys of the new system, by their match
+   */
+  private final Map<Object, InstanceKey> created = HashMapFactory.make();
+
+  /**
+   * matches of earlier instance keys not yet known to the new system, mapped to the pointer keys that should contain them
+   */
+  private final Map<Object, Set<PointerKey>> pending = HashMapFactory.make();
+
+  /**
+   * number of variables of the new system that started out with an earlier points-to set
+   */
+  private int seeded = 0;
+
+  PointsToSeeds(PropagationSystem previous, Set<PointsToSetVariable> tainted) {
+    this.previous = previous;
+    this.tainted = tainted;
+    PointsToMap map = previous.pointsToMap;
+    for (Iterator<PointerKey> it = previous.iteratePointerKeys(); it.hasNext();) {
+      PointerKey p = it.next();
+      int index = map.isImplicit(p) ? -1 : map.getIndex(p);
+      if (index != -1) {
+        PointsToSetVariable v = map.getPointsToSet(index);
+        Object m = match(p);
+        if (m != null && v.getValue() != null && !tainted.contains(v)) {
+          earlier.put(m, v);
+        }
+      }
+    }
+  }
+
+  /**
+   * the new system just created a variable for key
+   */
+  void variableCreated(final PropagationSystem system, final PointerKey key) {
+    Object k = match(key);
+    PointsToSetVariable v = k == null ? null : earlier.get(k);
+    if (v == null) {
+      return;
+    }
+    seeded++;
+    v.getValue().foreach(new IntSetAction() {
+      @Override
+      public void act(int x) {
+        Object m = match(previous.getInstanceKey(x));
+        if (m == null) {
+          // an instance key we cannot find again; the new system adds it itself
+          return;
+        }
+        InstanceKey ik = created.get(m);
+        if (ik == null) {
+          Set<PointerKey> s = pending.get(m);
+          if (s == null) {
+            s = HashSetFactory.make(2);
+            pending.put(m, s);
+          }
+          s.add(key);
+        } else {
+          // use the new instance key, whose concrete type lives in the new class hierarchy
+          system.newConstraint(key, ik);
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the number of variables of the new system that started out with an earlier points-to set
+   */
+  int getNumberOfSeededVariables() {
+    return seeded;
+  }
+
+  /**
+   * the new system just created an index for key
+   */
+  void instanceKeyCreated(PropagationSystem system, InstanceKey key) {
+    Object m = match(key);
+    if (m == null) {
+      return;
+    }
+    created.put(m, key);
+    Set<PointerKey> s = pending.remove(m);
+    if (s == null) {
+      return;
+    }
+    for (PointerKey p : s) {
+      system.newConstraint(p, key);
+    }
+  }
+
+  /**
+   * @return an object that is equal for a key of the earlier system and the corresponding key of the new system, or null if x is
+   *         of a kind not handled here; such keys are never reused, since their equality may compare call graph nodes, which are
+   *         only equal to themselves, or types of different class hierarchies
+   */
+  private static Object match(Object x) {
+    if (x instanceof StaticFieldKey || x instanceof ConcreteTypeKey || x instanceof ConstantKey || x instanceof Everywhere
+        || x instanceof CallStringContext) {
+      return x;
+    } else if (x instanceof CGNode) {
+      CGNode n = (CGNode) x;
+      return pair(n.getMethod(), match(n.getContext()));
+    } else if (x instanceof CallStringContextPair) {
+      CallStringContextPair c = (CallStringContextPair) x;
+      return pair(c.getCallString(), match(c.getBaseContext()));
+    } else if (x instanceof JavaTypeContext) {
+      return pair(JavaTypeContext.class, match(((JavaTypeContext) x).getType()));
+    } else if (x instanceof GetMethodContext) {
+      GetMethodContext c = (GetMethodContext) x;
+      return pair(match(c.getType()), c.getName());
+    } else if (x instanceof ReceiverInstanceContext) {
+      return pair(ReceiverInstanceContext.class, match(((ReceiverInstanceContext) x).getReceiver()));
+    } else if (x instanceof PointType || x instanceof ConeType) {
+      return pair(x.getClass(), ((TypeAbstraction) x).getTypeReference());
+    } else if (x instanceof NormalAllocationInNode) {
+      AllocationSiteInNode a = (AllocationSiteInNode) x;
+      return pair(match(a.getNode()), a.getSite());
+    } else if (x instanceof MultiNewArrayInNode) {
+      MultiNewArrayInNode a = (MultiNewArrayInNode) x;
+      return pair(pair(match(a.getNode()), a.getSite()), a.getDim());
+    } else if (x instanceof SmushedAllocationSiteInNode) {
+      SmushedAllocationSiteInNode a = (SmushedAllocationSiteInNode) x;
+      return pair(pair(SmushedAllocationSiteInNode.class, match(a.getNode())), a.getConcreteType());
+    } else if (x instanceof LocalPointerKey) {
+      // with or without a filter, as in LocalPointerKey.equals
+      LocalPointerKey p = (LocalPointerKey) x;
+      return pair(match(p.getNode()), p.getValueNumber());
+    } else if (x instanceof ExceptionReturnValueKey) {
+      return pair(ExceptionReturnValueKey.class, match(((ExceptionReturnValueKey) x).getNode()));
+    } else if (x instanceof ReturnValueKey) {
+      return pair(ReturnValueKey.class, match(((ReturnValueKey) x).getNode()));
+    } else if (x instanceof InstanceFieldKey) {
+      InstanceFieldKey p = (InstanceFieldKey) x;
+      return pair(match(p.getInstanceKey()), p.getField());
+    } else if (x instanceof ArrayContentsKey) {
+      return pair(ArrayContentsKey.class, match(((ArrayContentsKey) x).getInstanceKey()));
+    } else if (x instanceof TypedPointerKey) {
+      TypedPointerKey p = (TypedPointerKey) x;
+      return pair(match(p.getBase()), p.getTypeFilter());
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * @return the pair of a and b, or null if either is null
+   */
+  private static Object pair(Object a, Object b) {
+    return a == null || b == null ? null : Pair.make(a, b);
+  }
+}
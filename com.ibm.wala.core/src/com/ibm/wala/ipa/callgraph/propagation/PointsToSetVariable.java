@@ -20,6 +20,9 @@ import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 
@@ -45,12 +48,37 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
 
   private PointerKey pointerKey;
 
+  /**
+   * the instance keys added to this variable since the last call to {@link #takeDelta()}, or null if additions are not recorded.
+   * May contain keys that were already returned. Only the right-hand sides of assignments propagated by difference ever call
+   * {@link #takeDelta()}, so no other variable pays for the recording.
+   */
+  private MutableIntSet delta;
+
+  /**
+   * factory for the set holding the value of this variable, or null for the default
+   */
+  private final MutableIntSetFactory<?> factory;
+
   public PointsToSetVariable(PointerKey key) {
+    this(key, null);
+  }
+
+  /**
+   * @param factory factory for the set holding the value of this variable, or null for the default
+   */
+  public PointsToSetVariable(PointerKey key, MutableIntSetFactory<?> factory) {
     super();
     if (key == null) {
       throw new IllegalArgumentException("null key");
     }
     this.pointerKey = key;
+    this.factory = factory;
+  }
+
+  @Override
+  protected MutableIntSetFactory<?> getIntSetFactory() {
+    return factory == null ? super.getIntSetFactory() : factory;
   }
 
   public PointerKey getPointerKey() {
@@ -75,6 +103,30 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     }
   }
   
+  /**
+   * Forget the recorded additions, so that the next call to {@link #takeDelta()} returns every instance key in this variable.
+   */
+  void resetDelta() {
+    delta = null;
+  }
+
+  /**
+   * Used for difference propagation: the first call returns all instance keys in this variable and starts recording additions;
+   * each later call returns the instance keys added since the previous call.
+   * 
+   * @return the instance keys not yet returned, or null if there are none
+   */
+  IntSet takeDelta() {
+    IntSet result;
+    if (delta == null) {
+      result = getValue() == null ? null : IntSetUtil.makeMutableCopy(getValue());
+    } else {
+      result = delta.isEmpty() ? null : delta;
+    }
+    delta = MutableSparseIntSet.makeEmpty();
+    return result;
+  }
+
   @Override
   public void add(int b) {
     if (PARANOID) {
@@ -82,6 +134,9 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
       m.add(b);
       checkTypes(m);
     }
+    if (delta != null && !contains(b)) {
+      delta.add(b);
+    }
     super.add(b);
     cryIfTooBig();
   }
@@ -91,11 +146,54 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     if (PARANOID) {
       checkTypes(B);
     }
+    if (delta != null) {
+      recordNewElements(B);
+    }
     boolean v = super.addAll(B);
     cryIfTooBig();
     return v;
   }
 
+  /**
+   * record the elements of B not yet in this variable as added, a word at a time for bit vector sets
+   */
+  private void recordNewElements(IntSet B) {
+    if (getValue() == null) {
+      delta.addAll(B);
+    } else {
+      B.foreachExcluding(getValue(), new IntSetAction() {
+        @Override
+        public void act(int x) {
+          delta.add(x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (delta != null) {
+      return addAll(other.intersection(filter));
+    }
+    return super.addAllInIntersection(other, filter);
+  }
+
+  @Override
+  public boolean addAllInIntersection(PointsToSetVariable other, IntSet filter) {
+    if (delta != null) {
+      return other.getValue() != null && addAllInIntersection(other.getValue(), filter);
+    }
+    return super.addAllInIntersection(other, filter);
+  }
+
+  @Override
+  public void copyState(PointsToSetVariable other) {
+    super.copyState(other);
+    if (delta != null && getValue() != null) {
+      delta.addAll(getValue());
+    }
+  }
+
   /**
    * check that the types of all instance keys are assignable to declared type of pointer key
    */
@@ -143,7 +241,9 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     if (PARANOID) {
       checkTypes(other.getValue());
     }
-    // TODO Auto-generated method stub
+    if (delta != null) {
+      return other.getValue() != null && addAll(other.getValue());
+    }
     boolean v = super.addAll(other);
     cryIfTooBig();
     return v;
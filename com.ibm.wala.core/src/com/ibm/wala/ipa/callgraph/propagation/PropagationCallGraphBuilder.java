@@ -125,6 +125,16 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
     return system;
   }
 
+  /**
+   * if non-null, the next call graph construction starts from the still valid part of an earlier solution
+   */
+  private IncrementalUpdate update;
+
+  /**
+   * number of variables whose points-to sets the last call graph construction took from an earlier solution
+   */
+  private int reusedPointsToSets = 0;
+
   /**
    * Algorithm used to solve the system of constraints
    */
@@ -239,6 +249,10 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
     system.setMinEquationsForTopSort(options.getMinEquationsForTopSort());
     system.setTopologicalGrowthFactor(options.getTopologicalGrowthFactor());
     system.setMaxEvalBetweenTopo(options.getMaxEvalBetweenTopo());
+    system.setNumberOfSolverThreads(options.getNumberOfSolverThreads());
+    system.setUseCycleElimination(options.getUseCycleElimination());
+    system.setUseDifferencePropagation(options.getUseDifferencePropagation());
+    system.setPointsToSetFactory(options.getPointsToSetFactory());
 
     discoveredNodes = HashSetFactory.make();
     discoveredNodes.add(callGraph.getFakeRootNode());
@@ -263,6 +277,13 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
       throw new IllegalStateException("Could not create a entrypoint callsites: " +   Warnings.asString());
     }  
 /** END Custom change: throw exception on empty entry points. This is a severe issue that should not go undetected! */
+    PointsToSeeds seeds = null;
+    if (update != null) {
+      seeds = update.computeSeeds();
+      system.setSeeds(seeds);
+      update = null;
+    }
+
     customInit();
 
     solver = makeSolver();
@@ -276,11 +297,29 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
       CallGraphBuilderCancelException c = CallGraphBuilderCancelException.createCallGraphBuilderCancelException(e, callGraph,
           system.extractPointerAnalysis(this));
       throw c;
+    } finally {
+      system.setSeeds(null);
+      reusedPointsToSets = seeds == null ? 0 : seeds.getNumberOfSeededVariables();
     }
 
     return callGraph;
   }
 
+  /**
+   * @return the number of variables whose points-to sets the last call graph construction took from an earlier solution; 0
+   *         unless it was an incremental update
+   */
+  public int getNumberOfReusedPointsToSets() {
+    return reusedPointsToSets;
+  }
+
+  /**
+   * @param update how to reuse an earlier solution in the next call graph construction, or null
+   */
+  void setIncrementalUpdate(IncrementalUpdate update) {
+    this.update = update;
+  }
+
   protected PropagationSystem makeSystem(AnalysisOptions options) {
     return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory);
   }
@@ -1232,6 +1271,10 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
       this.instance = instance;
     }
 
+    IField getField() {
+      return field;
+    }
+
     /**
      * Simply add the instance to each relevant points-to set.
      */
@@ -716,6 +716,36 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
     return list.iterator();
   }
 
+  /**
+   * @return the variables defined by assignment equations that use v
+   */
+  Iterator<PointsToSetVariable> getAssignmentDefs(PointsToSetVariable v) {
+    int number = v.getGraphNodeId();
+    IBinaryNaturalRelation R = invImplicitUnaryMap.get(PropagationCallGraphBuilder.assignOperator);
+    final IntSet s = (number == -1 || R == null) ? null : R.getRelated(number);
+    if (s == null) {
+      return EmptyIterator.instance();
+    }
+    return new Iterator<PointsToSetVariable>() {
+      private final IntIterator defs = s.intIterator();
+
+      @Override
+      public boolean hasNext() {
+        return defs.hasNext();
+      }
+
+      @Override
+      public PointsToSetVariable next() {
+        return (PointsToSetVariable) delegateGraph.getNode(defs.next());
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
   /**
    * Note that this implementation consults the implicit relation for each and every operator cached. This will be inefficient if
    * there are many implicit operators.
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package com.ibm.wala.ipa.callgraph.propagation;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -19,6 +20,14 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.ibm.wala.classLoader.ArrayClass;
 import com.ibm.wala.classLoader.IClass;
@@ -30,11 +39,19 @@ import com.ibm.wala.fixpoint.IFixedPointSystem;
 import com.ibm.wala.fixpoint.IVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.fixpoint.UnaryStatement;
+import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.FilterOperator;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyWarning;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSACheckCastInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAPiInstruction;
 import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Collection;
@@ -44,11 +61,13 @@ import com.ibm.wala.util.debug.VerboseAction;
 import com.ibm.wala.util.graph.Graph;
 import com.ibm.wala.util.graph.NumberedGraph;
 import com.ibm.wala.util.heapTrace.HeapTracer;
+import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.ref.ReferenceCleanser;
 import com.ibm.wala.util.warnings.Warnings;
@@ -109,6 +128,11 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
    */
   final private Map<PointsToSetVariable, Set<UnarySideEffect>> fixedSetMap = HashMapFactory.make();
 
+  /**
+   * initial values for new variables, or null
+   */
+  private PointsToSeeds seeds;
+
   /**
    * Governing call graph;
    */
@@ -118,6 +142,60 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
   private int periodicMaintainInterval = DEFAULT_PERIODIC_MAINTENANCE_INTERVAL;
 
+  /**
+   * How many threads may {@link #solve(IProgressMonitor)} use to evaluate independent assignments? 1 means sequential solving.
+   */
+  private int numberOfSolverThreads = 1;
+
+  /**
+   * threads for parallel solving, created on first use and kept across calls to {@link #solve(IProgressMonitor)}; idle threads
+   * time out, so a system that is no longer solved does not hold on to them
+   */
+  private ThreadPoolExecutor solverPool;
+
+  /**
+   * Should {@link #solve(IProgressMonitor)} detect cycles of assignments and unify the points-to sets on each cycle?
+   */
+  private boolean useCycleElimination = false;
+
+  /**
+   * Should {@link #solve(IProgressMonitor)} propagate along assignments only the instance keys added to a points-to set since it
+   * was last propagated? Honored by the sequential solver only.
+   */
+  private boolean useDifferencePropagation = false;
+
+  /**
+   * factory for the sets held by points-to set variables created from now on, or null for the default
+   */
+  private MutableIntSetFactory<?> pointsToSetFactory = null;
+
+  /**
+   * assignments whose two sides held equal, non-empty points-to sets after evaluation; each may close a cycle
+   */
+  private final List<AssignEquation> cycleCandidates = new ArrayList<AssignEquation>();
+
+  /**
+   * assignments that have already been considered as cycle candidates; each is checked at most once
+   */
+  private final Set<AssignEquation> checkedForCycles = HashSetFactory.make();
+
+  /**
+   * numbers of pointer keys known to be (resp. not to be) eligible for unification; see {@link #isCollapsible(PointsToSetVariable)}
+   */
+  private final BitVector collapsible = new BitVector();
+
+  private final BitVector notCollapsible = new BitVector();
+
+  /**
+   * upper bound on the number of assignments evaluated together in one parallel batch
+   */
+  private final static int MAX_PARALLEL_BATCH_SIZE = 8192;
+
+  /**
+   * how long idle solver threads are kept
+   */
+  private final static long SOLVER_THREAD_KEEP_ALIVE_SECONDS = 10;
+
   public PropagationSystem(CallGraph cg, PointerKeyFactory pointerKeyFactory, InstanceKeyFactory instanceKeyFactory) {
     if (cg == null) {
       throw new IllegalArgumentException("null cg");
@@ -157,6 +235,14 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
   }
 
+  /**
+   * @return the factory for sets of instance keys; the filters by type use the same representation as the points-to sets they
+   *         filter
+   */
+  private MutableIntSetFactory<?> getInstanceKeySetFactory() {
+    return pointsToSetFactory == null ? IntSetUtil.getDefaultIntSetFactory() : pointsToSetFactory;
+  }
+
   /**
    * Keep this method private .. this returns the actual backing set for the class, which we do not want to expose to clients.
    */
@@ -164,7 +250,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     assert klass.getReference() != TypeReference.JavaLangObject;
     MutableIntSet result = class2InstanceKey.get(klass);
     if (result == null) {
-      result = IntSetUtil.getDefaultIntSetFactory().make();
+      result = getInstanceKeySetFactory().make();
       class2InstanceKey.put(klass, result);
     }
     return result;
@@ -178,10 +264,10 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     assert klass.getReference() != TypeReference.JavaLangObject;
     MutableIntSet set = class2InstanceKey.get(klass);
     if (set == null) {
-      return IntSetUtil.getDefaultIntSetFactory().make();
+      return getInstanceKeySetFactory().make();
     } else {
       // return a copy.
-      return IntSetUtil.getDefaultIntSetFactory().makeCopy(set);
+      return getInstanceKeySetFactory().makeCopy(set);
     }
   }
 
@@ -268,8 +354,11 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
     PointsToSetVariable result = pointsToMap.getPointsToSet(key);
     if (result == null) {
-      result = new PointsToSetVariable(key);
+      result = new PointsToSetVariable(key, pointsToSetFactory);
       pointsToMap.put(key, result);
+      if (seeds != null) {
+        seeds.variableCreated(this, key);
+      }
     } else {
       // check that the filter for this variable remains unique
       if (!pointsToMap.isUnified(key) && key instanceof FilteredPointerKey) {
@@ -305,6 +394,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     int result = instanceKeys.getMappedIndex(key);
     if (result == -1) {
       result = instanceKeys.add(key);
+      if (seeds != null) {
+        seeds.instanceKeyCreated(this, key);
+      }
     }
     if (DEBUG) {
       System.err.println("getIndexForInstanceKey " + key + " " + result);
@@ -359,8 +451,6 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("Add constraint A: " + lhs + " " + op + " " + rhs);
     }
-    assert !pointsToMap.isUnified(lhs);
-    assert !pointsToMap.isUnified(rhs);
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     PointsToSetVariable R = findOrCreatePointsToSet(rhs);
     return newStatement(L, op, new PointsToSetVariable[] { R }, true, true);
@@ -382,9 +472,6 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("Add constraint A: " + lhs + " " + op + " " + rhs1 + ", " + rhs2);
     }
-    assert !pointsToMap.isUnified(lhs);
-    assert !pointsToMap.isUnified(rhs1);
-    assert !pointsToMap.isUnified(rhs2);
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     PointsToSetVariable R1 = findOrCreatePointsToSet(rhs1);
     PointsToSetVariable R2 = findOrCreatePointsToSet(rhs2);
@@ -569,7 +656,6 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("add constraint D: " + op + " " + arg0);
     }
-    assert !pointsToMap.isUnified(arg0);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     newStatement(null, op, v1, true, true);
   }
@@ -583,7 +669,6 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
     PointsToSetVariable[] vs = new PointsToSetVariable[ arg0.length ];
     for(int i = 0; i < arg0.length; i++) {
-      assert !pointsToMap.isUnified(arg0[i]);
       vs[i] = findOrCreatePointsToSet(arg0[i]);
     }
     newStatement(null, op, vs, true, true);
@@ -593,8 +678,6 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("add constraint D: " + op + " " + arg0);
     }
-    assert !pointsToMap.isUnified(arg0);
-    assert !pointsToMap.isUnified(arg1);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     PointsToSetVariable v2 = findOrCreatePointsToSet(arg1);
     newStatement(null, op, v1, v2, true, true);
@@ -767,6 +850,487 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     this.periodicMaintainInterval = periodicMaintainInteval;
   }
 
+  public int getNumberOfSolverThreads() {
+    return numberOfSolverThreads;
+  }
+
+  /**
+   * @param n how many threads the solver may use to evaluate independent assignments; 1 means sequential solving
+   */
+  public void setNumberOfSolverThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of solver threads: " + n);
+    }
+    if (n != numberOfSolverThreads && solverPool != null) {
+      solverPool.shutdown();
+      solverPool = null;
+    }
+    this.numberOfSolverThreads = n;
+  }
+
+  public boolean getUseDifferencePropagation() {
+    return useDifferencePropagation;
+  }
+
+  /**
+   * @param useDifferencePropagation should the sequential solver propagate only newly added instance keys along assignments?
+   */
+  public void setUseDifferencePropagation(boolean useDifferencePropagation) {
+    this.useDifferencePropagation = useDifferencePropagation;
+  }
+
+  public MutableIntSetFactory<?> getPointsToSetFactory() {
+    return pointsToSetFactory;
+  }
+
+  /**
+   * @param pointsToSetFactory factory for the sets of points-to set variables created from now on, or null for the default
+   */
+  public void setPointsToSetFactory(MutableIntSetFactory<?> pointsToSetFactory) {
+    this.pointsToSetFactory = pointsToSetFactory;
+  }
+
+  /**
+   * @param seeds initial values for variables created from now on, or null for none
+   */
+  void setSeeds(PointsToSeeds seeds) {
+    this.seeds = seeds;
+  }
+
+  public boolean getUseCycleElimination() {
+    return useCycleElimination;
+  }
+
+  /**
+   * @param useCycleElimination should the solver unify the points-to sets on cycles of assignments?
+   */
+  public void setUseCycleElimination(boolean useCycleElimination) {
+    this.useCycleElimination = useCycleElimination;
+  }
+
+  /**
+   * When more than one solver thread is configured, plain assignments ({@link AssignEquation}s) are collected into batches that
+   * are evaluated concurrently. A batch never contains a variable that is both read and written by different statements, and all
+   * statements defining a given variable are evaluated by the same thread, so each points-to set is only ever modified by one
+   * thread at a time and never read while another thread modifies it. All other statements, which may add new constraints or
+   * instance keys to the system, are evaluated sequentially after the pending batch completes.
+   * 
+   * Since the system is monotone, the order of evaluation does not affect the fixed point reached.
+   */
+  @Override
+  public boolean solve(IProgressMonitor monitor) throws CancelException {
+    if (numberOfSolverThreads <= 1) {
+      return useCycleElimination || useDifferencePropagation ? solveSequentially(monitor) : super.solve(monitor);
+    }
+    return solveInParallel(getSolverPool(), monitor);
+  }
+
+  private ExecutorService getSolverPool() {
+    if (solverPool == null) {
+      solverPool = new ThreadPoolExecutor(numberOfSolverThreads, numberOfSolverThreads, SOLVER_THREAD_KEEP_ALIVE_SECONDS,
+          TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+              Thread t = new Thread(r, "WALA propagation solver");
+              t.setDaemon(true);
+              return t;
+            }
+          });
+      solverPool.allowCoreThreadTimeOut(true);
+    }
+    return solverPool;
+  }
+
+  @SuppressWarnings("unchecked")
+  private boolean solveInParallel(ExecutorService pool, IProgressMonitor monitor) throws CancelException {
+    boolean globalChange = false;
+
+    if (isFirstSolve()) {
+      initForFirstSolve();
+    }
+
+    AssignmentBatch batch = new AssignmentBatch();
+    while (!workList.isEmpty() || !batch.isEmpty()) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      if (batch.isEmpty()) {
+        collapseCycles();
+      }
+      if (workList.isEmpty()) {
+        globalChange |= evaluateBatch(pool, batch);
+        batch = new AssignmentBatch();
+        continue;
+      }
+      orderStatements();
+
+      AbstractStatement s = workList.takeStatement();
+      if (useCycleElimination && isStale(s)) {
+        continue;
+      }
+      if (s instanceof AssignEquation) {
+        AssignEquation assign = (AssignEquation) s;
+        if (!batch.admits(assign)) {
+          globalChange |= evaluateBatch(pool, batch);
+          batch = new AssignmentBatch();
+        }
+        batch.add(assign);
+        if (batch.size() >= MAX_PARALLEL_BATCH_SIZE) {
+          globalChange |= evaluateBatch(pool, batch);
+          batch = new AssignmentBatch();
+        }
+      } else {
+        if (!batch.isEmpty()) {
+          globalChange |= evaluateBatch(pool, batch);
+          batch = new AssignmentBatch();
+        }
+        globalChange |= afterEvaluation(s, s.evaluate());
+      }
+    }
+    return globalChange;
+  }
+
+  /**
+   * Evaluate all assignments in a batch, distributing the groups of assignments with a common left-hand side across the pool,
+   * then update the work list sequentially.
+   * 
+   * @return true iff some variable changed
+   */
+  private boolean evaluateBatch(ExecutorService pool, AssignmentBatch batch) throws CancelException {
+    final List<List<AssignEquation>> groups = batch.groups;
+    final byte[][] codes = new byte[groups.size()][];
+    int nTasks = Math.min(numberOfSolverThreads, groups.size());
+    if (nTasks <= 1) {
+      for (int i = 0; i < groups.size(); i++) {
+        codes[i] = evaluateGroup(groups.get(i));
+      }
+    } else {
+      List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(nTasks);
+      for (int t = 0; t < nTasks; t++) {
+        final int first = t;
+        final int stride = nTasks;
+        tasks.add(new Callable<Object>() {
+          @Override
+          public Object call() {
+            for (int i = first; i < groups.size(); i += stride) {
+              codes[i] = evaluateGroup(groups.get(i));
+            }
+            return null;
+          }
+        });
+      }
+      try {
+        for (Future<Object> f : pool.invokeAll(tasks)) {
+          f.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw CancelException.make("interrupted during parallel propagation");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        } else {
+          throw new RuntimeException(cause);
+        }
+      }
+    }
+
+    boolean changed = false;
+    for (int i = 0; i < groups.size(); i++) {
+      List<AssignEquation> group = groups.get(i);
+      for (int j = 0; j < group.size(); j++) {
+        changed |= afterEvaluation(group.get(j), codes[i][j]);
+      }
+    }
+    return changed;
+  }
+
+  private static byte[] evaluateGroup(List<AssignEquation> group) {
+    byte[] result = new byte[group.size()];
+    for (int j = 0; j < group.size(); j++) {
+      result[j] = group.get(j).evaluate();
+    }
+    return result;
+  }
+
+  /**
+   * bookkeeping after evaluating a statement s, mirroring the sequential solver
+   * 
+   * @return true iff the evaluation changed the value of a variable
+   */
+  @SuppressWarnings("unchecked")
+  private boolean afterEvaluation(AbstractStatement s, byte code) {
+    if (verbose) {
+      incNumberOfEvaluations();
+      if (getNumberOfEvaluations() % getVerboseInterval() == 0) {
+        performVerboseAction();
+      }
+      if (getNumberOfEvaluations() % getPeriodicMaintainInterval() == 0) {
+        periodicMaintenance();
+      }
+    }
+    boolean changed = isChanged(code);
+    if (changed && s.getLHS() != null) {
+      changedVariable((PointsToSetVariable) s.getLHS());
+    }
+    if (isFixed(code)) {
+      removeStatement(s);
+    }
+    if (useCycleElimination && s instanceof AssignEquation) {
+      noteCycleCandidate((AssignEquation) s);
+    }
+    return changed;
+  }
+
+  /**
+   * The sequential solver, with cycle elimination and difference propagation as configured.
+   * 
+   * Cycle elimination is lazy: whenever evaluating an assignment leaves its two sides with the same points-to set, check (once per
+   * assignment) whether the assignment lies on a cycle of assignments, and if so unify all points-to sets on the cycle. All
+   * variables in such a strongly connected component hold the same set at the fixed point, so the result is unchanged, but the set
+   * is no longer propagated around the cycle.
+   * 
+   * With difference propagation, taking an assignment from the work list pushes the instance keys added to its right-hand side
+   * since the last such push along all assignments that use the right-hand side, instead of copying the whole set along one
+   * assignment. The remaining assignments that use the same variable then find nothing to do.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean solveSequentially(IProgressMonitor monitor) throws CancelException {
+    boolean globalChange = false;
+
+    if (isFirstSolve()) {
+      initForFirstSolve();
+    }
+
+    while (!workList.isEmpty()) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      collapseCycles();
+      if (workList.isEmpty()) {
+        break;
+      }
+      orderStatements();
+
+      AbstractStatement s = workList.takeStatement();
+      if (useCycleElimination && isStale(s)) {
+        continue;
+      }
+      if (useDifferencePropagation && s instanceof AssignEquation) {
+        globalChange |= propagateDifference(((AssignEquation) s).getRightHandSide());
+      } else {
+        globalChange |= afterEvaluation(s, s.evaluate());
+      }
+    }
+    return globalChange;
+  }
+
+  /**
+   * Add the instance keys not yet propagated from rhs to every variable assigned from rhs.
+   * 
+   * @return true iff some variable changed
+   */
+  private boolean propagateDifference(PointsToSetVariable rhs) {
+    IntSet delta = rhs.takeDelta();
+    if (delta == null) {
+      return false;
+    }
+    boolean changed = false;
+    for (Iterator<PointsToSetVariable> it = flowGraph.getAssignmentDefs(rhs); it.hasNext();) {
+      PointsToSetVariable lhs = it.next();
+      if (lhs.addAll(delta)) {
+        changed = true;
+        changedVariable(lhs);
+      }
+      if (useCycleElimination) {
+        noteCycleCandidate(new AssignEquation(lhs, rhs));
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * @return true iff s mentions a variable that has been unified with another, i.e., s was replaced while waiting on the work list
+   */
+  private boolean isStale(AbstractStatement s) {
+    if (s.getLHS() != null && pointsToMap.isUnified(((PointsToSetVariable) s.getLHS()).getPointerKey())) {
+      return true;
+    }
+    if (s instanceof UnaryStatement) {
+      IVariable v = ((UnaryStatement) s).getRightHandSide();
+      return v != null && pointsToMap.isUnified(((PointsToSetVariable) v).getPointerKey());
+    }
+    for (IVariable v : s.getRHS()) {
+      if (v != null && pointsToMap.isUnified(((PointsToSetVariable) v).getPointerKey())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void noteCycleCandidate(AssignEquation s) {
+    PointsToSetVariable lhs = s.getLHS();
+    PointsToSetVariable rhs = s.getRightHandSide();
+    if (lhs != rhs && rhs.size() > 0 && lhs.size() == rhs.size() && lhs.getValue().sameValue(rhs.getValue())
+        && checkedForCycles.add(s)) {
+      cycleCandidates.add(s);
+    }
+  }
+
+  /**
+   * unify the variables on each cycle closed by a candidate assignment
+   */
+  private void collapseCycles() {
+    if (cycleCandidates.isEmpty()) {
+      return;
+    }
+    List<AssignEquation> candidates = new ArrayList<AssignEquation>(cycleCandidates);
+    cycleCandidates.clear();
+    NumberedGraph<PointsToSetVariable> g = getAssignmentGraph();
+    for (AssignEquation s : candidates) {
+      PointsToSetVariable lhs = s.getLHS();
+      PointsToSetVariable rhs = s.getRightHandSide();
+      if (isStale(s) || !isCollapsible(lhs) || !isCollapsible(rhs)) {
+        continue;
+      }
+      MutableIntSet cycle = findCycle(g, lhs, rhs);
+      if (cycle != null && cycle.size() > 1) {
+        unify(cycle);
+        PointsToSetVariable rep = pointsToMap.getPointsToSet(cycle.intIterator().next());
+        // statements rewritten by the unification have not been evaluated against the merged set
+        for (Iterator<AbstractStatement> it = getStatementsThatDef(rep); it.hasNext();) {
+          addToWorkList(it.next());
+        }
+        if (rep.getGraphNodeId() > -1) {
+          changedVariable(rep);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the numbers of the collapsible variables that lie on a path of assignments from lhs to rhs, or null if there is none
+   */
+  private MutableIntSet findCycle(NumberedGraph<PointsToSetVariable> g, PointsToSetVariable lhs, PointsToSetVariable rhs) {
+    Set<PointsToSetVariable> forward = HashSetFactory.make();
+    List<PointsToSetVariable> stack = new ArrayList<PointsToSetVariable>();
+    forward.add(lhs);
+    stack.add(lhs);
+    while (!stack.isEmpty()) {
+      PointsToSetVariable v = stack.remove(stack.size() - 1);
+      for (Iterator<PointsToSetVariable> it = g.getSuccNodes(v); it.hasNext();) {
+        PointsToSetVariable w = it.next();
+        if (!forward.contains(w) && isCollapsible(w)) {
+          forward.add(w);
+          stack.add(w);
+        }
+      }
+    }
+    if (!forward.contains(rhs)) {
+      return null;
+    }
+    MutableIntSet result = IntSetUtil.make();
+    result.add(pointsToMap.getIndex(rhs.getPointerKey()));
+    stack.add(rhs);
+    while (!stack.isEmpty()) {
+      PointsToSetVariable v = stack.remove(stack.size() - 1);
+      for (Iterator<PointsToSetVariable> it = g.getPredNodes(v); it.hasNext();) {
+        PointsToSetVariable w = it.next();
+        if (forward.contains(w) && result.add(pointsToMap.getIndex(w.getPointerKey()))) {
+          stack.add(w);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * May the points-to set v be unified with others on an assignment cycle without changing the analysis result?
+   * 
+   * Unifying a set must not change which type filter applies to it, so we exclude sets that carry a filter, and local variables
+   * that may be given a filter later: parameters, and the results of casts and pi instructions. We also exclude the fixed sets of
+   * load and store operators, which are referenced directly by their operators.
+   */
+  protected boolean isCollapsible(PointsToSetVariable v) {
+    PointerKey key = v.getPointerKey();
+    int i = pointsToMap.getIndex(key);
+    if (collapsible.get(i)) {
+      return !fixedSetMap.containsKey(v);
+    }
+    if (notCollapsible.get(i)) {
+      return false;
+    }
+    boolean result = true;
+    if (key instanceof FilteredPointerKey) {
+      result = false;
+    } else if (key instanceof LocalPointerKey) {
+      LocalPointerKey lpk = (LocalPointerKey) key;
+      CGNode node = lpk.getNode();
+      int vn = lpk.getValueNumber();
+      IR ir = node.getIR();
+      if (ir == null) {
+        result = vn > node.getMethod().getNumberOfParameters();
+      } else if (ir.getSymbolTable().isParameter(vn)) {
+        result = false;
+      } else {
+        SSAInstruction def = node.getDU().getDef(vn);
+        result = !(def instanceof SSACheckCastInstruction || def instanceof SSAPiInstruction);
+      }
+    }
+    if (result) {
+      collapsible.set(i);
+    } else {
+      notCollapsible.set(i);
+    }
+    return result && !fixedSetMap.containsKey(v);
+  }
+
+  /**
+   * A set of assignments that may safely be evaluated concurrently: no variable defined by one group of assignments is used by
+   * another.
+   */
+  private static class AssignmentBatch {
+    private final Map<PointsToSetVariable, List<AssignEquation>> byLHS = HashMapFactory.make();
+
+    private final List<List<AssignEquation>> groups = new ArrayList<List<AssignEquation>>();
+
+    private final Set<PointsToSetVariable> uses = HashSetFactory.make();
+
+    private int size = 0;
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    int size() {
+      return size;
+    }
+
+    /**
+     * @return true iff a can join this batch without reading a variable written by a different group, or writing a variable read by
+     *         a different group
+     */
+    boolean admits(AssignEquation a) {
+      PointsToSetVariable lhs = a.getLHS();
+      PointsToSetVariable rhs = a.getRightHandSide();
+      if (rhs != lhs && byLHS.containsKey(rhs)) {
+        return false;
+      }
+      return !uses.contains(lhs);
+    }
+
+    void add(AssignEquation a) {
+      List<AssignEquation> group = byLHS.get(a.getLHS());
+      if (group == null) {
+        group = new ArrayList<AssignEquation>();
+        byLHS.put(a.getLHS(), group);
+        groups.add(group);
+      }
+      group.add(a);
+      uses.add(a.getRightHandSide());
+      size++;
+    }
+  }
+
   /**
    * Unify the points-to-sets for the variables identified by the set s
    * 
@@ -793,6 +1357,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
     // special logic to clean up side effects
     updateSideEffectsForUnification(cache, rep);
+
+    // the assignments from the representative now include those of the other variables, which have not seen its whole set
+    pointsToMap.getPointsToSet(rep).resetDelta();
   }
 
   /**
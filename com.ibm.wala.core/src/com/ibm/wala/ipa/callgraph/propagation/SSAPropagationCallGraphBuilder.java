@@ -33,6 +33,8 @@ import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
 import com.ibm.wala.ipa.callgraph.ContextKey;
 import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
@@ -168,6 +170,34 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     return (SSAContextInterpreter) getContextInterpreter();
   }
 
+  /**
+   * Build a call graph after some classes have changed, starting from the solution of an earlier builder.
+   *
+   * This builder must be fresh and work on the new class hierarchy; it may share its {@link AnalysisCache} with previous. The
+   * points-to sets of previous that the change cannot affect are used as initial values, so the solver only has to iterate over
+   * the impacted part of the system. Constraints are still generated for every reachable node. The result is the same as that
+   * of {@link #makeCallGraph(AnalysisOptions, IProgressMonitor)}.
+   *
+   * @param previous a builder that has already built a call graph for the old version of the classes
+   * @param changedClasses the classes that have changed, been added, or been removed
+   * @throws IllegalArgumentException if previous or changedClasses is null
+   */
+  public CallGraph updateCallGraph(AnalysisOptions options, SSAPropagationCallGraphBuilder previous,
+      Set<TypeReference> changedClasses, IProgressMonitor monitor) throws CallGraphBuilderCancelException {
+    if (previous == null) {
+      throw new IllegalArgumentException("previous is null");
+    }
+    if (changedClasses == null) {
+      throw new IllegalArgumentException("changedClasses is null");
+    }
+    IncrementalUpdate update = new IncrementalUpdate(previous, this, changedClasses);
+    update.invalidate(getAnalysisCache());
+    if (update.canReuse()) {
+      setIncrementalUpdate(update);
+    }
+    return makeCallGraph(options, monitor);
+  }
+
   /**
    * @param node
    * @param x
@@ -1729,6 +1759,18 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       }
     }
 
+    SSAAbstractInvokeInstruction getCall() {
+      return call;
+    }
+
+    CGNode getNode() {
+      return node;
+    }
+
+    PointerKey getUniqueCatch() {
+      return uniqueCatch;
+    }
+
     private byte cpa(PointsToSetVariable lhs, final PointsToSetVariable[] rhs) {
       final MutableBoolean changed = new MutableBoolean();
       for(int rhsIndex = 0; rhsIndex < rhs.length; rhsIndex++) { 
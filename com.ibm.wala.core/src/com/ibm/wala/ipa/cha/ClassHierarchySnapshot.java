@@ -0,0 +1,512 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.cha;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.classLoader.FileModule;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * A compact, immutable record of the shape of a {@link ClassHierarchy}: its classes, their superclasses and directly implemented
+ * interfaces, the relative (interval) numbering of the class tree, and the modules it was built from.
+ *
+ * A snapshot can be written once and read back by later runs in a fraction of the time it takes to parse the class files again,
+ * which is useful for clients that need to answer subtype and implementor queries before (or instead of) building a full
+ * hierarchy. {@link #read(InputStream, AnalysisScope)} checks the content digests of the modules in the scope, and refuses a
+ * snapshot built from different inputs.
+ *
+ * A snapshot is a query object over types, not an {@link IClassHierarchy}: it holds no {@link IClass} bodies, and cannot be turned
+ * back into a hierarchy that materializes them on demand, since the class loaders read every class of their modules when they are
+ * initialized. Use {@link ClassHierarchy#make(AnalysisScope)} when methods and fields are needed.
+ *
+ * Snapshots are safe to query from several threads.
+ */
+public final class ClassHierarchySnapshot {
+
+  private final static int MAGIC = 0x57434853;
+
+  private final static int VERSION = 1;
+
+  private final TypeReference[] types;
+
+  private final boolean[] isInterface;
+
+  private final int[] modifiers;
+
+  /**
+   * index of the superclass of each class, -1 for the root
+   */
+  private final int[] superclass;
+
+  private final int[][] interfaces;
+
+  /**
+   * Relative numbering of the class tree: class i is a subclass of class j iff left[j] <= left[i] <= right[j]. Classes are stored
+   * in preorder, so left[i] == i.
+   */
+  private final int[] right;
+
+  private final Map<TypeReference, Integer> index;
+
+  /**
+   * class index -> immediate subclasses, computed on demand
+   */
+  private IntSet[] children;
+
+  /**
+   * type index -> classes and interfaces that directly implement or extend it, computed on demand
+   */
+  private IntSet[] directImplementors;
+
+  /**
+   * interface index -> all classes implementing it, computed on demand
+   */
+  private final Map<Integer, IntSet> implementors = HashMapFactory.make();
+
+  private ClassHierarchySnapshot(TypeReference[] types, boolean[] isInterface, int[] modifiers, int[] superclass,
+      int[][] interfaces, int[] right) {
+    this.types = types;
+    this.isInterface = isInterface;
+    this.modifiers = modifiers;
+    this.superclass = superclass;
+    this.interfaces = interfaces;
+    this.right = right;
+    this.index = HashMapFactory.make(types.length);
+    for (int i = 0; i < types.length; i++) {
+      index.put(types[i], i);
+    }
+  }
+
+  /**
+   * Write a snapshot of cha to out.
+   *
+   * @throws IllegalArgumentException if the scope of cha contains modules whose content cannot be digested
+   */
+  public static void write(IClassHierarchy cha, OutputStream out) throws IOException {
+    if (cha == null) {
+      throw new IllegalArgumentException("null cha");
+    }
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+
+    List<ClassLoaderReference> loaders = sortedLoaders(cha.getScope());
+    data.writeInt(loaders.size());
+    for (ClassLoaderReference loader : loaders) {
+      data.writeUTF(loader.getName().toString());
+      List<Module> modules = cha.getScope().getModules(loader);
+      data.writeInt(modules.size());
+      for (Module m : modules) {
+        String digest = digest(m);
+        if (digest == null) {
+          throw new IllegalArgumentException("cannot snapshot hierarchy with module " + m);
+        }
+        data.writeUTF(digest);
+      }
+    }
+
+    // number the classes in preorder
+    final Map<IClass, Integer> number = HashMapFactory.make(cha.getNumberOfClasses());
+    final List<IClass> order = new ArrayList<IClass>(cha.getNumberOfClasses());
+    List<Integer> right = new ArrayList<Integer>(cha.getNumberOfClasses());
+    preorder(cha, cha.getRootClass(), number, order, right);
+
+    data.writeInt(order.size());
+    for (int i = 0; i < order.size(); i++) {
+      IClass klass = order.get(i);
+      data.writeInt(loaders.indexOf(klass.getClassLoader().getReference()));
+      data.writeUTF(klass.getName().toString());
+      data.writeBoolean(klass.isInterface());
+      data.writeInt(klass.getModifiers());
+      IClass sup = klass.getSuperclass();
+      data.writeInt(sup == null || !number.containsKey(sup) ? -1 : number.get(sup));
+      Collection<? extends IClass> ifaces = klass.getDirectInterfaces();
+      List<Integer> known = new ArrayList<Integer>(ifaces.size());
+      for (IClass iface : ifaces) {
+        Integer n = number.get(iface);
+        if (n != null) {
+          known.add(n);
+        }
+      }
+      data.writeInt(known.size());
+      for (int n : known) {
+        data.writeInt(n);
+      }
+      data.writeInt(right.get(i));
+    }
+    data.flush();
+  }
+
+  private static void preorder(IClassHierarchy cha, IClass root, Map<IClass, Integer> number, List<IClass> order,
+      List<Integer> right) {
+    // iterative, since class trees can be deep
+    List<IClass> stack = new ArrayList<IClass>();
+    List<Integer> pending = new ArrayList<Integer>();
+    stack.add(root);
+    while (!stack.isEmpty()) {
+      IClass klass = stack.remove(stack.size() - 1);
+      if (klass == null) {
+        int n = pending.remove(pending.size() - 1);
+        right.set(n, order.size() - 1);
+        continue;
+      }
+      int n = order.size();
+      number.put(klass, n);
+      order.add(klass);
+      right.add(-1);
+      pending.add(n);
+      // marker to close the interval once all children are visited
+      stack.add(null);
+      List<IClass> children = new ArrayList<IClass>(cha.getImmediateSubclasses(klass));
+      Collections.sort(children, new Comparator<IClass>() {
+        @Override
+        public int compare(IClass o1, IClass o2) {
+          return o2.getName().toString().compareTo(o1.getName().toString());
+        }
+      });
+      for (IClass c : children) {
+        if (!number.containsKey(c)) {
+          stack.add(c);
+        }
+      }
+    }
+  }
+
+  /**
+   * Read a snapshot previously written by {@link #write(IClassHierarchy, OutputStream)}.
+   *
+   * @return the snapshot, or null if it was built from modules other than those in scope, or with different content
+   */
+  public static ClassHierarchySnapshot read(InputStream in, AnalysisScope scope) throws IOException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    DataInputStream data = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in));
+    if (data.readInt() != MAGIC) {
+      throw new IOException("not a class hierarchy snapshot");
+    }
+    if (data.readInt() != VERSION) {
+      return null;
+    }
+
+    List<ClassLoaderReference> loaders = sortedLoaders(scope);
+    int nLoaders = data.readInt();
+    if (nLoaders != loaders.size()) {
+      return null;
+    }
+    for (ClassLoaderReference loader : loaders) {
+      if (!loader.getName().toString().equals(data.readUTF())) {
+        return null;
+      }
+      List<Module> modules = scope.getModules(loader);
+      if (data.readInt() != modules.size()) {
+        return null;
+      }
+      for (Module m : modules) {
+        if (!data.readUTF().equals(digest(m))) {
+          return null;
+        }
+      }
+    }
+
+    int n = data.readInt();
+    TypeReference[] types = new TypeReference[n];
+    boolean[] isInterface = new boolean[n];
+    int[] modifiers = new int[n];
+    int[] superclass = new int[n];
+    int[][] interfaces = new int[n][];
+    int[] right = new int[n];
+    for (int i = 0; i < n; i++) {
+      ClassLoaderReference loader = loaders.get(data.readInt());
+      types[i] = TypeReference.findOrCreate(loader, TypeName.string2TypeName(data.readUTF()));
+      isInterface[i] = data.readBoolean();
+      modifiers[i] = data.readInt();
+      superclass[i] = data.readInt();
+      interfaces[i] = new int[data.readInt()];
+      for (int j = 0; j < interfaces[i].length; j++) {
+        interfaces[i][j] = data.readInt();
+      }
+      right[i] = data.readInt();
+    }
+    return new ClassHierarchySnapshot(types, isInterface, modifiers, superclass, interfaces, right);
+  }
+
+  private static List<ClassLoaderReference> sortedLoaders(AnalysisScope scope) {
+    List<ClassLoaderReference> result = new ArrayList<ClassLoaderReference>(scope.getLoaders());
+    Collections.sort(result, new Comparator<ClassLoaderReference>() {
+      @Override
+      public int compare(ClassLoaderReference o1, ClassLoaderReference o2) {
+        return o1.getName().toString().compareTo(o2.getName().toString());
+      }
+    });
+    return result;
+  }
+
+  /**
+   * @return a digest of the content of a module, or null if it cannot be computed
+   */
+  private static String digest(Module m) throws IOException {
+    File f;
+    if (m instanceof JarFileModule) {
+      f = new File(((JarFileModule) m).getAbsolutePath());
+    } else if (m instanceof FileModule) {
+      f = ((FileModule) m).getFile();
+    } else {
+      return null;
+    }
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-1");
+      InputStream s = new FileInputStream(f);
+      try {
+        byte[] buf = new byte[65536];
+        int n;
+        while ((n = s.read(buf)) > 0) {
+          md.update(buf, 0, n);
+        }
+      } finally {
+        s.close();
+      }
+      StringBuffer result = new StringBuffer(f.getName()).append(':');
+      for (byte b : md.digest()) {
+        result.append(Character.forDigit((b >> 4) & 0xf, 16));
+        result.append(Character.forDigit(b & 0xf, 16));
+      }
+      return result.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private int find(TypeReference type) {
+    if (type == null) {
+      throw new IllegalArgumentException("null type");
+    }
+    Integer i = index.get(type);
+    return i == null ? -1 : i;
+  }
+
+  public int getNumberOfClasses() {
+    return types.length;
+  }
+
+  /**
+   * @return true iff the hierarchy contained a class for type
+   */
+  public boolean contains(TypeReference type) {
+    return find(type) != -1;
+  }
+
+  /**
+   * @return the types of all classes in the hierarchy, in preorder of the class tree
+   */
+  public Collection<TypeReference> getTypes() {
+    return Collections.unmodifiableList(Arrays.asList(types));
+  }
+
+  public boolean isInterface(TypeReference type) {
+    int i = find(type);
+    return i != -1 && isInterface[i];
+  }
+
+  /**
+   * @return the access flags of the class for type
+   * @throws IllegalArgumentException if the hierarchy has no class for type
+   */
+  public int getModifiers(TypeReference type) {
+    int i = find(type);
+    if (i == -1) {
+      throw new IllegalArgumentException("no class for " + type);
+    }
+    return modifiers[i];
+  }
+
+  /**
+   * @return the superclass of type, or null if type is the root or unknown
+   */
+  public TypeReference getSuperclass(TypeReference type) {
+    int i = find(type);
+    return i == -1 || superclass[i] == -1 ? null : types[superclass[i]];
+  }
+
+  /**
+   * @return the interfaces directly implemented or extended by type
+   */
+  public Collection<TypeReference> getDirectInterfaces(TypeReference type) {
+    int i = find(type);
+    if (i == -1) {
+      return Collections.emptySet();
+    }
+    List<TypeReference> result = new ArrayList<TypeReference>(interfaces[i].length);
+    for (int j : interfaces[i]) {
+      result.add(types[j]);
+    }
+    return result;
+  }
+
+  /**
+   * @return true iff c is a (reflexive, transitive) subclass of t; constant time
+   */
+  public boolean isSubclassOf(TypeReference c, TypeReference t) {
+    int i = find(c);
+    int j = find(t);
+    if (i == -1 || j == -1) {
+      return false;
+    }
+    return j <= i && i <= right[j];
+  }
+
+  /**
+   * @return true iff c implements interface i, directly or through a superclass or superinterface
+   */
+  public boolean implementsInterface(TypeReference c, TypeReference i) {
+    int k = find(c);
+    int iface = find(i);
+    if (k == -1 || iface == -1 || !isInterface[iface]) {
+      return false;
+    }
+    return getImplementorSet(iface).contains(k);
+  }
+
+  /**
+   * @return the immediate subclasses of type in the class tree
+   */
+  public Collection<TypeReference> getImmediateSubclasses(TypeReference type) {
+    int i = find(type);
+    if (i == -1) {
+      return Collections.emptySet();
+    }
+    return toTypes(getChildren()[i]);
+  }
+
+  private synchronized IntSet[] getChildren() {
+    if (children == null) {
+      IntSet[] c = new IntSet[types.length];
+      for (int k = 0; k < types.length; k++) {
+        if (superclass[k] != -1) {
+          if (c[superclass[k]] == null) {
+            c[superclass[k]] = MutableSparseIntSet.makeEmpty();
+          }
+          ((MutableIntSet) c[superclass[k]]).add(k);
+        }
+      }
+      children = c;
+    }
+    return children;
+  }
+
+  /**
+   * @return the classes (not interfaces) that implement the interface type, or the empty set if type is not an interface
+   */
+  public Collection<TypeReference> getImplementors(TypeReference type) {
+    int i = find(type);
+    if (i == -1 || !isInterface[i]) {
+      return Collections.emptySet();
+    }
+    return toTypes(getImplementorSet(i));
+  }
+
+  /**
+   * The classes implementing iface are the subclasses of the classes that directly implement iface or one of its subinterfaces;
+   * the latter are found by walking the implements and extends edges backwards, and the former are intervals of the preorder.
+   */
+  private synchronized IntSet getImplementorSet(int iface) {
+    IntSet result = implementors.get(iface);
+    if (result == null) {
+      IntSet[] direct = getDirectImplementors();
+      MutableSparseIntSet s = MutableSparseIntSet.makeEmpty();
+      MutableSparseIntSet visited = MutableSparseIntSet.makeEmpty();
+      int[] worklist = new int[] { iface };
+      int top = 0;
+      visited.add(iface);
+      while (top >= 0) {
+        int j = worklist[top--];
+        if (direct[j] == null) {
+          continue;
+        }
+        for (IntIterator it = direct[j].intIterator(); it.hasNext();) {
+          int k = it.next();
+          if (visited.add(k)) {
+            if (isInterface[k]) {
+              if (++top == worklist.length) {
+                worklist = Arrays.copyOf(worklist, 2 * top);
+              }
+              worklist[top] = k;
+            } else {
+              for (int c = k; c <= right[k]; c++) {
+                if (!isInterface[c]) {
+                  s.add(c);
+                }
+              }
+            }
+          }
+        }
+      }
+      result = s;
+      implementors.put(iface, result);
+    }
+    return result;
+  }
+
+  private synchronized IntSet[] getDirectImplementors() {
+    if (directImplementors == null) {
+      IntSet[] d = new IntSet[types.length];
+      for (int k = 0; k < types.length; k++) {
+        for (int j : interfaces[k]) {
+          if (d[j] == null) {
+            d[j] = MutableSparseIntSet.makeEmpty();
+          }
+          ((MutableIntSet) d[j]).add(k);
+        }
+      }
+      directImplementors = d;
+    }
+    return directImplementors;
+  }
+
+  private Collection<TypeReference> toTypes(IntSet s) {
+    if (s == null) {
+      return Collections.emptySet();
+    }
+    List<TypeReference> result = new ArrayList<TypeReference>(s.size());
+    for (IntIterator it = s.intIterator(); it.hasNext();) {
+      result.add(types[it.next()]);
+    }
+    return result;
+  }
+}
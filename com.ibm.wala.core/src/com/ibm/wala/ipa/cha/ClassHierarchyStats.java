@@ -11,6 +11,7 @@
 package com.ibm.wala.ipa.cha;
 
 import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.ShrikeBTMethod;
 
 /**
  * Statistics about a class hierarchy.
@@ -30,5 +31,15 @@ public class ClassHierarchyStats {
       System.out.println("  classes: " + loaders[i].getNumberOfClasses());
       System.out.println("  methods: " + loaders[i].getNumberOfMethods());
     }
+    System.out.println("decoded method bodies: " + getNumberOfDecodedMethods());
+  }
+
+  /**
+   * Bytecode method bodies are decoded on first use, so this shows how much of the code an analysis actually looked at.
+   * 
+   * @return the number of bytecode method bodies decoded so far, in all class hierarchies
+   */
+  public static int getNumberOfDecodedMethods() {
+    return ShrikeBTMethod.getNumberOfDecodedMethods();
   }
 }
@@ -45,16 +45,23 @@ public class LambdaSummaryClass extends SyntheticClass {
   private static WeakHashMap<BootstrapMethod, LambdaSummaryClass> summaries = new WeakHashMap<BootstrapMethod, LambdaSummaryClass>();
   
   public static LambdaSummaryClass findOrCreate(CGNode caller, SSAInvokeDynamicInstruction inst) {
-    if (! summaries.containsKey(inst.getBootstrap())) {
+    LambdaSummaryClass cls = summaries.get(inst.getBootstrap());
+    // IRs may be shared by analyses of different class hierarchies through an AnalysisCache
+    if (cls == null || cls.getClassHierarchy() != caller.getClassHierarchy()) {
       String bootstrapCls = caller.getMethod().getDeclaringClass().getName().toString().replace("/", "$").substring(1);
       int bootstrapIndex = inst.getBootstrap().getIndexInClassFile();
       TypeReference ref = TypeReference.findOrCreate(ClassLoaderReference.Primordial, "Lwala/lambda" + "$" + bootstrapCls + "$" + bootstrapIndex);
-      LambdaSummaryClass cls = new LambdaSummaryClass(ref, caller.getClassHierarchy(), inst);
-      caller.getClassHierarchy().addClass(cls);
+      IClass known = caller.getClassHierarchy().lookupClass(ref);
+      if (known instanceof LambdaSummaryClass) {
+        cls = (LambdaSummaryClass) known;
+      } else {
+        cls = new LambdaSummaryClass(ref, caller.getClassHierarchy(), inst);
+        caller.getClassHierarchy().addClass(cls);
+      }
       summaries.put(inst.getBootstrap(), cls);
     }
     
-    return summaries.get(inst.getBootstrap());
+    return cls;
   }
   
   private final SSAInvokeDynamicInstruction invoke;
@@ -30,7 +30,7 @@ import com.ibm.wala.util.ref.CacheReference;
  * 
  * This doesn't work very well ... GCs don't do such a great job with SoftReferences ... revamp it.
  */
-class AuxiliaryCache {
+class AuxiliaryCache implements IAuxiliaryCache {
 
   /**
    * A mapping from IMethod -> SSAOptions -> SoftReference -> IR
@@ -50,6 +50,7 @@ class AuxiliaryCache {
   /**
    * The existence of this is unfortunate.
    */
+  @Override
   public synchronized void wipe() {
     dictionary = HashMapFactory.make();
     nItems = 0;
@@ -90,6 +91,7 @@ class AuxiliaryCache {
    * @param options options governing ssa construction
    * @return the object cached for m, or null if none found
    */
+  @Override
   public synchronized Object find(IMethod m, Context c, SSAOptions options) {
     // methodMap: SSAOptions -> SoftReference
     Pair<IMethod, Context> p = Pair.make(m, c);
@@ -108,6 +110,7 @@ class AuxiliaryCache {
    * @param m a method
    * @param options options governing ssa construction
    */
+  @Override
   public synchronized void cache(IMethod m, Context c, SSAOptions options, Object aux) {
     nItems++;
 
@@ -124,7 +127,8 @@ class AuxiliaryCache {
   /**
    * invalidate all cached information about a method
    */
-  public void invalidate(IMethod method, Context c) {
+  @Override
+  public synchronized void invalidate(IMethod method, Context c) {
     dictionary.remove(Pair.make(method, c));
   }
 }
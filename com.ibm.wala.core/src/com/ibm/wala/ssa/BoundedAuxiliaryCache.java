@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Pair;
+
+/**
+ * An {@link IAuxiliaryCache} that holds strong references to at most a fixed budget of entries, evicting the least recently used
+ * (IMethod,Context) pairs when the budget is exceeded.
+ *
+ * The budget is measured by a {@link Weigher}: {@link #ENTRY_COUNT} bounds the number of cached objects, while
+ * {@link #ESTIMATED_BYTES} bounds an estimate of their footprint.
+ *
+ * The cache is split into independently locked segments, each owning an equal share of the budget, so that lookups for different
+ * methods from different threads rarely contend. Eviction is LRU within a segment, not across the whole cache: an entry may be
+ * evicted from a full segment while a less recently used one survives in another. There are never more segments than units of
+ * budget, so the total weight held stays within the budget, except that a segment always keeps the entry cached last even if it
+ * alone exceeds the segment's share.
+ */
+public class BoundedAuxiliaryCache implements IAuxiliaryCache {
+
+  /**
+   * Computes the cost of holding a cached object against the budget of a {@link BoundedAuxiliaryCache}
+   */
+  public interface Weigher {
+    /**
+     * @return a non-negative cost for caching aux
+     */
+    long weigh(Object aux);
+  }
+
+  /**
+   * every cached object costs 1
+   */
+  public static final Weigher ENTRY_COUNT = new Weigher() {
+    @Override
+    public long weigh(Object aux) {
+      return 1;
+    }
+  };
+
+  /**
+   * a rough estimate, in bytes, of the memory held by an {@link IR} or {@link DefUse}
+   */
+  public static final Weigher ESTIMATED_BYTES = new Weigher() {
+    @Override
+    public long weigh(Object aux) {
+      if (aux instanceof IR) {
+        IR ir = (IR) aux;
+        return 256L + 64L * ir.getInstructions().length + 32L * ir.getSymbolTable().getMaxValueNumber()
+            + 128L * ir.getControlFlowGraph().getNumberOfNodes();
+      } else if (aux instanceof DefUse) {
+        return ((DefUse) aux).estimateFootprint();
+      } else {
+        return 64L;
+      }
+    }
+  };
+
+  /**
+   * Notified of (IMethod,Context) pairs evicted to stay within budget
+   */
+  public interface EvictionListener {
+    void evicted(IMethod m, Context c);
+  }
+
+  private final static int DEFAULT_SEGMENTS = 16;
+
+  private final Segment[] segments;
+
+  private final Weigher weigher;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong evictions = new AtomicLong();
+
+  private volatile EvictionListener listener;
+
+  /**
+   * @param maxEntries maximum number of cached objects
+   */
+  public BoundedAuxiliaryCache(long maxEntries) {
+    this(maxEntries, ENTRY_COUNT, DEFAULT_SEGMENTS);
+  }
+
+  /**
+   * @param maxWeight total budget, as measured by weigher
+   * @param weigher determines the cost of each cached object
+   * @param nSegments number of independently locked segments; rounded up to a power of two, then reduced until each segment has a
+   *          share of at least 1
+   */
+  public BoundedAuxiliaryCache(long maxWeight, Weigher weigher, int nSegments) {
+    if (maxWeight <= 0) {
+      throw new IllegalArgumentException("invalid maximum weight " + maxWeight);
+    }
+    if (weigher == null) {
+      throw new IllegalArgumentException("null weigher");
+    }
+    if (nSegments <= 0) {
+      throw new IllegalArgumentException("invalid number of segments " + nSegments);
+    }
+    int n = Integer.highestOneBit(nSegments);
+    if (n < nSegments) {
+      n <<= 1;
+    }
+    while (n > maxWeight) {
+      n >>= 1;
+    }
+    this.weigher = weigher;
+    this.segments = new Segment[n];
+    long share = maxWeight / n;
+    for (int i = 0; i < n; i++) {
+      segments[i] = new Segment(share);
+    }
+  }
+
+  private Segment segmentFor(Pair<IMethod, Context> key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return segments[h & (segments.length - 1)];
+  }
+
+  @Override
+  public Object find(IMethod m, Context c, SSAOptions options) {
+    Pair<IMethod, Context> key = Pair.make(m, c);
+    Object result = segmentFor(key).find(key, options);
+    if (result == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return result;
+  }
+
+  @Override
+  public void cache(IMethod m, Context c, SSAOptions options, Object aux) {
+    Pair<IMethod, Context> key = Pair.make(m, c);
+    List<Pair<IMethod, Context>> evicted = segmentFor(key).cache(key, options, aux, weigher.weigh(aux));
+    EvictionListener l = listener;
+    if (l != null) {
+      for (Pair<IMethod, Context> p : evicted) {
+        l.evicted(p.fst, p.snd);
+      }
+    }
+  }
+
+  /**
+   * @param listener notified, outside of any lock, of the pairs evicted by each {@link #cache}; null for none
+   */
+  public void setEvictionListener(EvictionListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * @return the number of independently locked segments
+   */
+  public int getNumberOfSegments() {
+    return segments.length;
+  }
+
+  @Override
+  public void invalidate(IMethod method, Context c) {
+    Pair<IMethod, Context> key = Pair.make(method, c);
+    segmentFor(key).invalidate(key);
+  }
+
+  @Override
+  public void wipe() {
+    for (Segment s : segments) {
+      s.wipe();
+    }
+  }
+
+  /**
+   * @return number of lookups that found a cached object
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of lookups that did not find a cached object
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return number of (IMethod,Context) pairs evicted to stay within budget
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * @return total weight of the objects currently cached
+   */
+  public long getWeight() {
+    long result = 0;
+    for (Segment s : segments) {
+      result += s.getWeight();
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "hits: " + getHitCount() + " misses: " + getMissCount() + " evictions: " + getEvictionCount() + " weight: "
+        + getWeight();
+  }
+
+  /**
+   * the cached objects for one (IMethod,Context) pair
+   */
+  private static class Entry {
+    private final Map<SSAOptions, Object> values = HashMapFactory.make(2);
+
+    private final Map<SSAOptions, Long> weights = HashMapFactory.make(2);
+
+    private long weight = 0;
+  }
+
+  /**
+   * An LRU-ordered portion of the cache, guarded by its own lock
+   */
+  private final class Segment {
+    private final long maxWeight;
+
+    /**
+     * (IMethod,Context) -> Entry, in access order
+     */
+    private final LinkedHashMap<Pair<IMethod, Context>, Entry> map = new LinkedHashMap<Pair<IMethod, Context>, Entry>(16, 0.75f,
+        true);
+
+    private long weight = 0;
+
+    Segment(long maxWeight) {
+      this.maxWeight = maxWeight;
+    }
+
+    synchronized Object find(Pair<IMethod, Context> key, SSAOptions options) {
+      Entry e = map.get(key);
+      return e == null ? null : e.values.get(options);
+    }
+
+    /**
+     * @return the pairs evicted to make room
+     */
+    synchronized List<Pair<IMethod, Context>> cache(Pair<IMethod, Context> key, SSAOptions options, Object aux, long w) {
+      Entry e = map.get(key);
+      if (e == null) {
+        e = new Entry();
+        map.put(key, e);
+      }
+      e.values.put(options, aux);
+      Long old = e.weights.put(options, w);
+      long delta = old == null ? w : w - old;
+      e.weight += delta;
+      weight += delta;
+      return evict(e);
+    }
+
+    /**
+     * evict least recently used entries, other than the one just touched, until within budget
+     */
+    private List<Pair<IMethod, Context>> evict(Entry keep) {
+      List<Pair<IMethod, Context>> result = Collections.emptyList();
+      for (Iterator<Map.Entry<Pair<IMethod, Context>, Entry>> it = map.entrySet().iterator(); weight > maxWeight && it.hasNext();) {
+        Map.Entry<Pair<IMethod, Context>, Entry> e = it.next();
+        if (e.getValue() != keep) {
+          it.remove();
+          weight -= e.getValue().weight;
+          evictions.incrementAndGet();
+          if (result.isEmpty()) {
+            result = new ArrayList<Pair<IMethod, Context>>(1);
+          }
+          result.add(e.getKey());
+        }
+      }
+      return result;
+    }
+
+    synchronized void invalidate(Pair<IMethod, Context> key) {
+      Entry e = map.remove(key);
+      if (e != null) {
+        weight -= e.weight;
+      }
+    }
+
+    synchronized void wipe() {
+      map.clear();
+      weight = 0;
+    }
+
+    synchronized long getWeight() {
+      return weight;
+    }
+  }
+}
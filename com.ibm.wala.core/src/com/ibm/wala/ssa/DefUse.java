@@ -95,6 +95,20 @@ public class DefUse {
     return ir.getSymbolTable().getMaxValueNumber();
   }
 
+  /**
+   * @return the IR this information was computed from
+   */
+  IR getIR() {
+    return ir;
+  }
+
+  /**
+   * @return a rough estimate, in bytes, of the memory held by this object, excluding the governing IR
+   */
+  long estimateFootprint() {
+    return 64L + 16L * defs.length + 48L * allInstructions.size();
+  }
+
   /**
    * Initialize the allInstructions field with every {@link SSAInstruction} in the ir.
    */
@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * An {@link IPersistentIRStore} that keeps one compact binary file per IR in a directory.
+ *
+ * Each file is named by a digest of the content of the class file declaring the method, the class loader that defined it, and the
+ * method signature, so an IR is only ever reused for a byte-identical class file in the same loader: the IR refers to types by
+ * their loader. The encoding of the IR itself is delegated to an {@link IRCodec}, such as
+ * {@link ShrikeIRCodec}.
+ *
+ * Only methods of {@link ShrikeClass}es built with default {@link SSAOptions} (no pi nodes, no default values) are stored; for
+ * anything else {@link #load(IMethod, SSAOptions)} simply reports a miss.
+ */
+public class DirectoryIRStore implements IPersistentIRStore {
+
+  /**
+   * Encodes and decodes IRs for a {@link DirectoryIRStore}
+   */
+  public interface IRCodec {
+    /**
+     * @return a name identifying the encoding; files written with a different format are ignored
+     */
+    String getFormatName();
+
+    void write(IR ir, DataOutputStream out) throws IOException;
+
+    /**
+     * @return the IR for method decoded from in
+     */
+    IR read(IMethod method, SSAOptions options, DataInputStream in) throws IOException;
+  }
+
+  private final static int MAGIC = 0x57495231;
+
+  private final File directory;
+
+  private final IRCodec codec;
+
+  /**
+   * IClass -> digest of the class file declaring it. Classes of different class hierarchies compare equal by name, but may come
+   * from different class files, so the keys compare by identity; they are weak, so that the store does not keep class hierarchies
+   * alive.
+   */
+  private final Map<ClassKey, String> classDigests = HashMapFactory.make();
+
+  private final ReferenceQueue<IClass> collectedClasses = new ReferenceQueue<IClass>();
+
+  /**
+   * a weak reference to an IClass that compares by identity
+   */
+  private static class ClassKey extends WeakReference<IClass> {
+    private final int hash;
+
+    ClassKey(IClass klass, ReferenceQueue<IClass> queue) {
+      super(klass, queue);
+      this.hash = System.identityHashCode(klass);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof ClassKey)) {
+        return false;
+      }
+      IClass klass = get();
+      return klass != null && klass == ((ClassKey) obj).get();
+    }
+  }
+
+  public DirectoryIRStore(File directory, IRCodec codec) {
+    if (directory == null) {
+      throw new IllegalArgumentException("null directory");
+    }
+    if (codec == null) {
+      throw new IllegalArgumentException("null codec");
+    }
+    this.directory = directory;
+    this.codec = codec;
+  }
+
+  @Override
+  public IR load(IMethod method, SSAOptions options) {
+    File f = fileFor(method, options);
+    if (f == null || !f.exists()) {
+      return null;
+    }
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+      try {
+        if (in.readInt() != MAGIC || !codec.getFormatName().equals(in.readUTF()) || !loaderName(method).equals(in.readUTF())
+            || !method.getSignature().equals(in.readUTF())) {
+          return null;
+        }
+        return codec.read(method, options, in);
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      // a damaged entry is just a miss; it will be overwritten
+      return null;
+    }
+  }
+
+  @Override
+  public void store(IR ir) {
+    if (ir == null) {
+      throw new IllegalArgumentException("null ir");
+    }
+    File f = fileFor(ir.getMethod(), ir.getOptions());
+    if (f == null) {
+      return;
+    }
+    File dir = f.getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      return;
+    }
+    try {
+      File tmp = File.createTempFile(f.getName(), ".tmp", dir);
+      try {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+          out.writeInt(MAGIC);
+          out.writeUTF(codec.getFormatName());
+          out.writeUTF(loaderName(ir.getMethod()));
+          out.writeUTF(ir.getMethod().getSignature());
+          codec.write(ir, out);
+        } finally {
+          out.close();
+        }
+        // if another process stored the same IR in the meantime, the rename fails and either copy is fine
+        tmp.renameTo(f);
+      } finally {
+        if (tmp.exists()) {
+          tmp.delete();
+        }
+      }
+    } catch (IOException e) {
+      // the store is only a cache; failing to write it is not an error
+    }
+  }
+
+  /**
+   * @return the file holding the IR for method, or null if such IRs are not stored
+   */
+  private File fileFor(IMethod method, SSAOptions options) {
+    if (!isDefault(options)) {
+      return null;
+    }
+    String classDigest = getClassDigest(method.getDeclaringClass());
+    if (classDigest == null) {
+      return null;
+    }
+    String key = digest(classDigest + "\n" + loaderName(method) + "\n" + method.getSignature());
+    return new File(new File(directory, key.substring(0, 2)), key.substring(2) + ".ir");
+  }
+
+  /**
+   * IRs are only stored for the default options, so the options need not be part of the key
+   */
+  private static boolean isDefault(SSAOptions options) {
+    return options != null && options.getPiNodePolicy() == null && options.getDefaultValues() == null;
+  }
+
+  private static String loaderName(IMethod method) {
+    return method.getDeclaringClass().getClassLoader().getReference().getName().toString();
+  }
+
+  private String getClassDigest(IClass klass) {
+    if (!(klass instanceof ShrikeClass)) {
+      return null;
+    }
+    ClassKey key = new ClassKey(klass, collectedClasses);
+    synchronized (classDigests) {
+      for (Reference<? extends IClass> r = collectedClasses.poll(); r != null; r = collectedClasses.poll()) {
+        classDigests.remove(r);
+      }
+      if (classDigests.containsKey(key)) {
+        return classDigests.get(key);
+      }
+    }
+    String result = null;
+    ModuleEntry entry = ((ShrikeClass) klass).getModuleEntry();
+    if (entry != null) {
+      try {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        InputStream in = entry.getInputStream();
+        try {
+          byte[] buf = new byte[8192];
+          int n;
+          while ((n = in.read(buf)) > 0) {
+            md.update(buf, 0, n);
+          }
+        } finally {
+          in.close();
+        }
+        result = toHex(md.digest());
+      } catch (IOException e) {
+        result = null;
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    synchronized (classDigests) {
+      classDigests.put(key, result);
+    }
+    return result;
+  }
+
+  private static String digest(String s) {
+    try {
+      return toHex(MessageDigest.getInstance("SHA-1").digest(s.getBytes("UTF-8")));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuffer result = new StringBuffer(bytes.length * 2);
+    for (byte b : bytes) {
+      result.append(Character.forDigit((b >> 4) & 0xf, 16));
+      result.append(Character.forDigit(b & 0xf, 16));
+    }
+    return result.toString();
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+
+/**
+ * A cache for auxiliary information based on an SSA representation, keyed by (IMethod,Context,SSAOptions).
+ * 
+ * Implementations decide how and when entries are evicted, and must be safe for use by multiple threads.
+ * 
+ * @see SSACache
+ */
+public interface IAuxiliaryCache {
+
+  /**
+   * @param m a method
+   * @param options options governing ssa construction
+   * @return the object cached for m, or null if none found
+   */
+  Object find(IMethod m, Context c, SSAOptions options);
+
+  /**
+   * cache new auxiliary information for an <m,options> pair
+   * 
+   * @param m a method
+   * @param options options governing ssa construction
+   */
+  void cache(IMethod m, Context c, SSAOptions options, Object aux);
+
+  /**
+   * invalidate all cached information about a method
+   */
+  void invalidate(IMethod method, Context c);
+
+  /**
+   * clear the cache
+   */
+  void wipe();
+}
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.IMethod;
+
+/**
+ * A store of IRs that outlives a single analysis run, consulted by {@link SSACache} before building a new IR.
+ * 
+ * Only IRs that do not depend on a calling context are stored.
+ */
+public interface IPersistentIRStore {
+
+  /**
+   * @return a previously stored IR for method built with the given options, or null if none is available
+   */
+  IR load(IMethod method, SSAOptions options);
+
+  /**
+   * record an IR so that later runs may load it
+   */
+  void store(IR ir);
+}
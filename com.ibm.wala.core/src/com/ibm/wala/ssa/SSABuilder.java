@@ -927,7 +927,7 @@ public class SSABuilder extends AbstractIntStackMachine {
    * A logical mapping from <pc, valueNumber> -> local number Note: make sure this class remains static: this persists as part of
    * the IR!!
    */
-  private static class SSA2LocalMap implements com.ibm.wala.ssa.IR.SSA2LocalMap {
+  static class SSA2LocalMap implements com.ibm.wala.ssa.IR.SSA2LocalMap {
 
     private final ShrikeCFG shrikeCFG;
 
@@ -947,9 +947,24 @@ public class SSABuilder extends AbstractIntStackMachine {
      * @param nBlocks number of basic blocks in the CFG
      */
     SSA2LocalMap(ShrikeCFG shrikeCfg, int nInstructions, int nBlocks) {
-      shrikeCFG = shrikeCfg;
-      localStoreMap = new IntPair[nInstructions];
-      block2LocalState = new int[nBlocks][];
+      this(shrikeCfg, new IntPair[nInstructions], new int[nBlocks][]);
+    }
+
+    /**
+     * a map with the given contents, as recorded by {@link ShrikeIRCodec}
+     */
+    SSA2LocalMap(ShrikeCFG shrikeCfg, IntPair[] localStoreMap, int[][] block2LocalState) {
+      this.shrikeCFG = shrikeCfg;
+      this.localStoreMap = localStoreMap;
+      this.block2LocalState = block2LocalState;
+    }
+
+    IntPair[] getLocalStoreMap() {
+      return localStoreMap;
+    }
+
+    int[][] getBlockLocalStates() {
+      return block2LocalState;
     }
 
     /**
@@ -10,14 +10,21 @@
  *******************************************************************************/
 package com.ibm.wala.ssa;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.Context;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.util.collections.Pair;
 
 /**
- * A mapping from IMethod -> SSAOptions -> SoftReference -> Something
+ * A mapping from IMethod -> SSAOptions -> Something
+ * 
+ * By default, cached objects are held through SoftReferences, which GCs don't handle very well; clients that want a predictable
+ * footprint should supply a {@link BoundedAuxiliaryCache} instead.
  * 
- * This doesn't work very well ... GCs don't do such a great job with SoftReferences ... revamp it.
+ * Lookups are not serialized on the whole cache, only builds of the same (IMethod,Context,SSAOptions) are: two threads that miss on
+ * the same key concurrently get the same IR, and the {@link DefUse} cached for a key is always built from the IR cached for it.
  */
 public class SSACache {
 
@@ -34,18 +41,66 @@ public class SSACache {
   /**
    * A cache of SSA IRs
    */
-  final private AuxiliaryCache irCache = new AuxiliaryCache();
+  final private IAuxiliaryCache irCache;
 
   /**
    * A cache of DefUse information
    */
-  final private AuxiliaryCache duCache = new AuxiliaryCache();
+  final private IAuxiliaryCache duCache;
+
+  /**
+   * A store of IRs that persists across runs, or null if none
+   */
+  private IPersistentIRStore persistentStore;
+
+  /**
+   * keys of the IRs being built -> lock held while building
+   */
+  private final ConcurrentHashMap<Pair<Pair<IMethod, Context>, SSAOptions>, Object> buildingIRs = new ConcurrentHashMap<Pair<Pair<IMethod, Context>, SSAOptions>, Object>();
+
+  /**
+   * keys of the {@link DefUse}s being built -> lock held while building
+   */
+  private final ConcurrentHashMap<Pair<Pair<IMethod, Context>, SSAOptions>, Object> buildingDUs = new ConcurrentHashMap<Pair<Pair<IMethod, Context>, SSAOptions>, Object>();
 
   /**
    * @param factory a factory for creating IRs
    */
   public SSACache(IRFactory<IMethod> factory) {
+    this(factory, new AuxiliaryCache(), new AuxiliaryCache());
+  }
+
+  /**
+   * @param factory a factory for creating IRs
+   * @param irCache policy for caching IRs
+   * @param duCache policy for caching {@link DefUse}s
+   */
+  public SSACache(IRFactory<IMethod> factory, IAuxiliaryCache irCache, IAuxiliaryCache duCache) {
+    if (irCache == null) {
+      throw new IllegalArgumentException("null irCache");
+    }
+    if (duCache == null) {
+      throw new IllegalArgumentException("null duCache");
+    }
     this.factory = factory;
+    this.irCache = irCache;
+    this.duCache = duCache;
+    if (irCache instanceof BoundedAuxiliaryCache) {
+      // a DefUse holds its IR, so it must not outlive the IR's eviction
+      ((BoundedAuxiliaryCache) irCache).setEvictionListener(new BoundedAuxiliaryCache.EvictionListener() {
+        @Override
+        public void evicted(IMethod m, Context c) {
+          SSACache.this.duCache.invalidate(m, c);
+        }
+      });
+    }
+  }
+
+  private static Object lockFor(ConcurrentHashMap<Pair<Pair<IMethod, Context>, SSAOptions>, Object> building,
+      Pair<Pair<IMethod, Context>, SSAOptions> key) {
+    Object lock = new Object();
+    Object old = building.putIfAbsent(key, lock);
+    return old == null ? lock : old;
   }
 
   /**
@@ -54,7 +109,7 @@ public class SSACache {
    * @return an IR for m, built according to the specified options. null if m is abstract or native.
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
+  public IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
 
     if (m == null) {
       throw new IllegalArgumentException("m is null");
@@ -73,19 +128,46 @@ public class SSACache {
 
     IR ir = (IR) irCache.find(m, c, options);
     if (ir == null) {
-      ir = factory.makeIR(m, c, options);
-      irCache.cache(m, c, options, ir);
+      Pair<Pair<IMethod, Context>, SSAOptions> key = Pair.make(Pair.make(m, c), options);
+      Object lock = lockFor(buildingIRs, key);
+      try {
+        synchronized (lock) {
+          ir = (IR) irCache.find(m, c, options);
+          if (ir == null) {
+            ir = makeIR(m, c, options);
+            irCache.cache(m, c, options, ir);
+          }
+        }
+      } finally {
+        buildingIRs.remove(key, lock);
+      }
     }
     return ir;
   }
 
+  private IR makeIR(IMethod m, Context c, SSAOptions options) {
+    IPersistentIRStore store = persistentStore;
+    if (store != null && factory.contextIsIrrelevant(m)) {
+      IR ir = store.load(m, options);
+      if (ir == null) {
+        ir = factory.makeIR(m, c, options);
+        if (ir != null) {
+          store.store(ir);
+        }
+      }
+      return ir;
+    } else {
+      return factory.makeIR(m, c, options);
+    }
+  }
+
   /**
    * @param m a method
    * @param options options governing ssa construction
    * @return DefUse information for m, built according to the specified options. null if unavailable
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
+  public DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
     if (m == null) {
       throw new IllegalArgumentException("m is null");
     }
@@ -96,27 +178,40 @@ public class SSACache {
       c = Everywhere.EVERYWHERE;
     }
 
-    DefUse du = (DefUse) duCache.find(m, c, options);
-    if (du == null) {
-      IR ir = findOrCreateIR(m, c, options);
-      du = new DefUse(ir);
-      duCache.cache(m, c, options, du);
-    }
-    return du;
+    IR ir = findOrCreateIR(m, c, options);
+    return findOrCreateDU(ir, m, c, options);
   }
 
   /**
    * @return {@link DefUse} information for m, built according to the specified options. null if unavailable
    * @throws IllegalArgumentException if ir is null
    */
-  public synchronized DefUse findOrCreateDU(IR ir, Context C) {
+  public DefUse findOrCreateDU(IR ir, Context C) {
     if (ir == null) {
       throw new IllegalArgumentException("ir is null");
     }
-    DefUse du = (DefUse) duCache.find(ir.getMethod(), C, ir.getOptions());
-    if (du == null) {
-      du = new DefUse(ir);
-      duCache.cache(ir.getMethod(), C, ir.getOptions(), du);
+    return findOrCreateDU(ir, ir.getMethod(), C, ir.getOptions());
+  }
+
+  /**
+   * @return the cached {@link DefUse} for the key if it was built from ir, else a new one built from ir, which replaces it
+   */
+  private DefUse findOrCreateDU(IR ir, IMethod m, Context c, SSAOptions options) {
+    DefUse du = (DefUse) duCache.find(m, c, options);
+    if (du == null || du.getIR() != ir) {
+      Pair<Pair<IMethod, Context>, SSAOptions> key = Pair.make(Pair.make(m, c), options);
+      Object lock = lockFor(buildingDUs, key);
+      try {
+        synchronized (lock) {
+          du = (DefUse) duCache.find(m, c, options);
+          if (du == null || du.getIR() != ir) {
+            du = new DefUse(ir);
+            duCache.cache(m, c, options, du);
+          }
+        }
+      } finally {
+        buildingDUs.remove(key, lock);
+      }
     }
     return du;
   }
@@ -129,6 +224,36 @@ public class SSACache {
     duCache.wipe();
   }
 
+  /**
+   * @return the store of IRs that persists across runs, or null if none
+   */
+  public IPersistentIRStore getPersistentStore() {
+    return persistentStore;
+  }
+
+  /**
+   * install a store that is consulted before building a context-independent IR, and that records each such IR built
+   * 
+   * @param persistentStore the store, or null to disable
+   */
+  public void setPersistentStore(IPersistentIRStore persistentStore) {
+    this.persistentStore = persistentStore;
+  }
+
+  /**
+   * @return the cache holding IRs
+   */
+  public IAuxiliaryCache getIRCache() {
+    return irCache;
+  }
+
+  /**
+   * @return the cache holding {@link DefUse}s
+   */
+  public IAuxiliaryCache getDUCache() {
+    return duCache;
+  }
+
   /**
    * Invalidate the cached IR for a <method,context> pair
    */
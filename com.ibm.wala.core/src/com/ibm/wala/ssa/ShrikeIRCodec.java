@@ -0,0 +1,851 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.cfg.ShrikeCFG;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.shrikeBT.IBinaryOpInstruction;
+import com.ibm.wala.shrikeBT.IComparisonInstruction;
+import com.ibm.wala.shrikeBT.IConditionalBranchInstruction;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrikeBT.IShiftInstruction;
+import com.ibm.wala.shrikeBT.IUnaryOpInstruction;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.IntPair;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * An {@link DirectoryIRStore.IRCodec} for the IRs that {@link com.ibm.wala.classLoader.ShrikeIRFactory} builds for Java bytecode.
+ *
+ * It records the symbol table, the instructions, the phis, the catch instructions and the local variable map, so that reading an
+ * IR only rebuilds the control-flow graph from the bytecode and skips SSA construction altogether. IRs with invokedynamic, with
+ * address-of or indirect load and store instructions, or with pi nodes are not supported; {@link #write} throws an {@link IOException} for them, so they are never stored.
+ */
+public class ShrikeIRCodec implements DirectoryIRStore.IRCodec {
+
+  private final static int ARRAY_LENGTH = 1;
+
+  private final static int ARRAY_LOAD = 2;
+
+  private final static int ARRAY_STORE = 3;
+
+  private final static int BINARY_OP = 4;
+
+  private final static int CHECK_CAST = 5;
+
+  private final static int COMPARISON = 6;
+
+  private final static int CONDITIONAL_BRANCH = 7;
+
+  private final static int CONVERSION = 8;
+
+  private final static int GET = 9;
+
+  private final static int GET_STATIC = 10;
+
+  private final static int GOTO = 11;
+
+  private final static int INSTANCEOF = 12;
+
+  private final static int INVOKE = 13;
+
+  private final static int INVOKE_VOID = 14;
+
+  private final static int LOAD_METADATA = 15;
+
+  private final static int MONITOR = 16;
+
+  private final static int NEW = 17;
+
+  private final static int PUT = 18;
+
+  private final static int PUT_STATIC = 19;
+
+  private final static int RETURN = 20;
+
+  private final static int RETURN_VOID = 21;
+
+  private final static int SWITCH = 22;
+
+  private final static int THROW = 23;
+
+  private final static int UNARY_OP = 24;
+
+  private final static int PLAIN_VALUE = 0;
+
+  private final static int PHI_VALUE = 1;
+
+  private final static int NULL_CONSTANT = 2;
+
+  private final static int BOOLEAN_CONSTANT = 3;
+
+  private final static int INT_CONSTANT = 4;
+
+  private final static int LONG_CONSTANT = 5;
+
+  private final static int FLOAT_CONSTANT = 6;
+
+  private final static int DOUBLE_CONSTANT = 7;
+
+  private final static int STRING_CONSTANT = 8;
+
+  @Override
+  public String getFormatName() {
+    return "shrike-ssa-1";
+  }
+
+  @Override
+  public void write(IR ir, DataOutputStream out) throws IOException {
+    if (!(ir.getMethod() instanceof ShrikeCTMethod)) {
+      throw new IOException("not a bytecode method: " + ir.getMethod());
+    }
+    ShrikeCTMethod method = (ShrikeCTMethod) ir.getMethod();
+    if (ir.iteratePis().hasNext()) {
+      throw new IOException("pi nodes are not supported");
+    }
+    Writer w = new Writer(out);
+
+    SymbolTable symtab = ir.getSymbolTable();
+    w.writeInt(symtab.getNumberOfParameters());
+    w.writeInt(symtab.getMaxValueNumber());
+    for (int v = symtab.getNumberOfParameters() + 1; v <= symtab.getMaxValueNumber(); v++) {
+      w.writeValue(symtab, v);
+    }
+
+    SSAInstruction[] instructions = ir.getInstructions();
+    w.writeInt(instructions.length);
+    for (int i = 0; i < instructions.length; i++) {
+      if (instructions[i] != null) {
+        w.writeInt(i);
+        w.writeInstruction(instructions[i]);
+      }
+    }
+    w.writeInt(-1);
+
+    SSACFG cfg = ir.getControlFlowGraph();
+    w.writeInt(cfg.getNumberOfNodes());
+    for (int b = 0; b < cfg.getNumberOfNodes(); b++) {
+      SSACFG.BasicBlock bb = cfg.getNode(b);
+      w.writePhis(bb, method.getMaxStackHeight(), method.getMaxLocals());
+      SSAGetCaughtExceptionInstruction c = bb instanceof SSACFG.ExceptionHandlerBasicBlock ? ((SSACFG.ExceptionHandlerBasicBlock) bb)
+          .getCatchInstruction() : null;
+      w.writeInt(c == null ? -1 : c.getException());
+    }
+
+    IR.SSA2LocalMap localMap = ir.getLocalMap();
+    if (localMap instanceof SSABuilder.SSA2LocalMap) {
+      SSABuilder.SSA2LocalMap m = (SSABuilder.SSA2LocalMap) localMap;
+      out.writeBoolean(true);
+      IntPair[] stores = m.getLocalStoreMap();
+      w.writeInt(stores.length);
+      for (int i = 0; i < stores.length; i++) {
+        if (stores[i] != null) {
+          w.writeInt(i);
+          w.writeInt(stores[i].getX());
+          w.writeInt(stores[i].getY());
+        }
+      }
+      w.writeInt(-1);
+      int[][] states = m.getBlockLocalStates();
+      w.writeInt(states.length);
+      for (int[] s : states) {
+        w.writeInts(s);
+      }
+    } else if (localMap == null) {
+      out.writeBoolean(false);
+    } else {
+      throw new IOException("unexpected local map " + localMap);
+    }
+  }
+
+  @Override
+  public IR read(IMethod m, SSAOptions options, DataInputStream in) throws IOException {
+    if (!(m instanceof ShrikeCTMethod)) {
+      throw new IOException("not a bytecode method: " + m);
+    }
+    try {
+      return read((ShrikeCTMethod) m, options, in);
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("damaged IR for " + m, e);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("damaged IR for " + m, e);
+    }
+  }
+
+  private static IR read(final ShrikeCTMethod method, SSAOptions options, DataInputStream in) throws IOException {
+    Reader r = new Reader(in, method);
+    SSAInstructionFactory insts = method.getDeclaringClass().getClassLoader().getInstructionFactory();
+
+    final SymbolTable symtab = new SymbolTable(r.readInt());
+    if (symtab.getNumberOfParameters() != method.getNumberOfParameters()) {
+      throw new IOException("wrong number of parameters");
+    }
+    int maxValueNumber = r.readInt();
+    for (int v = symtab.getNumberOfParameters() + 1; v <= maxValueNumber; v++) {
+      if (r.readValue(symtab) != v) {
+        throw new IOException("value numbers out of sync at " + v);
+      }
+    }
+
+    final SSAInstruction[] instructions = new SSAInstruction[r.readInt()];
+    for (int i = r.readInt(); i != -1; i = r.readInt()) {
+      instructions[i] = r.readInstruction(insts, i);
+    }
+
+    final ShrikeCFG shrikeCFG = ShrikeCFG.make(method);
+    final SSACFG cfg = new SSACFG(method, shrikeCFG, instructions);
+    if (r.readInt() != cfg.getNumberOfNodes()) {
+      throw new IOException("control-flow graph changed");
+    }
+    for (int b = 0; b < cfg.getNumberOfNodes(); b++) {
+      SSACFG.BasicBlock bb = cfg.getNode(b);
+      r.readPhis(symtab, bb);
+      int exception = r.readInt();
+      if (exception != -1) {
+        ((SSACFG.ExceptionHandlerBasicBlock) bb).setCatchInstruction(insts.GetCaughtExceptionInstruction(SSAInstruction.NO_INDEX, b,
+            exception));
+      }
+    }
+
+    final IR.SSA2LocalMap localMap;
+    if (in.readBoolean()) {
+      IntPair[] stores = new IntPair[r.readInt()];
+      for (int i = r.readInt(); i != -1; i = r.readInt()) {
+        stores[i] = new IntPair(r.readInt(), r.readInt());
+      }
+      int[][] states = new int[r.readInt()][];
+      for (int i = 0; i < states.length; i++) {
+        states[i] = r.readInts();
+      }
+      localMap = new SSABuilder.SSA2LocalMap(shrikeCFG, stores, states);
+    } else {
+      localMap = null;
+    }
+
+    return new IR(method, instructions, symtab, cfg, options) {
+      private final ShrikeIndirectionData indirectionData = new ShrikeIndirectionData(instructions.length);
+
+      {
+        setupLocationMap();
+      }
+
+      @Override
+      protected String instructionPosition(int instructionIndex) {
+        try {
+          int lineNumber = method.getLineNumber(method.getBytecodeIndex(instructionIndex));
+          return lineNumber == -1 ? "" : "(line " + lineNumber + ")";
+        } catch (InvalidClassFileException e) {
+          return "";
+        }
+      }
+
+      @Override
+      public SSA2LocalMap getLocalMap() {
+        return localMap;
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      protected <T extends SSAIndirectionData.Name> SSAIndirectionData<T> getIndirectionData() {
+        return (SSAIndirectionData<T>) indirectionData;
+      }
+    };
+  }
+
+  /**
+   * writes strings and type references once per IR, and refers to them by number afterwards
+   */
+  private static class Writer {
+    private final DataOutputStream out;
+
+    private final Map<String, Integer> strings = HashMapFactory.make();
+
+    Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void writeInt(int i) throws IOException {
+      out.writeInt(i);
+    }
+
+    void writeInts(int[] is) throws IOException {
+      if (is == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(is.length);
+        for (int i : is) {
+          out.writeInt(i);
+        }
+      }
+    }
+
+    void writeString(String s) throws IOException {
+      Integer n = strings.get(s);
+      if (n == null) {
+        out.writeInt(-1);
+        out.writeUTF(s);
+        strings.put(s, strings.size());
+      } else {
+        out.writeInt(n);
+      }
+    }
+
+    void writeType(TypeReference t) throws IOException {
+      writeString(t.getClassLoader().getName().toString());
+      writeString(t.getName().toString());
+    }
+
+    void writeTypes(TypeReference[] ts) throws IOException {
+      out.writeInt(ts.length);
+      for (TypeReference t : ts) {
+        writeType(t);
+      }
+    }
+
+    void writeField(FieldReference f) throws IOException {
+      writeType(f.getDeclaringClass());
+      writeString(f.getName().toString());
+      writeType(f.getFieldType());
+    }
+
+    void writeMethod(MethodReference m) throws IOException {
+      writeType(m.getDeclaringClass());
+      writeString(m.getSelector().toString());
+    }
+
+    void writeUses(SSAInstruction s) throws IOException {
+      out.writeInt(s.getNumberOfUses());
+      for (int i = 0; i < s.getNumberOfUses(); i++) {
+        out.writeInt(s.getUse(i));
+      }
+    }
+
+    void writeValue(SymbolTable symtab, int v) throws IOException {
+      Value value = symtab.getValue(v);
+      if (value == null) {
+        out.writeByte(PLAIN_VALUE);
+      } else if (value instanceof PhiValue) {
+        out.writeByte(PHI_VALUE);
+        writeUses(((PhiValue) value).getPhiInstruction());
+      } else if (value instanceof ConstantValue) {
+        Object c = ((ConstantValue) value).getValue();
+        if (c == null) {
+          out.writeByte(NULL_CONSTANT);
+        } else if (c instanceof Boolean) {
+          out.writeByte(BOOLEAN_CONSTANT);
+          out.writeBoolean((Boolean) c);
+        } else if (c instanceof Integer) {
+          out.writeByte(INT_CONSTANT);
+          out.writeInt((Integer) c);
+        } else if (c instanceof Long) {
+          out.writeByte(LONG_CONSTANT);
+          out.writeLong((Long) c);
+        } else if (c instanceof Float) {
+          out.writeByte(FLOAT_CONSTANT);
+          out.writeFloat((Float) c);
+        } else if (c instanceof Double) {
+          out.writeByte(DOUBLE_CONSTANT);
+          out.writeDouble((Double) c);
+        } else if (c instanceof String) {
+          out.writeByte(STRING_CONSTANT);
+          writeString((String) c);
+        } else {
+          throw new IOException("unsupported constant " + c);
+        }
+      } else {
+        throw new IOException("unsupported value " + value);
+      }
+    }
+
+    /**
+     * write the phis of bb, keyed by the stack slot or local they merge
+     */
+    void writePhis(SSACFG.BasicBlock bb, int maxStack, int maxLocals) throws IOException {
+      List<int[]> phis = new ArrayList<int[]>();
+      for (int slot = 0; slot <= maxStack; slot++) {
+        SSAPhiInstruction phi = bb.getPhiForStackSlot(slot);
+        if (phi != null) {
+          phis.add(new int[] { 0, slot, phi.getDef() });
+        }
+      }
+      for (int local = 0; local <= maxLocals; local++) {
+        SSAPhiInstruction phi = bb.getPhiForLocal(local);
+        if (phi != null) {
+          phis.add(new int[] { 1, local, phi.getDef() });
+        }
+      }
+      int count = 0;
+      for (Iterator<SSAPhiInstruction> it = bb.iteratePhis(); it.hasNext(); it.next()) {
+        count++;
+      }
+      if (count != phis.size()) {
+        throw new IOException("phis out of range in " + bb);
+      }
+      out.writeInt(phis.size());
+      for (int[] phi : phis) {
+        out.writeBoolean(phi[0] == 1);
+        out.writeInt(phi[1]);
+        out.writeInt(phi[2]);
+      }
+    }
+
+    void writeInstruction(SSAInstruction s) throws IOException {
+      if (s instanceof SSAArrayLengthInstruction) {
+        SSAArrayLengthInstruction a = (SSAArrayLengthInstruction) s;
+        out.writeByte(ARRAY_LENGTH);
+        out.writeInt(a.getDef());
+        out.writeInt(a.getArrayRef());
+      } else if (s instanceof SSAArrayLoadInstruction) {
+        SSAArrayLoadInstruction a = (SSAArrayLoadInstruction) s;
+        out.writeByte(ARRAY_LOAD);
+        out.writeInt(a.getDef());
+        out.writeInt(a.getArrayRef());
+        out.writeInt(a.getIndex());
+        writeType(a.getElementType());
+      } else if (s instanceof SSAArrayStoreInstruction) {
+        SSAArrayStoreInstruction a = (SSAArrayStoreInstruction) s;
+        out.writeByte(ARRAY_STORE);
+        out.writeInt(a.getArrayRef());
+        out.writeInt(a.getIndex());
+        out.writeInt(a.getValue());
+        writeType(a.getElementType());
+      } else if (s instanceof SSABinaryOpInstruction) {
+        SSABinaryOpInstruction b = (SSABinaryOpInstruction) s;
+        out.writeByte(BINARY_OP);
+        if (b.getOperator() instanceof IBinaryOpInstruction.Operator) {
+          out.writeBoolean(false);
+          out.writeByte(((IBinaryOpInstruction.Operator) b.getOperator()).ordinal());
+        } else if (b.getOperator() instanceof IShiftInstruction.Operator) {
+          out.writeBoolean(true);
+          out.writeByte(((IShiftInstruction.Operator) b.getOperator()).ordinal());
+        } else {
+          throw new IOException("unsupported operator " + b.getOperator());
+        }
+        out.writeInt(b.getDef());
+        out.writeInt(b.getUse(0));
+        out.writeInt(b.getUse(1));
+        out.writeBoolean(b.mayBeIntegerOp());
+      } else if (s instanceof SSACheckCastInstruction) {
+        SSACheckCastInstruction c = (SSACheckCastInstruction) s;
+        out.writeByte(CHECK_CAST);
+        out.writeInt(c.getResult());
+        out.writeInt(c.getVal());
+        writeTypes(c.getDeclaredResultTypes());
+        out.writeBoolean(c.isPEI());
+      } else if (s instanceof SSAComparisonInstruction) {
+        SSAComparisonInstruction c = (SSAComparisonInstruction) s;
+        out.writeByte(COMPARISON);
+        out.writeByte(c.getOperator().ordinal());
+        out.writeInt(c.getDef());
+        out.writeInt(c.getUse(0));
+        out.writeInt(c.getUse(1));
+      } else if (s instanceof SSAConditionalBranchInstruction) {
+        SSAConditionalBranchInstruction c = (SSAConditionalBranchInstruction) s;
+        if (!(c.getOperator() instanceof IConditionalBranchInstruction.Operator)) {
+          throw new IOException("unsupported operator " + c.getOperator());
+        }
+        out.writeByte(CONDITIONAL_BRANCH);
+        out.writeByte(((IConditionalBranchInstruction.Operator) c.getOperator()).ordinal());
+        writeType(c.getType());
+        out.writeInt(c.getUse(0));
+        out.writeInt(c.getUse(1));
+        out.writeInt(c.getTarget());
+      } else if (s instanceof SSAConversionInstruction) {
+        SSAConversionInstruction c = (SSAConversionInstruction) s;
+        out.writeByte(CONVERSION);
+        out.writeInt(c.getDef());
+        out.writeInt(c.getUse(0));
+        writeType(c.getFromType());
+        writeType(c.getToType());
+      } else if (s instanceof SSAGetInstruction) {
+        SSAGetInstruction g = (SSAGetInstruction) s;
+        out.writeByte(g.isStatic() ? GET_STATIC : GET);
+        out.writeInt(g.getDef());
+        if (!g.isStatic()) {
+          out.writeInt(g.getRef());
+        }
+        writeField(g.getDeclaredField());
+      } else if (s instanceof SSAGotoInstruction) {
+        out.writeByte(GOTO);
+        out.writeInt(((SSAGotoInstruction) s).getTarget());
+      } else if (s instanceof SSAInstanceofInstruction) {
+        SSAInstanceofInstruction i = (SSAInstanceofInstruction) s;
+        out.writeByte(INSTANCEOF);
+        out.writeInt(i.getDef());
+        out.writeInt(i.getRef());
+        writeType(i.getCheckedType());
+      } else if (s instanceof SSAInvokeInstruction && !(s instanceof SSAInvokeDynamicInstruction)) {
+        SSAInvokeInstruction i = (SSAInvokeInstruction) s;
+        if (!(i.getInvocationCode() instanceof IInvokeInstruction.Dispatch)) {
+          throw new IOException("unsupported dispatch " + i.getInvocationCode());
+        }
+        if (i.hasDef()) {
+          out.writeByte(INVOKE);
+          out.writeInt(i.getDef());
+        } else {
+          out.writeByte(INVOKE_VOID);
+        }
+        writeUses(i);
+        out.writeInt(i.getException());
+        out.writeInt(i.getProgramCounter());
+        writeMethod(i.getDeclaredTarget());
+        out.writeByte(((IInvokeInstruction.Dispatch) i.getInvocationCode()).ordinal());
+      } else if (s instanceof SSALoadMetadataInstruction) {
+        SSALoadMetadataInstruction l = (SSALoadMetadataInstruction) s;
+        if (!(l.getToken() instanceof TypeReference)) {
+          throw new IOException("unsupported metadata " + l.getToken());
+        }
+        out.writeByte(LOAD_METADATA);
+        out.writeInt(l.getDef());
+        writeType(l.getType());
+        writeType((TypeReference) l.getToken());
+      } else if (s instanceof SSAMonitorInstruction) {
+        SSAMonitorInstruction mon = (SSAMonitorInstruction) s;
+        out.writeByte(MONITOR);
+        out.writeInt(mon.getRef());
+        out.writeBoolean(mon.isMonitorEnter());
+      } else if (s instanceof SSANewInstruction) {
+        SSANewInstruction n = (SSANewInstruction) s;
+        out.writeByte(NEW);
+        out.writeInt(n.getDef());
+        out.writeInt(n.getNewSite().getProgramCounter());
+        writeType(n.getConcreteType());
+        writeUses(n);
+      } else if (s instanceof SSAPutInstruction) {
+        SSAPutInstruction p = (SSAPutInstruction) s;
+        out.writeByte(p.isStatic() ? PUT_STATIC : PUT);
+        if (!p.isStatic()) {
+          out.writeInt(p.getRef());
+        }
+        out.writeInt(p.getVal());
+        writeField(p.getDeclaredField());
+      } else if (s instanceof SSAReturnInstruction) {
+        SSAReturnInstruction ret = (SSAReturnInstruction) s;
+        if (ret.returnsVoid()) {
+          out.writeByte(RETURN_VOID);
+        } else {
+          out.writeByte(RETURN);
+          out.writeInt(ret.getResult());
+          out.writeBoolean(ret.returnsPrimitiveType());
+        }
+      } else if (s instanceof SSASwitchInstruction) {
+        SSASwitchInstruction sw = (SSASwitchInstruction) s;
+        out.writeByte(SWITCH);
+        out.writeInt(sw.getUse(0));
+        out.writeInt(sw.getDefault());
+        writeInts(sw.getCasesAndLabels());
+      } else if (s instanceof SSAThrowInstruction) {
+        out.writeByte(THROW);
+        out.writeInt(((SSAThrowInstruction) s).getException());
+      } else if (s instanceof SSAUnaryOpInstruction) {
+        SSAUnaryOpInstruction u = (SSAUnaryOpInstruction) s;
+        if (!(u.getOpcode() instanceof IUnaryOpInstruction.Operator)) {
+          throw new IOException("unsupported operator " + u.getOpcode());
+        }
+        out.writeByte(UNARY_OP);
+        out.writeByte(((IUnaryOpInstruction.Operator) u.getOpcode()).ordinal());
+        out.writeInt(u.getDef());
+        out.writeInt(u.getUse(0));
+      } else {
+        throw new IOException("unsupported instruction " + s);
+      }
+    }
+  }
+
+  /**
+   * reads what a {@link Writer} wrote, resolving types against the loaders of the method's class hierarchy
+   */
+  private static class Reader {
+    private final DataInputStream in;
+
+    private final IMethod method;
+
+    private final List<String> strings = new ArrayList<String>();
+
+    Reader(DataInputStream in, IMethod method) {
+      this.in = in;
+      this.method = method;
+    }
+
+    int readInt() throws IOException {
+      return in.readInt();
+    }
+
+    int[] readInts() throws IOException {
+      int n = in.readInt();
+      if (n == -1) {
+        return null;
+      }
+      int[] result = new int[n];
+      for (int i = 0; i < n; i++) {
+        result[i] = in.readInt();
+      }
+      return result;
+    }
+
+    String readString() throws IOException {
+      int n = in.readInt();
+      if (n == -1) {
+        String s = in.readUTF();
+        strings.add(s);
+        return s;
+      } else if (n < strings.size()) {
+        return strings.get(n);
+      } else {
+        throw new IOException("bad string reference " + n);
+      }
+    }
+
+    ClassLoaderReference readLoader() throws IOException {
+      Atom name = Atom.findOrCreateUnicodeAtom(readString());
+      for (ClassLoaderReference l : new ClassLoaderReference[] { ClassLoaderReference.Primordial, ClassLoaderReference.Extension,
+          ClassLoaderReference.Application }) {
+        if (l.getName().equals(name)) {
+          return l;
+        }
+      }
+      for (IClassLoader l : method.getClassHierarchy().getLoaders()) {
+        if (l.getReference().getName().equals(name)) {
+          return l.getReference();
+        }
+      }
+      throw new IOException("unknown class loader " + name);
+    }
+
+    TypeReference readType() throws IOException {
+      ClassLoaderReference loader = readLoader();
+      return TypeReference.findOrCreate(loader, readString());
+    }
+
+    TypeReference[] readTypes() throws IOException {
+      TypeReference[] result = new TypeReference[in.readInt()];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = readType();
+      }
+      return result;
+    }
+
+    FieldReference readField() throws IOException {
+      TypeReference klass = readType();
+      Atom name = Atom.findOrCreateUnicodeAtom(readString());
+      return FieldReference.findOrCreate(klass, name, readType());
+    }
+
+    MethodReference readMethod() throws IOException {
+      TypeReference klass = readType();
+      return MethodReference.findOrCreate(klass, Selector.make(readString()));
+    }
+
+    int[] readUses() throws IOException {
+      int[] result = new int[in.readInt()];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = in.readInt();
+      }
+      return result;
+    }
+
+    /**
+     * @return the value number of the value read, which is the next one free in symtab
+     */
+    int readValue(SymbolTable symtab) throws IOException {
+      int kind = in.readByte();
+      switch (kind) {
+      case PLAIN_VALUE:
+        return symtab.newSymbol();
+      case PHI_VALUE:
+        return symtab.newPhi(readUses());
+      case NULL_CONSTANT:
+        return symtab.getNullConstant();
+      case BOOLEAN_CONSTANT:
+        return symtab.getConstant(in.readBoolean());
+      case INT_CONSTANT:
+        return symtab.getConstant(in.readInt());
+      case LONG_CONSTANT:
+        return symtab.getConstant(in.readLong());
+      case FLOAT_CONSTANT:
+        return symtab.getConstant(in.readFloat());
+      case DOUBLE_CONSTANT:
+        return symtab.getConstant(in.readDouble());
+      case STRING_CONSTANT:
+        return symtab.getConstant(readString());
+      default:
+        throw new IOException("bad value kind " + kind);
+      }
+    }
+
+    void readPhis(SymbolTable symtab, SSACFG.BasicBlock bb) throws IOException {
+      for (int n = in.readInt(); n > 0; n--) {
+        boolean local = in.readBoolean();
+        int index = in.readInt();
+        SSAPhiInstruction phi = symtab.getPhiValue(in.readInt()).getPhiInstruction();
+        if (local) {
+          bb.addPhiForLocal(index, phi);
+        } else {
+          bb.addPhiForStackSlot(index, phi);
+        }
+      }
+    }
+
+    SSAInstruction readInstruction(SSAInstructionFactory insts, int iindex) throws IOException {
+      int kind = in.readByte();
+      switch (kind) {
+      case ARRAY_LENGTH: {
+        int result = in.readInt();
+        return insts.ArrayLengthInstruction(iindex, result, in.readInt());
+      }
+      case ARRAY_LOAD: {
+        int result = in.readInt();
+        int array = in.readInt();
+        int index = in.readInt();
+        return insts.ArrayLoadInstruction(iindex, result, array, index, readType());
+      }
+      case ARRAY_STORE: {
+        int array = in.readInt();
+        int index = in.readInt();
+        int value = in.readInt();
+        return insts.ArrayStoreInstruction(iindex, array, index, value, readType());
+      }
+      case BINARY_OP: {
+        boolean shift = in.readBoolean();
+        int op = in.readByte();
+        IBinaryOpInstruction.IOperator operator = shift ? IShiftInstruction.Operator.values()[op]
+            : IBinaryOpInstruction.Operator.values()[op];
+        int result = in.readInt();
+        int val1 = in.readInt();
+        int val2 = in.readInt();
+        return insts.BinaryOpInstruction(iindex, operator, false, false, result, val1, val2, in.readBoolean());
+      }
+      case CHECK_CAST: {
+        int result = in.readInt();
+        int val = in.readInt();
+        TypeReference[] types = readTypes();
+        return insts.CheckCastInstruction(iindex, result, val, types, in.readBoolean());
+      }
+      case COMPARISON: {
+        IComparisonInstruction.Operator operator = IComparisonInstruction.Operator.values()[in.readByte()];
+        int result = in.readInt();
+        int val1 = in.readInt();
+        return insts.ComparisonInstruction(iindex, operator, result, val1, in.readInt());
+      }
+      case CONDITIONAL_BRANCH: {
+        IConditionalBranchInstruction.Operator operator = IConditionalBranchInstruction.Operator.values()[in.readByte()];
+        TypeReference type = readType();
+        int val1 = in.readInt();
+        int val2 = in.readInt();
+        return insts.ConditionalBranchInstruction(iindex, operator, type, val1, val2, in.readInt());
+      }
+      case CONVERSION: {
+        int result = in.readInt();
+        int val = in.readInt();
+        TypeReference from = readType();
+        return insts.ConversionInstruction(iindex, result, val, from, readType(), false);
+      }
+      case GET: {
+        int result = in.readInt();
+        int ref = in.readInt();
+        return insts.GetInstruction(iindex, result, ref, readField());
+      }
+      case GET_STATIC: {
+        int result = in.readInt();
+        return insts.GetInstruction(iindex, result, readField());
+      }
+      case GOTO:
+        return insts.GotoInstruction(iindex, in.readInt());
+      case INSTANCEOF: {
+        int result = in.readInt();
+        int ref = in.readInt();
+        return insts.InstanceofInstruction(iindex, result, ref, readType());
+      }
+      case INVOKE:
+      case INVOKE_VOID: {
+        int result = kind == INVOKE ? in.readInt() : -1;
+        int[] params = readUses();
+        int exception = in.readInt();
+        int pc = in.readInt();
+        MethodReference target = readMethod();
+        CallSiteReference site = CallSiteReference.make(pc, target, IInvokeInstruction.Dispatch.values()[in.readByte()]);
+        if (kind == INVOKE) {
+          return insts.InvokeInstruction(iindex, result, params, exception, site, null);
+        } else {
+          return insts.InvokeInstruction(iindex, params, exception, site, null);
+        }
+      }
+      case LOAD_METADATA: {
+        int result = in.readInt();
+        TypeReference type = readType();
+        return insts.LoadMetadataInstruction(iindex, result, type, readType());
+      }
+      case MONITOR: {
+        int ref = in.readInt();
+        return insts.MonitorInstruction(iindex, ref, in.readBoolean());
+      }
+      case NEW: {
+        int result = in.readInt();
+        int pc = in.readInt();
+        NewSiteReference site = NewSiteReference.make(pc, readType());
+        int[] params = readUses();
+        if (params.length == 0) {
+          return insts.NewInstruction(iindex, result, site);
+        } else {
+          return insts.NewInstruction(iindex, result, site, params);
+        }
+      }
+      case PUT: {
+        int ref = in.readInt();
+        int value = in.readInt();
+        return insts.PutInstruction(iindex, ref, value, readField());
+      }
+      case PUT_STATIC: {
+        int value = in.readInt();
+        return insts.PutInstruction(iindex, value, readField());
+      }
+      case RETURN: {
+        int result = in.readInt();
+        return insts.ReturnInstruction(iindex, result, in.readBoolean());
+      }
+      case RETURN_VOID:
+        return insts.ReturnInstruction(iindex);
+      case SWITCH: {
+        int val = in.readInt();
+        int defaultLabel = in.readInt();
+        return insts.SwitchInstruction(iindex, val, defaultLabel, readInts());
+      }
+      case THROW:
+        return insts.ThrowInstruction(iindex, in.readInt());
+      case UNARY_OP: {
+        IUnaryOpInstruction.Operator operator = IUnaryOpInstruction.Operator.values()[in.readByte()];
+        int result = in.readInt();
+        return insts.UnaryOpInstruction(iindex, operator, result, in.readInt());
+      }
+      default:
+        throw new IOException("bad instruction kind " + kind);
+      }
+    }
+  }
+}
@@ -10,10 +10,8 @@
  *******************************************************************************/
 package com.ibm.wala.types;
 
-import java.util.Map;
-
 import com.ibm.wala.classLoader.Language;
-import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.InternTable;
 import com.ibm.wala.util.strings.ImmutableByteArray;
 import com.ibm.wala.util.strings.StringStuff;
 import com.ibm.wala.util.strings.UTF8Convert;
@@ -28,7 +26,7 @@ public final class Descriptor {
   /**
    * A mapping from Key -> Descriptor
    */
-  private static final Map<Key, Descriptor> map = HashMapFactory.make();
+  private static final InternTable<Key, Descriptor> map = new InternTable<Key, Descriptor>();
 
   /**
    * key holds the logical value of this descriptor
@@ -47,13 +45,7 @@ public final class Descriptor {
     if (parameters != null && parameters.length == 0) {
       parameters = null;
     }
-    Key k = new Key(returnType, parameters);
-    Descriptor result = map.get(k);
-    if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
-    }
-    return result;
+    return findOrCreate(new Key(returnType, parameters));
   }
 
   /**
@@ -63,11 +55,13 @@ public final class Descriptor {
   public static Descriptor findOrCreate(Language l, ImmutableByteArray b) throws IllegalArgumentException {
     TypeName returnType = StringStuff.parseForReturnTypeName(l, b);
     TypeName[] parameters = StringStuff.parseForParameterNames(l, b);
-    Key k = new Key(returnType, parameters);
+    return findOrCreate(new Key(returnType, parameters));
+  }
+
+  private static Descriptor findOrCreate(Key k) {
     Descriptor result = map.get(k);
     if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
+      result = map.intern(k, new Descriptor(k), false);
     }
     return result;
   }
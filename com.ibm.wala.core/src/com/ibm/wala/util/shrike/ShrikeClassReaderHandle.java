@@ -13,11 +13,15 @@ package com.ibm.wala.util.shrike;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
+import com.ibm.wala.classLoader.ClassFileModule;
+import com.ibm.wala.classLoader.JarFileEntry;
 import com.ibm.wala.classLoader.ModuleEntry;
 import com.ibm.wala.shrikeCT.ClassReader;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.io.FileUtil;
 import com.ibm.wala.util.ref.CacheReference;
 
 /**
@@ -30,6 +34,21 @@ import com.ibm.wala.util.ref.CacheReference;
 public class ShrikeClassReaderHandle {
 
   private final static boolean DEBUG = false;
+
+  private static volatile boolean mapClassFiles = false;
+
+  /**
+   * Choose whether class files are read in place, from memory-mapped files, when possible: single class files and uncompressed
+   * jar entries are mapped instead of being copied into a byte[]. This saves time and garbage when scanning large class paths,
+   * but the files must not change while they are being analyzed.
+   */
+  public static void setMapClassFiles(boolean b) {
+    mapClassFiles = b;
+  }
+
+  public static boolean isMapClassFiles() {
+    return mapClassFiles;
+  }
   /**
    * The module entry that defines the class file
    */
@@ -56,6 +75,13 @@ public class ShrikeClassReaderHandle {
    */
   public ClassReader get() throws InvalidClassFileException {
     ClassReader result = (ClassReader) CacheReference.get(reader);
+    if (result == null && entry instanceof JarFileEntry) {
+      // another class loader over the same jar may have read the class file already
+      result = ((JarFileEntry) entry).getContainer().getClassReader(entry.getName());
+      if (result != null) {
+        reader = CacheReference.make(result);
+      }
+    }
     if (result == null) {
       hydrateCount++;
       if (DEBUG) {
@@ -68,19 +94,44 @@ public class ShrikeClassReaderHandle {
           }
         }
       }
-      ByteArrayOutputStream S = new ByteArrayOutputStream();
+      ByteBuffer mapped = mapClassFiles ? map() : null;
+      if (mapped != null) {
+        result = new ClassReader(mapped);
+      } else {
+        ByteArrayOutputStream S = new ByteArrayOutputStream();
+        try {
+          InputStream s = entry.getInputStream();
+          readBytes(s, S);
+          s.close();
+        } catch (IOException e) {
+          e.printStackTrace();
+          Assertions.UNREACHABLE();
+        }
+        result = new ClassReader(S.toByteArray());
+      }
+      if (entry instanceof JarFileEntry) {
+        result = ((JarFileEntry) entry).getContainer().shareClassReader(entry.getName(), result);
+      }
+      reader = CacheReference.make(result);
+    }
+    return result;
+  }
+
+  /**
+   * @return the class file mapped into memory, or null if it cannot be read in place
+   */
+  private ByteBuffer map() {
+    if (entry instanceof JarFileEntry) {
+      return ((JarFileEntry) entry).getContainer().getStoredContents(entry.getName());
+    } else if (entry instanceof ClassFileModule) {
       try {
-        InputStream s = entry.getInputStream();
-        readBytes(s, S);
-        s.close();
+        return FileUtil.map(((ClassFileModule) entry).getFile());
       } catch (IOException e) {
         e.printStackTrace();
         Assertions.UNREACHABLE();
       }
-      result = new ClassReader(S.toByteArray());
-      reader = CacheReference.make(result);
     }
-    return result;
+    return null;
   }
 
   /**
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dalvik.test.callGraph;
+
+import static com.ibm.wala.dalvik.test.util.Util.androidJavaLib;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.dalvik.util.AndroidBatchAnalysis;
+import com.ibm.wala.dalvik.util.AndroidBatchAnalysis.Result;
+import com.ibm.wala.dalvik.util.AndroidEntryPointManager;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+public class AndroidBatchAnalysisTest {
+
+  private static List<File> apks(String filter) {
+    List<File> apks = new ArrayList<File>();
+    for (Object[] data : DroidBenchCGTest.generateData(null, null, filter)) {
+      apks.add(new File((String) data[2]));
+    }
+    Assert.assertTrue("no apks for " + filter, apks.size() > 1);
+    return apks;
+  }
+
+  private static AndroidBatchAnalysis makeBatch() throws IOException {
+    return new AndroidBatchAnalysis(CallGraphTestUtil.REGRESSION_EXCLUSIONS, androidJavaLib().toURI());
+  }
+
+  private static void assertOwnHierarchy(IClassHierarchy cha) {
+    for (IClass klass : cha) {
+      Assert.assertSame(klass.toString(), cha, klass.getClassHierarchy());
+    }
+    IClass objects = cha.lookupClass(TypeReference.findOrCreateArrayOf(TypeReference.JavaLangObject));
+    Assert.assertSame(cha, objects.getClassHierarchy());
+  }
+
+  /**
+   * the framework classes of each app belong to the hierarchy of that app, though the framework is read once
+   */
+  @Test
+  public void testFrameworkClassesPerApp() throws IOException, ClassHierarchyException {
+    AndroidBatchAnalysis batch = makeBatch();
+    List<File> apks = apks("FieldSensitivity");
+    IClassHierarchy first = batch.makeClassHierarchy(apks.get(0));
+    IClassHierarchy second = batch.makeClassHierarchy(apks.get(1));
+    assertOwnHierarchy(first);
+    assertOwnHierarchy(second);
+    Assert.assertNotSame(first.getRootClass(), second.getRootClass());
+
+    List<Module> framework = batch.getFrameworkScope().getModules(ClassLoaderReference.Primordial);
+    for (IClassHierarchy cha : new IClassHierarchy[] { first, second }) {
+      List<Module> modules = cha.getScope().getModules(ClassLoaderReference.Primordial);
+      Assert.assertEquals(framework.size(), modules.size());
+      for (int i = 0; i < framework.size(); i++) {
+        Assert.assertSame(framework.get(i), modules.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testAnalyze() throws IOException, InterruptedException {
+    AndroidBatchAnalysis batch = makeBatch();
+    batch.setNumberOfWorkers(2);
+    List<File> apks = apks("FieldSensitivity");
+    final List<String> mixed = Collections.synchronizedList(new ArrayList<String>());
+    List<Result> results = batch.analyze(apks, new AndroidBatchAnalysis.Client() {
+      @Override
+      public void process(File apk, IClassHierarchy cha, CallGraph cg, PointerAnalysis<InstanceKey> pa) {
+        for (CGNode n : cg) {
+          if (n.getMethod().getDeclaringClass().getClassHierarchy() != cha) {
+            mixed.add(apk.getName() + ": " + n);
+          }
+        }
+      }
+    });
+    Assert.assertTrue(mixed.toString(), mixed.isEmpty());
+
+    Assert.assertEquals(apks.size(), results.size());
+    for (int i = 0; i < apks.size(); i++) {
+      Result r = results.get(i);
+      Assert.assertEquals(apks.get(i), r.getApk());
+      Assert.assertNull(r.toString(), r.getFailure());
+      Assert.assertTrue(r.toString(), r.getNumberOfEntrypoints() > 0);
+      Assert.assertTrue(r.toString(), r.getNumberOfNodes() > 0);
+    }
+  }
+
+  /**
+   * @return the edges of the call graph of each app the batch analyzed
+   */
+  private static Map<File, Set<String>> edges(AndroidBatchAnalysis batch, List<File> apks) throws InterruptedException {
+    final Map<File, Set<String>> result = Collections.synchronizedMap(HashMapFactory.<File, Set<String>> make());
+    for (Result r : batch.analyze(apks, new AndroidBatchAnalysis.Client() {
+      @Override
+      public void process(File apk, IClassHierarchy cha, CallGraph cg, PointerAnalysis<InstanceKey> pa) {
+        result.put(apk, CallGraphTestUtil.edges(cg));
+      }
+    })) {
+      Assert.assertNull(r.toString(), r.getFailure());
+    }
+    return result;
+  }
+
+  /**
+   * apps that implement framework interfaces, like the listeners of the callback tests, get the same call graph in a batch as
+   * on their own
+   */
+  @Test
+  public void testSameAsStandalone() throws IOException, InterruptedException {
+    AndroidBatchAnalysis batch = makeBatch();
+    Assert.assertFalse(batch.isShareFrameworkModels());
+    batch.setNumberOfWorkers(1);
+    List<File> apks = apks("Callbacks");
+    Map<File, Set<String>> inBatch = edges(batch, apks);
+    Assert.assertFalse(inBatch.isEmpty());
+    for (File apk : apks) {
+      Map<File, Set<String>> alone = edges(makeBatch(), Collections.singletonList(apk));
+      Assert.assertEquals(apk.getName(), alone.get(apk), inBatch.get(apk));
+    }
+  }
+
+  /**
+   * threads an analysis starts see its settings; resetting them in one thread leaves the others alone
+   */
+  @Test
+  public void testManagerPerThread() throws InterruptedException {
+    AndroidEntryPointManager.reset();
+    AndroidEntryPointManager.getManager().setDoBootSequence(false);
+    final boolean[] seen = new boolean[2];
+    Thread t = new Thread() {
+      @Override
+      public void run() {
+        seen[0] = AndroidEntryPointManager.getManager().getDoBootSequence();
+        AndroidEntryPointManager.reset();
+        seen[1] = AndroidEntryPointManager.getManager().getDoBootSequence();
+      }
+    };
+    t.start();
+    t.join();
+    Assert.assertFalse(seen[0]);
+    Assert.assertTrue(seen[1]);
+    Assert.assertFalse(AndroidEntryPointManager.getManager().getDoBootSequence());
+    AndroidEntryPointManager.reset();
+  }
+}
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dalvik.test.callGraph;
+
+import static com.ibm.wala.dalvik.test.util.Util.androidJavaLib;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.dalvik.classLoader.DexIRFactory;
+import com.ibm.wala.dalvik.ipa.callgraph.androidModel.AndroidModel;
+import com.ibm.wala.dalvik.ipa.callgraph.androidModel.stubs.ExternalModel;
+import com.ibm.wala.dalvik.ipa.callgraph.androidModel.stubs.FrameworkModelCache;
+import com.ibm.wala.dalvik.ipa.callgraph.androidModel.stubs.SystemServiceModel;
+import com.ibm.wala.dalvik.util.AndroidBatchAnalysis;
+import com.ibm.wala.dalvik.util.AndroidComponent;
+import com.ibm.wala.dalvik.util.AndroidEntryPointManager;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAInstructionFactory;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.strings.Atom;
+
+public class FrameworkModelCacheTest {
+
+  private static final Selector STUB = Selector.make("startStub()Ljava/lang/Object;");
+
+  private static MethodSummary allocating(TypeReference type) {
+    SSAInstructionFactory insts = Language.JAVA.instructionFactory();
+    MethodSummary summary = new MethodSummary(MethodReference.findOrCreate(TypeReference.JavaLangObject, STUB));
+    summary.addStatement(insts.NewInstruction(0, 1, NewSiteReference.make(0, type)));
+    summary.addStatement(insts.ReturnInstruction(1, 1, false));
+    return summary;
+  }
+
+  @Test
+  public void testFirstSummaryKept() {
+    FrameworkModelCache cache = new FrameworkModelCache();
+    Assert.assertNull(cache.lookup(STUB));
+    MethodSummary first = allocating(TypeReference.JavaLangObject);
+    cache.store(STUB, first);
+    cache.store(STUB, allocating(TypeReference.JavaLangString));
+    Assert.assertSame(first, cache.lookup(STUB));
+    cache.clear();
+    Assert.assertNull(cache.lookup(STUB));
+  }
+
+  @Test
+  public void testApplicationSummaryNotKept() {
+    FrameworkModelCache cache = new FrameworkModelCache();
+    cache.store(STUB, allocating(TypeReference.findOrCreate(ClassLoaderReference.Application, "Lapp/Component")));
+    Assert.assertNull(cache.lookup(STUB));
+  }
+
+  private static SSAInstruction[] statements(AndroidModel model) throws CancelException {
+    return model.getMethod().getStatements(SSAOptions.defaultOptions());
+  }
+
+  /**
+   * @return the statements of the stubs built for the given app: a system service and an external activity
+   */
+  private static SSAInstruction[][] buildStubs(AndroidBatchAnalysis batch, File apk) throws IOException, ClassHierarchyException,
+      CancelException {
+    IClassHierarchy cha = batch.makeClassHierarchy(apk);
+    AnalysisOptions options = new AnalysisOptions(cha.getScope(), Collections.<Entrypoint> emptySet());
+    AnalysisCache cache = new AnalysisCache(new DexIRFactory());
+    return new SSAInstruction[][] {
+        statements(new SystemServiceModel(cha, options, cache, Atom.findOrCreateAsciiAtom("phone"))),
+        statements(new ExternalModel(cha, options, cache, AndroidComponent.ACTIVITY)) };
+  }
+
+  /**
+   * a batch only shares stubs between apps when asked to
+   */
+  @Test
+  public void testBatchSharesOnRequest() throws IOException {
+    AndroidBatchAnalysis batch = new AndroidBatchAnalysis(CallGraphTestUtil.REGRESSION_EXCLUSIONS, androidJavaLib().toURI());
+    File apk = new File((String) DroidBenchCGTest.generateData(null, null, "FieldSensitivity").iterator().next()[2]);
+    final List<FrameworkModelCache> seen = new ArrayList<FrameworkModelCache>();
+    AndroidBatchAnalysis.Client client = new AndroidBatchAnalysis.Client() {
+      @Override
+      public void process(File f, IClassHierarchy cha, CallGraph cg, PointerAnalysis<InstanceKey> pa) {
+        seen.add(AndroidEntryPointManager.getManager().getFrameworkModelCache());
+      }
+    };
+
+    Assert.assertFalse(batch.isShareFrameworkModels());
+    Assert.assertNull(batch.analyze(apk, client).getFailure());
+    batch.setShareFrameworkModels(true);
+    Assert.assertNull(batch.analyze(apk, client).getFailure());
+    Assert.assertNull(batch.analyze(apk, client).getFailure());
+
+    Assert.assertEquals(3, seen.size());
+    Assert.assertNull(seen.get(0));
+    Assert.assertNotNull(seen.get(1));
+    Assert.assertSame(seen.get(1), seen.get(2));
+  }
+
+  /**
+   * the stubs of apps that share a cache are built once; without a cache each app builds its own
+   */
+  @Test
+  public void testStubsShared() throws IOException, ClassHierarchyException, CancelException {
+    AndroidBatchAnalysis batch = new AndroidBatchAnalysis(CallGraphTestUtil.REGRESSION_EXCLUSIONS, androidJavaLib().toURI());
+    Iterator<Object[]> apks = DroidBenchCGTest.generateData(null, null, "FieldSensitivity").iterator();
+    File first = new File((String) apks.next()[2]);
+    File second = new File((String) apks.next()[2]);
+
+    try {
+      AndroidEntryPointManager.reset();
+      AndroidEntryPointManager.getManager().setFrameworkModelCache(new FrameworkModelCache());
+      SSAInstruction[][] built = buildStubs(batch, first);
+      SSAInstruction[][] reused = buildStubs(batch, second);
+      for (int i = 0; i < built.length; i++) {
+        Assert.assertTrue(built[i].length > 0);
+        Assert.assertTrue(Arrays.equals(built[i], reused[i]));
+      }
+
+      AndroidEntryPointManager.reset();
+      Assert.assertNull(AndroidEntryPointManager.getManager().getFrameworkModelCache());
+      SSAInstruction[][] rebuilt = buildStubs(batch, second);
+      for (int i = 0; i < built.length; i++) {
+        Assert.assertNotSame(built[i][0], rebuilt[i][0]);
+      }
+    } finally {
+      AndroidEntryPointManager.reset();
+    }
+  }
+}
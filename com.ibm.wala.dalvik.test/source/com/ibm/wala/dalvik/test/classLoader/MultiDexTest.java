@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dalvik.test.classLoader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.dalvik.classLoader.DexFileModule;
+import com.ibm.wala.dalvik.test.util.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.io.FileProvider;
+import com.ibm.wala.util.io.FileUtil;
+import com.ibm.wala.util.io.TemporaryFile;
+
+/**
+ * Load an .apk whose classes are spread over several dex files.
+ */
+public class MultiDexTest {
+
+  /**
+   * the classes of the test data, split in two: those of packages up to "m", and the others
+   */
+  private static boolean isFirstHalf(String entry) {
+    return entry.compareTo("m") < 0;
+  }
+
+  private static File testData() throws IOException {
+    File f = File.createTempFile("walatest", ".jar");
+    f.deleteOnExit();
+    TemporaryFile.urlToFile(f, (new FileProvider()).getResource("com.ibm.wala.core.testdata_1.0.0a.jar"));
+    return f;
+  }
+
+  /**
+   * @return the names of the classes in one half of jar, written to a jar of their own
+   */
+  private static Set<String> split(JarFile jar, boolean first, File to) throws IOException {
+    Set<String> classes = HashSetFactory.make();
+    JarOutputStream out = new JarOutputStream(new FileOutputStream(to));
+    try {
+      for (Enumeration<JarEntry> es = jar.entries(); es.hasMoreElements();) {
+        JarEntry e = es.nextElement();
+        if (e.getName().endsWith(".class") && isFirstHalf(e.getName()) == first) {
+          out.putNextEntry(new JarEntry(e.getName()));
+          InputStream in = jar.getInputStream(e);
+          out.write(FileUtil.readBytes(in));
+          in.close();
+          out.closeEntry();
+          classes.add("L" + e.getName().substring(0, e.getName().length() - ".class".length()));
+        }
+      }
+    } finally {
+      out.close();
+    }
+    return classes;
+  }
+
+  private static void add(ZipOutputStream apk, String name, File dex) throws IOException {
+    apk.putNextEntry(new ZipEntry(name));
+    InputStream in = new FileInputStream(dex);
+    apk.write(FileUtil.readBytes(in));
+    in.close();
+    apk.closeEntry();
+  }
+
+  @Test
+  public void testMultiDexApk() throws IOException, ClassHierarchyException {
+    JarFile jar = new JarFile(testData());
+    File firstJar = File.createTempFile("first", ".jar");
+    File secondJar = File.createTempFile("second", ".jar");
+    firstJar.deleteOnExit();
+    secondJar.deleteOnExit();
+    Set<String> first = split(jar, true, firstJar);
+    Set<String> second = split(jar, false, secondJar);
+    jar.close();
+    Assert.assertFalse(first.isEmpty());
+    Assert.assertFalse(second.isEmpty());
+
+    File firstDex = Util.convertJarToDex(firstJar.getAbsolutePath());
+    File secondDex = Util.convertJarToDex(secondJar.getAbsolutePath());
+    File apk = File.createTempFile("multidex", ".apk");
+    apk.deleteOnExit();
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(apk));
+    try {
+      add(out, "classes.dex", firstDex);
+      add(out, "classes2.dex", secondDex);
+      // defines the classes of classes.dex again, which the runtime ignores
+      add(out, "classes3.dex", firstDex);
+    } finally {
+      out.close();
+    }
+
+    DexFileModule module = DexFileModule.make(apk);
+    Assert.assertEquals(3, module.getDexFiles().size());
+    Set<String> loaded = HashSetFactory.make();
+    for (Iterator<ModuleEntry> es = module.getEntries(); es.hasNext();) {
+      Assert.assertTrue("loaded twice", loaded.add(es.next().getClassName()));
+    }
+    Set<String> all = HashSetFactory.make(first);
+    all.addAll(second);
+    Assert.assertEquals(all, loaded);
+
+    IClassHierarchy cha = ClassHierarchy.make(Util.makeDalvikScope(null, null, apk.getAbsolutePath()));
+    for (String name : new String[] { first.iterator().next(), second.iterator().next() }) {
+      Assert.assertNotNull(name, cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, name)));
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dalvik.test.ir;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.dalvik.classLoader.DexIMethod;
+import com.ibm.wala.dalvik.classLoader.DexIRFactory;
+import com.ibm.wala.dalvik.test.util.Util;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.ClassLoaderReference;
+
+/**
+ * The decoded instructions of a method are released once its IR is built; building the IR again decodes them again.
+ */
+public class DexIRReleaseTest {
+
+  @Test
+  public void testRebuildAfterRelease() throws IOException, ClassHierarchyException {
+    IClassHierarchy cha = Util.makeCHA();
+    AnalysisCache cache = new AnalysisCache(new DexIRFactory());
+    int methods = 0;
+    for (IClass klass : cha) {
+      if (!klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        continue;
+      }
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (!(m instanceof DexIMethod) || m.isAbstract() || m.isNative()) {
+          continue;
+        }
+        DexIMethod method = (DexIMethod) m;
+        int size = method.getDexInstructions().length;
+
+        IR first = cache.getIR(method);
+        Assert.assertEquals(method.toString(), size, method.getDexInstructions().length);
+
+        method.releaseInstructions();
+        cache.invalidate(method, Everywhere.EVERYWHERE);
+        IR second = cache.getIR(method);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(method.toString(), first.toString(), second.toString());
+        methods++;
+      }
+    }
+    Assert.assertTrue(methods > 0);
+  }
+}
@@ -54,6 +54,13 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
     private final DexIMethod dexMethod;
     private final Context context;
 
+    /**
+     * The instructions and exception handlers of the method, held here so that the method itself can release them once its IR is
+     * built; see {@link DexIMethod#releaseInstructions()}.
+     */
+    private final Instruction[] instructions;
+    private ExceptionHandler[][] handlers;
+
     private static int totalEdges = 0;
 
     /**
@@ -74,6 +81,7 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
         this.dexMethod = method;
         this.context = context;
         this.hashBase = method.hashCode() * 9967;
+        this.instructions = method.getDexInstructions();
         makeBasicBlocks();
         init();
         computeI2BMapping();
@@ -101,7 +109,7 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
     }
 
     public Instruction[] getInstructions() {
-        return (Instruction[])dexMethod.getDexInstructions();
+        return instructions;
 
     }
 
@@ -137,7 +145,6 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
     }
 
     private void makeBasicBlocks() {
-        ExceptionHandler[][] handlers;
         try {
             handlers = dexMethod.getHandlers();
         } catch (InvalidClassFileException e) {
@@ -556,14 +563,6 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
         }
 
         private ExceptionHandler[] getExceptionHandlers() {
-            ExceptionHandler[][] handlers;
-            try {
-                handlers = dexMethod.getHandlers();
-            } catch (InvalidClassFileException e) {
-                e.printStackTrace();
-                Assertions.UNREACHABLE();
-                handlers = null;
-            }
             ExceptionHandler[] hs = handlers[getLastInstructionIndex()];
             return hs;
         }
@@ -684,8 +683,7 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
      * @see com.ibm.wala.cfg.ControlFlowGraph#getProgramCounter(int)
      */
     public int getProgramCounter(int index) {
-        return dexMethod.getAddressFromIndex(index);
-        //    return dexMethod.getInstructionFromIndex(index).pc;
+        return instructions[index].pc;
     }
 
     /**
@@ -48,11 +48,27 @@
 package com.ibm.wala.dalvik.classLoader;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.jar.JarFile;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.jf.dexlib.ClassDefItem;
 import org.jf.dexlib.DexFile;
@@ -65,61 +81,152 @@ import com.ibm.wala.util.io.TemporaryFile;
 /**
  * A module which is a wrapper around .dex and .apk file.
  *
+ * An .apk (or .jar) may hold several dex files, classes.dex, classes2.dex and so on; the classes of all of them are entries of the
+ * one module. If a class is defined in more than one dex file, the first definition in that order is used, as on a device.
+ *
  * @author barjo
  */
 public class DexFileModule implements Module {
-    private final DexFile dexfile;
+    /**
+     * names of the dex files in an archive; the primary one has no number
+     */
+    private final static Pattern DEX_ENTRY = Pattern.compile("classes([1-9][0-9]*)?\\.dex");
+
+    private final List<DexFile> dexfiles;
     private final Collection<ModuleEntry> entries;
 
     public static DexFileModule make(File f) throws IllegalArgumentException, IOException {
-    	if (f.getName().endsWith("jar")) {
-    		return new DexFileModule(new JarFile(f));
-    	} else {
-    		return new DexFileModule(f);
-    	}
-    }
-    
-    private static File tf(JarFile f) {
-    	String name = f.getName();
-    	if (name.indexOf('/') >= 0) {
-    		name = name.substring(name.lastIndexOf('/')+1);
-    	}
-    	File tf = new File(System.getProperty("java.io.tmpdir") + "/" + name + "_classes.dex");
-    	tf.deleteOnExit();
-    	System.err.println("using " + tf);
-    	return tf;
+        return new DexFileModule(f);
     }
-    
-    private DexFileModule(JarFile f) throws IllegalArgumentException, IOException {    	
-    	this(TemporaryFile.streamToFile(tf(f), f.getInputStream(f.getEntry("classes.dex"))));
-    }
-    
+
     /**
      * @param f
-     *            the .dex or .apk file
+     *            the .dex, .apk or .jar file
      * @throws IllegalArgumentException
      */
-    private DexFileModule(File f) throws IllegalArgumentException {    	
+    private DexFileModule(File f) throws IllegalArgumentException, IOException {
+        dexfiles = isArchive(f) ? readArchive(f) : Collections.singletonList(read(f));
+
+        // create ModuleEntries from ClassDefItem
+        entries = new HashSet<ModuleEntry>();
+        Set<String> seen = new HashSet<String>();
+        for (DexFile dexfile : dexfiles) {
+            Section<ClassDefItem> cldeff = dexfile.ClassDefsSection;
+            for (ClassDefItem cdefitems : cldeff.getItems()) {
+                DexModuleEntry entry = new DexModuleEntry(cdefitems);
+                if (seen.add(entry.getClassName())) {
+                    entries.add(entry);
+                }
+            }
+        }
+    }
+
+    private static boolean isArchive(File f) throws IOException {
+        InputStream in = new FileInputStream(f);
+        try {
+            return in.read() == 'P' && in.read() == 'K';
+        } finally {
+            in.close();
+        }
+    }
+
+    private static DexFile read(File f) {
         try {
-            dexfile = new DexFile(f);
+            return new DexFile(f);
         } catch (IOException e) {
             throw new IllegalArgumentException(e);
         }
+    }
 
-        // create ModuleEntries from ClassDefItem
-        entries = new HashSet<ModuleEntry>();
+    /**
+     * Read the dex files of an archive, each in its own thread. dexlib finds classes.dex in the archive itself. It reads the other
+     * dex files only from files of their own, so these are extracted to temporary files, which are deleted once read, since dexlib
+     * reads a dex file into memory entirely.
+     */
+    private static List<DexFile> readArchive(final File f) throws IOException {
+        final ZipFile zip = new ZipFile(f);
+        try {
+            List<ZipEntry> dexEntries = dexEntries(zip);
+            if (dexEntries.isEmpty()) {
+                throw new IllegalArgumentException("no dex files in " + f);
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(dexEntries.size(), Runtime.getRuntime().availableProcessors()));
+            try {
+                List<Future<DexFile>> results = new ArrayList<Future<DexFile>>();
+                for (final ZipEntry e : dexEntries) {
+                    results.add(pool.submit(new Callable<DexFile>() {
+                        public DexFile call() throws IOException {
+                            if (e.getName().equals("classes.dex")) {
+                                return read(f);
+                            }
+                            File tf = File.createTempFile(f.getName() + "_", "_" + e.getName());
+                            try {
+                                return read(TemporaryFile.streamToFile(tf, zip.getInputStream(e)));
+                            } finally {
+                                tf.delete();
+                            }
+                        }
+                    }));
+                }
+                List<DexFile> dexfiles = new ArrayList<DexFile>();
+                for (Future<DexFile> result : results) {
+                    dexfiles.add(result.get());
+                }
+                return dexfiles;
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                } else if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        } finally {
+            zip.close();
+        }
+    }
 
-        Section<ClassDefItem> cldeff = dexfile.ClassDefsSection;
-        for (ClassDefItem cdefitems : cldeff.getItems()) {
-            entries.add(new DexModuleEntry(cdefitems));
+    /**
+     * @return the dex file entries of zip, in the order the runtime loads them
+     */
+    private static List<ZipEntry> dexEntries(ZipFile zip) {
+        List<ZipEntry> result = new ArrayList<ZipEntry>();
+        for (Enumeration<? extends ZipEntry> es = zip.entries(); es.hasMoreElements();) {
+            ZipEntry e = es.nextElement();
+            if (DEX_ENTRY.matcher(e.getName()).matches()) {
+                result.add(e);
+            }
         }
+        Collections.sort(result, new Comparator<ZipEntry>() {
+            public int compare(ZipEntry a, ZipEntry b) {
+                return dexNumber(a) - dexNumber(b);
+            }
+        });
+        return result;
+    }
+
+    private static int dexNumber(ZipEntry e) {
+        Matcher m = DEX_ENTRY.matcher(e.getName());
+        m.matches();
+        return m.group(1) == null ? 1 : Integer.parseInt(m.group(1));
     }
 
     /**
-     * @return The DexFile associated to this module.
+     * @return The primary DexFile associated to this module.
      */
     public DexFile getDexFile() {
-        return dexfile;
+        return dexfiles.get(0);
+    }
+
+    /**
+     * @return all DexFiles associated to this module, the primary one first.
+     */
+    public List<DexFile> getDexFiles() {
+        return Collections.unmodifiableList(dexfiles);
     }
 
     /*
@@ -179,12 +179,24 @@ public class DexIMethod implements IBytecodeMethod {
 	 */
 	private TypeReference typeReference;
 
+	/**
+	 * The exception handlers of each instruction, computed on demand.
+	 */
 	private ExceptionHandler[][] handlers;
-	
-	protected InstructionArray instructions;
 
+	/**
+	 * The decoded instructions, computed on demand by {@link #parseBytecode()}.
+	 */
+	protected InstructionArray instructions;
 
+	/**
+	 * The decoded instructions as an array, computed on demand.
+	 */
+	private Instruction[] dexInstructions;
 
+	/**
+	 * number of instructions decoded so far
+	 */
 	private static int totalInsts = 0;
 
 	public DexIMethod(EncodedMethod encodedMethod, DexIClass klass) {
@@ -3149,10 +3161,20 @@ public class DexIMethod implements IBytecodeMethod {
 	}
 
 	public Instruction[] getDexInstructions() {
-		return (Instruction[]) instructions().toArray(new Instruction[instructions().size()]);
+		if (dexInstructions == null)
+			dexInstructions = instructions().toArray(new Instruction[instructions().size()]);
+		return dexInstructions;
 	}
 
-
+	/**
+	 * Drop the decoded instructions and exception handlers of this method. Once the IR of a method is built and cached, these
+	 * are only held by its {@link DexCFG}; they are decoded again if asked for later.
+	 */
+	public void releaseInstructions() {
+		instructions = null;
+		dexInstructions = null;
+		handlers = null;
+	}
 
 	protected InstructionArray instructions(){
 		if (instructions == null)
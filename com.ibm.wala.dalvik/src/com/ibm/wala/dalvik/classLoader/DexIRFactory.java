@@ -64,7 +64,7 @@ public class DexIRFactory extends DefaultIRFactory {
         //TODO: check this
         final SymbolTable symbolTable = new SymbolTable(method.getNumberOfParameters());
 //      final SymbolTable symbolTable = new SymbolTable(method.getNumberOfParameterRegisters());
-        final SSAInstruction[] newInstrs = new SSAInstruction[method.getDexInstructions().length];
+        final SSAInstruction[] newInstrs = new SSAInstruction[cfg.getInstructions().length];
 
         final SSACFG newCfg = new SSACFG(method, cfg, newInstrs);
 
@@ -117,6 +117,9 @@ public class DexIRFactory extends DefaultIRFactory {
 
                 setupLocationMap();
 
+                // the IR and cfg now hold all the method body this needs
+                method.releaseInstructions();
+
                 //System.out.println("Successfully built a Dex IR!");
                 //for(SSAInstruction ssaInst:newInstrs)
                 //{
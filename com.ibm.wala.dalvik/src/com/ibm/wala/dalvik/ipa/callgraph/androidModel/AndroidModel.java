@@ -160,7 +160,7 @@ public class AndroidModel /* makes SummarizedMethod */
         this.built = false;
         this.scope = options.getAnalysisScope();
 
-        this.instanceBehavior = AndroidEntryPointManager.MANAGER.getInstantiationBehavior(cha);
+        this.instanceBehavior = AndroidEntryPointManager.getManager().getInstantiationBehavior(cha);
 
     }
 
@@ -176,7 +176,7 @@ public class AndroidModel /* makes SummarizedMethod */
     protected void build(Atom name) throws CancelException {
         final List<AndroidEntryPoint> restrictedEntries = new ArrayList<AndroidEntryPoint>();
 
-        for (AndroidEntryPoint ep: AndroidEntryPointManager.ENTRIES) {
+        for (AndroidEntryPoint ep: AndroidEntryPointManager.getEntries()) {
             if (selectEntryPoint(ep)) {
                 restrictedEntries.add(ep);
             }
@@ -245,13 +245,13 @@ public class AndroidModel /* makes SummarizedMethod */
         this.body = new VolatileMethodSummary(new MethodSummary(this.mRef));
         this.body.setStatic(true);
 
-        this.labelSpecial = AndroidEntryPointManager.MANAGER.makeModelBehavior(this.body, new TypeSafeInstructionFactory(cha),
+        this.labelSpecial = AndroidEntryPointManager.getManager().makeModelBehavior(this.body, new TypeSafeInstructionFactory(cha),
                 this.paramManager, entrypoints);
 
-        this.monitor = AndroidEntryPointManager.MANAGER.getProgressMonitor();
+        this.monitor = AndroidEntryPointManager.getManager().getProgressMonitor();
         this.maxProgress = entrypoints.size();
 
-        AndroidModel.doBoot &= AndroidEntryPointManager.MANAGER.getDoBootSequence();
+        AndroidModel.doBoot &= AndroidEntryPointManager.getManager().getDoBootSequence();
 
         // BUILD
         this.monitor.beginTask("Building " + name, this.maxProgress);
@@ -644,7 +644,7 @@ public class AndroidModel /* makes SummarizedMethod */
                 final Atom fdName = activityType.getName().getClassName();
                 final AndroidModelClass mClass = AndroidModelClass.getInstance(cha);
 
-                if (AndroidEntryPointManager.MANAGER.doFlatComponents()) {
+                if (AndroidEntryPointManager.getManager().doFlatComponents()) {
                     if (mClass.getField(fdName) != null) {
                         final IField field = mClass.getField(fdName);
                         final int instPC = redirect.getNextProgramCounter();
@@ -886,7 +886,7 @@ public class AndroidModel /* makes SummarizedMethod */
                 final TypeReference argT = model.getParameterType(i);
                 final SSAValue arg;
 
-                if  ( ( AndroidEntryPointManager.MANAGER.doFlatComponents()) &&  
+                if  ( ( AndroidEntryPointManager.getManager().doFlatComponents()) &&  
                             (AndroidComponent.isAndroidComponent(argT, cha)) ) { 
                     // Get / Put filed in AndroidModelClass for Android-Components
                     final Atom fdName = argT.getName().getClassName();
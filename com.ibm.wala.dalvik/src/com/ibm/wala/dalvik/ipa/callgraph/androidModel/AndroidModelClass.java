@@ -127,10 +127,10 @@ public final /* singleton */ class AndroidModelClass extends SyntheticClass {
         clinit.setStatic(true);
         final TypeSafeInstructionFactory instructionFactory = new TypeSafeInstructionFactory(cha);
         
-        final Set<TypeReference> components = AndroidEntryPointManager.MANAGER.getComponents();
+        final Set<TypeReference> components = AndroidEntryPointManager.getManager().getComponents();
         int ssaNo = 1;
 
-        if (AndroidEntryPointManager.MANAGER.doFlatComponents()) {
+        if (AndroidEntryPointManager.getManager().doFlatComponents()) {
             for (TypeReference component : components) {
                 final SSAValue instance = new SSAValue(ssaNo++, component, clinitRef);
                 { // New
@@ -49,7 +49,7 @@
  *      <code>
  *      AndroidEntryPointLocator epl = new AndroidEntryPointLocator(options);
  *      List&lt;AndroidEntryPoint&gt; entrypoints = epl.getEntryPoints(cha);
- *      AndroidEntryPointManager.ENTRIES = entrypoints;
+ *      AndroidEntryPointManager.setEntries(entrypoints);
  *      </code>
  *  2.  Optionally read in the AndroidManifest.xml
  *      <code>
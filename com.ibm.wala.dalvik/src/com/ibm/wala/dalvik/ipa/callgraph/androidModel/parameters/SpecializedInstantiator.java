@@ -165,7 +165,7 @@ public class SpecializedInstantiator extends FlatInstantiator {
             // TODO: Can we create a tighter conterxt?
             // TODO: Force an Application-Context?
 
-            if (AndroidEntryPointManager.MANAGER.doFlatComponents()) {
+            if (AndroidEntryPointManager.getManager().doFlatComponents()) {
                 final AndroidModelClass mClass = AndroidModelClass.getInstance(cha);
 
                 // At a given time context is expected to be only of one component already seen.
@@ -197,7 +197,7 @@ public class SpecializedInstantiator extends FlatInstantiator {
                     appComponents.add(instance);
                 }
             } else {
-                for (TypeReference component : AndroidEntryPointManager.MANAGER.getComponents()) {
+                for (TypeReference component : AndroidEntryPointManager.getManager().getComponents()) {
                     final VariableKey iKey = new SSAValue.TypeKey(component.getName());
 
                     if (this.pm.isSeen(iKey)) {
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dalvik.ipa.callgraph.androidModel.stubs;
+
+import java.util.Map;
+
+import com.ibm.wala.dalvik.util.AndroidEntryPointManager;
+import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSACheckCastInstruction;
+import com.ibm.wala.ssa.SSAFieldAccessInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * Summaries of the framework-level stubs ({@link SystemServiceModel}, {@link ExternalModel}), for apps that are analyzed
+ * against the same framework.
+ *
+ * The class hierarchies of such apps, like those built by {@link com.ibm.wala.dalvik.util.AndroidBatchAnalysis}, then build
+ * each stub only once. Only summaries that refer to no application type are kept, and a cache is only used while it is set
+ * with {@link AndroidEntryPointManager#setFrameworkModelCache(FrameworkModelCache)}.
+ */
+public final class FrameworkModelCache {
+
+  /**
+   * selector of a stub -> its summary
+   */
+  private final Map<Selector, MethodSummary> summaries = HashMapFactory.make();
+
+  /**
+   * @return the summary built before for the stub with the given selector, or null
+   */
+  public synchronized MethodSummary lookup(Selector selector) {
+    if (selector == null) {
+      throw new IllegalArgumentException("selector is null");
+    }
+    return summaries.get(selector);
+  }
+
+  /**
+   * Remember the summary of a stub, unless it depends on the application.
+   */
+  public synchronized void store(Selector selector, MethodSummary summary) {
+    if (selector == null) {
+      throw new IllegalArgumentException("selector is null");
+    }
+    if (summary == null) {
+      throw new IllegalArgumentException("summary is null");
+    }
+    if (isFrameworkOnly(summary) && !summaries.containsKey(selector)) {
+      summaries.put(selector, summary);
+    }
+  }
+
+  /**
+   * Forget all cached summaries.
+   */
+  public synchronized void clear() {
+    summaries.clear();
+  }
+
+  private static boolean isFrameworkOnly(MethodSummary summary) {
+    for (SSAInstruction s : summary.getStatements()) {
+      if (s instanceof SSANewInstruction) {
+        if (isApplication(((SSANewInstruction) s).getConcreteType())) {
+          return false;
+        }
+      } else if (s instanceof SSAAbstractInvokeInstruction) {
+        if (isApplication(((SSAAbstractInvokeInstruction) s).getDeclaredTarget())) {
+          return false;
+        }
+      } else if (s instanceof SSAFieldAccessInstruction) {
+        SSAFieldAccessInstruction f = (SSAFieldAccessInstruction) s;
+        if (isApplication(f.getDeclaredField().getDeclaringClass()) || isApplication(f.getDeclaredFieldType())) {
+          return false;
+        }
+      } else if (s instanceof SSACheckCastInstruction) {
+        for (TypeReference t : ((SSACheckCastInstruction) s).getDeclaredResultTypes()) {
+          if (isApplication(t)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isApplication(MethodReference m) {
+    if (isApplication(m.getDeclaringClass()) || isApplication(m.getReturnType())) {
+      return true;
+    }
+    for (int i = 0; i < m.getNumberOfParameters(); i++) {
+      if (isApplication(m.getParameterType(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isApplication(TypeReference t) {
+    return t != null && ClassLoaderReference.Application.equals(t.getClassLoader());
+  }
+}
@@ -202,12 +202,12 @@ public class Overrides {
     public MethodTargetSelector overrideAll() throws CancelException {
         final HashMap<MethodReference, SummarizedMethod> overrides = HashMapFactory.make();
         final Map<AndroidComponent, AndroidModel> callTo = new EnumMap<AndroidComponent, AndroidModel>(AndroidComponent.class);
-        final IProgressMonitor monitor = AndroidEntryPointManager.MANAGER.getProgressMonitor();
+        final IProgressMonitor monitor = AndroidEntryPointManager.getManager().getProgressMonitor();
         int monitorCounter = 0;
 
         { // Make Mini-Models to override to
             for (final AndroidComponent target: AndroidComponent.values()) {
-                if (AndroidEntryPointManager.MANAGER.EPContainAny(target)) {
+                if (AndroidEntryPointManager.getManager().EPContainAny(target)) {
                     final AndroidModel targetModel = new UnknownTargetModel(this.cha, this.options, this.cache, target);
                     callTo.put(target, targetModel); 
                 } else {
@@ -49,6 +49,7 @@ import com.ibm.wala.dalvik.ipa.callgraph.androidModel.AndroidModel;
 import com.ibm.wala.dalvik.ipa.callgraph.androidModel.AndroidModelClass;
 import com.ibm.wala.dalvik.ipa.callgraph.androidModel.parameters.Instantiator;
 import com.ibm.wala.dalvik.ipa.callgraph.impl.AndroidEntryPoint;
+import com.ibm.wala.dalvik.util.AndroidEntryPointManager;
 import com.ibm.wala.dalvik.util.AndroidTypes;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
@@ -146,15 +147,23 @@ public class SystemServiceModel extends AndroidModel {
             return;
         }
 
-         this.body = new VolatileMethodSummary(new MethodSummary(this.mRef));
-         this.body.setStatic(true);
+         final FrameworkModelCache models = AndroidEntryPointManager.getManager().getFrameworkModelCache();
+         MethodSummary summary = (models == null) ? null : models.lookup(selector);
+         if (summary == null) {
+             this.body = new VolatileMethodSummary(new MethodSummary(this.mRef));
+             this.body.setStatic(true);
 
-         
-         populate(null);
+             populate(null);
+
+             summary = this.body.getMethodSummary();
+             if (models != null) {
+                 models.store(selector, summary);
+             }
+         }
 
          this.klass = AndroidModelClass.getInstance(this.cha);
 
-         this.model = new SummarizedMethod(this.mRef, this.body.getMethodSummary(), this.klass) {
+         this.model = new SummarizedMethod(this.mRef, summary, this.klass) {
             @Override
             public TypeReference getParameterType (int i) {
                 IClassHierarchy cha = getClassHierarchy();
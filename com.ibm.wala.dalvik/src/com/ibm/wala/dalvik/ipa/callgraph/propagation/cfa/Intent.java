@@ -275,7 +275,7 @@ public class Intent implements ContextItem, Comparable<Intent> {
      *  @todo   We should read in the Manifest.xml rather than relying on the packet name!
      */
     private static boolean isInternal(Intent intent) {  // XXX: This may loop forever!
-        /*final Intent override = AndroidEntryPointManager.MANAGER.getIntent(intent);
+        /*final Intent override = AndroidEntryPointManager.getManager().getIntent(intent);
 
         logger.warn("Intent.isInternal(Intent) is an unsafe fallback!");
 
@@ -292,7 +292,7 @@ public class Intent implements ContextItem, Comparable<Intent> {
      *  Use {@link #isExternal(boolean)} instead.
      */
     private static boolean isExternal(Intent intent) {  // XXX: This may loop forever!
-        /*final Intent override = AndroidEntryPointManager.MANAGER.getIntent(intent);
+        /*final Intent override = AndroidEntryPointManager.getManager().getIntent(intent);
 
         logger.warn("Intent.isExternal(Intent) is an unsafe fallback!");
 
@@ -304,7 +304,7 @@ public class Intent implements ContextItem, Comparable<Intent> {
             return false; // Is Unknown
         }
 
-        String pack = AndroidEntryPointManager.MANAGER.guessPackage();
+        String pack = AndroidEntryPointManager.getManager().guessPackage();
         
        
         if (pack == null) {
@@ -320,7 +320,7 @@ public class Intent implements ContextItem, Comparable<Intent> {
      *  Use {@link #isStandardAction(boolean)} instead.
      */
     private static boolean isStandardAction(Intent intent) {    //TODO: This may loop forever!
-        /*final Intent override = AndroidEntryPointManager.MANAGER.getIntent(intent);
+        /*final Intent override = AndroidEntryPointManager.getManager().getIntent(intent);
 
         logger.warn("Intent.isStandardAction(Intent) is an unsafe fallback!");
 
@@ -446,7 +446,7 @@ public class Intent implements ContextItem, Comparable<Intent> {
     }
 
     public Intent resolve() {
-        return AndroidEntryPointManager.MANAGER.getIntent(this);
+        return AndroidEntryPointManager.getManager().getIntent(this);
     }
 
     @Override
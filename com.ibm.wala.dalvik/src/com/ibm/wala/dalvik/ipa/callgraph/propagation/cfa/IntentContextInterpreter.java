@@ -167,7 +167,7 @@ public class IntentContextInterpreter implements SSAContextInterpreter {
             if (ctx.get(Intent.INTENT_KEY) != null) {
                 try { // Translate CancelException to IllegalStateException
                 final Intent inIntent = (Intent) ctx.get(Intent.INTENT_KEY);                // Intent without overrides
-                final Intent intent = AndroidEntryPointManager.MANAGER.getIntent(inIntent); // Apply overrides
+                final Intent intent = AndroidEntryPointManager.getManager().getIntent(inIntent); // Apply overrides
                 final IMethod method = node.getMethod();
 
                 final AndroidModel model;
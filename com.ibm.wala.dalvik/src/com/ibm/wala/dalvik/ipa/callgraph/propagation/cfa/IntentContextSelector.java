@@ -175,7 +175,7 @@ public class IntentContextSelector implements ContextSelector {
 
             // Add the context
             if (intent != null) {
-                AndroidEntryPointManager.MANAGER.addCallSeen(site, intent);
+                AndroidEntryPointManager.getManager().addCallSeen(site, intent);
                 final Intent iintent = intents.findOrCreateImmutable(intent);
                 return new IntentContext(ctx, iintent);
                 //return new IntentContext(iintent);
@@ -183,7 +183,7 @@ public class IntentContextSelector implements ContextSelector {
                 logger.warn("Encountered unresolvable Intent");
                 intent = new Intent("Unresolvable");
                 intent.setImmutable();
-                AndroidEntryPointManager.MANAGER.addCallSeen(site, intent);
+                AndroidEntryPointManager.getManager().addCallSeen(site, intent);
                 return new IntentContext(ctx, intent);
                 //return new IntentContext(intent);
             }
@@ -214,7 +214,7 @@ public class IntentContextSelector implements ContextSelector {
 
             // Add the context
             if (intent != null) {
-                AndroidEntryPointManager.MANAGER.addCallSeen(site, intent);
+                AndroidEntryPointManager.getManager().addCallSeen(site, intent);
                 logger.info("SystemService {} in {} by {}", intent, site, caller);
                 final Intent iintent = intents.findOrCreateImmutable(intent);
                 return new IntentContext(ctx, iintent);
@@ -318,7 +318,7 @@ public class IntentContextSelector implements ContextSelector {
             final InstanceKey actionKey = actualParameters[1];
             final Intent intent = intents.find(self);
 
-            if (AndroidEntryPointManager.MANAGER.isAllowIntentRerouting()) {
+            if (AndroidEntryPointManager.getManager().isAllowIntentRerouting()) {
                 logger.warn("Re-Setting the target of Intent {} in {} by {}", intent, site, caller);
                 intents.setAction(self, actionKey, false); // May unbind internally
             } else {
@@ -341,7 +341,7 @@ public class IntentContextSelector implements ContextSelector {
             final InstanceKey actionKey = actualParameters[2];
             final Intent intent = intents.find(self);
 
-            if (AndroidEntryPointManager.MANAGER.isAllowIntentRerouting()) {
+            if (AndroidEntryPointManager.getManager().isAllowIntentRerouting()) {
                 logger.warn("Re-Setting the target of Intent {} in {} by {}", intent, site, caller);
                 intents.setAction(self, actionKey, true);
             } else {
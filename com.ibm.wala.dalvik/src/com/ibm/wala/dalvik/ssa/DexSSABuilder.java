@@ -1363,7 +1363,7 @@ public class DexSSABuilder extends AbstractIntRegisterMachine {
 
         @Override
         public Instruction[] getInstructions() {
-            return dexCFG.getDexMethod().getDexInstructions();
+            return dexCFG.getInstructions();
         }
     }
 
@@ -18,6 +18,7 @@ import java.util.jar.JarFile;
 
 import com.ibm.wala.classLoader.BinaryDirectoryTreeModule;
 import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
 import com.ibm.wala.dalvik.classLoader.DexFileModule;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
@@ -32,6 +33,19 @@ public class AndroidAnalysisScope {
 	private static final String BASIC_FILE = "primordial.txt";
 
 	public static AnalysisScope setUpAndroidAnalysisScope(URI classpath, String exclusions, ClassLoader loader, URI... androidLib) throws IOException {
+		AnalysisScope scope = setUpAndroidFrameworkScope(exclusions, loader, androidLib);
+
+		scope.addToScope(ClassLoaderReference.Application, DexFileModule.make(new File(classpath)));
+		
+		return scope;
+	}
+
+	/**
+	 * Set up a scope for the Android framework alone, to be shared by the scopes of many apps.
+	 * 
+	 * @see #setUpAndroidAnalysisScope(AnalysisScope, URI)
+	 */
+	public static AnalysisScope setUpAndroidFrameworkScope(String exclusions, ClassLoader loader, URI... androidLib) throws IOException {
 		AnalysisScope scope;
 		if (androidLib == null || androidLib.length == 0) {
 			scope = AnalysisScopeReader.readJavaScope(BASIC_FILE, new File(exclusions), loader);
@@ -59,8 +73,31 @@ public class AndroidAnalysisScope {
 		scope.setLoaderImpl(ClassLoaderReference.Application,
 				"com.ibm.wala.dalvik.classLoader.WDexClassLoaderImpl");
 
+		return scope;
+	}
+
+	/**
+	 * Set up a scope for an app on top of a framework scope; the framework modules are shared, not read again.
+	 * 
+	 * @see #setUpAndroidFrameworkScope(String, ClassLoader, URI...)
+	 */
+	public static AnalysisScope setUpAndroidAnalysisScope(AnalysisScope framework, URI classpath) throws IOException {
+		if (framework == null) {
+			throw new IllegalArgumentException("framework is null");
+		}
+		AnalysisScope scope = AnalysisScope.createJavaAnalysisScope();
+		scope.setExclusions(framework.getExclusions());
+		for (ClassLoaderReference loader : framework.getLoaders()) {
+			if (framework.getLoaderImpl(loader) != null) {
+				scope.setLoaderImpl(loader, framework.getLoaderImpl(loader));
+			}
+			for (Module m : framework.getModules(loader)) {
+				scope.addToScope(loader, m);
+			}
+		}
+
 		scope.addToScope(ClassLoaderReference.Application, DexFileModule.make(new File(classpath)));
-		
+
 		return scope;
 	}
 	
@@ -0,0 +1,385 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dalvik.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.ibm.wala.dalvik.classLoader.DexIRFactory;
+import com.ibm.wala.dalvik.ipa.callgraph.androidModel.stubs.FrameworkModelCache;
+import com.ibm.wala.dalvik.ipa.callgraph.impl.AndroidEntryPoint;
+import com.ibm.wala.dalvik.util.AndroidEntryPointLocator.LocatorFlags;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions.ReflectionOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.debug.UnimplementedError;
+
+/**
+ * Builds call graphs for many apps against one copy of the Android framework.
+ *
+ * The modules of the framework are opened once and shared by the scopes of all apps, so its dex files are parsed once, and
+ * the class readers of framework jars are made once and shared through their
+ * {@link com.ibm.wala.classLoader.JarFileModule}. Each app still gets a primordial class loader of its own over these modules,
+ * which makes its own classes from the shared readers, since a class belongs to the one class hierarchy that loaded it (type
+ * abstractions of classes from different hierarchies, for instance, cannot be compared). Apps are analyzed by a pool of
+ * worker threads, each app with its own class hierarchy, {@link AndroidEntryPointManager} settings, cache and call graph, and
+ * the time each step took is reported per app. Unless {@link #setShareFrameworkModels(boolean)} says otherwise, each app also
+ * builds its own framework-level stubs, so its call graph is the one it would get on its own.
+ */
+public class AndroidBatchAnalysis {
+
+	/**
+	 * Something to do with the call graph of each app, on the worker thread that built it.
+	 */
+	public interface Client {
+		void process(File apk, IClassHierarchy cha, CallGraph cg, PointerAnalysis<InstanceKey> pa);
+	}
+
+	/**
+	 * What happened to one app
+	 */
+	public static class Result {
+		private final File apk;
+
+		private Throwable failure;
+
+		private int applicationClasses;
+
+		private int entrypoints;
+
+		private int nodes;
+
+		private int edges;
+
+		private long hierarchyMillis;
+
+		private long entrypointMillis;
+
+		private long callGraphMillis;
+
+		private long totalMillis;
+
+		Result(File apk) {
+			this.apk = apk;
+		}
+
+		public File getApk() {
+			return apk;
+		}
+
+		/**
+		 * @return why the analysis of the app failed, or null if it did not
+		 */
+		public Throwable getFailure() {
+			return failure;
+		}
+
+		public int getNumberOfApplicationClasses() {
+			return applicationClasses;
+		}
+
+		public int getNumberOfEntrypoints() {
+			return entrypoints;
+		}
+
+		public int getNumberOfNodes() {
+			return nodes;
+		}
+
+		public int getNumberOfEdges() {
+			return edges;
+		}
+
+		/**
+		 * @return milliseconds to read the app and make its class hierarchy
+		 */
+		public long getHierarchyMillis() {
+			return hierarchyMillis;
+		}
+
+		/**
+		 * @return milliseconds to find the entrypoints of the app
+		 */
+		public long getEntrypointMillis() {
+			return entrypointMillis;
+		}
+
+		/**
+		 * @return milliseconds to build the call graph
+		 */
+		public long getCallGraphMillis() {
+			return callGraphMillis;
+		}
+
+		/**
+		 * @return milliseconds for the app in all, including the client
+		 */
+		public long getTotalMillis() {
+			return totalMillis;
+		}
+
+		@Override
+		public String toString() {
+			StringBuffer result = new StringBuffer(apk.getName()).append(": ");
+			if (failure != null) {
+				result.append("failed (").append(failure).append(") ");
+			}
+			result.append(applicationClasses).append(" classes, ");
+			result.append(entrypoints).append(" entrypoints, ");
+			result.append(nodes).append(" nodes, ");
+			result.append(edges).append(" edges; ");
+			result.append("hierarchy ").append(hierarchyMillis).append("ms, ");
+			result.append("entrypoints ").append(entrypointMillis).append("ms, ");
+			result.append("call graph ").append(callGraphMillis).append("ms, ");
+			result.append("total ").append(totalMillis).append("ms");
+			return result.toString();
+		}
+	}
+
+	private final AnalysisScope frameworkScope;
+
+	/**
+	 * the framework-level stubs shared by all apps, or null if each app builds its own
+	 */
+	private FrameworkModelCache frameworkModels = null;
+
+	private int numberOfWorkers = Runtime.getRuntime().availableProcessors();
+
+	private Set<LocatorFlags> locatorFlags = HashSetFactory.make();
+
+	private ReflectionOptions reflectionOptions = ReflectionOptions.FULL;
+
+	/**
+	 * Read the framework.
+	 *
+	 * @see AndroidAnalysisScope#setUpAndroidFrameworkScope(String, ClassLoader, URI...)
+	 */
+	public AndroidBatchAnalysis(String exclusions, URI... androidLib) throws IOException {
+		this.frameworkScope = AndroidAnalysisScope.setUpAndroidFrameworkScope(exclusions, AndroidBatchAnalysis.class.getClassLoader(),
+				androidLib);
+
+		locatorFlags.add(LocatorFlags.INCLUDE_CALLBACKS);
+		locatorFlags.add(LocatorFlags.EP_HEURISTIC);
+		locatorFlags.add(LocatorFlags.CB_HEURISTIC);
+	}
+
+	/**
+	 * @return the scope of the framework, whose modules all apps share
+	 */
+	public AnalysisScope getFrameworkScope() {
+		return frameworkScope;
+	}
+
+	public int getNumberOfWorkers() {
+		return numberOfWorkers;
+	}
+
+	/**
+	 * Analyze up to n apps at once.
+	 *
+	 * @throws IllegalArgumentException if n &lt; 1
+	 */
+	public void setNumberOfWorkers(int n) {
+		if (n < 1) {
+			throw new IllegalArgumentException("invalid number of workers " + n);
+		}
+		this.numberOfWorkers = n;
+	}
+
+	/**
+	 * @return how the entrypoints of each app are found
+	 */
+	public Set<LocatorFlags> getLocatorFlags() {
+		return locatorFlags;
+	}
+
+	public void setLocatorFlags(Set<LocatorFlags> locatorFlags) {
+		if (locatorFlags == null) {
+			throw new IllegalArgumentException("locatorFlags is null");
+		}
+		this.locatorFlags = locatorFlags;
+	}
+
+	public void setReflectionOptions(ReflectionOptions reflectionOptions) {
+		this.reflectionOptions = reflectionOptions;
+	}
+
+	public boolean isShareFrameworkModels() {
+		return frameworkModels != null;
+	}
+
+	/**
+	 * Choose whether apps share the framework-level stubs, like the SystemServiceModel, in a {@link FrameworkModelCache}, so
+	 * that each stub is built once, for the first app that needs it. This is unsound: a shared stub does not instantiate the
+	 * implementors that later apps add to framework types, so their call graphs may miss edges into the app. Off by default.
+	 *
+	 * @see AndroidEntryPointManager#setFrameworkModelCache(FrameworkModelCache)
+	 */
+	public void setShareFrameworkModels(boolean share) {
+		if (!share) {
+			frameworkModels = null;
+		} else if (frameworkModels == null) {
+			frameworkModels = new FrameworkModelCache();
+		}
+	}
+
+	/**
+	 * Analyze the given apps on the pool of workers.
+	 *
+	 * @param client what to do with each call graph, or null
+	 * @return the result for each app, in the order given
+	 */
+	public List<Result> analyze(List<File> apks, final Client client) throws InterruptedException {
+		if (apks == null) {
+			throw new IllegalArgumentException("apks is null");
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(numberOfWorkers, apks.size())));
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (final File apk : apks) {
+				futures.add(pool.submit(new Callable<Result>() {
+					@Override
+					public Result call() {
+						return analyze(apk, client);
+					}
+				}));
+			}
+			List<Result> results = new ArrayList<Result>();
+			for (Future<Result> f : futures) {
+				try {
+					results.add(f.get());
+				} catch (ExecutionException e) {
+					// analyze(File, Client) reports its own failures
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Analyze one app on the current thread.
+	 *
+	 * @param client what to do with the call graph, or null
+	 */
+	public Result analyze(File apk, Client client) {
+		if (apk == null) {
+			throw new IllegalArgumentException("apk is null");
+		}
+		Result result = new Result(apk);
+		AndroidEntryPointManager.reset();
+		// null unless the stubs are shared on request
+		AndroidEntryPointManager.getManager().setFrameworkModelCache(frameworkModels);
+		long start = System.currentTimeMillis();
+		try {
+			IClassHierarchy cha = makeClassHierarchy(apk);
+			AnalysisScope scope = cha.getScope();
+			result.applicationClasses = cha.getLoader(ClassLoaderReference.Application).getNumberOfClasses();
+			long time = System.currentTimeMillis();
+			result.hierarchyMillis = time - start;
+
+			List<AndroidEntryPoint> es = new AndroidEntryPointLocator(locatorFlags).getEntryPoints(cha);
+			AndroidEntryPointManager.setEntries(es);
+			result.entrypoints = es.size();
+			result.entrypointMillis = System.currentTimeMillis() - time;
+			time = System.currentTimeMillis();
+
+			if (!es.isEmpty()) {
+				AnalysisCache cache = new AnalysisCache(new DexIRFactory());
+				AnalysisOptions options = new AnalysisOptions(scope, es);
+				options.setReflectionOptions(reflectionOptions);
+				CallGraphBuilder<InstanceKey> builder = makeCallGraphBuilder(options, cache, cha, scope);
+				CallGraph cg = builder.makeCallGraph(options, null);
+				result.nodes = cg.getNumberOfNodes();
+				for (CGNode n : cg) {
+					result.edges += cg.getSuccNodeCount(n);
+				}
+				result.callGraphMillis = System.currentTimeMillis() - time;
+
+				if (client != null) {
+					client.process(apk, cha, cg, builder.getPointerAnalysis());
+				}
+			}
+		} catch (Exception e) {
+			result.failure = e;
+		} catch (UnimplementedError e) {
+			result.failure = e;
+		} finally {
+			result.totalMillis = System.currentTimeMillis() - start;
+			AndroidEntryPointManager.reset();
+		}
+		return result;
+	}
+
+	/**
+	 * Make the class hierarchy of one app, on top of the framework modules.
+	 */
+	public IClassHierarchy makeClassHierarchy(File apk) throws IOException, ClassHierarchyException {
+		if (apk == null) {
+			throw new IllegalArgumentException("apk is null");
+		}
+		return ClassHierarchy.make(AndroidAnalysisScope.setUpAndroidAnalysisScope(frameworkScope, apk.toURI()));
+	}
+
+	/**
+	 * Make the call graph builder for one app; by default 0-CFA.
+	 */
+	protected CallGraphBuilder<InstanceKey> makeCallGraphBuilder(AnalysisOptions options, AnalysisCache cache, IClassHierarchy cha,
+			AnalysisScope scope) {
+		return Util.makeZeroCFABuilder(options, cache, cha, scope);
+	}
+
+	/**
+	 * Usage: AndroidBatchAnalysis android.jar exclusions.txt app.apk ...
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 3) {
+			System.err.println("usage: AndroidBatchAnalysis android.jar exclusions.txt app.apk ...");
+			System.exit(1);
+		}
+		long start = System.currentTimeMillis();
+		AndroidBatchAnalysis batch = new AndroidBatchAnalysis(args[1], new File(args[0]).toURI());
+		System.err.println("read framework in " + (System.currentTimeMillis() - start) + "ms");
+
+		List<File> apks = new ArrayList<File>();
+		for (int i = 2; i < args.length; i++) {
+			apks.add(new File(args[i]));
+		}
+		start = System.currentTimeMillis();
+		for (Result r : batch.analyze(apks, null)) {
+			System.err.println(r);
+		}
+		System.err.println("analyzed " + apks.size() + " apps in " + (System.currentTimeMillis() - start) + "ms");
+	}
+}
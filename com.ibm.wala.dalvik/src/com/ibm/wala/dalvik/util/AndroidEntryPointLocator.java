@@ -127,7 +127,7 @@ public final class AndroidEntryPointLocator {
         } else {
             this.flags = flags;
         }
-        this.mon = AndroidEntryPointManager.MANAGER.getProgressMonitor();
+        this.mon = AndroidEntryPointManager.getManager().getProgressMonitor();
 
         populatePossibleEntryPoints();
     }
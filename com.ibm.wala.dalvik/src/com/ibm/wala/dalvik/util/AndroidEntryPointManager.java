@@ -57,6 +57,7 @@ import com.ibm.wala.dalvik.ipa.callgraph.androidModel.parameters.DefaultInstanti
 import com.ibm.wala.dalvik.ipa.callgraph.androidModel.parameters.IInstantiationBehavior;
 import com.ibm.wala.dalvik.ipa.callgraph.androidModel.structure.AbstractAndroidModel;
 import com.ibm.wala.dalvik.ipa.callgraph.androidModel.structure.LoopAndroidModel;
+import com.ibm.wala.dalvik.ipa.callgraph.androidModel.stubs.FrameworkModelCache;
 import com.ibm.wala.dalvik.ipa.callgraph.impl.AndroidEntryPoint;
 import com.ibm.wala.dalvik.ipa.callgraph.propagation.cfa.Intent;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
@@ -81,8 +82,24 @@ import com.ibm.wala.util.strings.StringStuff;
 public final /* singleton */ class AndroidEntryPointManager implements Serializable {
     private static final Logger logger = LoggerFactory.getLogger(AndroidEntryPointManager.class);
 
-    public static AndroidEntryPointManager MANAGER = new AndroidEntryPointManager();
-    public static List<AndroidEntryPoint> ENTRIES = new ArrayList<AndroidEntryPoint>();
+    /**
+     *  The settings of the app being analyzed by the current thread.
+     *
+     *  Each thread has its own, so that several apps can be analyzed at once; threads started
+     *  by an analysis share the settings of the thread that started them.
+     */
+    private static final ThreadLocal<AndroidEntryPointManager> MANAGER = new InheritableThreadLocal<AndroidEntryPointManager>() {
+        @Override
+        protected AndroidEntryPointManager initialValue() {
+            return new AndroidEntryPointManager();
+        }
+    };
+
+    /**
+     *  The entrypoints of the app.
+     */
+    private transient List<AndroidEntryPoint> entries = new ArrayList<AndroidEntryPoint>();
+
     /**
      * This is TRANSIENT!
      */
@@ -95,7 +112,7 @@ public final /* singleton */ class AndroidEntryPointManager implements Serializa
      *  Determines if any EntryPoint extends the specified component.
      */
     public boolean EPContainAny(AndroidComponent compo) {
-        for (AndroidEntryPoint ep: ENTRIES) {
+        for (AndroidEntryPoint ep: entries()) {
             if (ep.belongsTo(compo)) {
                 return true;
             }
@@ -105,18 +122,52 @@ public final /* singleton */ class AndroidEntryPointManager implements Serializa
 
     private AndroidEntryPointManager() {}
 
+    /**
+     *  @return the settings of the current thread
+     */
+    public static AndroidEntryPointManager getManager() {
+        return MANAGER.get();
+    }
+
+    /**
+     *  @return the entrypoints of the app analyzed by the current thread
+     */
+    public static List<AndroidEntryPoint> getEntries() {
+        return getManager().entries();
+    }
+
+    private List<AndroidEntryPoint> entries() {
+        if (entries == null) {
+            // not serialized
+            entries = new ArrayList<AndroidEntryPoint>();
+        }
+        return entries;
+    }
+
+    /**
+     *  Set the entrypoints of the app analyzed by the current thread.
+     */
+    public static void setEntries(List<AndroidEntryPoint> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException("entries is null");
+        }
+        getManager().entries = entries;
+    }
+
+    /**
+     *  Start over with default settings and no entrypoints in the current thread.
+     */
     public static void reset() {
-        ENTRIES = new ArrayList<AndroidEntryPoint>();
-        MANAGER = new AndroidEntryPointManager();
+        MANAGER.set(new AndroidEntryPointManager());
     }
 
     public Set<TypeReference> getComponents() {
-        if (ENTRIES.isEmpty()) {
+        if (entries().isEmpty()) {
             throw new IllegalStateException("No entrypoints loaded yet.");
         }
         
         final Set<TypeReference> ret = new HashSet<TypeReference>();
-        for (final AndroidEntryPoint ep : ENTRIES) {
+        for (final AndroidEntryPoint ep : entries()) {
             final TypeReference epClass = ep.getMethod().getDeclaringClass().getReference();
             if (AndroidComponent.isAndroidComponent(epClass , ep.getClassHierarchy())) {
                 ret.add(epClass);
@@ -252,6 +303,37 @@ public final /* singleton */ class AndroidEntryPointManager implements Serializa
         return prev;
     }
 
+    private transient FrameworkModelCache frameworkModels = null;
+    /**
+     *  Where the framework-level stubs built for other applications are kept.
+     *
+     *  See {@link #setFrameworkModelCache(FrameworkModelCache)}.
+     *
+     *  @return the cache, defaults to null
+     */
+    public FrameworkModelCache getFrameworkModelCache() {
+        return this.frameworkModels;
+    }
+
+    /**
+     *  Reuse the framework-level stubs built for other applications.
+     *
+     *  Stubs like the SystemServiceModel only depend on the Android framework. Applications that
+     *  are analyzed against the same framework may share a {@link FrameworkModelCache}, so that
+     *  their stubs are built once.
+     *
+     *  A reused stub does not instantiate implementors the current application adds to framework
+     *  types, so the default is to build the stubs anew for each application.
+     *
+     *  @param  frameworkModels the cache to use, or null to build the stubs anew
+     *  @return the previous setting
+     */
+    public FrameworkModelCache setFrameworkModelCache(FrameworkModelCache frameworkModels) {
+        FrameworkModelCache prev = this.frameworkModels;
+        this.frameworkModels = frameworkModels;
+        return prev;
+    }
+
     private Class abstractAndroidModel = LoopAndroidModel.class;
     /**
      *  What special handling to insert into the model.
@@ -390,11 +472,11 @@ public final /* singleton */ class AndroidEntryPointManager implements Serializa
         if (this.pack != null) {
             return this.pack;
         } else {
-            if (ENTRIES.isEmpty()) {
+            if (entries().isEmpty()) {
                 logger.error("guessPackage() called when no entrypoints had been set");
                 return null;
             }
-            final String first = ENTRIES.get(0).getMethod().getReference().getDeclaringClass().getName().getPackage().toString();
+            final String first = entries().get(0).getMethod().getReference().getDeclaringClass().getName().getPackage().toString();
             // TODO: Iterate all?
             return first;
         }
@@ -522,7 +522,7 @@ public class AndroidManifestXMLReader {
         @Override
         public void enter(Attributes saxAttrs) {
             super.enter(saxAttrs);
-            AndroidEntryPointManager.MANAGER.setPackage((String) attributesHistory.get(Attr.PACKAGE).peek()); 
+            AndroidEntryPointManager.getManager().setPackage((String) attributesHistory.get(Attr.PACKAGE).peek()); 
         }
     }
 
@@ -642,10 +642,10 @@ public class AndroidManifestXMLReader {
             final Intent intent = AndroidSettingFactory.intent(pack, name, null);
 
             logger.info("\tRegister: {}", intent);
-            AndroidEntryPointManager.MANAGER.registerIntent(intent);
+            AndroidEntryPointManager.getManager().registerIntent(intent);
             for (Intent ovr: overrideTargets) {
                 logger.info("\tOverride: {} --> {}", ovr, intent);
-                AndroidEntryPointManager.MANAGER.setOverride(ovr, intent);
+                AndroidEntryPointManager.getManager().setOverride(ovr, intent);
             }
         }
     }
@@ -0,0 +1,84 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.shrike.cg;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * Reads the files written by {@link BinaryTraceWriter}.
+ */
+public class BinaryTraceReader {
+
+  /**
+   * @return true if the stream starts like a binary trace. The stream must support {@link InputStream#mark(int)}; it is reset to
+   *         where it was.
+   */
+  public static boolean isBinaryTrace(InputStream stream) throws IOException {
+    if (!stream.markSupported()) {
+      throw new IllegalArgumentException("stream must support mark");
+    }
+    stream.mark(4);
+    try {
+      return new DataInputStream(stream).readInt() == BinaryTraceWriter.MAGIC;
+    } catch (EOFException e) {
+      return false;
+    } finally {
+      stream.reset();
+    }
+  }
+
+  /**
+   * Read the edges of a binary trace, each as a line of the text trace that {@link Runtime} writes by default: the caller, a tab,
+   * the class of the callee, a tab and the selector of the callee. So code that reads text traces can read binary ones too.
+   *
+   * @throws IOException if the stream cannot be read or is not a binary trace
+   */
+  public static List<String> readEdges(InputStream stream) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+    if (in.readInt() != BinaryTraceWriter.MAGIC) {
+      throw new IOException("not a binary call graph trace");
+    }
+    int version = in.readInt();
+    if (version != BinaryTraceWriter.VERSION) {
+      throw new IOException("unsupported trace version " + version);
+    }
+    Map<Integer, String> names = HashMapFactory.make();
+    List<String> result = new ArrayList<String>();
+    while (true) {
+      int tag = in.read();
+      if (tag == -1) {
+        return result;
+      } else if (tag == BinaryTraceWriter.NAME) {
+        int id = in.readInt();
+        names.put(id, in.readUTF());
+      } else if (tag == BinaryTraceWriter.EDGE) {
+        String caller = names.get(in.readInt());
+        String callee = names.get(in.readInt());
+        if (caller == null || callee == null) {
+          throw new IOException("edge refers to an undefined method");
+        }
+        result.add(caller + "\t" + callee);
+      } else {
+        throw new IOException("bad record tag " + tag);
+      }
+    }
+  }
+}
@@ -0,0 +1,299 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.shrike.cg;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Records the edges of a dynamic call graph in a compact binary file.
+ * <p>
+ * Each method is given a number the first time it is seen. Each thread collects the edges it observes, as pairs of numbers, in
+ * its own buffer, and drops edges it has seen before. Full buffers are handed to a background thread, which drops edges seen
+ * by other threads and writes the rest. Recording an edge therefore takes no global lock and does no I/O.
+ * <p>
+ * The file is a sequence of records after a header of {@link #MAGIC} and {@link #VERSION}: a {@link #NAME} record (a method
+ * number and its name in modified UTF-8) precedes the first edge that uses that number, and an {@link #EDGE} record holds the
+ * numbers of a caller and a callee. Use {@link BinaryTraceReader} to read it.
+ */
+public class BinaryTraceWriter {
+
+  public static final int MAGIC = 0x57434754;
+
+  public static final int VERSION = 1;
+
+  public static final byte NAME = 0;
+
+  public static final byte EDGE = 1;
+
+  /**
+   * number of new edges a thread collects before handing them to the background thread
+   */
+  private static final int BATCH_SIZE = 1024;
+
+  /**
+   * tells the background thread to finish
+   */
+  private static final long[] END = new long[0];
+
+  private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+  /**
+   * names.get(i) is the name of method i; guarded by itself
+   */
+  private final List<String> names = new ArrayList<String>();
+
+  /**
+   * buffers of all threads that recorded edges; guarded by itself
+   */
+  private final List<ThreadBuffer> buffers = new ArrayList<ThreadBuffer>();
+
+  private final ThreadLocal<ThreadBuffer> buffer = new ThreadLocal<ThreadBuffer>() {
+    @Override
+    protected ThreadBuffer initialValue() {
+      ThreadBuffer b = new ThreadBuffer();
+      synchronized (buffers) {
+        buffers.add(b);
+      }
+      return b;
+    }
+  };
+
+  private final BlockingQueue<long[]> batches = new LinkedBlockingQueue<long[]>();
+
+  private final DataOutputStream out;
+
+  private final Thread writer;
+
+  private volatile boolean closed = false;
+
+  private IOException failure;
+
+  public BinaryTraceWriter(OutputStream stream) throws IOException {
+    if (stream == null) {
+      throw new IllegalArgumentException("stream is null");
+    }
+    out = new DataOutputStream(new BufferedOutputStream(stream));
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    writer = new Thread("WALA dynamic call graph writer") {
+      @Override
+      public void run() {
+        write();
+      }
+    };
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Record a call edge. Once the writer is closed, this does nothing.
+   *
+   * @param caller the name of the calling method, or of a root like "clinit"
+   * @param callee the name of the called method
+   */
+  public void edge(String caller, String callee) {
+    if (closed) {
+      return;
+    }
+    long edge = ((long) id(caller) << 32) | (id(callee) & 0xffffffffL);
+    buffer.get().add(edge);
+  }
+
+  private int id(String name) {
+    Integer id = ids.get(name);
+    if (id == null) {
+      synchronized (names) {
+        id = ids.get(name);
+        if (id == null) {
+          id = names.size();
+          names.add(name);
+          ids.put(name, id);
+        }
+      }
+    }
+    return id;
+  }
+
+  private String name(int id) {
+    synchronized (names) {
+      return names.get(id);
+    }
+  }
+
+  /**
+   * Write all recorded edges and close the file.
+   *
+   * @throws IOException if writing the file failed
+   */
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    synchronized (buffers) {
+      for (ThreadBuffer b : buffers) {
+        b.flush();
+      }
+    }
+    batches.add(END);
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      out.close();
+    } catch (IOException e) {
+      if (failure == null) {
+        failure = e;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * body of the background thread
+   */
+  private void write() {
+    LongSet seen = new LongSet();
+    BitSet named = new BitSet();
+    try {
+      while (true) {
+        long[] batch = batches.take();
+        if (batch == END) {
+          return;
+        }
+        for (long edge : batch) {
+          if (seen.add(edge)) {
+            int caller = (int) (edge >>> 32);
+            int callee = (int) edge;
+            writeName(named, caller);
+            writeName(named, callee);
+            out.writeByte(EDGE);
+            out.writeInt(caller);
+            out.writeInt(callee);
+          }
+        }
+      }
+    } catch (IOException e) {
+      failure = e;
+      closed = true;
+    } catch (InterruptedException e) {
+      closed = true;
+    }
+  }
+
+  private void writeName(BitSet named, int id) throws IOException {
+    if (!named.get(id)) {
+      named.set(id);
+      out.writeByte(NAME);
+      out.writeInt(id);
+      out.writeUTF(name(id));
+    }
+  }
+
+  private class ThreadBuffer {
+    /**
+     * edges this thread has seen; only touched by the owning thread
+     */
+    private final LongSet seen = new LongSet();
+
+    private long[] pending = new long[BATCH_SIZE];
+
+    private int size = 0;
+
+    void add(long edge) {
+      if (seen.add(edge)) {
+        synchronized (this) {
+          pending[size++] = edge;
+          if (size == BATCH_SIZE) {
+            flush();
+          }
+        }
+      }
+    }
+
+    synchronized void flush() {
+      if (size > 0) {
+        long[] batch = new long[size];
+        System.arraycopy(pending, 0, batch, 0, size);
+        batches.add(batch);
+        size = 0;
+      }
+    }
+  }
+
+  /**
+   * an open-addressing set of longs, to avoid boxing on every call
+   */
+  private static class LongSet {
+    private long[] table = new long[64];
+
+    private boolean[] used = new boolean[64];
+
+    private int size = 0;
+
+    private static int hash(long x) {
+      long h = x * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * @return true if x was not in the set
+     */
+    boolean add(long x) {
+      int mask = table.length - 1;
+      int s = hash(x) & mask;
+      while (used[s]) {
+        if (table[s] == x) {
+          return false;
+        }
+        s = (s + 1) & mask;
+      }
+      used[s] = true;
+      table[s] = x;
+      if (++size * 2 > table.length) {
+        grow();
+      }
+      return true;
+    }
+
+    private void grow() {
+      long[] oldTable = table;
+      boolean[] oldUsed = used;
+      table = new long[2 * oldTable.length];
+      used = new boolean[2 * oldTable.length];
+      int mask = table.length - 1;
+      for (int i = 0; i < oldTable.length; i++) {
+        if (oldUsed[i]) {
+          int s = hash(oldTable[i]) & mask;
+          while (used[s]) {
+            s = (s + 1) & mask;
+          }
+          used[s] = true;
+          table[s] = oldTable[i];
+        }
+      }
+    }
+  }
+}
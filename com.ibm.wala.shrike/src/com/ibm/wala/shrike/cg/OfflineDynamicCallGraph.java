@@ -15,6 +15,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Map;
 
@@ -51,7 +52,7 @@ import com.ibm.wala.util.config.SetOfClasses;
  * 
  * The instrumented classes are placed in the directory "output" under the
  * current directory. Disassembled code is written to the file "report" under
- * the current directory.
+ * the current directory, or to the file given with "--report".
  * 
  * @author CHammer
  * @author Julian Dolby (dolby@us.ibm.com)
@@ -70,10 +71,12 @@ public class OfflineDynamicCallGraph {
 	
 	private static ClassHierarchyStore cha = new ClassHierarchyStore();
 	
+	private static int threads = 0;
+	
 	public static void main(String[] args) throws IOException, ClassNotFoundException, InvalidClassFileException, FailureException {
 	  OfflineInstrumenter instrumenter;
 	  ClassInstrumenter ci;
-	  Writer w = new BufferedWriter(new FileWriter("report", false));
+	  String report = "report";
 
 	   for(int i = 0; i < args.length - 1; i++) {
 	      if ("--runtime".equals(args[i])) {
@@ -84,6 +87,10 @@ public class OfflineDynamicCallGraph {
 	        patchExits = false;
 	      } else if ("--patch-calls".equals(args[i])) {
           patchCalls = true;
+        } else if ("--threads".equals(args[i])) {
+          threads = Integer.parseInt(args[i+1]);
+        } else if ("--report".equals(args[i])) {
+          report = args[i+1];
         } else if ("--rt-jar".equals(args[i])) {
 	        System.err.println("using " + args[i+1] + " as stdlib");
 	        OfflineInstrumenter libReader = new OfflineInstrumenter(true);
@@ -94,6 +101,8 @@ public class OfflineDynamicCallGraph {
 	      }
 	    }
 
+	  final Writer w = new BufferedWriter(new FileWriter(report, false));
+
 	  instrumenter = new OfflineInstrumenter(true);
 	  args = instrumenter.parseStandardArgs(args);
 				  
@@ -106,15 +115,32 @@ public class OfflineDynamicCallGraph {
 
 	  instrumenter.setClassHierarchyProvider(cha);
 	  
-	  instrumenter.beginTraversal();
-	  while ((ci = instrumenter.nextClass()) != null) {
-	    ClassWriter cw = doClass(ci, w);
-	    if (cw != null) {
-	      instrumenter.outputModifiedClass(ci, cw);
+	  if (threads > 0) {
+	    instrumenter.instrumentAll(new OfflineInstrumenter.ClassTransformer() {
+	      @Override
+	      public ClassWriter transform(ClassInstrumenter ci) throws Exception {
+	        // keep the report of each class in one piece
+	        StringWriter report = new StringWriter();
+	        ClassWriter cw = doClass(ci, report);
+	        synchronized (w) {
+	          w.write(report.toString());
+	          w.flush();
+	        }
+	        return cw;
+	      }
+	    }, threads);
+	  } else {
+	    instrumenter.beginTraversal();
+	    while ((ci = instrumenter.nextClass()) != null) {
+	      ClassWriter cw = doClass(ci, w);
+	      if (cw != null) {
+	        instrumenter.outputModifiedClass(ci, cw);
+	      }
 	    }
 	  }
 	  
 	  instrumenter.close();
+	  w.close();
 	}
 
 	static ClassWriter doClass(final ClassInstrumenter ci, Writer w) throws InvalidClassFileException, IOException, FailureException {
@@ -35,22 +35,21 @@ public class Runtime {
          "<clinit>".equals(stack[1].getMethodName())? "clinit": 
            "finalize".equals(stack[1].getMethodName())? "root":
              "callbacks";
-     String line = root + "\t" + bashToDescriptor(klass) + "\t" + String.valueOf(method) + "\n";
-     synchronized (runtime) {
-       if (runtime.output != null) {
-         runtime.output.printf(line);
-         runtime.output.flush();
-       }
-     }
+     runtime.edge(root, bashToDescriptor(klass), String.valueOf(method));
    }
   }
   
   private static final Runtime runtime = 
       new Runtime(System.getProperty("dynamicCGFile"), 
                   System.getProperty("dynamicCGFilter"),
-                  System.getProperty("policyClass", "com.ibm.wala.shrike.cg.Runtime$DefaultPolicy"));
+                  System.getProperty("policyClass", "com.ibm.wala.shrike.cg.Runtime$DefaultPolicy"),
+                  "binary".equals(System.getProperty("dynamicCGFormat")));
   
   private PrintWriter output;
+  /**
+   * if not null, edges are recorded here instead of in {@link #output}
+   */
+  private BinaryTraceWriter binaryOutput;
   private SetOfClasses filter;
   private Policy handleCallback;
   private String currentSite;
@@ -66,7 +65,7 @@ public class Runtime {
  
   };
   
-  private Runtime(String fileName, String filterFileName, String policyClassName) {
+  private Runtime(String fileName, String filterFileName, String policyClassName, boolean binary) {
     try {
       filter = new FileOfClasses(new FileInputStream(filterFileName));
     } catch (Exception e) {
@@ -74,7 +73,11 @@ public class Runtime {
     }
 
     try {
-      output = new PrintWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(fileName)), "UTF-8"));
+      if (binary) {
+        binaryOutput = new BinaryTraceWriter(new FileOutputStream(fileName));
+      } else {
+        output = new PrintWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(fileName)), "UTF-8"));
+      }
     } catch (IOException e) {
       output = new PrintWriter(System.err);
     }
@@ -99,6 +102,33 @@ public class Runtime {
         runtime.output.close();
         runtime.output = null;
       }
+      if (runtime.binaryOutput != null) {
+        try {
+          runtime.binaryOutput.close();
+        } catch (IOException e) {
+          System.err.println("failed to write dynamic call graph: " + e);
+        }
+        runtime.binaryOutput = null;
+      }
+    }
+  }
+
+  private boolean isTracing() {
+    return output != null || binaryOutput != null;
+  }
+
+  private void edge(String caller, String calleeClass, String calleeMethod) {
+    BinaryTraceWriter b = binaryOutput;
+    if (b != null) {
+      b.edge(caller, calleeClass + "\t" + calleeMethod);
+    } else {
+      String line = caller + "\t" + calleeClass + "\t" + calleeMethod + "\n";
+      synchronized (this) {
+        if (output != null) {
+          output.printf(line);
+          output.flush();
+        }
+      }
     }
   }
   
@@ -122,7 +152,7 @@ public class Runtime {
   public static void execution(String klass, String method, Object receiver) {
     runtime.currentSite = null;
     if (runtime.filter == null || ! runtime.filter.contains(bashToDescriptor(klass))) {
-      if (runtime.output != null) {
+      if (runtime.isTracing()) {
         String caller = runtime.callStacks.get().peek();
         
         checkValid: {
@@ -142,13 +172,7 @@ public class Runtime {
             }
           }
         
-          String line = (method.contains("<clinit>")? "clinit": String.valueOf(caller)) + "\t" + bashToDescriptor(klass) + "\t" + String.valueOf(method) + "\n";
-          synchronized (runtime) {
-            if (runtime.output != null) {
-              runtime.output.printf(line);
-              runtime.output.flush();
-            }
-          }
+          runtime.edge(method.contains("<clinit>")? "clinit": String.valueOf(caller), bashToDescriptor(klass), String.valueOf(method));
         }
       }
     }
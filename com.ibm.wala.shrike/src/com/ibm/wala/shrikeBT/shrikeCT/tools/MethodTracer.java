@@ -13,6 +13,7 @@ package com.ibm.wala.shrikeBT.shrikeCT.tools;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.PrintStream;
+import java.io.StringWriter;
 import java.io.Writer;
 
 import com.ibm.wala.shrikeBT.ConstantInstruction;
@@ -26,6 +27,7 @@ import com.ibm.wala.shrikeBT.Util;
 import com.ibm.wala.shrikeBT.analysis.Verifier;
 import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
 import com.ibm.wala.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrikeCT.ClassWriter;
 
 /**
  * This is a demo class.
@@ -38,7 +40,7 @@ import com.ibm.wala.shrikeBT.shrikeCT.OfflineInstrumenter;
  * 
  * All modified classes are copied into "output.jar". Some classes may not be modified. To run the resulting code, you should put
  * output.jar and test.jar on the classpath, and put output.jar before test.jar. Disassembled code is written to the file "report"
- * under the current directory.
+ * under the current directory. With "-- --threads n", classes are instrumented on n threads.
  */
 public class MethodTracer {
   private final static boolean disasm = true;
@@ -53,14 +55,38 @@ public class MethodTracer {
     for (int i = 0; i < 1; i++) {
       instrumenter = new OfflineInstrumenter(true);
 
-      Writer w = new BufferedWriter(new FileWriter("report", false));
+      final Writer w = new BufferedWriter(new FileWriter("report", false));
 
-      instrumenter.parseStandardArgs(args);
+      String[] leftover = instrumenter.parseStandardArgs(args);
+      int threads = 0;
+      for (int j = 0; j < leftover.length - 1; j++) {
+        if ("--threads".equals(leftover[j])) {
+          threads = Integer.parseInt(leftover[j + 1]);
+        }
+      }
       instrumenter.setPassUnmodifiedClasses(false);
-      instrumenter.beginTraversal();
-      ClassInstrumenter ci;
-      while ((ci = instrumenter.nextClass()) != null) {
-        doClass(ci, w);
+      if (threads > 0) {
+        instrumenter.instrumentAll(new OfflineInstrumenter.ClassTransformer() {
+          @Override
+          public ClassWriter transform(ClassInstrumenter ci) throws Exception {
+            StringWriter report = new StringWriter();
+            ClassWriter cw = doClass(ci, report);
+            synchronized (w) {
+              w.write(report.toString());
+              w.flush();
+            }
+            return cw;
+          }
+        }, threads);
+      } else {
+        instrumenter.beginTraversal();
+        ClassInstrumenter ci;
+        while ((ci = instrumenter.nextClass()) != null) {
+          ClassWriter cw = doClass(ci, w);
+          if (cw != null) {
+            instrumenter.outputModifiedClass(ci, cw);
+          }
+        }
       }
       instrumenter.close();
     }
@@ -73,7 +99,7 @@ public class MethodTracer {
 
   static final Instruction callPrintln = Util.makeInvoke(PrintStream.class, "println", new Class[] { String.class });
 
-  private static void doClass(final ClassInstrumenter ci, Writer w) throws Exception {
+  private static ClassWriter doClass(final ClassInstrumenter ci, Writer w) throws Exception {
     w.write("Class: " + ci.getReader().getName() + "\n");
     w.flush();
 
@@ -147,7 +173,9 @@ public class MethodTracer {
     }
 
     if (ci.isChanged()) {
-      instrumenter.outputModifiedClass(ci);
+      return ci.emitClass();
+    } else {
+      return null;
     }
   }
 }
@@ -12,17 +12,27 @@ package com.ibm.wala.shrikeBT.tools;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
@@ -401,6 +411,142 @@ public abstract class OfflineInstrumenterBase {
     }
   }
 
+  /**
+   * Rewrites one class for {@link OfflineInstrumenterBase#internalInstrumentAll(ClassProcessor, int)}.
+   */
+  protected static interface ClassProcessor {
+    /**
+     * This is called from several threads at once, each time with a different class.
+     * 
+     * @return the modifications to pass to writeClassTo, or null to leave the class unmodified
+     */
+    Object process(Object cl) throws Exception;
+  }
+
+  /**
+   * a class read and processed by a worker thread of internalInstrumentAll
+   */
+  private final class ProcessedClass implements Callable<ProcessedClass> {
+    private final Input in;
+
+    private final byte[] input;
+
+    private final ClassProcessor processor;
+
+    private String className;
+
+    /**
+     * the modified class, or null if it was not modified
+     */
+    private byte[] output;
+
+    ProcessedClass(Input in, byte[] input, ClassProcessor processor) {
+      this.in = in;
+      this.input = input;
+      this.processor = processor;
+    }
+
+    @Override
+    public ProcessedClass call() throws Exception {
+      BufferedInputStream s = new BufferedInputStream(new ByteArrayInputStream(input));
+      Object cl = makeClassFromStream(in.getInputName(), s);
+      className = getClassName(cl);
+      Object mods = processor.process(cl);
+      if (mods != null) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeClassTo(cl, mods, out);
+        output = out.toByteArray();
+      }
+      return this;
+    }
+  }
+
+  /**
+   * Run p over every class to be instrumented, and write the classes it modifies to the output JAR. This has the same effect as
+   * traversing the classes with internalNextClass() and calling internalOutputModifiedClass() for every class that p modifies,
+   * and produces the same entries in the same order, but classes are parsed, processed and emitted on nThreads worker threads.
+   * Only reading the input and writing the output JAR happen on the calling thread, in the order of the inputs.
+   * 
+   * @throws IllegalArgumentException if p is null or nThreads &lt; 1
+   */
+  final protected void internalInstrumentAll(ClassProcessor p, int nThreads) throws IOException {
+    if (p == null) {
+      throw new IllegalArgumentException("p is null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("nThreads must be positive: " + nThreads);
+    }
+    makeOutputJar();
+    ExecutorService workers = Executors.newFixedThreadPool(nThreads, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "WALA offline instrumenter");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    try {
+      // bound the number of classes held in memory at once
+      int window = 4 * nThreads;
+      ArrayDeque<Future<ProcessedClass>> pending = new ArrayDeque<Future<ProcessedClass>>();
+      for (inputIndex = 0; inputIndex < inputs.size(); inputIndex++) {
+        Input in = inputs.get(inputIndex);
+        if (ignoringInputs.get(inputIndex) || !in.isClass()) {
+          continue;
+        }
+        if (pending.size() == window) {
+          writeProcessedClass(pending.removeFirst());
+        }
+        pending.addLast(workers.submit(new ProcessedClass(in, readInput(in), p)));
+      }
+      while (!pending.isEmpty()) {
+        writeProcessedClass(pending.removeFirst());
+      }
+    } finally {
+      workers.shutdownNow();
+    }
+  }
+
+  private static byte[] readInput(Input in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    InputStream s = in.open();
+    try {
+      copyStream(s, bytes);
+    } finally {
+      s.close();
+    }
+    return bytes.toByteArray();
+  }
+
+  private void writeProcessedClass(Future<ProcessedClass> f) throws IOException {
+    ProcessedClass c;
+    try {
+      c = f.get();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("interrupted while instrumenting");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new IOException("Error instrumenting class: " + cause, cause);
+      }
+    }
+    c.in.setClassName(c.className);
+    if (c.output != null) {
+      String name = c.in.getInputName();
+      if (!entryNames.contains(name)) {
+        putNextEntry(new ZipEntry(name));
+        outputJar.write(c.output);
+        outputJar.closeEntry();
+      }
+    }
+  }
+
   private static String toEntryName(String className) {
     return className.replace('.', '/') + ".class";
   }
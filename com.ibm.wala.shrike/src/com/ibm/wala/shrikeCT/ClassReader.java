@@ -10,13 +10,23 @@
  *******************************************************************************/
 package com.ibm.wala.shrikeCT;
 
+import java.nio.ByteBuffer;
+
 /**
  * This is the core class for reading class file data.
  * 
  * ClassReader performs lazy parsing, and thus most of the methods can throw an InvalidClassFileException.
  */
 public final class ClassReader implements ClassConstants {
-  private final byte[] bytes;
+  /**
+   * the class file data, from index 0 to the limit; only read with absolute gets, so it can be shared between threads
+   */
+  private final ByteBuffer data;
+
+  /**
+   * the class file data as an array, made on demand if data is not backed by one
+   */
+  private volatile byte[] bytes;
 
   private int[] methodOffsets;
 
@@ -40,14 +50,47 @@ public final class ClassReader implements ClassConstants {
    * @throws InvalidClassFileException the class file data is corrupt
    */
   public ClassReader(byte[] bytes) throws InvalidClassFileException {
+    if (bytes == null) {
+      throw new IllegalArgumentException("bytes is null");
+    }
+    this.data = ByteBuffer.wrap(bytes);
     this.bytes = bytes;
     parse();
   }
 
+  /**
+   * Build a reader over the remaining bytes of a buffer, e.g., a class file mapped into memory. The data are not copied, so they
+   * must not change while the reader is in use; the position and limit of the buffer itself may change.
+   * 
+   * @param buffer the class file data
+   * @throws InvalidClassFileException the class file data is corrupt
+   */
+  public ClassReader(ByteBuffer buffer) throws InvalidClassFileException {
+    if (buffer == null) {
+      throw new IllegalArgumentException("buffer is null");
+    }
+    this.data = buffer.slice();
+    parse();
+  }
+
+  /**
+   * @return the contents of buffer, from index 0 to its limit, as an array; the backing array if it holds exactly those
+   */
+  static byte[] toArray(ByteBuffer buffer) {
+    if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.array().length == buffer.limit()) {
+      return buffer.array();
+    }
+    byte[] result = new byte[buffer.limit()];
+    ByteBuffer b = buffer.duplicate();
+    b.clear();
+    b.get(result);
+    return result;
+  }
+
   private void checkLength(int offset, int required) throws InvalidClassFileException {
-    if (bytes.length < offset + required) {
+    if (data.limit() < offset + required) {
       throw new InvalidClassFileException(offset, "file truncated, expected " + required + " bytes, saw only "
-          + (bytes.length - offset));
+          + (data.limit() - offset));
     }
   }
 
@@ -68,7 +111,7 @@ public final class ClassReader implements ClassConstants {
       throw new InvalidClassFileException(offset, "unknown class file version: " + majorVersion + "." + minorVersion);
     }
     
-    cpParser = new ConstantPoolParser(bytes, offset, constantPoolCount);
+    cpParser = new ConstantPoolParser(data, offset, constantPoolCount);
     offset += cpParser.getRawSize();
 
     classInfoOffset = offset;
@@ -103,7 +146,7 @@ public final class ClassReader implements ClassConstants {
     int attrCount = getUShort(offset);
     offset = skipAttributes(offset + 2, attrCount);
 
-    if (offset != bytes.length) {
+    if (offset != data.limit()) {
       throw new InvalidClassFileException(offset, "extra data in class file");
     }
   }
@@ -149,12 +192,27 @@ public final class ClassReader implements ClassConstants {
   }
 
   /**
-   * @return the raw class data bytes
+   * @return the raw class data bytes. If the reader was built from a buffer that is not backed by an array, this copies the data
+   *         the first time it is called; use {@link #getBytes(int, int)} to read just a part.
    */
   public byte[] getBytes() {
+    if (bytes == null) {
+      bytes = toArray(data);
+    }
     return bytes;
   }
 
+  /**
+   * @return a copy of the len bytes at offset i in the class data
+   */
+  public byte[] getBytes(int i, int len) {
+    byte[] result = new byte[len];
+    ByteBuffer b = data.duplicate();
+    b.position(i);
+    b.get(result);
+    return result;
+  }
+
   /**
    * @return the magic number at the start of the class file.
    */
@@ -302,28 +360,28 @@ public final class ClassReader implements ClassConstants {
    * @return the signed 32-bit value at offset i in the class data
    */
   public int getInt(int i) {
-    return (bytes[i] << 24) + ((bytes[i + 1] & 0xFF) << 16) + ((bytes[i + 2] & 0xFF) << 8) + (bytes[i + 3] & 0xFF);
+    return data.getInt(i);
   }
 
   /**
    * @return the unsigned 16-bit value at offset i in the class data
    */
   public int getUShort(int i) {
-    return ((bytes[i] & 0xFF) << 8) + (bytes[i + 1] & 0xFF);
+    return data.getShort(i) & 0xFFFF;
   }
 
   /**
    * @return the signed 16-bit value at offset i in the class data
    */
   public int getShort(int i) {
-    return (bytes[i] << 8) + (bytes[i + 1] & 0xFF);
+    return data.getShort(i);
   }
 
   /**
    * @return the signed 8-bit value at offset i in the class data
    */
   public byte getByte(int i) {
-    return bytes[i];
+    return data.get(i);
   }
 
   /**
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package com.ibm.wala.shrikeCT;
 
+import java.nio.ByteBuffer;
+
 import com.ibm.wala.shrikeCT.BootstrapMethodsReader.BootstrapMethod;
 import com.ibm.wala.shrikeCT.ClassReader.AttrIterator;
 
@@ -87,32 +89,42 @@ public final class ConstantPoolParser implements ClassConstants {
     }
   }
 
-  final private byte[] bytes;
+  /**
+   * the class file data; only read with absolute gets
+   */
+  final private ByteBuffer data;
+
+  private volatile byte[] bytes;
 
   private int[] cpOffsets;
 
   private String[] cpItems;
 
-  private BootstrapMethodsReader invokeDynamicBootstraps;
+  /**
+   * computed on demand; volatile since class readers, and so their constant pools, may be shared between threads
+   */
+  private volatile BootstrapMethodsReader invokeDynamicBootstraps;
   
   // TODO: use JVM spec limit here?
   private final static int MAX_CP_ITEMS = Integer.MAX_VALUE / 4;
 
   private BootstrapMethodsReader getBootstrapReader() throws InvalidClassFileException {
-    if (invokeDynamicBootstraps == null) { 
-      ClassReader thisClass = new ClassReader(bytes);
+    BootstrapMethodsReader result = invokeDynamicBootstraps;
+    if (result == null) { 
+      ClassReader thisClass = new ClassReader(data);
       AttrIterator attrs = new AttrIterator();
       thisClass.initClassAttributeIterator(attrs);
       for (; attrs.isValid(); attrs.advance()) {
         if (attrs.getName().equals("BootstrapMethods")) {
-          invokeDynamicBootstraps = new BootstrapMethodsReader(attrs);
+          result = new BootstrapMethodsReader(attrs);
+          invokeDynamicBootstraps = result;
           break;
         }
       }
-      assert invokeDynamicBootstraps != null;
+      assert result != null;
     }
     
-    return invokeDynamicBootstraps;
+    return result;
   }
   
   /**
@@ -122,7 +134,20 @@ public final class ConstantPoolParser implements ClassConstants {
    * @param classReader 
    */
   public ConstantPoolParser(byte[] bytes, int offset, int itemCount) throws InvalidClassFileException {
+    this(ByteBuffer.wrap(bytes), offset, itemCount);
     this.bytes = bytes;
+  }
+
+  /**
+   * @param data the raw class file data, from index 0 to the limit of the buffer; not copied
+   * @param offset the start of the constant pool data
+   * @param itemCount the number of items in the pool
+   */
+  public ConstantPoolParser(ByteBuffer data, int offset, int itemCount) throws InvalidClassFileException {
+    if (data == null) {
+      throw new IllegalArgumentException("data is null");
+    }
+    this.data = data;
     if (offset < 0) {
       throw new IllegalArgumentException("invalid offset: " + offset);
     }
@@ -133,9 +158,13 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   /**
-   * @return the buffer holding the raw class file data
+   * @return the buffer holding the raw class file data. This copies the data the first time it is called, if the parser was built
+   *         from a buffer that is not backed by an array.
    */
   public byte[] getRawBytes() {
+    if (bytes == null) {
+      bytes = ClassReader.toArray(data);
+    }
     return bytes;
   }
 
@@ -167,9 +196,9 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   private void checkLength(int offset, int required) throws InvalidClassFileException {
-    if (bytes.length < offset + required) {
+    if (data.limit() < offset + required) {
       throw new InvalidClassFileException(offset, "file truncated, expected " + required + " bytes, saw only "
-          + (bytes.length - offset));
+          + (data.limit() - offset));
     }
   }
 
@@ -561,7 +590,9 @@ public final class ConstantPoolParser implements ClassConstants {
     if (s == null) {
       int count = getUShort(offset + 1);
       int end = count + offset + 3;
-      StringBuffer buf = new StringBuffer(count);
+      // a Utf8 item never has more chars than bytes
+      char[] buf = new char[count];
+      int len = 0;
       offset += 3;
       while (offset < end) {
         byte x = getByte(offset);
@@ -569,7 +600,7 @@ public final class ConstantPoolParser implements ClassConstants {
           if (x == 0) {
             throw invalidUtf8(i, offset);
           }
-          buf.append((char) x);
+          buf[len++] = (char) x;
           offset++;
         } else if ((x & 0xE0) == 0xC0) {
           if (offset + 1 >= end) {
@@ -579,7 +610,7 @@ public final class ConstantPoolParser implements ClassConstants {
           if ((y & 0xC0) != 0x80) {
             throw invalidUtf8(i, offset);
           }
-          buf.append((char) (((x & 0x1F) << 6) + (y & 0x3F)));
+          buf[len++] = (char) (((x & 0x1F) << 6) + (y & 0x3F));
           offset += 2;
         } else if ((x & 0xF0) == 0xE0) {
           if (offset + 2 >= end) {
@@ -590,14 +621,14 @@ public final class ConstantPoolParser implements ClassConstants {
           if ((y & 0xC0) != 0x80 || (z & 0xC0) != 0x80) {
             throw invalidUtf8(i, offset);
           }
-          buf.append((char) (((x & 0x0F) << 12) + ((y & 0x3F) << 6) + (z & 0x3F)));
+          buf[len++] = (char) (((x & 0x0F) << 12) + ((y & 0x3F) << 6) + (z & 0x3F));
           offset += 3;
         } else {
           throw invalidUtf8(i, offset);
         }
       }
       // s = buf.toString().intern(); // removed intern() call --MS
-      s = buf.toString();
+      s = new String(buf, 0, len);
       cpItems[i] = s;
     }
     return s;
@@ -650,11 +681,11 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   private byte getByte(int i) {
-    return bytes[i];
+    return data.get(i);
   }
 
   private int getUShort(int i) {
-    return ((bytes[i] & 0xFF) << 8) + (bytes[i + 1] & 0xFF);
+    return data.getShort(i) & 0xFFFF;
   }
 
   // private short getShort(int i) {
@@ -662,11 +693,11 @@ public final class ConstantPoolParser implements ClassConstants {
   // }
 
   private int getInt(int i) {
-    return (bytes[i] << 24) + ((bytes[i + 1] & 0xFF) << 16) + ((bytes[i + 2] & 0xFF) << 8) + (bytes[i + 3] & 0xFF);
+    return data.getInt(i);
   }
 
   private long getLong(int i) {
-    return ((long) getInt(i) << 32) + (getInt(i + 4) & 0xFFFFFFFFL);
+    return data.getLong(i);
   }
 
   private float getFloat(int i) {
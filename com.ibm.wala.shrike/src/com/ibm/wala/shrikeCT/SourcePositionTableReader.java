@@ -124,12 +124,7 @@ public final class SourcePositionTableReader extends AttributeReader {
   
   private static final byte[] getData(ClassReader cr, int rawOffset, int rawSize) {
     // prepare raw data of attribute to pass to sourceinfo
-    byte klass[] = cr.getBytes();
-    int size = rawSize - ATTRIBUTE_HEADER_SIZE;
-    byte data[] = new byte[size];
-    System.arraycopy(klass, rawOffset + ATTRIBUTE_HEADER_SIZE, data, 0, size);
-    
-    return data;
+    return cr.getBytes(rawOffset + ATTRIBUTE_HEADER_SIZE, rawSize - ATTRIBUTE_HEADER_SIZE);
   }
   
   private void fillBytecodeToPositionMap(Position[] pos) throws IOException {
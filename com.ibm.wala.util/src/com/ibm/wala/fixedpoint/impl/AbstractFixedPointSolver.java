@@ -113,6 +113,13 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
     firstSolve = false;
   }
 
+  /**
+   * @return true iff {@link #initForFirstSolve()} has not yet run
+   */
+  protected boolean isFirstSolve() {
+    return firstSolve;
+  }
+
   /**
    * @return true iff work list is empty
    */
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.collections;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread-safe table of canonical instances ("hash-consing"), mapping a key to the one object that represents its value.
+ * <p>
+ * By default the table holds its instances forever. A program that analyzes many unrelated code bases in one VM can call
+ * {@link #setReclaimable(boolean) setReclaimable(true)}; from then on, instances that are not interned as <em>pinned</em> are
+ * held only weakly, and an instance is dropped from the table once nothing else refers to it. This keeps the canonical-instance
+ * guarantee: an instance is only forgotten when no one can compare it with a new one.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the canonical instances
+ */
+public class InternTable<K, V> {
+
+  private static volatile boolean reclaimable = false;
+
+  /**
+   * Choose whether unpinned instances interned from now on may be reclaimed once they are unreachable. Instances interned
+   * earlier keep the policy they were interned under.
+   */
+  public static void setReclaimable(boolean b) {
+    reclaimable = b;
+  }
+
+  public static boolean isReclaimable() {
+    return reclaimable;
+  }
+
+  /**
+   * values are either canonical instances or {@link Entry}s referring to them weakly
+   */
+  private final ConcurrentHashMap<K, Object> map = new ConcurrentHashMap<K, Object>();
+
+  private final ReferenceQueue<V> queue = new ReferenceQueue<V>();
+
+  private static class Entry<K, V> extends WeakReference<V> {
+    private final K key;
+
+    Entry(K key, V value, ReferenceQueue<V> queue) {
+      super(value, queue);
+      this.key = key;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private V deref(Object o) {
+    return o instanceof Entry ? ((Entry<K, V>) o).get() : (V) o;
+  }
+
+  /**
+   * @return the canonical instance for key, or null if there is none
+   */
+  public V get(K key) {
+    Object o = map.get(key);
+    return o == null ? null : deref(o);
+  }
+
+  /**
+   * Make value the canonical instance for key, unless there is one already.
+   *
+   * @param pinned if true, the instance is never reclaimed
+   * @return the canonical instance for key; this is value unless another instance was interned first
+   */
+  public V intern(K key, V value, boolean pinned) {
+    if (key == null) {
+      throw new IllegalArgumentException("key is null");
+    }
+    if (value == null) {
+      throw new IllegalArgumentException("value is null");
+    }
+    expungeStaleEntries();
+    boolean strong = pinned || !reclaimable;
+    Object entry = strong ? value : new Entry<K, V>(key, value, queue);
+    while (true) {
+      Object old = map.putIfAbsent(key, entry);
+      if (old == null) {
+        return value;
+      }
+      V v = deref(old);
+      if (v != null) {
+        if (strong && old instanceof Entry) {
+          // holding v strongly from now on keeps it canonical
+          map.replace(key, old, v);
+        }
+        return v;
+      }
+      // the old instance has been reclaimed
+      if (map.replace(key, old, entry)) {
+        return value;
+      }
+    }
+  }
+
+  /**
+   * @return the number of keys in the table, including some whose instances have been reclaimed recently
+   */
+  public int size() {
+    expungeStaleEntries();
+    return map.size();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void expungeStaleEntries() {
+    Entry<K, V> e;
+    while ((e = (Entry<K, V>) queue.poll()) != null) {
+      map.remove(e.key, e);
+    }
+  }
+}
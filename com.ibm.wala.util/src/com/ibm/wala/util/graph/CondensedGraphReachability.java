@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.graph;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.Predicate;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableCompressedBitmapIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+
+/**
+ * Computes the same sets as {@link GraphReachability}, but on demand and with much less memory for large graphs.
+ *
+ * {@link #solve(IProgressMonitor)} only condenses the strongly connected components of the graph, whose nodes all reach the same
+ * set. The set of a component is computed when it, or a component that reaches it, is first queried, and a component reuses the
+ * set of a successor when it adds nothing to it, so chains of uninteresting nodes share a single set.
+ */
+public class CondensedGraphReachability<T, S> extends GraphReachability<T, S> {
+
+  private final Graph<T> g;
+
+  /**
+   * node -> number of its component
+   */
+  private Map<Object, Integer> components;
+
+  /**
+   * the components each component has edges to
+   */
+  private int[][] succs;
+
+  /**
+   * domain indices of the interesting nodes of each component, or null if there are none
+   */
+  private int[][] interesting;
+
+  /**
+   * the reachable set of each component, once computed
+   */
+  private MutableCompressedBitmapIntSet[] reach;
+
+  private final static MutableCompressedBitmapIntSet EMPTY = new MutableCompressedBitmapIntSet();
+
+  private final static int[] NO_COMPONENTS = new int[0];
+
+  /**
+   * number of distinct sets computed so far
+   */
+  private int sets;
+
+  /**
+   * estimated size of the distinct sets computed so far
+   */
+  private long setBytes;
+
+  /**
+   * @param g graph to analyze
+   * @param filter "interesting" node definition
+   * @throws IllegalArgumentException if g is null
+   */
+  public CondensedGraphReachability(Graph<T> g, Predicate<?> filter) {
+    super(g, filter);
+    this.g = g;
+  }
+
+  /**
+   * @return the set of interesting nodes reachable from n, which is empty if n is not in the graph
+   */
+  @Override
+  public OrdinalSet<S> getReachableSet(Object n) throws IllegalStateException {
+    if (components == null) {
+      throw new IllegalStateException("must call solve() before calling getReachableSet()");
+    }
+    Integer c = components.get(n);
+    if (c == null) {
+      return OrdinalSet.empty();
+    }
+    IntSet s = reach(c);
+    if (s.isEmpty()) {
+      return OrdinalSet.empty();
+    } else {
+      return new OrdinalSet<S>(s, domain);
+    }
+  }
+
+  /**
+   * Condense the graph; the reachable sets are computed as they are queried.
+   *
+   * @return true iff some node reaches an interesting node
+   */
+  @Override
+  public boolean solve(IProgressMonitor monitor) throws CancelException {
+    components = HashMapFactory.make(g.getNumberOfNodes());
+    int n = 0;
+    for (Iterator<Set<T>> it = new SCCIterator<T>(g); it.hasNext(); n++) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      for (T node : it.next()) {
+        components.put(node, n);
+      }
+    }
+
+    MutableSparseIntSet[] edges = new MutableSparseIntSet[n];
+    MutableSparseIntSet[] indices = new MutableSparseIntSet[n];
+    for (T node : g) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      int c = components.get(node);
+      int index = domain.getMappedIndex(node);
+      if (index > -1) {
+        if (indices[c] == null) {
+          indices[c] = MutableSparseIntSet.makeEmpty();
+        }
+        indices[c].add(index);
+      }
+      for (Iterator<? extends T> ss = g.getSuccNodes(node); ss.hasNext();) {
+        int d = components.get(ss.next());
+        if (d != c) {
+          if (edges[c] == null) {
+            edges[c] = MutableSparseIntSet.makeEmpty();
+          }
+          edges[c].add(d);
+        }
+      }
+    }
+
+    succs = new int[n][];
+    interesting = new int[n][];
+    for (int c = 0; c < n; c++) {
+      succs[c] = edges[c] == null ? NO_COMPONENTS : edges[c].toIntArray();
+      interesting[c] = indices[c] == null ? null : indices[c].toIntArray();
+    }
+    reach = new MutableCompressedBitmapIntSet[n];
+    sets = 0;
+    setBytes = 0;
+    return domain.getSize() > 0;
+  }
+
+  /**
+   * compute the set of component c, and those of all components it reaches, by an iterative depth-first search of the condensed
+   * graph, which has no cycles
+   */
+  private IntSet reach(int c) {
+    if (reach[c] != null) {
+      return reach[c];
+    }
+    int[] stack = new int[16];
+    int[] next = new int[16];
+    int top = 0;
+    stack[0] = c;
+    next[0] = 0;
+    while (top >= 0) {
+      int x = stack[top];
+      if (next[top] < succs[x].length) {
+        int y = succs[x][next[top]++];
+        if (reach[y] == null) {
+          if (++top == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * top);
+            next = Arrays.copyOf(next, 2 * top);
+          }
+          stack[top] = y;
+          next[top] = 0;
+        }
+      } else {
+        reach[x] = union(x);
+        top--;
+      }
+    }
+    return reach[c];
+  }
+
+  /**
+   * @return the set of component c, given those of its successors
+   */
+  private MutableCompressedBitmapIntSet union(int c) {
+    MutableCompressedBitmapIntSet largest = null;
+    for (int d : succs[c]) {
+      if (largest == null || reach[d].size() > largest.size()) {
+        largest = reach[d];
+      }
+    }
+    if (largest == null && interesting[c] == null) {
+      return EMPTY;
+    }
+    if (largest != null && covers(largest, c)) {
+      return largest;
+    }
+    MutableCompressedBitmapIntSet result = new MutableCompressedBitmapIntSet();
+    for (int d : succs[c]) {
+      result.addAll(reach[d]);
+    }
+    if (interesting[c] != null) {
+      for (int index : interesting[c]) {
+        result.add(index);
+      }
+    }
+    result.compact();
+    sets++;
+    setBytes += result.getSizeInBytes();
+    return result;
+  }
+
+  /**
+   * @return true iff s holds the interesting nodes of c and the sets of all its successors
+   */
+  private boolean covers(MutableCompressedBitmapIntSet s, int c) {
+    if (interesting[c] != null) {
+      for (int index : interesting[c]) {
+        if (!s.contains(index)) {
+          return false;
+        }
+      }
+    }
+    for (int d : succs[c]) {
+      if (reach[d] != s && !reach[d].isSubset(s)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of strongly connected components of the graph
+   */
+  public int getNumberOfComponents() {
+    return succs == null ? 0 : succs.length;
+  }
+
+  /**
+   * @return the number of distinct reachable sets computed so far
+   */
+  public int getNumberOfSets() {
+    return sets;
+  }
+
+  /**
+   * @return an estimate, in bytes, of the memory taken by the condensed graph and the reachable sets computed so far, leaving out
+   *         the map from nodes to their components
+   */
+  public long getMemoryUsage() {
+    if (succs == null) {
+      return 0;
+    }
+    long bytes = setBytes + 4 * reach.length;
+    for (int c = 0; c < succs.length; c++) {
+      bytes += 4 * succs[c].length;
+      if (interesting[c] != null) {
+        bytes += 4 * interesting[c].length;
+      }
+    }
+    return bytes;
+  }
+}
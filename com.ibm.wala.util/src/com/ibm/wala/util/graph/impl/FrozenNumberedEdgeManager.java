@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.graph.impl;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.SparseIntSet;
+
+/**
+ * A read-only edge manager for a graph whose edges no longer change. The edges are held in compressed sparse row form: for
+ * successors and predecessors alike, one array of the sorted neighbor numbers of all nodes, and one array of offsets into it
+ * indexed by node number. This costs about 8 bytes per edge, where a {@link SparseNumberedEdgeManager} needs several objects per
+ * node and some dozens of bytes per edge.
+ *
+ * The {@link IntSet}s this returns are fresh copies of the rows, so that they work with the other {@link SparseIntSet}
+ * operations; clients should not hold onto them in bulk.
+ *
+ * Like {@link SparseNumberedEdgeManager}, this serializes its node manager with it, so it is only serializable if the node
+ * manager is.
+ */
+public final class FrozenNumberedEdgeManager<T> implements NumberedEdgeManager<T>, Serializable {
+
+  private static final long serialVersionUID = 199474068139286103L;
+
+  private final NumberedNodeManager<T> nodeManager;
+
+  /**
+   * successors of node n are succs[succStart[n]] up to succs[succStart[n+1]], sorted
+   */
+  private final int[] succStart;
+
+  private final int[] succs;
+
+  /**
+   * predecessors of node n are preds[predStart[n]] up to preds[predStart[n+1]], sorted
+   */
+  private final int[] predStart;
+
+  private final int[] preds;
+
+  private FrozenNumberedEdgeManager(NumberedNodeManager<T> nodeManager, int[] succStart, int[] succs, int[] predStart,
+      int[] preds) {
+    this.nodeManager = nodeManager;
+    this.succStart = succStart;
+    this.succs = succs;
+    this.predStart = predStart;
+    this.preds = preds;
+  }
+
+  /**
+   * Copy the edges of g. g serves as the node manager of the result, so its nodes must not change afterwards.
+   *
+   * @throws IllegalArgumentException if g is null
+   */
+  public static <T> FrozenNumberedEdgeManager<T> make(NumberedGraph<T> g) {
+    return make(g, g);
+  }
+
+  /**
+   * Copy the edges of g, for use with a node manager that numbers nodes the same way g does.
+   *
+   * @throws IllegalArgumentException if g or nodeManager is null
+   */
+  public static <T> FrozenNumberedEdgeManager<T> make(NumberedGraph<T> g, NumberedNodeManager<T> nodeManager) {
+    if (g == null) {
+      throw new IllegalArgumentException("g is null");
+    }
+    if (nodeManager == null) {
+      throw new IllegalArgumentException("nodeManager is null");
+    }
+    int n = g.getMaxNumber() + 1;
+
+    // successors, one row at a time, since counts need not be cheap for g
+    int[] succStart = new int[n + 1];
+    int[] succs = new int[16];
+    int[] predCount = new int[n + 1];
+    int size = 0;
+    for (int i = 0; i < n; i++) {
+      succStart[i] = size;
+      T node = g.getNode(i);
+      if (node == null) {
+        continue;
+      }
+      for (Iterator<? extends T> it = g.getSuccNodes(node); it.hasNext();) {
+        if (size == succs.length) {
+          succs = Arrays.copyOf(succs, 2 * size);
+        }
+        succs[size++] = g.getNumber(it.next());
+      }
+      // sort the row, dropping duplicates from multi-graphs
+      Arrays.sort(succs, succStart[i], size);
+      int last = succStart[i];
+      for (int j = succStart[i]; j < size; j++) {
+        if (j == succStart[i] || succs[j] != succs[last - 1]) {
+          succs[last++] = succs[j];
+          predCount[succs[j]]++;
+        }
+      }
+      size = last;
+    }
+    succStart[n] = size;
+    succs = Arrays.copyOf(succs, size);
+
+    // predecessors, by transposing; filling rows in source order keeps them sorted
+    int[] predStart = new int[n + 1];
+    for (int i = 0; i < n; i++) {
+      predStart[i + 1] = predStart[i] + predCount[i];
+    }
+    int[] preds = new int[size];
+    int[] next = Arrays.copyOf(predStart, n);
+    for (int i = 0; i < n; i++) {
+      for (int j = succStart[i]; j < succStart[i + 1]; j++) {
+        preds[next[succs[j]]++] = i;
+      }
+    }
+    return new FrozenNumberedEdgeManager<T>(nodeManager, succStart, succs, predStart, preds);
+  }
+
+  private int number(T node) {
+    int number = nodeManager.getNumber(node);
+    if (number < 0) {
+      throw new IllegalArgumentException(node + " is not in graph");
+    }
+    return number;
+  }
+
+  private static int count(int[] start, int number) {
+    // nodes added after the edges were frozen have no edges
+    return number + 1 >= start.length ? 0 : start[number + 1] - start[number];
+  }
+
+  private static IntSet row(int[] start, int[] elements, int number) {
+    if (count(start, number) == 0) {
+      return EMPTY;
+    }
+    return new Row(Arrays.copyOfRange(elements, start[number], start[number + 1]));
+  }
+
+  private final static IntSet EMPTY = new Row(new int[0]);
+
+  @Override
+  public IntSet getSuccNodeNumbers(T node) throws IllegalArgumentException {
+    return row(succStart, succs, number(node));
+  }
+
+  @Override
+  public IntSet getPredNodeNumbers(T node) throws IllegalArgumentException {
+    return row(predStart, preds, number(node));
+  }
+
+  @Override
+  public Iterator<T> getSuccNodes(T n) throws IllegalArgumentException {
+    return nodeManager.iterateNodes(getSuccNodeNumbers(n));
+  }
+
+  @Override
+  public int getSuccNodeCount(T N) throws IllegalArgumentException {
+    return count(succStart, number(N));
+  }
+
+  @Override
+  public Iterator<T> getPredNodes(T n) throws IllegalArgumentException {
+    return nodeManager.iterateNodes(getPredNodeNumbers(n));
+  }
+
+  @Override
+  public int getPredNodeCount(T n) throws IllegalArgumentException {
+    return count(predStart, number(n));
+  }
+
+  @Override
+  public boolean hasEdge(T src, T dst) {
+    int x = nodeManager.getNumber(src);
+    int y = nodeManager.getNumber(dst);
+    if (x < 0 || y < 0) {
+      return false;
+    }
+    return count(succStart, x) > 0 && Arrays.binarySearch(succs, succStart[x], succStart[x + 1], y) >= 0;
+  }
+
+  /**
+   * @return the number of edges in the graph
+   */
+  public int getNumberOfEdges() {
+    return succs.length;
+  }
+
+  @Override
+  public void addEdge(T src, T dst) {
+    throw new UnsupportedOperationException("edges are frozen");
+  }
+
+  @Override
+  public void removeEdge(T src, T dst) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("edges are frozen");
+  }
+
+  @Override
+  public void removeAllIncidentEdges(T node) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("edges are frozen");
+  }
+
+  @Override
+  public void removeIncomingEdges(T node) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("edges are frozen");
+  }
+
+  @Override
+  public void removeOutgoingEdges(T node) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("edges are frozen");
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer("Successors relation:\n");
+    for (int i = 0; i + 1 < succStart.length; i++) {
+      if (succStart[i] < succStart[i + 1]) {
+        result.append(i).append(" -> ").append(row(succStart, succs, i)).append("\n");
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * a copy of a row
+   */
+  private final static class Row extends SparseIntSet {
+
+    private static final long serialVersionUID = 4129355430611645254L;
+
+    Row(int[] elements) {
+      super(elements);
+    }
+  }
+}
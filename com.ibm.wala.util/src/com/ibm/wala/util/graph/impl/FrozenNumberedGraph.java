@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.graph.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * A read-only copy of a numbered graph that is done being built, with its edges held in a {@link FrozenNumberedEdgeManager}. The
+ * copy keeps the node numbers of the original, and does not refer to it, so the original can be collected once it is frozen.
+ */
+public class FrozenNumberedGraph<T> extends AbstractNumberedGraph<T> {
+
+  private final FrozenNodeManager<T> nodes;
+
+  private final FrozenNumberedEdgeManager<T> edges;
+
+  private FrozenNumberedGraph(NumberedGraph<T> g) {
+    this.nodes = new FrozenNodeManager<T>(g);
+    this.edges = FrozenNumberedEdgeManager.make(g, nodes);
+  }
+
+  /**
+   * @return a frozen copy of g
+   * @throws IllegalArgumentException if g is null
+   */
+  public static <T> FrozenNumberedGraph<T> make(NumberedGraph<T> g) {
+    if (g == null) {
+      throw new IllegalArgumentException("g is null");
+    }
+    return new FrozenNumberedGraph<T>(g);
+  }
+
+  @Override
+  protected NumberedNodeManager<T> getNodeManager() {
+    return nodes;
+  }
+
+  @Override
+  protected NumberedEdgeManager<T> getEdgeManager() {
+    return edges;
+  }
+
+  /**
+   * @return the number of edges in the graph
+   */
+  public int getNumberOfEdges() {
+    return edges.getNumberOfEdges();
+  }
+
+  /**
+   * the nodes of a graph, by the numbers they had there
+   */
+  private final static class FrozenNodeManager<T> implements NumberedNodeManager<T> {
+
+    private final Object[] byNumber;
+
+    private final Map<T, Integer> numbers = HashMapFactory.make();
+
+    private final List<T> nodes = new ArrayList<T>();
+
+    FrozenNodeManager(NumberedGraph<T> g) {
+      byNumber = new Object[g.getMaxNumber() + 1];
+      for (T n : g) {
+        int number = g.getNumber(n);
+        byNumber[number] = n;
+        numbers.put(n, number);
+        nodes.add(n);
+      }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return nodes.iterator();
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+      return nodes.size();
+    }
+
+    @Override
+    public boolean containsNode(T n) {
+      return numbers.containsKey(n);
+    }
+
+    @Override
+    public int getNumber(T n) {
+      Integer number = numbers.get(n);
+      return number == null ? -1 : number;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T getNode(int number) {
+      return number < 0 || number >= byNumber.length ? null : (T) byNumber[number];
+    }
+
+    @Override
+    public int getMaxNumber() {
+      return byNumber.length - 1;
+    }
+
+    @Override
+    public Iterator<T> iterateNodes(IntSet s) {
+      return new NumberedNodeIterator<T>(s, this);
+    }
+
+    @Override
+    public void addNode(T n) {
+      throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    @Override
+    public void removeNode(T n) {
+      throw new UnsupportedOperationException("graph is frozen");
+    }
+  }
+}
@@ -0,0 +1,1202 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of non-negative integers held as a compressed bitmap, in the style of Roaring bitmaps. The integers are split by their high
+ * 16 bits into chunks, and each non-empty chunk holds the low 16 bits of its elements in a container: a sorted array while the
+ * chunk is sparse, a bitmap of 2^16 bits once it is dense, and, after {@link #compact()}, a list of runs if that is smaller still.
+ *
+ * Operations between two such sets work chunk by chunk, and skip the chunks that only one of them has. This suits sets that are
+ * sparse over a large range of integers, but clustered in parts of it, like points-to sets over many instance keys.
+ */
+public class MutableCompressedBitmapIntSet implements MutableIntSet {
+
+  private static final long serialVersionUID = 3333327287706189928L;
+
+  /**
+   * chunks with at most this many elements are held in arrays; a bitmap takes as much space as an array of this size
+   */
+  final static int ARRAY_MAX = 4096;
+
+  /**
+   * the high 16 bits of the elements in each chunk, sorted
+   */
+  private char[] keys;
+
+  private Container[] containers;
+
+  /**
+   * number of chunks
+   */
+  private int chunks = 0;
+
+  /**
+   * number of elements
+   */
+  private int size = 0;
+
+  public MutableCompressedBitmapIntSet() {
+    keys = new char[4];
+    containers = new Container[4];
+  }
+
+  public MutableCompressedBitmapIntSet(MutableCompressedBitmapIntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    keys = new char[Math.max(4, set.chunks)];
+    containers = new Container[keys.length];
+    copyFrom(set);
+  }
+
+  private void copyFrom(MutableCompressedBitmapIntSet set) {
+    if (keys.length < set.chunks) {
+      keys = new char[set.chunks];
+      containers = new Container[set.chunks];
+    }
+    System.arraycopy(set.keys, 0, keys, 0, set.chunks);
+    for (int i = 0; i < set.chunks; i++) {
+      containers[i] = set.containers[i].copy();
+    }
+    Arrays.fill(containers, set.chunks, chunks > set.chunks ? chunks : set.chunks, null);
+    chunks = set.chunks;
+    size = set.size;
+  }
+
+  /**
+   * @return index of the chunk with the given key, or (-(insertion point) - 1)
+   */
+  private int find(char key) {
+    return Arrays.binarySearch(keys, 0, chunks, key);
+  }
+
+  private void insertChunk(int index, char key, Container c) {
+    if (chunks == keys.length) {
+      keys = Arrays.copyOf(keys, 2 * chunks);
+      containers = Arrays.copyOf(containers, 2 * chunks);
+    }
+    System.arraycopy(keys, index, keys, index + 1, chunks - index);
+    System.arraycopy(containers, index, containers, index + 1, chunks - index);
+    keys[index] = key;
+    containers[index] = c;
+    chunks++;
+  }
+
+  private void removeChunk(int index) {
+    System.arraycopy(keys, index + 1, keys, index, chunks - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, chunks - index - 1);
+    containers[--chunks] = null;
+  }
+
+  @Override
+  public boolean contains(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int index = find((char) (i >>> 16));
+    return index >= 0 && containers[index].contains((char) i);
+  }
+
+  @Override
+  public boolean add(int i) {
+    if (i < 0) {
+      throw new IllegalArgumentException("illegal element " + i);
+    }
+    char key = (char) (i >>> 16);
+    int index = find(key);
+    if (index < 0) {
+      insertChunk(-index - 1, key, new ArrayContainer((char) i));
+      size++;
+      return true;
+    }
+    Container c = containers[index];
+    int before = c.cardinality();
+    c = c.add((char) i);
+    containers[index] = c;
+    if (c.cardinality() == before) {
+      return false;
+    }
+    size++;
+    return true;
+  }
+
+  @Override
+  public boolean remove(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int index = find((char) (i >>> 16));
+    if (index < 0) {
+      return false;
+    }
+    Container c = containers[index];
+    int before = c.cardinality();
+    c = c.remove((char) i);
+    if (c.cardinality() == before) {
+      return false;
+    }
+    size--;
+    if (c.cardinality() == 0) {
+      removeChunk(index);
+    } else {
+      containers[index] = c;
+    }
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(containers, 0, chunks, null);
+    chunks = 0;
+    size = 0;
+  }
+
+  @Override
+  public void copySet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return;
+    }
+    if (set instanceof MutableCompressedBitmapIntSet) {
+      copyFrom((MutableCompressedBitmapIntSet) set);
+    } else {
+      clear();
+      addAll(set);
+    }
+  }
+
+  @Override
+  public boolean addAll(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof MutableCompressedBitmapIntSet) {
+      return or((MutableCompressedBitmapIntSet) set);
+    }
+    int before = size;
+    for (IntIterator it = set.intIterator(); it.hasNext();) {
+      add(it.next());
+    }
+    return size != before;
+  }
+
+  /**
+   * add the elements of that, chunk by chunk
+   */
+  private boolean or(MutableCompressedBitmapIntSet that) {
+    if (that == this) {
+      return false;
+    }
+    int before = size;
+    // count the chunks of that which this lacks
+    int missing = 0;
+    for (int i = 0, j = 0; j < that.chunks;) {
+      if (i == chunks || that.keys[j] < keys[i]) {
+        missing++;
+        j++;
+      } else if (keys[i] < that.keys[j]) {
+        i++;
+      } else {
+        i++;
+        j++;
+      }
+    }
+    char[] newKeys = keys;
+    Container[] newContainers = containers;
+    if (missing > 0 && chunks + missing > keys.length) {
+      newKeys = new char[Math.max(chunks + missing, 2 * chunks)];
+      newContainers = new Container[newKeys.length];
+    }
+    // merge from the back, so that this can be updated in place
+    int i = chunks - 1, j = that.chunks - 1, k = chunks + missing - 1;
+    while (j >= 0) {
+      if (i >= 0 && keys[i] > that.keys[j]) {
+        newKeys[k] = keys[i];
+        newContainers[k--] = containers[i--];
+      } else if (i < 0 || keys[i] < that.keys[j]) {
+        Container c = that.containers[j].copy();
+        size += c.cardinality();
+        newKeys[k] = that.keys[j--];
+        newContainers[k--] = c;
+      } else {
+        Container c = containers[i];
+        size -= c.cardinality();
+        c = c.ior(that.containers[j--]);
+        size += c.cardinality();
+        newKeys[k] = keys[i];
+        newContainers[k--] = c;
+        i--;
+      }
+    }
+    if (newKeys != keys) {
+      System.arraycopy(keys, 0, newKeys, 0, i + 1);
+      System.arraycopy(containers, 0, newContainers, 0, i + 1);
+      keys = newKeys;
+      containers = newContainers;
+    }
+    chunks += missing;
+    return size != before;
+  }
+
+  /**
+   * @return a new set with the elements in both a and b
+   */
+  private static MutableCompressedBitmapIntSet and(MutableCompressedBitmapIntSet a, MutableCompressedBitmapIntSet b) {
+    MutableCompressedBitmapIntSet result = new MutableCompressedBitmapIntSet();
+    for (int i = 0, j = 0; i < a.chunks && j < b.chunks;) {
+      if (a.keys[i] < b.keys[j]) {
+        i++;
+      } else if (b.keys[j] < a.keys[i]) {
+        j++;
+      } else {
+        Container c = a.containers[i].and(b.containers[j]);
+        if (c.cardinality() > 0) {
+          result.insertChunk(result.chunks, a.keys[i], c);
+          result.size += c.cardinality();
+        }
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public IntSet intersection(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof MutableCompressedBitmapIntSet) {
+      return and(this, (MutableCompressedBitmapIntSet) that);
+    }
+    MutableCompressedBitmapIntSet result = new MutableCompressedBitmapIntSet();
+    for (IntIterator it = intIterator(); it.hasNext();) {
+      int x = it.next();
+      if (that.contains(x)) {
+        result.add(x);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set != this) {
+      copyFrom((MutableCompressedBitmapIntSet) intersection(set));
+    }
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (other == null) {
+      throw new IllegalArgumentException("other == null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter == null");
+    }
+    if (other instanceof MutableCompressedBitmapIntSet && filter instanceof MutableCompressedBitmapIntSet) {
+      return or(and((MutableCompressedBitmapIntSet) other, (MutableCompressedBitmapIntSet) filter));
+    }
+    int before = size;
+    for (IntIterator it = other.intIterator(); it.hasNext();) {
+      int x = it.next();
+      if (filter.contains(x)) {
+        add(x);
+      }
+    }
+    return size != before;
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    MutableCompressedBitmapIntSet result = new MutableCompressedBitmapIntSet(this);
+    result.addAll(that);
+    return result;
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof MutableCompressedBitmapIntSet) {
+      MutableCompressedBitmapIntSet that = (MutableCompressedBitmapIntSet) set;
+      for (int i = 0, j = 0; i < chunks && j < that.chunks;) {
+        if (keys[i] < that.keys[j]) {
+          i++;
+        } else if (that.keys[j] < keys[i]) {
+          j++;
+        } else if (containers[i++].intersects(that.containers[j++])) {
+          return true;
+        }
+      }
+      return false;
+    }
+    if (set.size() < size) {
+      for (IntIterator it = set.intIterator(); it.hasNext();) {
+        if (contains(it.next())) {
+          return true;
+        }
+      }
+    } else {
+      for (IntIterator it = intIterator(); it.hasNext();) {
+        if (set.contains(it.next())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean isSubset(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that.size() < size) {
+      return false;
+    }
+    if (that instanceof MutableCompressedBitmapIntSet) {
+      MutableCompressedBitmapIntSet set = (MutableCompressedBitmapIntSet) that;
+      for (int i = 0; i < chunks; i++) {
+        int j = set.find(keys[i]);
+        if (j < 0 || containers[i].andCardinality(set.containers[j]) != containers[i].cardinality()) {
+          return false;
+        }
+      }
+      return true;
+    }
+    for (IntIterator it = intIterator(); it.hasNext();) {
+      if (!that.contains(it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean sameValue(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    return size == that.size() && isSubset(that);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int max() {
+    return chunks == 0 ? -1 : (keys[chunks - 1] << 16) | containers[chunks - 1].max();
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private int chunk = 0;
+
+      /**
+       * low 16 bits of the next element in the current chunk, or -1
+       */
+      private int low = chunks == 0 ? -1 : containers[0].next(0);
+
+      @Override
+      public boolean hasNext() {
+        return low >= 0;
+      }
+
+      @Override
+      public int next() {
+        if (low < 0) {
+          throw new NoSuchElementException();
+        }
+        int result = (keys[chunk] << 16) | low;
+        low = low == 0xFFFF ? -1 : containers[chunk].next(low + 1);
+        while (low < 0 && ++chunk < chunks) {
+          low = containers[chunk].next(0);
+        }
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int i = 0; i < chunks; i++) {
+      containers[i].foreach(keys[i] << 16, action);
+    }
+  }
+
+  @Override
+  public void foreachExcluding(final IntSet X, final IntSetAction action) {
+    if (X == null) {
+      throw new IllegalArgumentException("null X");
+    }
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    if (X instanceof MutableCompressedBitmapIntSet) {
+      foreachExcluding((MutableCompressedBitmapIntSet) X, action);
+      return;
+    }
+    foreach(new IntSetAction() {
+      @Override
+      public void act(int x) {
+        if (!X.contains(x)) {
+          action.act(x);
+        }
+      }
+    });
+  }
+
+  /**
+   * chunk by chunk: chunks X lacks are visited whole, and only the others are checked against X's container
+   */
+  private void foreachExcluding(MutableCompressedBitmapIntSet X, final IntSetAction action) {
+    for (int i = 0, j = 0; i < chunks; i++) {
+      while (j < X.chunks && X.keys[j] < keys[i]) {
+        j++;
+      }
+      final int high = keys[i] << 16;
+      if (j == X.chunks || X.keys[j] != keys[i]) {
+        containers[i].foreach(high, action);
+      } else {
+        final Container excluded = X.containers[j];
+        if (excluded.cardinality() < (1 << 16)) {
+          containers[i].foreach(high, new IntSetAction() {
+            @Override
+            public void act(int x) {
+              if (!excluded.contains((char) x)) {
+                action.act(x);
+              }
+            }
+          });
+        }
+      }
+    }
+  }
+
+  /**
+   * Switch each chunk to its smallest representation, including runs, and release unused space. Worth calling on sets that are done
+   * growing.
+   */
+  public void compact() {
+    for (int i = 0; i < chunks; i++) {
+      containers[i] = containers[i].optimize();
+    }
+    if (keys.length > chunks) {
+      keys = Arrays.copyOf(keys, Math.max(1, chunks));
+      containers = Arrays.copyOf(containers, keys.length);
+    }
+  }
+
+  /**
+   * @return an estimate of the memory this set takes, in bytes, leaving out object headers
+   */
+  public long getSizeInBytes() {
+    long bytes = 2 * keys.length + 4 * containers.length;
+    for (int i = 0; i < chunks; i++) {
+      bytes += containers[i].bytes();
+    }
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer sb = new StringBuffer(6 * size);
+    sb.append("{ ");
+    for (IntIterator it = intIterator(); it.hasNext();) {
+      sb.append(it.next());
+      sb.append(" ");
+    }
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * the low 16 bits of the elements of one chunk; never empty while in a set
+   */
+  private abstract static class Container implements Serializable {
+
+    private static final long serialVersionUID = 3627918848783440443L;
+
+    abstract int cardinality();
+
+    abstract boolean contains(char x);
+
+    /**
+     * @return a container with the elements of this and x; may be this
+     */
+    abstract Container add(char x);
+
+    /**
+     * @return a container with the elements of this but x; may be this
+     */
+    abstract Container remove(char x);
+
+    /**
+     * @return a container with the elements of this and of that; may be this, but never that
+     */
+    abstract Container ior(Container that);
+
+    /**
+     * @return a new container with the elements in both this and that
+     */
+    abstract Container and(Container that);
+
+    abstract boolean intersects(Container that);
+
+    abstract int andCardinality(Container that);
+
+    /**
+     * @return the least element >= x, or -1 if there is none
+     */
+    abstract int next(int x);
+
+    abstract int max();
+
+    /**
+     * act on high | x for each element x
+     */
+    abstract void foreach(int high, IntSetAction action);
+
+    /**
+     * @return a container with the same elements that this set may modify independently of this
+     */
+    abstract Container copy();
+
+    /**
+     * @return the smallest container with the elements of this
+     */
+    abstract Container optimize();
+
+    /**
+     * @return this, or an array or bitmap container with the same elements
+     */
+    abstract Container dense();
+
+    /**
+     * @return the size of the arrays of this container, in bytes
+     */
+    abstract int bytes();
+  }
+
+  private final static class ArrayContainer extends Container {
+
+    private static final long serialVersionUID = 4058117170225869642L;
+
+    private char[] content;
+
+    private int card;
+
+    ArrayContainer(char x) {
+      content = new char[4];
+      content[0] = x;
+      card = 1;
+    }
+
+    ArrayContainer(char[] content, int card) {
+      this.content = content;
+      this.card = card;
+    }
+
+    @Override
+    int bytes() {
+      return 2 * content.length;
+    }
+
+    @Override
+    int cardinality() {
+      return card;
+    }
+
+    @Override
+    boolean contains(char x) {
+      return Arrays.binarySearch(content, 0, card, x) >= 0;
+    }
+
+    @Override
+    Container add(char x) {
+      int index = Arrays.binarySearch(content, 0, card, x);
+      if (index >= 0) {
+        return this;
+      }
+      if (card == ARRAY_MAX) {
+        return toBitmap().add(x);
+      }
+      index = -index - 1;
+      if (card == content.length) {
+        content = Arrays.copyOf(content, Math.min(ARRAY_MAX, Math.max(4, 2 * card)));
+      }
+      System.arraycopy(content, index, content, index + 1, card - index);
+      content[index] = x;
+      card++;
+      return this;
+    }
+
+    @Override
+    Container remove(char x) {
+      int index = Arrays.binarySearch(content, 0, card, x);
+      if (index >= 0) {
+        System.arraycopy(content, index + 1, content, index, card - index - 1);
+        card--;
+      }
+      return this;
+    }
+
+    BitmapContainer toBitmap() {
+      BitmapContainer result = new BitmapContainer();
+      for (int i = 0; i < card; i++) {
+        result.set(content[i]);
+      }
+      return result;
+    }
+
+    @Override
+    Container ior(Container that) {
+      Container t = that.dense();
+      if (t instanceof BitmapContainer) {
+        BitmapContainer result = (BitmapContainer) t.copy();
+        for (int i = 0; i < card; i++) {
+          result.set(content[i]);
+        }
+        return result;
+      }
+      ArrayContainer a = (ArrayContainer) t;
+      if (card + a.card > ARRAY_MAX) {
+        return toBitmap().ior(a);
+      }
+      char[] merged = new char[card + a.card];
+      int i = 0, j = 0, k = 0;
+      while (i < card && j < a.card) {
+        if (content[i] < a.content[j]) {
+          merged[k++] = content[i++];
+        } else if (a.content[j] < content[i]) {
+          merged[k++] = a.content[j++];
+        } else {
+          merged[k++] = content[i++];
+          j++;
+        }
+      }
+      while (i < card) {
+        merged[k++] = content[i++];
+      }
+      while (j < a.card) {
+        merged[k++] = a.content[j++];
+      }
+      content = merged;
+      card = k;
+      return this;
+    }
+
+    @Override
+    Container and(Container that) {
+      Container t = that.dense();
+      char[] result = new char[Math.min(card, t.cardinality())];
+      int k = 0;
+      if (t instanceof BitmapContainer) {
+        for (int i = 0; i < card; i++) {
+          if (t.contains(content[i])) {
+            result[k++] = content[i];
+          }
+        }
+      } else {
+        ArrayContainer a = (ArrayContainer) t;
+        for (int i = 0, j = 0; i < card && j < a.card;) {
+          if (content[i] < a.content[j]) {
+            i++;
+          } else if (a.content[j] < content[i]) {
+            j++;
+          } else {
+            result[k++] = content[i++];
+            j++;
+          }
+        }
+      }
+      return new ArrayContainer(result, k);
+    }
+
+    @Override
+    boolean intersects(Container that) {
+      Container t = that.dense();
+      if (t instanceof BitmapContainer) {
+        for (int i = 0; i < card; i++) {
+          if (t.contains(content[i])) {
+            return true;
+          }
+        }
+        return false;
+      }
+      ArrayContainer a = (ArrayContainer) t;
+      for (int i = 0, j = 0; i < card && j < a.card;) {
+        if (content[i] < a.content[j]) {
+          i++;
+        } else if (a.content[j] < content[i]) {
+          j++;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    int andCardinality(Container that) {
+      Container t = that.dense();
+      int result = 0;
+      if (t instanceof BitmapContainer) {
+        for (int i = 0; i < card; i++) {
+          if (t.contains(content[i])) {
+            result++;
+          }
+        }
+        return result;
+      }
+      ArrayContainer a = (ArrayContainer) t;
+      for (int i = 0, j = 0; i < card && j < a.card;) {
+        if (content[i] < a.content[j]) {
+          i++;
+        } else if (a.content[j] < content[i]) {
+          j++;
+        } else {
+          result++;
+          i++;
+          j++;
+        }
+      }
+      return result;
+    }
+
+    @Override
+    int next(int x) {
+      int index = Arrays.binarySearch(content, 0, card, (char) x);
+      if (index < 0) {
+        index = -index - 1;
+      }
+      return index < card ? content[index] : -1;
+    }
+
+    @Override
+    int max() {
+      return content[card - 1];
+    }
+
+    @Override
+    void foreach(int high, IntSetAction action) {
+      for (int i = 0; i < card; i++) {
+        action.act(high | content[i]);
+      }
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(content, card), card);
+    }
+
+    @Override
+    Container optimize() {
+      int runs = 0;
+      for (int i = 0; i < card; i++) {
+        if (i == 0 || content[i] != content[i - 1] + 1) {
+          runs++;
+        }
+      }
+      if (2 * runs < card) {
+        return RunContainer.make(this, runs);
+      }
+      if (content.length > card) {
+        content = Arrays.copyOf(content, card);
+      }
+      return this;
+    }
+
+    @Override
+    Container dense() {
+      return this;
+    }
+  }
+
+  private final static class BitmapContainer extends Container {
+
+    private static final long serialVersionUID = 697312391344746004L;
+
+    private final long[] words;
+
+    private int card;
+
+    BitmapContainer() {
+      this(new long[1 << 10], 0);
+    }
+
+    private BitmapContainer(long[] words, int card) {
+      this.words = words;
+      this.card = card;
+    }
+
+    void set(int x) {
+      long old = words[x >>> 6];
+      words[x >>> 6] = old | (1L << x);
+      if (old != words[x >>> 6]) {
+        card++;
+      }
+    }
+
+    void setRange(int from, int to) {
+      for (int x = from; x <= to; x++) {
+        set(x);
+      }
+    }
+
+    @Override
+    int bytes() {
+      return 8 * words.length;
+    }
+
+    @Override
+    int cardinality() {
+      return card;
+    }
+
+    @Override
+    boolean contains(char x) {
+      return (words[x >>> 6] & (1L << x)) != 0;
+    }
+
+    @Override
+    Container add(char x) {
+      set(x);
+      return this;
+    }
+
+    @Override
+    Container remove(char x) {
+      if (contains(x)) {
+        words[x >>> 6] &= ~(1L << x);
+        card--;
+        if (card <= ARRAY_MAX) {
+          return toArray();
+        }
+      }
+      return this;
+    }
+
+    ArrayContainer toArray() {
+      char[] content = new char[card];
+      int k = 0;
+      for (int w = 0; w < words.length; w++) {
+        for (long word = words[w]; word != 0; word &= word - 1) {
+          content[k++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+        }
+      }
+      return new ArrayContainer(content, card);
+    }
+
+    @Override
+    Container ior(Container that) {
+      Container t = that.dense();
+      if (t instanceof ArrayContainer) {
+        ArrayContainer a = (ArrayContainer) t;
+        for (int i = 0; i < a.card; i++) {
+          set(a.content[i]);
+        }
+      } else {
+        long[] other = ((BitmapContainer) t).words;
+        int c = 0;
+        for (int w = 0; w < words.length; w++) {
+          words[w] |= other[w];
+          c += Long.bitCount(words[w]);
+        }
+        card = c;
+      }
+      return this;
+    }
+
+    @Override
+    Container and(Container that) {
+      Container t = that.dense();
+      if (t instanceof ArrayContainer) {
+        return t.and(this);
+      }
+      long[] other = ((BitmapContainer) t).words;
+      BitmapContainer result = new BitmapContainer();
+      int c = 0;
+      for (int w = 0; w < words.length; w++) {
+        result.words[w] = words[w] & other[w];
+        c += Long.bitCount(result.words[w]);
+      }
+      result.card = c;
+      return c <= ARRAY_MAX ? result.toArray() : result;
+    }
+
+    @Override
+    boolean intersects(Container that) {
+      Container t = that.dense();
+      if (t instanceof ArrayContainer) {
+        return t.intersects(this);
+      }
+      long[] other = ((BitmapContainer) t).words;
+      for (int w = 0; w < words.length; w++) {
+        if ((words[w] & other[w]) != 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    int andCardinality(Container that) {
+      Container t = that.dense();
+      if (t instanceof ArrayContainer) {
+        return t.andCardinality(this);
+      }
+      long[] other = ((BitmapContainer) t).words;
+      int result = 0;
+      for (int w = 0; w < words.length; w++) {
+        result += Long.bitCount(words[w] & other[w]);
+      }
+      return result;
+    }
+
+    @Override
+    int next(int x) {
+      int w = x >>> 6;
+      long word = words[w] & (-1L << x);
+      while (word == 0) {
+        if (++w == words.length) {
+          return -1;
+        }
+        word = words[w];
+      }
+      return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    int max() {
+      for (int w = words.length - 1;; w--) {
+        if (words[w] != 0) {
+          return (w << 6) + 63 - Long.numberOfLeadingZeros(words[w]);
+        }
+      }
+    }
+
+    @Override
+    void foreach(int high, IntSetAction action) {
+      for (int w = 0; w < words.length; w++) {
+        for (long word = words[w]; word != 0; word &= word - 1) {
+          action.act(high | (w << 6) + Long.numberOfTrailingZeros(word));
+        }
+      }
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), card);
+    }
+
+    @Override
+    Container optimize() {
+      // count the starts of runs: set bits whose predecessor is clear
+      int runs = 0;
+      long carry = 0;
+      for (int w = 0; w < words.length; w++) {
+        runs += Long.bitCount(words[w] & ~((words[w] << 1) | carry));
+        carry = words[w] >>> 63;
+      }
+      // a run takes 4 bytes, the bitmap 8K
+      if (runs < 2 * words.length) {
+        return RunContainer.make(this, runs);
+      }
+      return this;
+    }
+
+    @Override
+    Container dense() {
+      return this;
+    }
+  }
+
+  /**
+   * Sorted, disjoint intervals. Immutable, so they are shared between copies; changing one replaces it with an array or bitmap.
+   */
+  private final static class RunContainer extends Container {
+
+    private static final long serialVersionUID = 3108322624128945451L;
+
+    /**
+     * for each run, its first element and its length minus one
+     */
+    private final char[] runs;
+
+    private final int card;
+
+    private RunContainer(char[] runs, int card) {
+      this.runs = runs;
+      this.card = card;
+    }
+
+    static RunContainer make(Container c, int numberOfRuns) {
+      char[] runs = new char[2 * numberOfRuns];
+      int k = 0;
+      for (int x = c.next(0); x >= 0;) {
+        int end = x;
+        while (end < 0xFFFF && c.contains((char) (end + 1))) {
+          end++;
+        }
+        runs[k++] = (char) x;
+        runs[k++] = (char) (end - x);
+        x = end == 0xFFFF ? -1 : c.next(end + 1);
+      }
+      return new RunContainer(runs, c.cardinality());
+    }
+
+    private int start(int run) {
+      return runs[2 * run];
+    }
+
+    private int end(int run) {
+      return runs[2 * run] + runs[2 * run + 1];
+    }
+
+    /**
+     * @return the last run that starts at or before x, or -1
+     */
+    private int find(int x) {
+      int low = 0, high = runs.length / 2 - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (start(mid) <= x) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return high;
+    }
+
+    @Override
+    int bytes() {
+      return 2 * runs.length;
+    }
+
+    @Override
+    int cardinality() {
+      return card;
+    }
+
+    @Override
+    boolean contains(char x) {
+      int run = find(x);
+      return run >= 0 && x <= end(run);
+    }
+
+    @Override
+    Container add(char x) {
+      return contains(x) ? this : dense().add(x);
+    }
+
+    @Override
+    Container remove(char x) {
+      return contains(x) ? dense().remove(x) : this;
+    }
+
+    @Override
+    Container ior(Container that) {
+      return dense().ior(that);
+    }
+
+    @Override
+    Container and(Container that) {
+      return dense().and(that);
+    }
+
+    @Override
+    boolean intersects(Container that) {
+      return dense().intersects(that);
+    }
+
+    @Override
+    int andCardinality(Container that) {
+      return dense().andCardinality(that);
+    }
+
+    @Override
+    int next(int x) {
+      int run = find(x);
+      if (run >= 0 && x <= end(run)) {
+        return x;
+      }
+      return run + 1 < runs.length / 2 ? start(run + 1) : -1;
+    }
+
+    @Override
+    int max() {
+      return end(runs.length / 2 - 1);
+    }
+
+    @Override
+    void foreach(int high, IntSetAction action) {
+      for (int run = 0; run < runs.length / 2; run++) {
+        for (int x = start(run), end = end(run); x <= end; x++) {
+          action.act(high | x);
+        }
+      }
+    }
+
+    @Override
+    Container copy() {
+      return this;
+    }
+
+    @Override
+    Container optimize() {
+      return this;
+    }
+
+    @Override
+    Container dense() {
+      if (card > ARRAY_MAX) {
+        BitmapContainer result = new BitmapContainer();
+        for (int run = 0; run < runs.length / 2; run++) {
+          result.setRange(start(run), end(run));
+        }
+        return result;
+      }
+      char[] content = new char[card];
+      int k = 0;
+      for (int run = 0; run < runs.length / 2; run++) {
+        for (int x = start(run), end = end(run); x <= end; x++) {
+          content[k++] = (char) x;
+        }
+      }
+      return new ArrayContainer(content, card);
+    }
+  }
+}
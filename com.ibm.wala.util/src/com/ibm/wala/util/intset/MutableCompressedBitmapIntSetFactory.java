@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+/**
+ * A factory for compressed bitmap int sets
+ */
+public class MutableCompressedBitmapIntSetFactory implements MutableIntSetFactory<MutableCompressedBitmapIntSet> {
+
+  private final MutableSparseIntSetFactory sparseFactory = new MutableSparseIntSetFactory();
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#make(int[])
+   */
+  @Override
+  public MutableCompressedBitmapIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    MutableCompressedBitmapIntSet result = new MutableCompressedBitmapIntSet();
+    for (int i = 0; i < set.length; i++) {
+      result.add(set[i]);
+    }
+    return result;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#parse(java.lang.String)
+   */
+  @Override
+  public MutableCompressedBitmapIntSet parse(String string) throws NumberFormatException {
+    return makeCopy(sparseFactory.parse(string));
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#makeCopy(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public MutableCompressedBitmapIntSet makeCopy(IntSet x) throws IllegalArgumentException {
+    if (x == null) {
+      throw new IllegalArgumentException("x == null");
+    }
+    if (x instanceof MutableCompressedBitmapIntSet) {
+      return new MutableCompressedBitmapIntSet((MutableCompressedBitmapIntSet) x);
+    }
+    MutableCompressedBitmapIntSet result = new MutableCompressedBitmapIntSet();
+    result.addAll(x);
+    return result;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#make()
+   */
+  @Override
+  public MutableCompressedBitmapIntSet make() {
+    return new MutableCompressedBitmapIntSet();
+  }
+
+}
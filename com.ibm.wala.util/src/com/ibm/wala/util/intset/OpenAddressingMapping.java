@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A dense, append-only {@link OrdinalSetMapping} that numbers objects 0, 1, 2, ... in the order they are added.
+ *
+ * Unlike {@link MutableMapping}, which keeps a {@link java.util.HashMap} from objects to boxed {@link Integer}s, this mapping
+ * keeps an open-addressing (linear probing) table of primitive ints holding object numbers, and finds the object for a number, and
+ * its hash, in plain arrays. This costs less than half of the memory per mapped object, and lookups allocate nothing.
+ *
+ * Objects cannot be removed, only replaced, and iteration is in numbering order.
+ *
+ * Like {@link java.util.HashMap}, a lookup only calls equals on the object asked for, and only for mapped objects with the same
+ * hash code: equals is not symmetric for some keys that WALA maps, e.g. a ReturnValueKey equals the ExceptionReturnValueKey of
+ * the same node, but not vice versa.
+ */
+public class OpenAddressingMapping<T> implements OrdinalSetMapping<T> {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * the table is grown when more than 2/3 of its slots are used
+   */
+  private static final int MAX_LOAD_NUMERATOR = 2;
+
+  private static final int MAX_LOAD_DENOMINATOR = 3;
+
+  public static <T> OpenAddressingMapping<T> make() {
+    return new OpenAddressingMapping<T>();
+  }
+
+  /**
+   * objects[i] is the object numbered i
+   */
+  private Object[] objects = new Object[INITIAL_CAPACITY];
+
+  /**
+   * hashes[i] is the hash of the object numbered i
+   */
+  private int[] hashes = new int[INITIAL_CAPACITY];
+
+  /**
+   * open-addressing table; a slot holds 1 + the number of an object, or 0 if empty. Its length is a power of two.
+   */
+  private int[] table = new int[2 * INITIAL_CAPACITY];
+
+  private int size = 0;
+
+  protected OpenAddressingMapping() {
+  }
+
+  private static int hash(Object o) {
+    int h = o.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return the slot holding o, or the empty slot where o would be inserted
+   */
+  private int slot(Object o) {
+    return slot(o, hash(o));
+  }
+
+  private int slot(Object o, int h) {
+    int mask = table.length - 1;
+    for (int s = h & mask;; s = (s + 1) & mask) {
+      int n = table[s];
+      if (n == 0 || (hashes[n - 1] == h && o.equals(objects[n - 1]))) {
+        return s;
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T getMappedObject(int n) throws NoSuchElementException {
+    if (n < 0 || n >= size) {
+      throw new NoSuchElementException("n out of range " + n);
+    }
+    return (T) objects[n];
+  }
+
+  @Override
+  public int getMappedIndex(Object o) {
+    if (o == null) {
+      return -1;
+    }
+    return table[slot(o)] - 1;
+  }
+
+  @Override
+  public boolean hasMappedIndex(T o) {
+    return getMappedIndex(o) != -1;
+  }
+
+  /**
+   * Add an object to the set of mapped objects.
+   *
+   * @return the integer to which the object is mapped.
+   * @throws IllegalArgumentException if o is null
+   */
+  @Override
+  public int add(T o) {
+    if (o == null) {
+      throw new IllegalArgumentException("o is null");
+    }
+    int h = hash(o);
+    int s = slot(o, h);
+    if (table[s] != 0) {
+      return table[s] - 1;
+    }
+    if (size == objects.length) {
+      Object[] old = objects;
+      objects = new Object[2 * old.length];
+      System.arraycopy(old, 0, objects, 0, old.length);
+      int[] oldHashes = hashes;
+      hashes = new int[2 * oldHashes.length];
+      System.arraycopy(oldHashes, 0, hashes, 0, oldHashes.length);
+    }
+    int result = size++;
+    objects[result] = o;
+    hashes[result] = h;
+    table[s] = result + 1;
+    if (size * MAX_LOAD_DENOMINATOR > table.length * MAX_LOAD_NUMERATOR) {
+      rehash();
+    }
+    return result;
+  }
+
+  /**
+   * Replace a in this mapping with b, keeping the number of a.
+   *
+   * @throws IllegalArgumentException if a is not mapped, or b is mapped already
+   */
+  public void replace(T a, T b) throws IllegalArgumentException {
+    if (b == null) {
+      throw new IllegalArgumentException("b is null");
+    }
+    int i = getMappedIndex(a);
+    if (i == -1) {
+      throw new IllegalArgumentException("first element does not exist in map");
+    }
+    delete(slot(a));
+    int h = hash(b);
+    int s = slot(b, h);
+    if (table[s] != 0) {
+      table[slot(a)] = i + 1;
+      throw new IllegalArgumentException("second element already exists in map");
+    }
+    table[s] = i + 1;
+    objects[i] = b;
+    hashes[i] = h;
+  }
+
+  /**
+   * empty slot s, moving later entries of its probe sequence back so that they stay reachable
+   */
+  private void delete(int s) {
+    int mask = table.length - 1;
+    table[s] = 0;
+    for (int next = (s + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+      int home = hashes[table[next] - 1] & mask;
+      // move the entry at next into the hole at s if its home slot does not lie cyclically in (s, next]
+      if (((next - home) & mask) >= ((next - s) & mask)) {
+        table[s] = table[next];
+        table[next] = 0;
+        s = next;
+      }
+    }
+  }
+
+  private void rehash() {
+    table = new int[2 * table.length];
+    int mask = table.length - 1;
+    for (int i = 0; i < size; i++) {
+      int s = hashes[i] & mask;
+      while (table[s] != 0) {
+        s = (s + 1) & mask;
+      }
+      table[s] = i + 1;
+    }
+  }
+
+  @Override
+  public int getMaximumIndex() {
+    return size - 1;
+  }
+
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return the objects mapped, in the order of their numbers
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < size;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return (T) objects[next++];
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer();
+    for (int i = 0; i < size; i++) {
+      result.append(i).append("  ").append(objects[i]).append("\n");
+    }
+    return result.toString();
+  }
+}
@@ -108,6 +108,24 @@ public class FileUtil {
     }
   }
 
+  /**
+   * Map a file into memory, read-only. The mapping stays valid after this returns, until the buffer is garbage collected.
+   * 
+   * @throws IllegalArgumentException if f is null
+   */
+  public static MappedByteBuffer map(File f) throws IOException {
+    if (f == null) {
+      throw new IllegalArgumentException("f is null");
+    }
+    FileInputStream s = new FileInputStream(f);
+    try {
+      FileChannel c = s.getChannel();
+      return c.map(FileChannel.MapMode.READ_ONLY, 0, c.size());
+    } finally {
+      s.close();
+    }
+  }
+
   /**
    * delete all files (recursively) in a directory. This is dangerous. Use with
    * care.
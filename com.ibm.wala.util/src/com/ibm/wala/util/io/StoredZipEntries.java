@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * Direct access to the stored (uncompressed) entries of a zip or jar file, which is mapped into memory once. The data of such an
+ * entry can be read in place, without going through a {@link java.util.zip.ZipFile} stream and a copy.
+ * <p>
+ * Compressed entries, and zip files this class does not understand (ZIP64 archives, or files of 2GB or more), simply have no
+ * stored entries; callers should fall back to {@link java.util.zip.ZipFile} for them.
+ */
+public class StoredZipEntries {
+
+  private static final int END_SIGNATURE = 0x06054b50;
+
+  private static final int END_SIZE = 22;
+
+  private static final int CENTRAL_SIGNATURE = 0x02014b50;
+
+  private static final int CENTRAL_SIZE = 46;
+
+  private static final int LOCAL_SIGNATURE = 0x04034b50;
+
+  private static final int LOCAL_SIZE = 30;
+
+  private static final int STORED = 0;
+
+  private static final StoredZipEntries NONE = new StoredZipEntries(null);
+
+  /**
+   * the whole zip file; only read with absolute gets
+   */
+  private final ByteBuffer zip;
+
+  /**
+   * for each stored entry, its name mapped to the offset of its local header and its size
+   */
+  private final Map<String, int[]> entries = HashMapFactory.make();
+
+  private StoredZipEntries(ByteBuffer zip) {
+    this.zip = zip;
+  }
+
+  /**
+   * Map a zip file and index its stored entries.
+   *
+   * @throws IllegalArgumentException if f is null
+   */
+  public static StoredZipEntries make(File f) throws IOException {
+    if (f == null) {
+      throw new IllegalArgumentException("f is null");
+    }
+    if (f.length() >= Integer.MAX_VALUE) {
+      return NONE;
+    }
+    ByteBuffer zip = FileUtil.map(f);
+    zip.order(ByteOrder.LITTLE_ENDIAN);
+    StoredZipEntries result = new StoredZipEntries(zip);
+    return result.readCentralDirectory() ? result : NONE;
+  }
+
+  /**
+   * @return false if the file is not a zip file this class understands
+   */
+  private boolean readCentralDirectory() throws UnsupportedEncodingException {
+    int end = -1;
+    for (int i = zip.limit() - END_SIZE; i >= 0 && i >= zip.limit() - END_SIZE - 0xFFFF; i--) {
+      if (zip.getInt(i) == END_SIGNATURE) {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0) {
+      return false;
+    }
+    int count = zip.getShort(end + 10) & 0xFFFF;
+    long offset = zip.getInt(end + 16) & 0xFFFFFFFFL;
+    if (count == 0xFFFF || offset == 0xFFFFFFFFL) {
+      // ZIP64
+      return false;
+    }
+    int p = (int) offset;
+    for (int i = 0; i < count; i++) {
+      if (p < 0 || p + CENTRAL_SIZE > zip.limit() || zip.getInt(p) != CENTRAL_SIGNATURE) {
+        entries.clear();
+        return false;
+      }
+      int method = zip.getShort(p + 10) & 0xFFFF;
+      int size = zip.getInt(p + 20);
+      int nameLength = zip.getShort(p + 28) & 0xFFFF;
+      int extraLength = zip.getShort(p + 30) & 0xFFFF;
+      int commentLength = zip.getShort(p + 32) & 0xFFFF;
+      int local = zip.getInt(p + 42);
+      if (method == STORED && local >= 0 && size >= 0) {
+        entries.put(readName(p + CENTRAL_SIZE, nameLength), new int[] { local, size });
+      }
+      p += CENTRAL_SIZE + nameLength + extraLength + commentLength;
+    }
+    return true;
+  }
+
+  private String readName(int offset, int length) throws UnsupportedEncodingException {
+    byte[] name = new byte[length];
+    ByteBuffer b = zip.duplicate();
+    b.position(offset);
+    b.get(name);
+    return new String(name, "UTF-8");
+  }
+
+  /**
+   * @return the contents of the stored entry with the given name, as a read-only buffer into the mapped file, or null if there is
+   *         no such entry or it is compressed
+   */
+  public ByteBuffer get(String name) {
+    int[] entry = entries.get(name);
+    if (entry == null) {
+      return null;
+    }
+    int p = entry[0];
+    int size = entry[1];
+    if (p + LOCAL_SIZE > zip.limit() || zip.getInt(p) != LOCAL_SIGNATURE) {
+      return null;
+    }
+    // the sizes in the local header may be zero, if the entry has a data descriptor
+    int data = p + LOCAL_SIZE + (zip.getShort(p + 26) & 0xFFFF) + (zip.getShort(p + 28) & 0xFFFF);
+    if (data + size > zip.limit()) {
+      return null;
+    }
+    ByteBuffer b = zip.duplicate();
+    b.position(data);
+    b.limit(data + size);
+    return b.slice();
+  }
+
+  /**
+   * @return the number of stored entries
+   */
+  public int size() {
+    return entries.size();
+  }
+}